@@ -58,6 +58,36 @@ contract MedalSystem is Ownable {
         uint256 bronzeQty
     ) external {
         require(distributors[msg.sender], "Not authorized to distribute");
+        _distribute(to, goldQty, silverQty, bronzeQty);
+    }
+    
+    // 批量发放勋章（一笔交易为多个用户发放，每个用户各自触发 MedalsDistributed 事件）
+    function batchDistributeMedals(
+        address[] calldata recipients,
+        uint256[] calldata goldQtys,
+        uint256[] calldata silverQtys,
+        uint256[] calldata bronzeQtys
+    ) external {
+        require(distributors[msg.sender], "Not authorized to distribute");
+        require(recipients.length > 0, "No recipients");
+        require(
+            recipients.length == goldQtys.length &&
+            goldQtys.length == silverQtys.length &&
+            silverQtys.length == bronzeQtys.length,
+            "Array length mismatch"
+        );
+        
+        for (uint256 i = 0; i < recipients.length; i++) {
+            _distribute(recipients[i], goldQtys[i], silverQtys[i], bronzeQtys[i]);
+        }
+    }
+    
+    function _distribute(
+        address to,
+        uint256 goldQty,
+        uint256 silverQty,
+        uint256 bronzeQty
+    ) internal {
         require(to != address(0), "Invalid recipient address");
         
         if (goldQty > 0) {
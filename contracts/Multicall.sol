@@ -0,0 +1,47 @@
+// SPDX-License-Identifier: MIT
+pragma solidity ^0.8.20;
+
+/**
+ * @title Multicall
+ * @dev 只读调用聚合合约（与 Multicall2 接口兼容）
+ * @notice 在一次 eth_call 中执行多个合约只读调用，后端用于批量查询用户勋章等数据
+ */
+contract Multicall {
+    struct Call {
+        address target;
+        bytes callData;
+    }
+    
+    struct Result {
+        bool success;
+        bytes returnData;
+    }
+    
+    // 聚合调用，任一调用失败则整体回滚
+    function aggregate(Call[] calldata calls) external returns (uint256 blockNumber, bytes[] memory returnData) {
+        blockNumber = block.number;
+        returnData = new bytes[](calls.length);
+        for (uint256 i = 0; i < calls.length; i++) {
+            (bool success, bytes memory ret) = calls[i].target.call(calls[i].callData);
+            require(success, "Multicall: call failed");
+            returnData[i] = ret;
+        }
+    }
+    
+    // 聚合调用，requireSuccess 为 false 时单个调用失败只在结果中标记
+    function tryAggregate(bool requireSuccess, Call[] calldata calls) external returns (Result[] memory returnData) {
+        returnData = new Result[](calls.length);
+        for (uint256 i = 0; i < calls.length; i++) {
+            (bool success, bytes memory ret) = calls[i].target.call(calls[i].callData);
+            if (requireSuccess) {
+                require(success, "Multicall: call failed");
+            }
+            returnData[i] = Result(success, ret);
+        }
+    }
+    
+    // 查询当前区块号
+    function getBlockNumber() external view returns (uint256 blockNumber) {
+        blockNumber = block.number;
+    }
+}
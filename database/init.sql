@@ -97,6 +97,8 @@ CREATE TABLE IF NOT EXISTS `proof_files` (
     INDEX `idx_file_hash` (`file_hash`),
     INDEX `idx_nft_image_hash` (`nft_image_hash`),
     INDEX `idx_submission_batch_id` (`submission_batch_id`),
+    INDEX `idx_status_upload_time` (`audit_status`, `upload_time`, `id`),
+    INDEX `idx_user_upload_time` (`user_account_id`, `upload_time`, `id`),
     
     FOREIGN KEY (`user_account_id`) REFERENCES `user_accounts`(`id`) ON DELETE CASCADE ON UPDATE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='证明文件表';
@@ -123,10 +125,16 @@ CREATE TABLE IF NOT EXISTS `nft_images` (
     `mint_approval_time` DATETIME COMMENT '审批时间',
     
     -- NFT铸造相关
-    `mint_status` ENUM('NOT_STARTED', 'PROCESSING', 'SUCCESS', 'FAILED') NOT NULL DEFAULT 'NOT_STARTED' COMMENT 'NFT铸造状态',
+    `mint_status` ENUM('NOT_STARTED', 'PENDING', 'PROCESSING', 'SUCCESS', 'FAILED') NOT NULL DEFAULT 'NOT_STARTED' COMMENT 'NFT铸造状态（PENDING: 已进入铸造队列）',
     `mint_time` DATETIME COMMENT 'NFT铸造时间',
-    `transaction_hash` VARCHAR(66) COMMENT '区块链交易哈希',
+    `transaction_hash` VARCHAR(66) COMMENT '区块链交易哈希（批量铸造时多条记录共享）',
     `token_id` VARCHAR(100) COMMENT 'NFT Token ID',
+    `mint_owner_address` VARCHAR(100) COMMENT '铸造接收地址',
+    `mint_metadata` LONGTEXT COMMENT '上链的图片元数据',
+    `mint_attributes` TEXT COMMENT '上链的NFT属性',
+    `mint_request_time` DATETIME COMMENT '铸造请求入队时间',
+    `mint_error` VARCHAR(500) COMMENT '铸造失败原因',
+    `mint_nonce` BIGINT COMMENT '批量铸造交易使用的 nonce（发送前写入，用于找回结果不确定的交易）',
     
     -- 状态
     `status` ENUM('ACTIVE', 'DELETED') NOT NULL DEFAULT 'ACTIVE' COMMENT '图片状态',
@@ -136,6 +144,7 @@ CREATE TABLE IF NOT EXISTS `nft_images` (
     INDEX `idx_proof_file_id` (`proof_file_id`),
     INDEX `idx_mint_approval_status` (`mint_approval_status`),
     INDEX `idx_mint_status` (`mint_status`),
+    INDEX `idx_transaction_hash` (`transaction_hash`),
     INDEX `idx_upload_time` (`upload_time`),
     INDEX `idx_image_hash` (`image_hash`),
     
@@ -144,12 +153,69 @@ CREATE TABLE IF NOT EXISTS `nft_images` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='NFT图片表';
 
 -- ===================================
--- 5. 显示创建的表
+-- 5. 创建区块链同步检查点表
+-- ===================================
+CREATE TABLE IF NOT EXISTS `sync_checkpoints` (
+    `name` VARCHAR(64) PRIMARY KEY COMMENT '同步任务名称（例如 medal-sync）',
+    `last_block` BIGINT NOT NULL DEFAULT 0 COMMENT '已完成同步的最后区块高度',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='区块链同步检查点表';
+
+-- ===================================
+-- 6. 创建勋章发放队列表
+-- ===================================
+CREATE TABLE IF NOT EXISTS `medal_distribution_tasks` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '任务ID',
+    `wallet_address` VARCHAR(100) NOT NULL COMMENT '接收勋章的钱包地址',
+    `gold_qty` INT NOT NULL DEFAULT 0 COMMENT '金牌数量',
+    `silver_qty` INT NOT NULL DEFAULT 0 COMMENT '银牌数量',
+    `bronze_qty` INT NOT NULL DEFAULT 0 COMMENT '铜牌数量',
+    `status` ENUM('PENDING', 'SUBMITTED', 'CONFIRMED', 'FAILED') NOT NULL DEFAULT 'PENDING' COMMENT '任务状态',
+    `transaction_hash` VARCHAR(100) COMMENT '上链交易哈希（合并发放的任务共享）',
+    `nonce` BIGINT COMMENT '发送交易使用的 nonce（发送前写入，用于找回结果不确定的交易）',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '失败重试次数',
+    `last_error` VARCHAR(500) COMMENT '最近一次失败原因',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` DATETIME COMMENT '更新时间',
+    
+    -- 索引
+    INDEX `idx_status_id` (`status`, `id`),
+    INDEX `idx_transaction_hash` (`transaction_hash`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='勋章发放队列表';
+
+-- ===================================
+-- 6.1 创建待同步钱包表
+-- ===================================
+CREATE TABLE IF NOT EXISTS `sync_dirty_wallets` (
+    `wallet_address` VARCHAR(100) PRIMARY KEY COMMENT '钱包地址（小写，带0x前缀）',
+    `reason` VARCHAR(32) COMMENT '最近一次标记来源',
+    `mark_count` INT NOT NULL DEFAULT 1 COMMENT '累计标记次数',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最近标记时间',
+    
+    -- 索引
+    INDEX `idx_update_time` (`update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='待同步钱包表';
+
+-- ===================================
+-- 6.2 创建勋章统计汇总表（单行）
+-- ===================================
+CREATE TABLE IF NOT EXISTS `medal_stats` (
+    `id` BIGINT PRIMARY KEY COMMENT '固定为1',
+    `total_users` BIGINT NOT NULL DEFAULT 0 COMMENT '用户总数',
+    `total_gold` BIGINT NOT NULL DEFAULT 0 COMMENT '金牌总数',
+    `total_silver` BIGINT NOT NULL DEFAULT 0 COMMENT '银牌总数',
+    `total_bronze` BIGINT NOT NULL DEFAULT 0 COMMENT '铜牌总数',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='勋章统计汇总表';
+
+-- ===================================
+-- 7. 显示创建的表
 -- ===================================
 SHOW TABLES;
 
 -- ===================================
--- 6. 完成提示
+-- 8. 完成提示
 -- ===================================
 SELECT '✅ 数据库初始化完成！' as message, 
        '已创建: user_accounts, proof_files, nft_images' as tables,
@@ -0,0 +1,31 @@
+-- BrokerWallet 数据库升级脚本：NFT铸造队列
+-- 适用于在引入铸造队列之前用 init.sql 创建的已有数据库（新库直接使用 init.sql，无需执行）
+-- 只需执行一次；JPA 的 ddl-auto: update 会补充新增列，但不会修改已有列的 ENUM 取值，
+-- 未执行本脚本时写入 mint_status = 'PENDING' 会失败（Data truncated for column 'mint_status'）
+
+USE `brokerwallet`;
+
+-- ===================================
+-- 1. mint_status 增加 PENDING（已进入铸造队列）
+-- ===================================
+ALTER TABLE `nft_images`
+    MODIFY `mint_status` ENUM('NOT_STARTED', 'PENDING', 'PROCESSING', 'SUCCESS', 'FAILED') NOT NULL DEFAULT 'NOT_STARTED' COMMENT 'NFT铸造状态（PENDING: 已进入铸造队列）',
+    MODIFY `transaction_hash` VARCHAR(66) COMMENT '区块链交易哈希（批量铸造时多条记录共享）';
+
+-- ===================================
+-- 2. 铸造队列字段（ddl-auto 为 update 时应用启动已自动添加，可跳过本段）
+-- ===================================
+-- ALTER TABLE `nft_images`
+--     ADD COLUMN `mint_owner_address` VARCHAR(100) COMMENT '铸造接收地址' AFTER `token_id`,
+--     ADD COLUMN `mint_metadata` LONGTEXT COMMENT '上链的图片元数据' AFTER `mint_owner_address`,
+--     ADD COLUMN `mint_attributes` TEXT COMMENT '上链的NFT属性' AFTER `mint_metadata`,
+--     ADD COLUMN `mint_request_time` DATETIME COMMENT '铸造请求入队时间' AFTER `mint_attributes`,
+--     ADD COLUMN `mint_error` VARCHAR(500) COMMENT '铸造失败原因' AFTER `mint_request_time`;
+
+-- ===================================
+-- 3. 批量铸造按交易哈希回查记录
+-- ===================================
+CREATE INDEX `idx_transaction_hash` ON `nft_images` (`transaction_hash`);
+
+-- 验证
+SHOW COLUMNS FROM `nft_images` LIKE 'mint_status';
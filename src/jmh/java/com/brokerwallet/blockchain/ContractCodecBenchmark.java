@@ -0,0 +1,138 @@
+package com.brokerwallet.blockchain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点合约调用的 ABI 编解码：web3j Function / FunctionReturnDecoder（*Web3j）与 ContractCodec（*Codec）对比
+ * 配合 -prof gc 查看每次操作的分配字节数（gc.alloc.rate.norm）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractCodecBenchmark {
+
+    private static final List<TypeReference<?>> USER_MEDALS_OUTPUTS = Arrays.asList(
+            new TypeReference<Uint256>() {}, new TypeReference<Uint256>() {},
+            new TypeReference<Uint256>() {}, new TypeReference<Uint256>() {});
+
+    @SuppressWarnings("unchecked")
+    private static final List<TypeReference<Type>> USER_NFTS_OUTPUTS = (List<TypeReference<Type>>) (List<?>)
+            Collections.singletonList(new TypeReference<DynamicArray<Uint256>>() {});
+
+    @SuppressWarnings("unchecked")
+    private static final List<TypeReference<Type>> OWNER_OF_OUTPUTS = (List<TypeReference<Type>>) (List<?>)
+            Collections.singletonList(new TypeReference<Address>() {});
+
+    private final String address = "0x8c056ccb92c567da3fee27c23d4f2f107f203879";
+    private final BigInteger tokenId = BigInteger.valueOf(12345);
+
+    private String userMedalsData;
+    private String userNftsData;
+    private String ownerOfData;
+
+    @Setup
+    public void setUp() {
+        userMedalsData = "0x" + FunctionEncoder.encodeConstructor(Arrays.asList(
+                new Uint256(3), new Uint256(12), new Uint256(40), new Uint256(55)));
+        List<Uint256> tokenIds = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            tokenIds.add(new Uint256(i));
+        }
+        userNftsData = "0x" + FunctionEncoder.encodeConstructor(
+                Collections.singletonList(new DynamicArray<>(Uint256.class, tokenIds)));
+        ownerOfData = "0x" + FunctionEncoder.encodeConstructor(Collections.singletonList(new Address(address)));
+    }
+
+    @Benchmark
+    public String encodeUserMedalsWeb3j() {
+        return FunctionEncoder.encode(new Function("getUserMedals",
+                Collections.singletonList(new Address(address)), USER_MEDALS_OUTPUTS));
+    }
+
+    @Benchmark
+    public String encodeUserMedalsCodec() {
+        return ContractCodec.encodeAddressCall(ContractCodec.GET_USER_MEDALS, address);
+    }
+
+    @Benchmark
+    public String encodeNftMetadataWeb3j() {
+        return FunctionEncoder.encode(new Function("getNftMetadata",
+                Collections.singletonList(new Uint256(tokenId)), Collections.emptyList()));
+    }
+
+    @Benchmark
+    public String encodeNftMetadataCodec() {
+        return ContractCodec.encodeUint256Call(ContractCodec.GET_NFT_METADATA, tokenId);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int decodeUserMedalsWeb3j() {
+        List<Type> results = FunctionReturnDecoder.decode(userMedalsData,
+                (List<TypeReference<Type>>) (List<?>) USER_MEDALS_OUTPUTS);
+        int sum = 0;
+        for (Type result : results) {
+            sum += ((BigInteger) result.getValue()).intValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int decodeUserMedalsCodec() {
+        long[] words = ContractCodec.decodeUint64Words(userMedalsData, 4);
+        return (int) (words[0] + words[1] + words[2] + words[3]);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<BigInteger> decodeUserNftsWeb3j() {
+        List<Type> results = FunctionReturnDecoder.decode(userNftsData, USER_NFTS_OUTPUTS);
+        List<BigInteger> tokenIds = new ArrayList<>();
+        for (Uint256 value : ((DynamicArray<Uint256>) results.get(0)).getValue()) {
+            tokenIds.add(value.getValue());
+        }
+        return tokenIds;
+    }
+
+    @Benchmark
+    public List<BigInteger> decodeUserNftsCodec() {
+        return ContractCodec.decodeUint256Array(userNftsData, 0);
+    }
+
+    @Benchmark
+    public String decodeOwnerOfWeb3j() {
+        return FunctionReturnDecoder.decode(ownerOfData, OWNER_OF_OUTPUTS).get(0).getValue().toString();
+    }
+
+    @Benchmark
+    public String decodeOwnerOfCodec() {
+        return ContractCodec.decodeAddress(ownerOfData, 0);
+    }
+}
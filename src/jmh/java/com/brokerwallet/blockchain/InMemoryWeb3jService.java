@@ -0,0 +1,97 @@
+package com.brokerwallet.blockchain;
+
+import io.reactivex.Flowable;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.websocket.events.Notification;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基准测试用的 Web3jService：eth_call 直接交给 FakeContracts 执行，不经过 HTTP 与 JSON 序列化，
+ * 测得的只是后端自身的请求构建、编解码与结果组装开销。
+ */
+public class InMemoryWeb3jService implements Web3jService {
+
+    private final FakeContracts contracts;
+
+    public InMemoryWeb3jService(FakeContracts contracts) {
+        this.contracts = contracts;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        T response;
+        try {
+            response = responseType.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Cannot create response " + responseType.getName(), e);
+        }
+        response.setJsonrpc("2.0");
+        response.setId(request.getId());
+
+        switch (request.getMethod()) {
+            case "eth_call":
+                Transaction tx = (Transaction) request.getParams().get(0);
+                try {
+                    ((Response<String>) response).setResult(contracts.call(tx.getFrom(), tx.getTo(), tx.getData(), 1));
+                } catch (FakeContracts.Revert e) {
+                    response.setError(new Response.Error(3, "execution reverted: " + e.getMessage()));
+                }
+                return response;
+            case "eth_blockNumber":
+                ((Response<String>) response).setResult(Numeric.encodeQuantity(BigInteger.ONE));
+                return response;
+            default:
+                response.setError(new Response.Error(-32601, "the method " + request.getMethod() + " is not stubbed"));
+                return response;
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        try {
+            return CompletableFuture.completedFuture(send(request, responseType));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        List<Response<?>> responses = new ArrayList<>(batchRequest.getRequests().size());
+        for (Request<?, ? extends Response<?>> request : batchRequest.getRequests()) {
+            responses.add(send(request, request.getResponseType()));
+        }
+        return new BatchResponse(batchRequest.getRequests(), responses);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        try {
+            return CompletableFuture.completedFuture(sendBatch(batchRequest));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                             Class<T> responseType) {
+        throw new UnsupportedOperationException("Subscriptions are not supported");
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,68 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.ContractReadCache;
+import com.brokerwallet.blockchain.FakeChainNode;
+import com.brokerwallet.blockchain.FakeContracts;
+import com.brokerwallet.blockchain.InMemoryWeb3jService;
+import com.brokerwallet.blockchain.RpcBatcher;
+import com.brokerwallet.repository.NftImageRepository;
+import com.brokerwallet.repository.UserAccountRepository;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.Web3j;
+
+/**
+ * 基准测试共用的 BlockchainService 装配：Web3j 指向内存中的 FakeContracts，
+ * 仓库使用不记录调用的 Mockito 桩（返回空结果），读缓存关闭以测量每次的完整路径。
+ */
+final class BenchmarkFixtures {
+
+    static final String ACCOUNT = "0x8c056ccb92c567da3fee27c23d4f2f107f203879";
+    static final String MEDAL_CONTRACT = "0x1a202bfa10ea97a742ad22fcb1a7913821bf1b18";
+    static final String NFT_CONTRACT = "0x382ca68b8133893fdf46170efd839c7703d9e9ae";
+    static final String TOKEN_CONTRACT = "0xf5c7a871de8fa7a3393c528d57a519dceb275f19";
+
+    /**
+     * 与后端上传流程写入链上的图片元数据格式一致
+     */
+    static final String IMAGE_METADATA = "{\"storageType\":\"backend-server\",\"path\":\"uploads/nft-images/7f3a_1728297000000.png\","
+            + "\"type\":\"image/png\",\"serverUrl\":\"http://localhost:5000\",\"size\":284133}";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 预置 nftCount 个NFT（分给 owners 个用户）的合约状态
+     */
+    static FakeContracts contracts(int nftCount, int owners) {
+        FakeContracts contracts = new FakeContracts(MEDAL_CONTRACT, NFT_CONTRACT, TOKEN_CONTRACT, null);
+        contracts.addMinter(ACCOUNT);
+        long mintTime = 1728297000L;
+        for (int i = 0; i < nftCount; i++) {
+            contracts.seedNft(ACCOUNT, FakeChainNode.seedAddress(i % Math.max(1, owners)), "Medal NFT #" + (i + 1),
+                    "Awarded for contribution #" + (i + 1), IMAGE_METADATA, "{\"level\":\"gold\"}", mintTime + i);
+        }
+        return contracts;
+    }
+
+    static BlockchainService blockchainService(FakeContracts contracts) {
+        Web3j web3j = Web3j.build(new InMemoryWeb3jService(contracts));
+        ContractReadCache readCache = new ContractReadCache(new RpcBatcher(web3j));
+        readCache.init();
+
+        BlockchainService service = new BlockchainService(
+                web3j,
+                Mockito.mock(UserAccountRepository.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(NftImageRepository.class, Mockito.withSettings().stubOnly()),
+                readCache,
+                null,
+                null,
+                null,
+                null);
+        ReflectionTestUtils.setField(service, "medalContractAddress", MEDAL_CONTRACT);
+        ReflectionTestUtils.setField(service, "nftContractAddress", NFT_CONTRACT);
+        ReflectionTestUtils.setField(service, "tokenContractAddress", TOKEN_CONTRACT);
+        ReflectionTestUtils.setField(service, "accountAddress", ACCOUNT);
+        return service;
+    }
+}
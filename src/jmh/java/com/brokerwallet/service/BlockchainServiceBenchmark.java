@@ -0,0 +1,107 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.ContractCodec;
+import com.brokerwallet.blockchain.FakeContracts;
+import com.brokerwallet.dto.NftQueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BlockchainService 中逐个NFT执行的解析与格式化路径
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockchainServiceBenchmark {
+
+    private BlockchainService blockchainService;
+
+    private final BigInteger mintTimeSeconds = BigInteger.valueOf(1728297000L);
+    private final BigInteger mintTimeMillis = BigInteger.valueOf(1728297000123L);
+    private final BigInteger tokenId = BigInteger.ONE;
+
+    private String legacyDataUrl;
+    private EthCall nftMetadataResponse;
+    private TransactionReceipt mintReceipt;
+
+    @Setup
+    public void setUp() {
+        FakeContracts contracts = BenchmarkFixtures.contracts(1, 1);
+        blockchainService = BenchmarkFixtures.blockchainService(contracts);
+
+        legacyDataUrl = "data:image/png;base64," + "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk".repeat(20);
+
+        nftMetadataResponse = new EthCall();
+        nftMetadataResponse.setResult(contracts.call(BenchmarkFixtures.ACCOUNT, BenchmarkFixtures.NFT_CONTRACT,
+                ContractCodec.encodeUint256Call(ContractCodec.GET_NFT_METADATA, tokenId), 1));
+
+        Log mintedLog = new Log();
+        mintedLog.setTopics(Arrays.asList(
+                "0x" + "0".repeat(64),
+                "0x000000000000000000000000000000000000000000000000000000000000002a",
+                "0x0000000000000000000000008c056ccb92c567da3fee27c23d4f2f107f203879"));
+        mintReceipt = new TransactionReceipt();
+        mintReceipt.setLogs(Collections.singletonList(mintedLog));
+    }
+
+    @Benchmark
+    public String buildImageUrlBackendServer() {
+        return blockchainService.buildImageUrl(BenchmarkFixtures.IMAGE_METADATA);
+    }
+
+    @Benchmark
+    public String buildImageUrlLegacyDataUrl() {
+        return blockchainService.buildImageUrl(legacyDataUrl);
+    }
+
+    @Benchmark
+    public String formatUnixTimestampSeconds() {
+        return blockchainService.formatUnixTimestamp(mintTimeSeconds);
+    }
+
+    @Benchmark
+    public String formatUnixTimestampMillis() {
+        return blockchainService.formatUnixTimestamp(mintTimeMillis);
+    }
+
+    @Benchmark
+    public String parseTokenIdFromReceipt() {
+        return blockchainService.parseTokenIdFromReceipt(mintReceipt);
+    }
+
+    /**
+     * getNftMetadata 的 web3j 动态类型解码（7 个返回值，含 4 个字符串）
+     */
+    @Benchmark
+    public NftQueryResult.NftMetadata decodeNftMetadata() {
+        return blockchainService.decodeNftData(tokenId, nftMetadataResponse);
+    }
+
+    /**
+     * 单个NFT的完整组装：元数据解码、图片URL、时间格式化
+     */
+    @Benchmark
+    public NftQueryResult.NftInfo assembleNftInfo() {
+        return blockchainService.toNftInfo(tokenId, BenchmarkFixtures.ACCOUNT,
+                blockchainService.decodeNftData(tokenId, nftMetadataResponse));
+    }
+}
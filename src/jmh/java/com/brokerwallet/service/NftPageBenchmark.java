@@ -0,0 +1,49 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.dto.NftQueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * queryAllNfts 分页组装的端到端开销（totalSupply + batchGetNftMetadata + 逐个NFT组装），
+ * Web3j 由内存中的合约状态应答，不含网络与节点耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NftPageBenchmark {
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private BlockchainService blockchainService;
+
+    @Setup
+    public void setUp() {
+        blockchainService = BenchmarkFixtures.blockchainService(BenchmarkFixtures.contracts(500, 100));
+    }
+
+    @Benchmark
+    public NftQueryResult queryAllNftsFirstPage() throws Exception {
+        return blockchainService.queryAllNfts(0, pageSize);
+    }
+
+    @Benchmark
+    public NftQueryResult queryAllNftsDeepPage() throws Exception {
+        return blockchainService.queryAllNfts(5, pageSize);
+    }
+}
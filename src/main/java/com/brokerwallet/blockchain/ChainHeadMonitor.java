@@ -0,0 +1,82 @@
+package com.brokerwallet.blockchain;
+
+import com.brokerwallet.event.NewBlockEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 链头监控组件
+ * 定期轮询 eth_blockNumber，只有链头前进时才发布 NewBlockEvent，
+ * 后台同步等组件据此决定是否需要工作。
+ * 事件在调度线程上同步发布，耗时的监听器（事件索引、状态刷新）标注 @Async 在 chainEventExecutor 上执行。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChainHeadMonitor {
+
+    private final Web3j web3j;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${blockchain.sync.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 最近一次观察到的链头高度，-1 表示尚未成功获取
+     */
+    private final AtomicLong latestBlock = new AtomicLong(-1);
+
+    /**
+     * 连续失败次数（用于降低日志噪音）
+     */
+    private int consecutiveFailures = 0;
+
+    /**
+     * 轮询链头
+     */
+    @Scheduled(fixedDelayString = "${blockchain.sync.head-poll-interval-ms:3000}",
+               initialDelayString = "${blockchain.sync.initial-delay-ms:5000}")
+    public void pollChainHead() {
+        if (!enabled) {
+            return;
+        }
+
+        long head;
+        try {
+            head = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+            if (consecutiveFailures > 0) {
+                log.info("Chain head polling recovered after {} failures", consecutiveFailures);
+            }
+            consecutiveFailures = 0;
+        } catch (Exception e) {
+            consecutiveFailures++;
+            if (consecutiveFailures == 1 || consecutiveFailures % 20 == 0) {
+                log.warn("Failed to poll chain head ({} consecutive failures): {}", consecutiveFailures, e.getMessage());
+            }
+            return;
+        }
+
+        long previous = latestBlock.get();
+        if (head <= previous) {
+            return;
+        }
+
+        latestBlock.set(head);
+        log.debug("New chain head: {} -> {}", previous, head);
+        eventPublisher.publishEvent(new NewBlockEvent(previous, head));
+    }
+
+    /**
+     * 获取最近观察到的链头高度（未知时返回 -1）
+     */
+    public long getLatestBlock() {
+        return latestBlock.get();
+    }
+}
@@ -0,0 +1,275 @@
+package com.brokerwallet.blockchain;
+
+import com.brokerwallet.event.NewBlockEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 链上状态预言机
+ * 在新区块到达时于后台刷新写交易的前置数据（gas price、铸造费、铸造/发放权限、后端账户余额），
+ * 写路径直接读取内存中的快照；快照超过最大陈旧时间时才同步刷新一次（一个 JSON-RPC 批量请求）。
+ */
+@Component
+@Slf4j
+public class ChainStateOracle {
+
+    private final Web3j web3j;
+    private final RpcBatcher rpcBatcher;
+
+    @Value("${blockchain.account-address}")
+    private String accountAddress;
+
+    @Value("${blockchain.contracts.medal-contract}")
+    private String medalContractAddress;
+
+    @Value("${blockchain.contracts.nft-contract}")
+    private String nftContractAddress;
+
+    /**
+     * 快照最大陈旧时间（毫秒），超过后读取时同步刷新
+     */
+    @Value("${blockchain.oracle.max-staleness-ms:15000}")
+    private long maxStalenessMs;
+
+    /**
+     * 单次刷新的 RPC 超时（毫秒）
+     */
+    @Value("${blockchain.oracle.refresh-timeout-ms:5000}")
+    private long refreshTimeoutMs;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong syncRefreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    public ChainStateOracle(Web3j web3j, RpcBatcher rpcBatcher) {
+        this.web3j = web3j;
+        this.rpcBatcher = rpcBatcher;
+    }
+
+    /**
+     * 新区块到达时刷新快照（在 chainEventExecutor 上执行，不占用调度线程）
+     */
+    @Async("chainEventExecutor")
+    @EventListener
+    public void onNewBlock(NewBlockEvent event) {
+        try {
+            refresh(event.getBlockNumber());
+        } catch (Exception e) {
+            log.warn("Chain state refresh at block {} failed: {}", event.getBlockNumber(), e.getMessage());
+        }
+    }
+
+    /**
+     * 链头监控未运行（或长时间没有新区块）时兜底刷新
+     */
+    @Scheduled(fixedDelayString = "${blockchain.oracle.max-staleness-ms:15000}")
+    public void refreshIfStale() {
+        if (isStale()) {
+            try {
+                refresh(-1);
+            } catch (Exception e) {
+                log.debug("Background chain state refresh failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public BigInteger getGasPrice() throws IOException {
+        return current().gasPrice;
+    }
+
+    public BigInteger getMintFee() throws IOException {
+        return current().mintFee;
+    }
+
+    public boolean hasMintPermission() throws IOException {
+        return current().mintPermission;
+    }
+
+    public boolean isDistributor() throws IOException {
+        return current().distributor;
+    }
+
+    /**
+     * 后端账户余额（扣除快照后已发送交易的预计花费）
+     */
+    public BigInteger getBalance() throws IOException {
+        return current().balance;
+    }
+
+    /**
+     * 交易发送后从快照余额中扣除预计花费，避免两次刷新之间重复放行超额交易
+     */
+    public void recordSpend(BigInteger amount) {
+        snapshot.updateAndGet(current -> current == null ? null
+                : current.withBalance(current.balance.subtract(amount).max(BigInteger.ZERO)));
+    }
+
+    /**
+     * 预言机状态
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Snapshot current = snapshot.get();
+        if (current != null) {
+            stats.put("blockNumber", current.blockNumber);
+            stats.put("ageMs", System.currentTimeMillis() - current.fetchedAt);
+            stats.put("gasPrice", current.gasPrice);
+            stats.put("mintFee", current.mintFee);
+            stats.put("mintPermission", current.mintPermission);
+            stats.put("distributor", current.distributor);
+            stats.put("balance", current.balance);
+        }
+        stats.put("maxStalenessMs", maxStalenessMs);
+        stats.put("refreshes", refreshes.get());
+        stats.put("syncRefreshes", syncRefreshes.get());
+        stats.put("refreshFailures", refreshFailures.get());
+        return stats;
+    }
+
+    private Snapshot current() throws IOException {
+        Snapshot current = snapshot.get();
+        if (current != null && !isStale()) {
+            return current;
+        }
+        synchronized (this) {
+            // 并发读取者只需要一次同步刷新
+            if (isStale()) {
+                syncRefreshes.incrementAndGet();
+                return refresh(-1);
+            }
+            return snapshot.get();
+        }
+    }
+
+    private boolean isStale() {
+        Snapshot current = snapshot.get();
+        return current == null || System.currentTimeMillis() - current.fetchedAt > maxStalenessMs;
+    }
+
+    /**
+     * 刷新快照：五个查询通过 RpcBatcher 合并为一个批量请求
+     */
+    private synchronized Snapshot refresh(long blockNumber) throws IOException {
+        CompletableFuture<EthGasPrice> gasPriceFuture = rpcBatcher.submit(web3j.ethGasPrice());
+        CompletableFuture<EthGetBalance> balanceFuture = rpcBatcher.submit(
+                web3j.ethGetBalance(accountAddress, DefaultBlockParameterName.LATEST));
+        CompletableFuture<EthCall> mintFeeFuture = rpcBatcher.submit(contractCall(nftContractAddress, ContractCodec.MINT_FEE));
+        CompletableFuture<EthCall> mintPermissionFuture = rpcBatcher.submit(contractCall(nftContractAddress,
+                ContractCodec.encodeAddressCall(ContractCodec.HAS_MINT_PERMISSION, accountAddress)));
+        CompletableFuture<EthCall> distributorFuture = rpcBatcher.submit(contractCall(medalContractAddress,
+                ContractCodec.encodeAddressCall(ContractCodec.DISTRIBUTORS, accountAddress)));
+
+        Snapshot previous = snapshot.get();
+        try {
+            EthGasPrice gasPrice = await(gasPriceFuture);
+            EthGetBalance balance = await(balanceFuture);
+            if (gasPrice.hasError() || balance.hasError()) {
+                throw new IOException("Chain state query failed: "
+                        + (gasPrice.hasError() ? gasPrice.getError().getMessage() : balance.getError().getMessage()));
+            }
+
+            EthCall mintFeeResponse = await(mintFeeFuture);
+            BigInteger mintFee = succeeded(mintFeeResponse, "mintFee")
+                    ? ContractCodec.decodeUint256(mintFeeResponse.getValue(), 0)
+                    : previous != null ? previous.mintFee : BigInteger.ZERO;
+            EthCall mintPermissionResponse = await(mintPermissionFuture);
+            boolean mintPermission = succeeded(mintPermissionResponse, "hasMintPermission")
+                    ? ContractCodec.decodeBool(mintPermissionResponse.getValue(), 0)
+                    : previous != null && previous.mintPermission;
+            EthCall distributorResponse = await(distributorFuture);
+            boolean distributor = succeeded(distributorResponse, "distributors")
+                    ? ContractCodec.decodeBool(distributorResponse.getValue(), 0)
+                    : previous != null && previous.distributor;
+
+            Snapshot refreshed = new Snapshot(blockNumber, System.currentTimeMillis(), gasPrice.getGasPrice(),
+                    mintFee, mintPermission, distributor, balance.getBalance());
+            snapshot.set(refreshed);
+            refreshes.incrementAndGet();
+            log.debug("Chain state refreshed at block {}: gasPrice={}, mintFee={}, balance={}",
+                    blockNumber, refreshed.gasPrice, refreshed.mintFee, refreshed.balance);
+            return refreshed;
+        } catch (IOException e) {
+            refreshFailures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private Request<?, EthCall> contractCall(String contract, String data) {
+        return web3j.ethCall(
+                Transaction.createEthCallTransaction(accountAddress, contract, data),
+                DefaultBlockParameterName.LATEST);
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get(refreshTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while refreshing chain state", e);
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Chain state refresh failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 单值合约调用是否返回了可解码的结果；失败时调用方沿用上一次的值
+     */
+    private boolean succeeded(EthCall response, String method) {
+        if (response.hasError() || ContractCodec.wordCount(response.getValue()) < 1) {
+            log.warn("Chain state call {} failed, keeping previous value", method);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 不可变的链上状态快照
+     */
+    private static final class Snapshot {
+        private final long blockNumber;
+        private final long fetchedAt;
+        private final BigInteger gasPrice;
+        private final BigInteger mintFee;
+        private final boolean mintPermission;
+        private final boolean distributor;
+        private final BigInteger balance;
+
+        private Snapshot(long blockNumber, long fetchedAt, BigInteger gasPrice, BigInteger mintFee,
+                         boolean mintPermission, boolean distributor, BigInteger balance) {
+            this.blockNumber = blockNumber;
+            this.fetchedAt = fetchedAt;
+            this.gasPrice = gasPrice;
+            this.mintFee = mintFee;
+            this.mintPermission = mintPermission;
+            this.distributor = distributor;
+            this.balance = balance;
+        }
+
+        private Snapshot withBalance(BigInteger newBalance) {
+            return new Snapshot(blockNumber, fetchedAt, gasPrice, mintFee, mintPermission, distributor, newBalance);
+        }
+    }
+}
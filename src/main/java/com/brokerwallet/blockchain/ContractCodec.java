@@ -0,0 +1,174 @@
+package com.brokerwallet.blockchain;
+
+import org.web3j.crypto.Hash;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 热点合约调用的 ABI 编解码
+ * 方法选择器预先计算；address / uint256 参数直接拼接十六进制；
+ * 固定布局的返回值（若干个 32 字节字）直接按字解析为基本类型，不经过 web3j 的 Function / Type 列表。
+ */
+public final class ContractCodec {
+
+    /**
+     * 每个 ABI 字的十六进制字符数
+     */
+    private static final int WORD_CHARS = 64;
+
+    private static final String ZERO_WORD = "0000000000000000000000000000000000000000000000000000000000000000";
+
+    // 勋章合约
+    public static final String GET_USER_MEDALS = selector("getUserMedals(address)");
+    public static final String GET_GLOBAL_STATS = selector("getGlobalStats()");
+    public static final String DISTRIBUTORS = selector("distributors(address)");
+
+    // NFT 合约
+    public static final String GET_USER_NFTS = selector("getUserNfts(address)");
+    public static final String GET_USER_NFT_COUNT = selector("getUserNftCount(address)");
+    public static final String TOTAL_SUPPLY = selector("totalSupply()");
+    public static final String GET_NFT_METADATA = selector("getNftMetadata(uint256)");
+    public static final String OWNER_OF = selector("ownerOf(uint256)");
+    public static final String MINT_FEE = selector("mintFee()");
+    public static final String HAS_MINT_PERMISSION = selector("hasMintPermission(address)");
+
+    // 代币合约
+    public static final String BALANCE_OF = selector("balanceOf(address)");
+
+    private ContractCodec() {
+    }
+
+    /**
+     * 计算方法选择器（0x + 4 字节），仅用于初始化常量
+     */
+    public static String selector(String signature) {
+        return Hash.sha3String(signature).substring(0, 10);
+    }
+
+    /**
+     * 编码单个 address 参数的调用
+     */
+    public static String encodeAddressCall(String selector, String address) {
+        int start = address.startsWith("0x") || address.startsWith("0X") ? 2 : 0;
+        int length = address.length() - start;
+        if (length > 40) {
+            throw new IllegalArgumentException("Invalid address: " + address);
+        }
+        StringBuilder data = new StringBuilder(selector.length() + WORD_CHARS);
+        data.append(selector).append(ZERO_WORD, 0, WORD_CHARS - length);
+        for (int i = start; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (Character.digit(c, 16) < 0) {
+                throw new IllegalArgumentException("Invalid address: " + address);
+            }
+            data.append(Character.toLowerCase(c));
+        }
+        return data.toString();
+    }
+
+    /**
+     * 编码单个 uint256 参数的调用
+     */
+    public static String encodeUint256Call(String selector, BigInteger value) {
+        if (value.signum() < 0 || value.bitLength() > 256) {
+            throw new IllegalArgumentException("Value out of uint256 range: " + value);
+        }
+        String hex = value.toString(16);
+        return new StringBuilder(selector.length() + WORD_CHARS)
+                .append(selector)
+                .append(ZERO_WORD, 0, WORD_CHARS - hex.length())
+                .append(hex)
+                .toString();
+    }
+
+    /**
+     * 返回数据包含的完整字数（"0x" 或 null 视为 0）
+     */
+    public static int wordCount(String data) {
+        if (data == null || data.length() < 2) {
+            return 0;
+        }
+        return (data.length() - 2) / WORD_CHARS;
+    }
+
+    /**
+     * 解析第 index 个字为 uint256
+     */
+    public static BigInteger decodeUint256(String data, int index) {
+        int offset = wordOffset(data, index);
+        return new BigInteger(data.substring(offset, offset + WORD_CHARS), 16);
+    }
+
+    /**
+     * 解析第 index 个字为 long，值超过 64 位时抛出 ArithmeticException
+     */
+    public static long decodeUint64(String data, int index) {
+        int offset = wordOffset(data, index);
+        int low = offset + WORD_CHARS - 16;
+        for (int i = offset; i < low; i++) {
+            if (data.charAt(i) != '0') {
+                throw new ArithmeticException("uint256 value at word " + index + " exceeds 64 bits");
+            }
+        }
+        long value = 0;
+        for (int i = low; i < offset + WORD_CHARS; i++) {
+            value = (value << 4) | Character.digit(data.charAt(i), 16);
+        }
+        return value;
+    }
+
+    /**
+     * 解析前 count 个字为 long 数组（固定布局的多个 uint256 返回值）
+     */
+    public static long[] decodeUint64Words(String data, int count) {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = decodeUint64(data, i);
+        }
+        return values;
+    }
+
+    /**
+     * 解析第 index 个字为 bool
+     */
+    public static boolean decodeBool(String data, int index) {
+        int offset = wordOffset(data, index);
+        for (int i = offset; i < offset + WORD_CHARS; i++) {
+            if (data.charAt(i) != '0') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析第 index 个字为地址（0x + 40 位小写十六进制）
+     */
+    public static String decodeAddress(String data, int index) {
+        int offset = wordOffset(data, index);
+        return "0x" + data.substring(offset + WORD_CHARS - 40, offset + WORD_CHARS).toLowerCase();
+    }
+
+    /**
+     * 解析 uint256[] 返回值，index 为指向数组的偏移量所在的字
+     */
+    public static List<BigInteger> decodeUint256Array(String data, int index) {
+        int arrayWord = (int) (decodeUint64(data, index) / 32);
+        int length = (int) decodeUint64(data, arrayWord);
+        List<BigInteger> values = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            values.add(decodeUint256(data, arrayWord + 1 + i));
+        }
+        return values;
+    }
+
+    private static int wordOffset(String data, int index) {
+        int offset = 2 + index * WORD_CHARS;
+        if (data == null || data.length() < offset + WORD_CHARS) {
+            throw new IllegalArgumentException("ABI data too short for word " + index);
+        }
+        return offset;
+    }
+}
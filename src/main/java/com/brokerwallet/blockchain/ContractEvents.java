@@ -0,0 +1,158 @@
+package com.brokerwallet.blockchain;
+
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 合约事件定义与解码
+ * 事件签名哈希在类加载时计算一次，索引器按 topic0 直接分派
+ */
+public final class ContractEvents {
+
+    /**
+     * MedalSystem: MedalsDistributed(address indexed to, uint256 gold, uint256 silver, uint256 bronze)
+     */
+    public static final Event MEDALS_DISTRIBUTED = new Event(
+            "MedalsDistributed",
+            Arrays.asList(
+                    new TypeReference<Address>(true) {},
+                    new TypeReference<Uint256>() {},
+                    new TypeReference<Uint256>() {},
+                    new TypeReference<Uint256>() {}
+            )
+    );
+
+    /**
+     * OptimizedNftMinter: NftMinted(uint256 indexed tokenId, address indexed owner, string name, uint256 mintTime)
+     */
+    public static final Event NFT_MINTED = new Event(
+            "NftMinted",
+            Arrays.asList(
+                    new TypeReference<Uint256>(true) {},
+                    new TypeReference<Address>(true) {},
+                    new TypeReference<Utf8String>() {},
+                    new TypeReference<Uint256>() {}
+            )
+    );
+
+    public static final String MEDALS_DISTRIBUTED_TOPIC = EventEncoder.encode(MEDALS_DISTRIBUTED);
+
+    public static final String NFT_MINTED_TOPIC = EventEncoder.encode(NFT_MINTED);
+
+    private ContractEvents() {
+    }
+
+    /**
+     * 判断日志是否为指定事件
+     */
+    public static boolean isEvent(Log log, String topic) {
+        List<String> topics = log.getTopics();
+        return topics != null && !topics.isEmpty() && topic.equalsIgnoreCase(topics.get(0));
+    }
+
+    /**
+     * 解码 MedalsDistributed 事件
+     */
+    public static MedalsDistributed decodeMedalsDistributed(Log log) {
+        List<Type> values = FunctionReturnDecoder.decode(log.getData(), MEDALS_DISTRIBUTED.getNonIndexedParameters());
+        return new MedalsDistributed(
+                topicToAddress(log.getTopics().get(1)),
+                ((BigInteger) values.get(0).getValue()).intValue(),
+                ((BigInteger) values.get(1).getValue()).intValue(),
+                ((BigInteger) values.get(2).getValue()).intValue(),
+                log.getBlockNumber(),
+                log.getTransactionHash()
+        );
+    }
+
+    /**
+     * 解码 NftMinted 事件
+     */
+    public static NftMinted decodeNftMinted(Log log) {
+        List<Type> values = FunctionReturnDecoder.decode(log.getData(), NFT_MINTED.getNonIndexedParameters());
+        return new NftMinted(
+                new BigInteger(log.getTopics().get(1).substring(2), 16),
+                topicToAddress(log.getTopics().get(2)),
+                (String) values.get(0).getValue(),
+                ((BigInteger) values.get(1).getValue()).longValue(),
+                log.getBlockNumber(),
+                log.getTransactionHash()
+        );
+    }
+
+    /**
+     * indexed address 占用 32 字节，取最后 20 字节并规范为小写 0x 形式
+     */
+    public static String topicToAddress(String topic) {
+        return "0x" + topic.substring(topic.length() - 40).toLowerCase();
+    }
+
+    /**
+     * 勋章发放事件
+     */
+    public static final class MedalsDistributed {
+        private final String to;
+        private final int gold;
+        private final int silver;
+        private final int bronze;
+        private final BigInteger blockNumber;
+        private final String transactionHash;
+
+        public MedalsDistributed(String to, int gold, int silver, int bronze,
+                                 BigInteger blockNumber, String transactionHash) {
+            this.to = to;
+            this.gold = gold;
+            this.silver = silver;
+            this.bronze = bronze;
+            this.blockNumber = blockNumber;
+            this.transactionHash = transactionHash;
+        }
+
+        public String getTo() { return to; }
+        public int getGold() { return gold; }
+        public int getSilver() { return silver; }
+        public int getBronze() { return bronze; }
+        public BigInteger getBlockNumber() { return blockNumber; }
+        public String getTransactionHash() { return transactionHash; }
+    }
+
+    /**
+     * NFT铸造事件
+     */
+    public static final class NftMinted {
+        private final BigInteger tokenId;
+        private final String owner;
+        private final String name;
+        private final long mintTime;
+        private final BigInteger blockNumber;
+        private final String transactionHash;
+
+        public NftMinted(BigInteger tokenId, String owner, String name, long mintTime,
+                         BigInteger blockNumber, String transactionHash) {
+            this.tokenId = tokenId;
+            this.owner = owner;
+            this.name = name;
+            this.mintTime = mintTime;
+            this.blockNumber = blockNumber;
+            this.transactionHash = transactionHash;
+        }
+
+        public BigInteger getTokenId() { return tokenId; }
+        public String getOwner() { return owner; }
+        public String getName() { return name; }
+        public long getMintTime() { return mintTime; }
+        public BigInteger getBlockNumber() { return blockNumber; }
+        public String getTransactionHash() { return transactionHash; }
+    }
+}
@@ -0,0 +1,451 @@
+package com.brokerwallet.blockchain;
+
+import com.brokerwallet.event.NewBlockEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合约只读调用缓存
+ * 以 (合约地址, calldata) 为键缓存 LATEST 块上的 eth_call 结果，并记录读取时的区块高度。
+ * 链头前进时整体失效；未收到新区块事件时由 max-age-ms 兜底限制陈旧时间。
+ */
+@Component
+@Slf4j
+public class ContractReadCache {
+
+    /**
+     * 已知合约方法签名，用于按方法名统计
+     */
+    private static final String[] KNOWN_SIGNATURES = {
+            "getUserMedals(address)",
+            "getGlobalStats()",
+            "distributors(address)",
+            "getUserNfts(address)",
+            "getUserNftCount(address)",
+            "totalSupply()",
+            "getNftMetadata(uint256)",
+            "batchGetNftMetadata(uint256[])",
+            "ownerOf(uint256)",
+            "mintFee()",
+            "hasMintPermission(address)",
+            "balanceOf(address)",
+            "tryAggregate(bool,(address,bytes)[])"
+    };
+
+    private final RpcBatcher rpcBatcher;
+
+    @Value("${blockchain.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${blockchain.cache.max-age-ms:15000}")
+    private long maxAgeMs;
+
+    private Cache<String, CachedCall> cache;
+
+    /**
+     * 方法选择器 -> 方法名
+     */
+    private final Map<String, String> methodNames = new HashMap<>();
+
+    /**
+     * 方法名 -> 统计
+     */
+    private final Map<String, MethodStats> methodStats = new ConcurrentHashMap<>();
+
+    /**
+     * 失效代数，读取期间发生失效的结果不写入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * 最近一次新区块事件的区块高度
+     */
+    private volatile long currentBlock = -1;
+
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * 在途调用去重，键为 (方法, 合约, calldata, 区块标签)
+     */
+    private final SingleFlight<String, EthCall> flights = new SingleFlight<>();
+
+    public ContractReadCache(RpcBatcher rpcBatcher) {
+        this.rpcBatcher = rpcBatcher;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxAgeMs, TimeUnit.MILLISECONDS)
+                .build();
+        for (String signature : KNOWN_SIGNATURES) {
+            methodNames.put(Hash.sha3String(signature).substring(0, 10), signature.substring(0, signature.indexOf('(')));
+        }
+        log.info("Contract read cache initialized: enabled={}, maxSize={}, maxAgeMs={}", enabled, maxSize, maxAgeMs);
+    }
+
+    /**
+     * 链头前进时使缓存整体失效（先于其他监听器执行）
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onNewBlock(NewBlockEvent event) {
+        generation.incrementAndGet();
+        currentBlock = event.getBlockNumber();
+        cache.invalidateAll();
+        invalidations.increment();
+    }
+
+    /**
+     * 执行只读调用（命中缓存时不发送请求）
+     */
+    public EthCall call(Request<?, EthCall> request) throws IOException {
+        return callAll(List.of(request)).get(0);
+    }
+
+    /**
+     * 执行只读调用但不读写缓存（需要最新结果的场景），仍与相同的在途请求共享结果
+     */
+    public EthCall callUncached(Request<?, EthCall> request) throws IOException {
+        return callAllUncached(List.of(request)).get(0);
+    }
+
+    /**
+     * 异步执行只读调用：命中缓存时直接返回已完成的 Future，否则提交到 RpcBatcher 与其他请求共享批次
+     */
+    public CompletableFuture<EthCall> callAsync(Request<?, EthCall> request) {
+        String key = enabled ? cacheKey(request) : null;
+        CachedCall cached = lookup(key);
+        MethodStats stats = statsFor(request);
+        stats.record(cached != null);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.response);
+        }
+
+        long generationBefore = generation.get();
+        String flightKey = flightKey(request, generationBefore);
+        SingleFlight.Claim<EthCall> claim = flightKey != null ? flights.claim(flightKey) : null;
+        if (claim != null && !claim.isLeader()) {
+            return claim.future();
+        }
+
+        long blockBefore = currentBlock;
+        long start = System.nanoTime();
+        CompletableFuture<EthCall> upstream = rpcBatcher.submit(request).thenApply(response -> {
+            stats.recordLatency(System.nanoTime() - start);
+            if (generation.get() == generationBefore && key != null && !response.hasError()) {
+                cache.put(key, new CachedCall(response, blockBefore));
+            }
+            return response;
+        });
+        if (claim == null) {
+            return upstream;
+        }
+        upstream.whenComplete((response, error) -> {
+            if (error != null) {
+                flights.fail(flightKey, claim, error);
+            } else {
+                flights.complete(flightKey, claim, response);
+            }
+        });
+        return claim.future();
+    }
+
+    /**
+     * 批量执行只读调用，未命中的请求合并为一个JSON-RPC批量请求发送
+     */
+    public List<EthCall> callAll(List<? extends Request<?, EthCall>> requests) throws IOException {
+        return load(requests, true);
+    }
+
+    /**
+     * 批量执行只读调用但不读写缓存，仍与相同的在途请求共享结果
+     */
+    public List<EthCall> callAllUncached(List<? extends Request<?, EthCall>> requests) throws IOException {
+        return load(requests, false);
+    }
+
+    /**
+     * 读取一组调用：缓存命中直接返回；与其他线程在途的相同调用共享结果；其余合并为一个批量请求
+     */
+    private List<EthCall> load(List<? extends Request<?, EthCall>> requests, boolean useCache) throws IOException {
+        List<CompletableFuture<EthCall>> results = new ArrayList<>(requests.size());
+        List<Request<?, EthCall>> missRequests = new ArrayList<>();
+        List<String> missKeys = new ArrayList<>();
+        List<String> flightKeys = new ArrayList<>();
+        List<SingleFlight.Claim<EthCall>> claims = new ArrayList<>();
+        List<CompletableFuture<EthCall>> direct = new ArrayList<>();
+
+        long generationBefore = generation.get();
+        for (Request<?, EthCall> request : requests) {
+            String key = useCache && enabled ? cacheKey(request) : null;
+            CachedCall cached = lookup(key);
+            if (useCache) {
+                statsFor(request).record(cached != null);
+            }
+            if (cached != null) {
+                results.add(CompletableFuture.completedFuture(cached.response));
+                continue;
+            }
+
+            String flightKey = flightKey(request, generationBefore);
+            SingleFlight.Claim<EthCall> claim = flightKey != null ? flights.claim(flightKey) : null;
+            if (claim != null && !claim.isLeader()) {
+                // 相同调用已在途（其他线程或本批次中靠前的请求），等待其结果
+                results.add(claim.future());
+                continue;
+            }
+            CompletableFuture<EthCall> future = claim != null ? claim.future() : new CompletableFuture<>();
+            results.add(future);
+            missRequests.add(request);
+            missKeys.add(key);
+            flightKeys.add(flightKey);
+            claims.add(claim);
+            direct.add(future);
+        }
+
+        if (!missRequests.isEmpty()) {
+            long blockBefore = currentBlock;
+            long start = System.nanoTime();
+            List<EthCall> responses;
+            try {
+                responses = missRequests.size() == 1
+                        ? List.of(rpcBatcher.send(missRequests.get(0)))
+                        : rpcBatcher.sendAll(missRequests);
+            } catch (IOException | RuntimeException e) {
+                for (int i = 0; i < missRequests.size(); i++) {
+                    publishFailure(flightKeys.get(i), claims.get(i), direct.get(i), e);
+                }
+                throw e;
+            }
+            long perRequestNanos = (System.nanoTime() - start) / missRequests.size();
+
+            boolean cacheable = generation.get() == generationBefore;
+            for (int i = 0; i < missRequests.size(); i++) {
+                EthCall response = responses.get(i);
+                statsFor(missRequests.get(i)).recordLatency(perRequestNanos);
+                if (cacheable && missKeys.get(i) != null && !response.hasError()) {
+                    cache.put(missKeys.get(i), new CachedCall(response, blockBefore));
+                }
+                if (claims.get(i) != null) {
+                    flights.complete(flightKeys.get(i), claims.get(i), response);
+                } else {
+                    direct.get(i).complete(response);
+                }
+            }
+        }
+
+        List<EthCall> responses = new ArrayList<>(results.size());
+        for (CompletableFuture<EthCall> result : results) {
+            responses.add(await(result));
+        }
+        return responses;
+    }
+
+    private void publishFailure(String flightKey, SingleFlight.Claim<EthCall> claim,
+                                CompletableFuture<EthCall> future, Throwable error) {
+        if (claim != null) {
+            flights.fail(flightKey, claim, error);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private static EthCall await(CompletableFuture<EthCall> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for shared RPC response", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 缓存统计：命中率与各方法上游延迟
+     */
+    public Map<String, Object> getStats() {
+        long hits = 0;
+        long misses = 0;
+        Map<String, Object> methods = new LinkedHashMap<>();
+        for (Map.Entry<String, MethodStats> entry : methodStats.entrySet()) {
+            MethodStats stats = entry.getValue();
+            hits += stats.hits.sum();
+            misses += stats.misses.sum();
+            methods.put(entry.getKey(), stats.toMap());
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("currentBlock", currentBlock);
+        result.put("entries", cache.estimatedSize());
+        result.put("hits", hits);
+        result.put("misses", misses);
+        result.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        result.put("invalidations", invalidations.sum());
+        result.put("singleFlight", flights.getStats());
+        result.put("methods", methods);
+        return result;
+    }
+
+    /**
+     * 缓存键：合约地址 + calldata，仅缓存 LATEST 块上的调用
+     */
+    private String cacheKey(Request<?, EthCall> request) {
+        List<?> params = request.getParams();
+        if (params.size() < 2 || !(params.get(0) instanceof Transaction)) {
+            return null;
+        }
+        if (!DefaultBlockParameterName.LATEST.getValue().equals(blockTag(params.get(1)))) {
+            return null;
+        }
+        Transaction transaction = (Transaction) params.get(0);
+        if (transaction.getTo() == null || transaction.getData() == null) {
+            return null;
+        }
+        return transaction.getTo().toLowerCase() + ":" + transaction.getData();
+    }
+
+    /**
+     * 在途去重键：JSON-RPC 方法 + 合约地址 + calldata + 区块标签；
+     * LATEST 调用附带失效代数，新区块到达后发起的调用不会共享上一区块的在途结果
+     */
+    private String flightKey(Request<?, EthCall> request, long generationAtStart) {
+        List<?> params = request.getParams();
+        if (params.size() < 2 || !(params.get(0) instanceof Transaction)) {
+            return null;
+        }
+        Transaction transaction = (Transaction) params.get(0);
+        if (transaction.getTo() == null || transaction.getData() == null) {
+            return null;
+        }
+        String blockTag = blockTag(params.get(1));
+        String key = request.getMethod() + ":" + transaction.getTo().toLowerCase() + ":" + transaction.getData() + ":" + blockTag;
+        return DefaultBlockParameterName.LATEST.getValue().equals(blockTag) ? generationAtStart + ":" + key : key;
+    }
+
+    /**
+     * 区块参数的 JSON-RPC 取值（"latest"、十六进制区块号等）
+     */
+    private static String blockTag(Object blockParameter) {
+        return blockParameter instanceof DefaultBlockParameter
+                ? ((DefaultBlockParameter) blockParameter).getValue()
+                : String.valueOf(blockParameter);
+    }
+
+    private MethodStats statsFor(Request<?, EthCall> request) {
+        return methodStats.computeIfAbsent(methodName(request), name -> new MethodStats());
+    }
+
+    private String methodName(Request<?, EthCall> request) {
+        List<?> params = request.getParams();
+        if (params.isEmpty() || !(params.get(0) instanceof Transaction)) {
+            return "unknown";
+        }
+        String data = ((Transaction) params.get(0)).getData();
+        if (data == null || data.length() < 10) {
+            return "unknown";
+        }
+        String selector = data.substring(0, 10);
+        return methodNames.getOrDefault(selector, selector);
+    }
+
+    /**
+     * 取仍然有效的缓存条目：条目只对读取时的区块有效
+     * 写入前的代数检查与 put 之间恰好发生失效时，旧区块的条目会在失效之后写入，在这里被丢弃
+     */
+    private CachedCall lookup(String key) {
+        if (key == null) {
+            return null;
+        }
+        CachedCall cached = cache.getIfPresent(key);
+        if (cached != null && cached.blockNumber != currentBlock) {
+            cache.invalidate(key);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * 缓存条目：响应及读取时的区块高度
+     */
+    private static final class CachedCall {
+        private final EthCall response;
+        private final long blockNumber;
+
+        private CachedCall(EthCall response, long blockNumber) {
+            this.response = response;
+            this.blockNumber = blockNumber;
+        }
+    }
+
+    /**
+     * 单个方法的命中与延迟统计
+     */
+    private static final class MethodStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder upstreamNanos = new LongAdder();
+        private final AtomicLong maxUpstreamNanos = new AtomicLong();
+
+        private void record(boolean hit) {
+            if (hit) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+        }
+
+        private void recordLatency(long nanos) {
+            upstreamNanos.add(nanos);
+            maxUpstreamNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private Map<String, Object> toMap() {
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("hits", hitCount);
+            map.put("misses", missCount);
+            map.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+            map.put("avgUpstreamMs", missCount == 0 ? 0.0 : upstreamNanos.sum() / 1_000_000.0 / missCount);
+            map.put("maxUpstreamMs", maxUpstreamNanos.get() / 1_000_000.0);
+            return map;
+        }
+    }
+}
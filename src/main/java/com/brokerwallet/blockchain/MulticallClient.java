@@ -0,0 +1,222 @@
+package com.brokerwallet.blockchain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.DynamicStruct;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multicall 聚合读取客户端
+ * 把大量同一合约的只读调用打包进 Multicall.tryAggregate，每个分块一次 eth_call；
+ * 分块大小受节点 eth_call gas 上限约束，分块本身再通过 JSON-RPC 批量请求一起发送。
+ */
+@Component
+@Slf4j
+public class MulticallClient {
+
+    private static final List<TypeReference<?>> TRY_AGGREGATE_OUTPUTS =
+            Collections.singletonList(new TypeReference<DynamicArray<Result>>() {});
+
+    private final Web3j web3j;
+    private final ContractReadCache readCache;
+
+    /**
+     * Multicall 合约地址，未配置时不启用
+     */
+    @Value("${blockchain.contracts.multicall:}")
+    private String multicallAddress;
+
+    /**
+     * 单次聚合调用最多包含的子调用数
+     */
+    @Value("${blockchain.multicall.max-calls:500}")
+    private int maxCalls;
+
+    /**
+     * 节点 eth_call 的 gas 上限（geth 默认 50M）
+     */
+    @Value("${blockchain.multicall.gas-cap:50000000}")
+    private long gasCap;
+
+    /**
+     * 每个子调用的 gas 估算
+     */
+    @Value("${blockchain.multicall.gas-per-call:20000}")
+    private long gasPerCall;
+
+    private final AtomicLong aggregateCalls = new AtomicLong();
+    private final AtomicLong subCalls = new AtomicLong();
+    private final AtomicLong splits = new AtomicLong();
+
+    public MulticallClient(Web3j web3j, ContractReadCache readCache) {
+        this.web3j = web3j;
+        this.readCache = readCache;
+    }
+
+    public boolean isEnabled() {
+        return multicallAddress != null && !multicallAddress.isBlank();
+    }
+
+    /**
+     * 对同一合约执行一组只读调用
+     *
+     * @param target    目标合约地址
+     * @param callDatas 各子调用的 ABI 编码数据
+     * @return 与 callDatas 顺序一致的返回数据（十六进制），子调用失败时为 null
+     */
+    public List<String> tryAggregate(String target, List<String> callDatas) throws IOException {
+        return tryAggregate(target, callDatas, DefaultBlockParameterName.LATEST);
+    }
+
+    /**
+     * 在指定区块上对同一合约执行一组只读调用
+     */
+    public List<String> tryAggregate(String target, List<String> callDatas, DefaultBlockParameter block) throws IOException {
+        if (callDatas.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int chunkSize = (int) Math.max(1, Math.min(maxCalls, gasCap / Math.max(1, gasPerCall)));
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < callDatas.size(); from += chunkSize) {
+            chunks.add(callDatas.subList(from, Math.min(callDatas.size(), from + chunkSize)));
+        }
+
+        List<Request<?, EthCall>> requests = new ArrayList<>(chunks.size());
+        for (List<String> chunk : chunks) {
+            requests.add(aggregateRequest(target, chunk, block));
+        }
+        // 不读写缓存，但与其他线程在途的相同聚合调用共享结果
+        List<EthCall> responses = readCache.callAllUncached(requests);
+
+        List<String> results = new ArrayList<>(callDatas.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            results.addAll(decodeOrSplit(target, chunks.get(i), responses.get(i), block));
+        }
+        return results;
+    }
+
+    /**
+     * 聚合读取统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("aggregateCalls", aggregateCalls.get());
+        stats.put("subCalls", subCalls.get());
+        stats.put("splits", splits.get());
+        return stats;
+    }
+
+    /**
+     * 解析分块结果；分块整体失败（通常是超出 gas 上限）时对半拆分重试
+     */
+    private List<String> decodeOrSplit(String target, List<String> chunk, EthCall response,
+                                       DefaultBlockParameter block) throws IOException {
+        if (!response.hasError() && !response.isReverted()) {
+            return decode(response.getValue(), chunk.size());
+        }
+        String reason = response.hasError() ? response.getError().getMessage() : response.getRevertReason();
+        if (chunk.size() == 1) {
+            log.warn("Multicall failed for single call to {}: {}", target, reason);
+            return Collections.singletonList(null);
+        }
+
+        splits.incrementAndGet();
+        log.warn("Multicall chunk of {} calls failed ({}), splitting", chunk.size(), reason);
+        int half = chunk.size() / 2;
+        List<String> left = chunk.subList(0, half);
+        List<String> right = chunk.subList(half, chunk.size());
+        List<EthCall> halves = readCache.callAllUncached(List.of(aggregateRequest(target, left, block),
+                aggregateRequest(target, right, block)));
+
+        List<String> results = new ArrayList<>(decodeOrSplit(target, left, halves.get(0), block));
+        results.addAll(decodeOrSplit(target, right, halves.get(1), block));
+        return results;
+    }
+
+    private Request<?, EthCall> aggregateRequest(String target, List<String> chunk, DefaultBlockParameter block) {
+        List<Call> calls = new ArrayList<>(chunk.size());
+        Address targetAddress = new Address(target);
+        for (String callData : chunk) {
+            calls.add(new Call(targetAddress, new DynamicBytes(Numeric.hexStringToByteArray(callData))));
+        }
+        Function function = new Function(
+                "tryAggregate",
+                List.of(new Bool(false), new DynamicArray<>(Call.class, calls)),
+                TRY_AGGREGATE_OUTPUTS
+        );
+
+        aggregateCalls.incrementAndGet();
+        subCalls.addAndGet(chunk.size());
+        return web3j.ethCall(
+                Transaction.createEthCallTransaction(null, multicallAddress, FunctionEncoder.encode(function)),
+                block
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> decode(String value, int expected) {
+        List<Type> decoded = FunctionReturnDecoder.decode(value, (List<TypeReference<Type>>) (List<?>) TRY_AGGREGATE_OUTPUTS);
+        if (decoded.isEmpty()) {
+            throw new IllegalStateException("Multicall returned empty result");
+        }
+        List<Result> items = ((DynamicArray<Result>) decoded.get(0)).getValue();
+        if (items.size() != expected) {
+            throw new IllegalStateException("Multicall returned " + items.size() + " results, expected " + expected);
+        }
+
+        List<String> results = new ArrayList<>(items.size());
+        for (Result item : items) {
+            results.add(item.success.getValue() ? Numeric.toHexString(item.returnData.getValue()) : null);
+        }
+        return results;
+    }
+
+    /**
+     * Multicall.Call(address target, bytes callData)
+     */
+    public static class Call extends DynamicStruct {
+        public Call(Address target, DynamicBytes callData) {
+            super(target, callData);
+        }
+    }
+
+    /**
+     * Multicall.Result(bool success, bytes returnData)
+     */
+    public static class Result extends DynamicStruct {
+        public final Bool success;
+        public final DynamicBytes returnData;
+
+        public Result(Bool success, DynamicBytes returnData) {
+            super(success, returnData);
+            this.success = success;
+            this.returnData = returnData;
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package com.brokerwallet.blockchain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 后端签名账户的本地 nonce 分配器
+ * 为并发发送方原子地分配连续 nonce，启动时及遇到 nonce too low 时从 PENDING 重新同步，
+ * 被节点明确拒绝或确认已被丢弃的 nonce 会回收复用，避免出现阻塞后续交易的空洞。
+ * 发送超时等结果不确定的 nonce 不回收：交易可能已进入交易池，复用会产生重复交易。
+ * 已发送交易之下的空洞如果连续两轮对账都没有被新交易复用，用零值自转账补上，避免后续交易一直排队。
+ * 队列可在发送前持久化分配到的 nonce：重启后用 {@link #restoreSent} 恢复占用，用 {@link #findTransactionHash} 找回交易，
+ * 并通过 {@link #addDropListener} 在 nonce 被确认丢弃、允许复用之前得到通知。
+ */
+@Component
+@Slf4j
+public class NonceManager {
+
+    /**
+     * 补空洞自转账的 gas 上限（普通转账固定消耗 21000）
+     */
+    private static final BigInteger GAP_FILL_GAS_LIMIT = BigInteger.valueOf(21000);
+
+    /**
+     * 按区块时间回查交易时容忍的节点与本机时钟偏差（秒）
+     */
+    private static final long CLOCK_SKEW_SECONDS = 60;
+
+    private final Web3j web3j;
+
+    @Value("${blockchain.account-address}")
+    private String accountAddress;
+
+    /**
+     * 已发送的交易超过该时间且 PENDING 计数仍停在该 nonce 时视为被丢弃（毫秒）
+     */
+    @Value("${blockchain.nonce.drop-timeout-ms:120000}")
+    private long dropTimeoutMs;
+
+    /**
+     * nonce too low 时的最大重试次数
+     */
+    @Value("${blockchain.nonce.max-retries:3}")
+    private int maxRetries;
+
+    /**
+     * 按 nonce 回查已打包交易时最多向前扫描的区块数
+     */
+    @Value("${blockchain.nonce.lookup-max-blocks:5000}")
+    private int lookupMaxBlocks;
+
+    /**
+     * 下一个从未分配过的 nonce，-1 表示尚未同步
+     */
+    private long nextNonce = -1;
+
+    /**
+     * 可复用的空洞 nonce（从小到大分配）
+     */
+    private final TreeSet<Long> gaps = new TreeSet<>();
+
+    /**
+     * 已发送的 nonce -> 发送时间
+     */
+    private final Map<Long, Long> sent = new HashMap<>();
+
+    /**
+     * 上一轮对账时已存在的空洞
+     */
+    private Set<Long> lastRoundGaps = new HashSet<>();
+
+    /**
+     * nonce 被确认丢弃时的回调（在 nonce 可被复用之前调用）
+     */
+    private final List<Consumer<BigInteger>> dropListeners = new CopyOnWriteArrayList<>();
+
+    private long resyncCount = 0;
+    private long reusedCount = 0;
+    private long gapFillCount = 0;
+
+    public NonceManager(Web3j web3j) {
+        this.web3j = web3j;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            resync();
+        } catch (Exception e) {
+            log.warn("Initial nonce sync failed, will retry on first use: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 分配一个 nonce（优先复用空洞）
+     */
+    public synchronized BigInteger acquire() throws IOException {
+        if (nextNonce < 0) {
+            resync();
+        }
+        Long gap = gaps.pollFirst();
+        if (gap != null) {
+            reusedCount++;
+            return BigInteger.valueOf(gap);
+        }
+        return BigInteger.valueOf(nextNonce++);
+    }
+
+    /**
+     * 交易已被节点接受（或发送结果不确定），nonce 保留到 PENDING 计数越过它或确认被丢弃
+     */
+    public synchronized void markSent(BigInteger nonce) {
+        sent.put(nonce.longValue(), System.currentTimeMillis());
+    }
+
+    /**
+     * 重启前发出、结果仍未确定的交易：nonce 按已发送保留，不再分配给新交易，由对账按 PENDING 计数处理
+     */
+    public synchronized void restoreSent(BigInteger nonce) {
+        sent.put(nonce.longValue(), System.currentTimeMillis());
+        if (nextNonce >= 0) {
+            skipSent();
+        }
+    }
+
+    /**
+     * 注册丢弃回调：占用该 nonce 的业务记录应在回调中重新排队；回调抛出异常时 nonce 保留到下一轮对账
+     */
+    public void addDropListener(Consumer<BigInteger> listener) {
+        dropListeners.add(listener);
+    }
+
+    /**
+     * 交易未被节点接受，归还 nonce 以便复用
+     */
+    public synchronized void release(BigInteger nonce) {
+        long value = nonce.longValue();
+        sent.remove(value);
+        if (value == nextNonce - 1) {
+            nextNonce--;
+        } else if (value < nextNonce) {
+            gaps.add(value);
+        }
+    }
+
+    /**
+     * 从节点 PENDING 计数重新同步
+     */
+    public synchronized void resync() throws IOException {
+        EthGetTransactionCount response = web3j.ethGetTransactionCount(accountAddress, DefaultBlockParameterName.PENDING).send();
+        if (response.hasError()) {
+            throw new IOException("Failed to get pending nonce: " + response.getError().getMessage());
+        }
+        long pending = response.getTransactionCount().longValue();
+        long previous = nextNonce;
+
+        // 低于 PENDING 的 nonce 已被使用，不再复用
+        gaps.headSet(pending).clear();
+        sent.keySet().removeIf(nonce -> nonce < pending);
+        if (nextNonce < pending) {
+            nextNonce = pending;
+        }
+        skipSent();
+        resyncCount++;
+        log.info("Nonce resynced from PENDING: pending={}, next {} -> {}", pending, previous, nextNonce);
+    }
+
+    /**
+     * 已发送的 nonce 中高于 nextNonce 的（重启后恢复的占用）不再分配，其间未被占用的 nonce 作为空洞复用
+     */
+    private void skipSent() {
+        gaps.removeAll(sent.keySet());
+        long highest = sent.keySet().stream().mapToLong(Long::longValue).max().orElse(-1);
+        for (; nextNonce <= highest; nextNonce++) {
+            if (!sent.containsKey(nextNonce)) {
+                gaps.add(nextNonce);
+            }
+        }
+    }
+
+    /**
+     * 分配 nonce 并发送交易，见 {@link #send(Function, Consumer)}
+     */
+    public EthSendTransaction send(Function<BigInteger, Transaction> transactionBuilder) throws IOException {
+        return send(transactionBuilder, nonce -> {
+        });
+    }
+
+    /**
+     * 分配 nonce 并发送交易；nonce too low 时重新同步后重试，节点明确拒绝时归还 nonce
+     * 发送异常（如读超时）时交易可能已被节点接受，nonce 按已发送保留并统一抛出 IOException，由定期对账按 PENDING 计数处理
+     *
+     * @param transactionBuilder 根据 nonce 构建交易
+     * @param beforeSend         交易发出前以分配到的 nonce 回调（重试时以新 nonce 再次回调），供调用方先持久化 nonce；
+     *                           回调抛出异常时归还 nonce，交易不发送
+     */
+    public EthSendTransaction send(Function<BigInteger, Transaction> transactionBuilder,
+                                   Consumer<BigInteger> beforeSend) throws IOException {
+        EthSendTransaction response = null;
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            BigInteger nonce = acquire();
+            Transaction transaction;
+            try {
+                transaction = transactionBuilder.apply(nonce);
+                beforeSend.accept(nonce);
+            } catch (RuntimeException e) {
+                release(nonce);
+                throw e;
+            }
+
+            try {
+                response = web3j.ethSendTransaction(transaction).send();
+            } catch (IOException | RuntimeException e) {
+                markSent(nonce);
+                log.warn("Sending transaction with nonce {} failed ({}), keeping nonce until PENDING count confirms it is free",
+                        nonce, e.getMessage());
+                throw e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+
+            if (!response.hasError()) {
+                markSent(nonce);
+                return response;
+            }
+
+            String message = response.getError().getMessage();
+            if (isAlreadyKnown(message)) {
+                // 同一笔交易已在交易池中（例如超时后重发）：按成功处理，保留 nonce
+                markSent(nonce);
+                log.warn("Transaction with nonce {} already known to node, treating as sent", nonce);
+                return alreadyKnown(response, nonce);
+            }
+            if (isNonceTooLow(message)) {
+                // 该 nonce 已被占用（例如其他进程使用了同一账户），重新同步后重试
+                log.warn("Nonce {} too low ({}), resyncing (attempt {}/{})", nonce, message, attempt + 1, maxRetries);
+                resync();
+                continue;
+            }
+
+            release(nonce);
+            return response;
+        }
+        return response;
+    }
+
+    /**
+     * 定期对账：清理已进入交易池的记录，回收被丢弃交易留下的空洞，补上长期无人复用的空洞
+     */
+    @Scheduled(fixedDelayString = "${blockchain.nonce.reconcile-interval-ms:30000}")
+    public void reconcile() {
+        long pending;
+        try {
+            EthGetTransactionCount response = web3j.ethGetTransactionCount(accountAddress, DefaultBlockParameterName.PENDING).send();
+            if (response.hasError()) {
+                return;
+            }
+            pending = response.getTransactionCount().longValue();
+        } catch (Exception e) {
+            log.debug("Nonce reconcile skipped: {}", e.getMessage());
+            return;
+        }
+
+        List<Long> stuckGaps = new ArrayList<>();
+        List<Long> dropped = new ArrayList<>();
+        synchronized (this) {
+            if (nextNonce < 0) {
+                return;
+            }
+            gaps.headSet(pending).clear();
+            if (nextNonce < pending) {
+                nextNonce = pending;
+            }
+
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<Long, Long>> iterator = sent.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Long> entry = iterator.next();
+                if (entry.getKey() < pending) {
+                    iterator.remove();
+                } else if (entry.getKey() == pending && now - entry.getValue() > dropTimeoutMs) {
+                    // PENDING 计数正好停在该 nonce：节点上没有这个 nonce 的交易，可以复用。
+                    // 更高的 nonce 可能仍在交易池的排队队列中，等前面的空洞补上后再判断
+                    log.warn("Transaction with nonce {} appears dropped (pending count {}), nonce will be reused",
+                            entry.getKey(), pending);
+                    dropped.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+
+            // 上一轮就存在、且有已发送交易排在其后的空洞：没有新交易来复用时后面的交易永远无法打包
+            long highestSent = sent.keySet().stream().mapToLong(Long::longValue).max().orElse(-1);
+            for (Long gap : gaps.headSet(highestSent)) {
+                if (lastRoundGaps.contains(gap)) {
+                    stuckGaps.add(gap);
+                }
+            }
+            stuckGaps.forEach(gaps::remove);
+            lastRoundGaps = new HashSet<>(gaps);
+        }
+
+        dropped.forEach(this::notifyDropped);
+        stuckGaps.forEach(this::fillGap);
+    }
+
+    /**
+     * 先让占用该 nonce 的业务记录重新排队，再允许复用；回调失败时保留到下一轮对账
+     */
+    private void notifyDropped(long nonce) {
+        try {
+            for (Consumer<BigInteger> listener : dropListeners) {
+                listener.accept(BigInteger.valueOf(nonce));
+            }
+        } catch (RuntimeException e) {
+            log.error("Drop listener failed for nonce {}, keeping it until next reconcile: {}", nonce, e.getMessage());
+            synchronized (this) {
+                sent.put(nonce, 0L);
+            }
+            return;
+        }
+        synchronized (this) {
+            gaps.add(nonce);
+        }
+    }
+
+    /**
+     * 查找签名账户以该 nonce 发出的交易哈希，用于找回发送结果不确定的交易
+     * PENDING 计数尚未越过该 nonce 时返回空（交易不在节点上，或在交易池中排在空洞之后）；
+     * 已被占用时先查交易池，再从最新区块向前扫描到发送时间之前。
+     *
+     * @param sentAfterEpochSecond 交易发送时间（秒），早于它的区块不再扫描
+     * @throws IllegalStateException nonce 已被占用，但扫描范围内找不到该 nonce 的交易
+     */
+    public Optional<String> findTransactionHash(BigInteger nonce, long sentAfterEpochSecond) throws IOException {
+        if (nonce.compareTo(transactionCount(DefaultBlockParameterName.PENDING)) >= 0) {
+            return Optional.empty();
+        }
+        if (nonce.compareTo(transactionCount(DefaultBlockParameterName.LATEST)) >= 0) {
+            String pooled = findInBlock(web3j.ethGetBlockByNumber(DefaultBlockParameterName.PENDING, true).send().getBlock(), nonce);
+            if (pooled == null) {
+                throw new IOException("Transaction with nonce " + nonce + " is pooled but not visible in pending block");
+            }
+            return Optional.of(pooled);
+        }
+
+        EthBlockNumber head = web3j.ethBlockNumber().send();
+        if (head.hasError()) {
+            throw new IOException("Failed to get block number: " + head.getError().getMessage());
+        }
+        long latest = head.getBlockNumber().longValue();
+        for (long number = latest; number >= 0 && latest - number < lookupMaxBlocks; number--) {
+            EthBlock response = web3j.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), true).send();
+            if (response.hasError()) {
+                throw new IOException("Failed to get block " + number + ": " + response.getError().getMessage());
+            }
+            EthBlock.Block block = response.getBlock();
+            if (block == null) {
+                continue;
+            }
+            String hash = findInBlock(block, nonce);
+            if (hash != null) {
+                return Optional.of(hash);
+            }
+            if (block.getTimestamp().longValue() < sentAfterEpochSecond - CLOCK_SKEW_SECONDS) {
+                break;
+            }
+        }
+        throw new IllegalStateException("Nonce " + nonce + " is used, but no transaction with it was found since the send");
+    }
+
+    private BigInteger transactionCount(DefaultBlockParameterName block) throws IOException {
+        EthGetTransactionCount response = web3j.ethGetTransactionCount(accountAddress, block).send();
+        if (response.hasError()) {
+            throw new IOException("Failed to get " + block.getValue() + " nonce: " + response.getError().getMessage());
+        }
+        return response.getTransactionCount();
+    }
+
+    private String findInBlock(EthBlock.Block block, BigInteger nonce) {
+        if (block == null) {
+            return null;
+        }
+        for (EthBlock.TransactionResult<?> result : block.getTransactions()) {
+            if (result instanceof EthBlock.TransactionObject tx
+                    && accountAddress.equalsIgnoreCase(tx.getFrom()) && nonce.equals(tx.getNonce())) {
+                return tx.getHash();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用零值自转账占用空洞 nonce；节点明确拒绝时归还，结果不确定时按已发送保留
+     */
+    private void fillGap(long gap) {
+        BigInteger nonce = BigInteger.valueOf(gap);
+        EthSendTransaction response;
+        try {
+            EthGasPrice gasPrice = web3j.ethGasPrice().send();
+            if (gasPrice.hasError()) {
+                throw new IOException(gasPrice.getError().getMessage());
+            }
+            Transaction filler = Transaction.createEtherTransaction(accountAddress, nonce, gasPrice.getGasPrice(),
+                    GAP_FILL_GAS_LIMIT, accountAddress, BigInteger.ZERO);
+            try {
+                response = web3j.ethSendTransaction(filler).send();
+            } catch (IOException | RuntimeException e) {
+                markSent(nonce);
+                log.warn("Sending gap filler with nonce {} failed ({}), keeping nonce", gap, e.getMessage());
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to get gas price for gap filler with nonce {}: {}", gap, e.getMessage());
+            release(nonce);
+            return;
+        }
+
+        if (response.hasError() && !isAlreadyKnown(response.getError().getMessage())) {
+            String message = response.getError().getMessage();
+            if (isNonceTooLow(message)) {
+                // 该 nonce 已被其他交易占用，空洞已不存在
+                log.info("Nonce gap {} already filled on node ({})", gap, message);
+            } else {
+                log.warn("Gap filler with nonce {} rejected: {}", gap, message);
+                release(nonce);
+            }
+            return;
+        }
+        markSent(nonce);
+        synchronized (this) {
+            gapFillCount++;
+        }
+        log.warn("Filled nonce gap {} with a zero-value self-transfer {}", gap, response.getTransactionHash());
+    }
+
+    /**
+     * nonce 分配状态
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("account", accountAddress);
+        status.put("nextNonce", nextNonce);
+        status.put("gaps", gaps.size());
+        status.put("inFlight", sent.size());
+        status.put("resyncCount", resyncCount);
+        status.put("reusedCount", reusedCount);
+        status.put("gapFillCount", gapFillCount);
+        return status;
+    }
+
+    /**
+     * 节点已有同一笔交易时的响应：从 PENDING 区块中找出该 nonce 的交易哈希作为结果
+     * 找不到时返回原错误响应，nonce 仍保留，由调用方按发送失败处理
+     */
+    private EthSendTransaction alreadyKnown(EthSendTransaction response, BigInteger nonce) {
+        try {
+            String hash = findInBlock(web3j.ethGetBlockByNumber(DefaultBlockParameterName.PENDING, true).send().getBlock(), nonce);
+            if (hash != null) {
+                EthSendTransaction accepted = new EthSendTransaction();
+                accepted.setId(response.getId());
+                accepted.setJsonrpc(response.getJsonrpc());
+                accepted.setResult(hash);
+                return accepted;
+            }
+            log.warn("Transaction with nonce {} is known to node but not found in pending block", nonce);
+        } catch (Exception e) {
+            log.warn("Failed to look up already known transaction with nonce {}: {}", nonce, e.getMessage());
+        }
+        return response;
+    }
+
+    private boolean isAlreadyKnown(String message) {
+        return message != null && message.toLowerCase().contains("already known");
+    }
+
+    private boolean isNonceTooLow(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("nonce too low") || lower.contains("nonce is too low");
+    }
+}
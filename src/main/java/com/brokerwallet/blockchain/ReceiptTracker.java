@@ -0,0 +1,248 @@
+package com.brokerwallet.blockchain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 共享交易回执跟踪器
+ * 发送交易后立即返回交易哈希作为跟踪ID，由单个定时任务把所有待确认哈希合并为一个
+ * eth_getTransactionReceipt 批量请求轮询，确认后完成对应的 future，请求线程不再阻塞等待。
+ */
+@Component
+@Slf4j
+public class ReceiptTracker {
+
+    /**
+     * 交易跟踪状态
+     */
+    public enum TxStatus {
+        PENDING, SUCCESS, FAILED, TIMEOUT
+    }
+
+    private final Web3j web3j;
+    private final RpcBatcher rpcBatcher;
+
+    @Value("${blockchain.receipt.timeout-ms:120000}")
+    private long timeoutMs;
+
+    @Value("${blockchain.receipt.history-size:10000}")
+    private long historySize;
+
+    @Value("${blockchain.receipt.history-ttl-minutes:60}")
+    private long historyTtlMinutes;
+
+    @Value("${blockchain.receipt.callback-threads:2}")
+    private int callbackThreads;
+
+    /**
+     * 待确认交易（哈希 -> 跟踪信息）
+     */
+    private final Map<String, TrackedTx> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 已结束的交易，供状态查询
+     */
+    private Cache<String, TrackedTx> finished;
+
+    /**
+     * 回调执行线程池，避免业务回调阻塞轮询线程
+     */
+    private ExecutorService callbackExecutor;
+
+    private final AtomicLong pollRounds = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public ReceiptTracker(Web3j web3j, RpcBatcher rpcBatcher) {
+        this.web3j = web3j;
+        this.rpcBatcher = rpcBatcher;
+    }
+
+    @PostConstruct
+    public void init() {
+        finished = Caffeine.newBuilder()
+                .maximumSize(historySize)
+                .expireAfterWrite(historyTtlMinutes, TimeUnit.MINUTES)
+                .build();
+        AtomicInteger threadIndex = new AtomicInteger();
+        callbackExecutor = Executors.newFixedThreadPool(callbackThreads, runnable -> {
+            Thread thread = new Thread(runnable, "receipt-callback-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callbackExecutor.shutdown();
+    }
+
+    /**
+     * 开始跟踪交易；同一哈希重复调用返回同一个 future，已超时的交易重新开始跟踪（用于稍后复查回执）
+     */
+    public CompletableFuture<TransactionReceipt> track(String txHash) {
+        String key = normalize(txHash);
+        TrackedTx done = finished.getIfPresent(key);
+        if (done != null && done.status != TxStatus.TIMEOUT) {
+            return done.future;
+        }
+        return pending.computeIfAbsent(key, k -> {
+            log.debug("Tracking transaction {}", k);
+            return new TrackedTx(k);
+        }).future;
+    }
+
+    /**
+     * 查询交易跟踪状态；未被跟踪的交易直接查询一次链上回执
+     */
+    public Map<String, Object> getStatus(String txHash) throws Exception {
+        String key = normalize(txHash);
+        TrackedTx tx = pending.get(key);
+        if (tx == null) {
+            tx = finished.getIfPresent(key);
+        }
+        if (tx != null) {
+            return tx.toMap();
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("transactionHash", key);
+        Optional<TransactionReceipt> receipt = rpcBatcher.send(web3j.ethGetTransactionReceipt(key)).getTransactionReceipt();
+        if (receipt.isPresent()) {
+            status.put("status", receipt.get().isStatusOK() ? TxStatus.SUCCESS : TxStatus.FAILED);
+            status.put("blockNumber", receipt.get().getBlockNumber());
+            status.put("gasUsed", receipt.get().getGasUsed());
+        } else {
+            status.put("status", "UNKNOWN");
+        }
+        return status;
+    }
+
+    /**
+     * 批量轮询所有待确认交易的回执
+     */
+    @Scheduled(fixedDelayString = "${blockchain.receipt.poll-interval-ms:2000}")
+    public void pollReceipts() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        pollRounds.incrementAndGet();
+
+        List<TrackedTx> batch = new ArrayList<>(pending.values());
+        List<Request<?, EthGetTransactionReceipt>> requests = new ArrayList<>(batch.size());
+        for (TrackedTx tx : batch) {
+            requests.add(web3j.ethGetTransactionReceipt(tx.hash));
+        }
+
+        List<EthGetTransactionReceipt> responses;
+        try {
+            responses = rpcBatcher.sendAll(requests);
+        } catch (Exception e) {
+            log.warn("Receipt poll failed for {} transactions: {}", batch.size(), e.getMessage());
+            expireStale(batch);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            TrackedTx tx = batch.get(i);
+            EthGetTransactionReceipt response = responses.get(i);
+            Optional<TransactionReceipt> receipt = response.hasError()
+                    ? Optional.empty() : response.getTransactionReceipt();
+            if (receipt.isPresent()) {
+                complete(tx, receipt.get());
+            }
+        }
+        expireStale(batch);
+    }
+
+    /**
+     * 跟踪器统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("pollRounds", pollRounds.get());
+        stats.put("confirmed", confirmed.get());
+        stats.put("timedOut", timedOut.get());
+        return stats;
+    }
+
+    private void complete(TrackedTx tx, TransactionReceipt receipt) {
+        if (pending.remove(tx.hash) == null) {
+            return;
+        }
+        tx.status = receipt.isStatusOK() ? TxStatus.SUCCESS : TxStatus.FAILED;
+        tx.blockNumber = receipt.getBlockNumber();
+        tx.gasUsed = receipt.getGasUsed();
+        finished.put(tx.hash, tx);
+        confirmed.incrementAndGet();
+        log.info("Transaction {} confirmed in block {} ({})", tx.hash, tx.blockNumber, tx.status);
+        callbackExecutor.execute(() -> tx.future.complete(receipt));
+    }
+
+    private void expireStale(List<TrackedTx> batch) {
+        long now = System.currentTimeMillis();
+        for (TrackedTx tx : batch) {
+            if (now - tx.submittedAt > timeoutMs && pending.remove(tx.hash) != null) {
+                tx.status = TxStatus.TIMEOUT;
+                finished.put(tx.hash, tx);
+                timedOut.incrementAndGet();
+                log.warn("Transaction {} not confirmed within {} ms", tx.hash, timeoutMs);
+                callbackExecutor.execute(() -> tx.future.completeExceptionally(
+                        new TimeoutException("Transaction confirmation timeout: " + tx.hash)));
+            }
+        }
+    }
+
+    private static String normalize(String txHash) {
+        return txHash.toLowerCase();
+    }
+
+    private static final class TrackedTx {
+        private final String hash;
+        private final long submittedAt = System.currentTimeMillis();
+        private final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        private volatile TxStatus status = TxStatus.PENDING;
+        private volatile BigInteger blockNumber;
+        private volatile BigInteger gasUsed;
+
+        private TrackedTx(String hash) {
+            this.hash = hash;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("transactionHash", hash);
+            map.put("status", status);
+            map.put("submittedAt", submittedAt);
+            map.put("blockNumber", blockNumber);
+            map.put("gasUsed", gasUsed);
+            return map;
+        }
+    }
+}
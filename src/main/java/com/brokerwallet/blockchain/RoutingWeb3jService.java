@@ -0,0 +1,539 @@
+package com.brokerwallet.blockchain;
+
+import io.reactivex.Flowable;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.websocket.events.Notification;
+import org.web3j.utils.Numeric;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多节点 RPC 路由
+ * 只读请求发往健康且 EWMA 延迟最低的节点，超过 hedge-delay-ms 未返回时向次优节点发出对冲请求，取先返回的结果；
+ * 写交易、nonce 查询和过滤器等有状态请求固定发往持有后端账户的主节点。
+ * 链头（eth_blockNumber）以主节点为准；指定了区块号的读请求（eth_getLogs 区间、历史 eth_call 等）
+ * 只发往健康检查确认已同步到该区块的节点，避免落后节点对尚未同步的区间返回空日志或旧状态。
+ */
+@Slf4j
+public class RoutingWeb3jService implements Web3jService {
+
+    /**
+     * 必须由主节点处理的方法：节点签名、交易池 nonce、保存在节点内存中的过滤器，
+     * 以及链头高度——索引器按它确定 eth_getLogs 的区间终点，必须和区间的可用性来自同一节点
+     */
+    private static final Set<String> PINNED_METHODS = Set.of(
+            "eth_sendTransaction", "eth_sendRawTransaction", "eth_sign", "eth_signTransaction", "eth_accounts",
+            "eth_getTransactionCount", "eth_newFilter", "eth_newBlockFilter", "eth_newPendingTransactionFilter",
+            "eth_getFilterChanges", "eth_getFilterLogs", "eth_uninstallFilter", "eth_blockNumber"
+    );
+
+    /**
+     * 最后一个参数是区块号的只读方法
+     */
+    private static final Set<String> BLOCK_TAIL_METHODS = Set.of(
+            "eth_call", "eth_getBalance", "eth_getCode", "eth_getStorageAt"
+    );
+
+    /**
+     * 第一个参数是区块号的只读方法
+     */
+    private static final Set<String> BLOCK_HEAD_METHODS = Set.of(
+            "eth_getBlockByNumber", "eth_getBlockTransactionCountByNumber", "eth_getTransactionByBlockNumberAndIndex"
+    );
+
+    /**
+     * 无法确认其他节点是否可用的请求（例如按 latest 或区块哈希查询日志），以及依赖主节点交易池的 pending 查询，只发往主节点
+     */
+    private static final long PRIMARY_ONLY = Long.MAX_VALUE;
+
+    /**
+     * 请求失败时计入 EWMA 的延迟惩罚，使出错节点在恢复前排到后面
+     */
+    private static final double FAILURE_PENALTY_MS = 2000;
+
+    private final Endpoint primary;
+    private final List<Endpoint> endpoints;
+    private final long hedgeDelayMs;
+    private final double ewmaAlpha;
+    private final int failureThreshold;
+    private final long maxBlockLag;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+
+    /**
+     * @param primaryUrl       主节点（持有后端账户），写请求固定发往此节点
+     * @param readUrls         额外的只读节点
+     * @param hedgeDelayMs     对冲延迟，小于等于 0 时关闭对冲只做故障转移
+     * @param ewmaAlpha        延迟 EWMA 平滑系数
+     * @param failureThreshold 连续失败多少次后判定节点不健康
+     * @param maxBlockLag      落后最高区块超过该值的节点不参与读路由
+     * @param maxInFlight      每个节点同时在途的请求上限，路由线程池大小 = 节点数 × 该值
+     */
+    public RoutingWeb3jService(String primaryUrl, List<String> readUrls, OkHttpClient httpClient,
+                               long hedgeDelayMs, double ewmaAlpha, int failureThreshold, long maxBlockLag,
+                               int maxInFlight) {
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.ewmaAlpha = ewmaAlpha;
+        this.failureThreshold = failureThreshold;
+        this.maxBlockLag = maxBlockLag;
+
+        Set<String> urls = new LinkedHashSet<>();
+        urls.add(primaryUrl.trim());
+        for (String url : readUrls) {
+            if (url != null && !url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        List<Endpoint> pool = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            pool.add(new Endpoint(url, new HttpService(url, httpClient)));
+        }
+        this.endpoints = Collections.unmodifiableList(pool);
+        this.primary = pool.get(0);
+
+        // 线程数有上限：节点变慢时不再无限制地为对冲和异步请求创建线程；
+        // 线程耗尽时请求在调用线程上直接执行（相当于不对冲），关闭后拒绝新请求
+        int maxThreads = Math.max(1, pool.size() * Math.max(1, maxInFlight));
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor routePool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "rpc-route-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("RPC pool is closed");
+                    }
+                    runnable.run();
+                });
+        routePool.allowCoreThreadTimeOut(true);
+        this.executor = routePool;
+        log.info("RPC pool initialized: primary={}, endpoints={}, hedgeDelayMs={}, maxThreads={}",
+                primaryUrl, urls, hedgeDelayMs, maxThreads);
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (isPinned(request.getMethod())) {
+            return primary.call(service -> service.send(request, responseType));
+        }
+        return route(requiredBlock(request), service -> service.send(request, responseType));
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return send(request, responseType);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        long requiredBlock = -1;
+        for (Request<?, ? extends Response<?>> request : batchRequest.getRequests()) {
+            if (isPinned(request.getMethod())) {
+                return primary.call(service -> service.sendBatch(batchRequest));
+            }
+            requiredBlock = Math.max(requiredBlock, requiredBlock(request));
+        }
+        return route(requiredBlock, service -> service.sendBatch(batchRequest));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return sendBatch(batchRequest);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                           Class<T> responseType) {
+        return primary.service.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        executor.shutdownNow();
+        for (Endpoint endpoint : endpoints) {
+            endpoint.service.close();
+        }
+    }
+
+    /**
+     * 定时健康检查：eth_blockNumber 探测各节点，更新延迟并标记失联或落后的节点
+     */
+    @Scheduled(fixedDelayString = "${blockchain.rpc.pool.health-check-interval-ms:5000}")
+    public void checkHealth() {
+        if (endpoints.size() < 2) {
+            return;
+        }
+        List<CompletableFuture<Long>> probes = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            probes.add(CompletableFuture.supplyAsync(() -> endpoint.probe(), executor));
+        }
+
+        long highest = -1;
+        long[] heights = new long[endpoints.size()];
+        for (int i = 0; i < endpoints.size(); i++) {
+            heights[i] = probes.get(i).join();
+            highest = Math.max(highest, heights[i]);
+        }
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get(i);
+            boolean reachable = heights[i] >= 0;
+            boolean lagging = reachable && highest - heights[i] > maxBlockLag;
+            boolean healthy = reachable && !lagging;
+            if (healthy != endpoint.healthy) {
+                log.warn("RPC endpoint {} is now {}", endpoint.url,
+                        healthy ? "healthy" : (reachable ? "lagging " + (highest - heights[i]) + " blocks" : "unreachable"));
+            }
+            endpoint.healthy = healthy;
+            if (healthy) {
+                endpoint.consecutiveFailures.set(0);
+            }
+        }
+    }
+
+    /**
+     * 节点池状态
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Map<String, Object>> nodes = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("url", endpoint.url);
+            node.put("primary", endpoint == primary);
+            node.put("healthy", endpoint.healthy);
+            node.put("ewmaLatencyMs", Math.round(endpoint.ewmaLatencyMs * 10) / 10.0);
+            node.put("blockNumber", endpoint.blockNumber);
+            node.put("requests", endpoint.requests.get());
+            node.put("failures", endpoint.failures.get());
+            nodes.add(node);
+        }
+        stats.put("endpoints", nodes);
+        stats.put("hedgeDelayMs", hedgeDelayMs);
+        stats.put("hedgedRequests", hedgedRequests.get());
+        stats.put("hedgeWins", hedgeWins.get());
+        stats.put("failovers", failovers.get());
+        stats.put("routeThreads", executor.getPoolSize());
+        stats.put("maxRouteThreads", executor.getMaximumPoolSize());
+        return stats;
+    }
+
+    private static boolean isPinned(String method) {
+        return PINNED_METHODS.contains(method) || method.startsWith("personal_");
+    }
+
+    /**
+     * 请求要求节点至少同步到的区块号：-1 表示不限（latest 等标签），{@link #PRIMARY_ONLY} 表示只能由主节点处理
+     * （pending 标签：交易由主节点签名发出，只有主节点的交易池一定包含它们）
+     */
+    static long requiredBlock(Request<?, ?> request) {
+        String method = request.getMethod();
+        List<?> params = request.getParams();
+        if (params == null || params.isEmpty()) {
+            return -1;
+        }
+        if ("eth_getLogs".equals(method)) {
+            if (!(params.get(0) instanceof EthFilter)) {
+                return PRIMARY_ONLY;
+            }
+            EthFilter filter = (EthFilter) params.get(0);
+            if (filter.getBlockHash() != null) {
+                return PRIMARY_ONLY;
+            }
+            // 区间终点为 latest 时，各节点的 latest 不同，落后节点会悄悄返回更短的区间
+            long toBlock = blockNumberOf(filter.getToBlock());
+            return toBlock >= 0 ? toBlock : PRIMARY_ONLY;
+        }
+        if (BLOCK_TAIL_METHODS.contains(method)) {
+            return blockNumberOf(params.get(params.size() - 1));
+        }
+        if (BLOCK_HEAD_METHODS.contains(method)) {
+            return blockNumberOf(params.get(0));
+        }
+        return -1;
+    }
+
+    /**
+     * 解析显式区块号：pending 返回 {@link #PRIMARY_ONLY}，latest 等其他标签返回 -1
+     */
+    private static long blockNumberOf(Object param) {
+        String value = param instanceof DefaultBlockParameter
+                ? ((DefaultBlockParameter) param).getValue()
+                : (param instanceof String ? (String) param : null);
+        if (DefaultBlockParameterName.PENDING.getValue().equals(value)) {
+            return PRIMARY_ONLY;
+        }
+        if (value == null || !value.startsWith("0x")) {
+            return -1;
+        }
+        try {
+            return Numeric.decodeQuantity(value).longValueExact();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 只读请求路由：按得分依次尝试，超过对冲延迟仍未返回时并行请求下一个节点，节点报错时故障转移
+     * @param requiredBlock 候选节点最近一次探测到的高度必须不低于该区块；主节点始终是候选
+     */
+    private <R> R route(long requiredBlock, RpcCall<R> call) throws IOException {
+        List<Endpoint> candidates = rankedReadEndpoints(requiredBlock);
+        if (candidates.size() == 1) {
+            return candidates.get(0).call(call);
+        }
+
+        List<Attempt<R>> inFlight = new ArrayList<>();
+        int next = 0;
+        IOException lastError = null;
+
+        inFlight.add(attempt(candidates.get(next++), call, false));
+        try {
+            while (true) {
+                boolean canHedge = hedgeDelayMs > 0 && next < candidates.size();
+                try {
+                    CompletableFuture<?>[] results = new CompletableFuture[inFlight.size()];
+                    for (int i = 0; i < results.length; i++) {
+                        results[i] = inFlight.get(i).result;
+                    }
+                    CompletableFuture<Object> any = CompletableFuture.anyOf(results);
+                    if (canHedge) {
+                        any.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+                    } else {
+                        any.get();
+                    }
+                } catch (TimeoutException e) {
+                    hedgedRequests.incrementAndGet();
+                    inFlight.add(attempt(candidates.get(next++), call, true));
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for RPC response", e);
+                } catch (ExecutionException e) {
+                    // 下面逐个检查已完成的请求
+                }
+
+                for (int i = inFlight.size() - 1; i >= 0; i--) {
+                    Attempt<R> attempt = inFlight.get(i);
+                    if (!attempt.result.isDone()) {
+                        continue;
+                    }
+                    try {
+                        R result = attempt.result.join();
+                        if (attempt.hedge) {
+                            hedgeWins.incrementAndGet();
+                        }
+                        return result;
+                    } catch (CompletionException e) {
+                        lastError = asIOException(e.getCause());
+                        log.debug("RPC endpoint {} failed: {}", attempt.endpoint.url, lastError.getMessage());
+                        inFlight.remove(i);
+                    }
+                }
+                if (inFlight.isEmpty()) {
+                    if (next >= candidates.size()) {
+                        throw lastError;
+                    }
+                    failovers.incrementAndGet();
+                    inFlight.add(attempt(candidates.get(next++), call, false));
+                }
+            }
+        } finally {
+            // 已有结果（或放弃）后取消仍在进行的请求，释放线程
+            for (Attempt<R> attempt : inFlight) {
+                attempt.cancel();
+            }
+        }
+    }
+
+    private <R> Attempt<R> attempt(Endpoint endpoint, RpcCall<R> call, boolean hedge) {
+        Attempt<R> attempt = new Attempt<>(endpoint, hedge);
+        try {
+            attempt.task = executor.submit(() -> {
+                try {
+                    attempt.result.complete(endpoint.call(call));
+                } catch (Throwable e) {
+                    attempt.result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            attempt.result.completeExceptionally(new IOException(e.getMessage(), e));
+        }
+        return attempt;
+    }
+
+    /**
+     * 已同步到 requiredBlock 的健康节点按 EWMA 延迟升序排列；全部不健康时退化为所有满足高度的节点
+     */
+    private List<Endpoint> rankedReadEndpoints(long requiredBlock) {
+        List<Endpoint> eligible = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint == primary || (requiredBlock != PRIMARY_ONLY && endpoint.blockNumber >= requiredBlock)) {
+                eligible.add(endpoint);
+            }
+        }
+        List<Endpoint> ranked = new ArrayList<>(eligible.size());
+        for (Endpoint endpoint : eligible) {
+            if (endpoint.healthy) {
+                ranked.add(endpoint);
+            }
+        }
+        if (ranked.isEmpty()) {
+            ranked.addAll(eligible);
+        }
+        ranked.sort(Comparator.comparingDouble(endpoint -> endpoint.ewmaLatencyMs));
+        return ranked;
+    }
+
+    private static IOException asIOException(Throwable cause) {
+        return cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+    }
+
+    /**
+     * 发往某个节点的一次请求
+     */
+    private static final class Attempt<R> {
+        private final Endpoint endpoint;
+        private final boolean hedge;
+        private final long startNanos = System.nanoTime();
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private volatile Future<?> task;
+
+        private Attempt(Endpoint endpoint, boolean hedge) {
+            this.endpoint = endpoint;
+            this.hedge = hedge;
+        }
+
+        /**
+         * 取消未完成的请求；已等待的时长作为该节点延迟的下限计入 EWMA，被对冲掉的慢节点不会一直排在前面
+         */
+        private void cancel() {
+            if (result.isDone()) {
+                return;
+            }
+            Future<?> running = task;
+            if (running != null) {
+                running.cancel(true);
+            }
+            endpoint.recordLatency((System.nanoTime() - startNanos) / 1_000_000.0);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RpcCall<R> {
+        R call(HttpService service) throws IOException;
+    }
+
+    /**
+     * 单个 RPC 节点及其延迟与健康状态
+     */
+    private final class Endpoint {
+        private final String url;
+        private final HttpService service;
+        private volatile boolean healthy = true;
+        private volatile double ewmaLatencyMs;
+        private volatile long blockNumber = -1;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        private Endpoint(String url, HttpService service) {
+            this.url = url;
+            this.service = service;
+        }
+
+        private <R> R call(RpcCall<R> call) throws IOException {
+            requests.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                R result = call.call(service);
+                recordLatency((System.nanoTime() - start) / 1_000_000.0);
+                consecutiveFailures.set(0);
+                return result;
+            } catch (IOException | RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // 对冲落败被取消，不是节点故障
+                    throw e;
+                }
+                failures.incrementAndGet();
+                recordLatency((System.nanoTime() - start) / 1_000_000.0 + FAILURE_PENALTY_MS);
+                if (consecutiveFailures.incrementAndGet() >= failureThreshold && healthy) {
+                    healthy = false;
+                    log.warn("RPC endpoint {} marked unhealthy after {} consecutive failures: {}",
+                            url, failureThreshold, e.getMessage());
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * 探测区块高度，失败返回 -1
+         */
+        private long probe() {
+            try {
+                EthBlockNumber response = call(service -> service.send(
+                        new Request<>("eth_blockNumber", Collections.<String>emptyList(), service, EthBlockNumber.class),
+                        EthBlockNumber.class));
+                blockNumber = response.hasError() ? -1 : response.getBlockNumber().longValue();
+                return blockNumber;
+            } catch (Exception e) {
+                blockNumber = -1;
+                return -1;
+            }
+        }
+
+        private synchronized void recordLatency(double latencyMs) {
+            ewmaLatencyMs = ewmaLatencyMs == 0 ? latencyMs : ewmaAlpha * latencyMs + (1 - ewmaAlpha) * ewmaLatencyMs;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.brokerwallet.blockchain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JSON-RPC 批量传输组件
+ * 将并发或连续提交的只读请求合并为一个 JSON-RPC 批量数组发送，再按请求 id 分发结果。
+ * 达到 max-size 立即发送，否则最多等待 max-linger-ms。
+ * 定时线程只负责取出到期的批次，阻塞的发送交给有界的发送线程池，一个慢节点或失败的批次不会拖住其他等待中的批次；
+ * 批量失败后的逐个重发走 web3j 异步发送，并行完成。
+ */
+@Component
+@Slf4j
+public class RpcBatcher {
+
+    private final Web3j web3j;
+
+    @Value("${blockchain.rpc.batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.rpc.batch.max-size:100}")
+    private int maxBatchSize;
+
+    @Value("${blockchain.rpc.batch.max-linger-ms:5}")
+    private long maxLingerMs;
+
+    /**
+     * 等待发送的请求（受 this 保护）
+     */
+    private List<Pending<?>> pending = new ArrayList<>();
+
+    private ScheduledFuture<?> lingerTask;
+
+    /**
+     * 发送 linger 到期批次的线程数
+     */
+    private static final int DISPATCH_THREADS = 4;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RpcBatcher-");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger dispatchThreadIndex = new AtomicInteger();
+
+    private final ExecutorService dispatchPool = Executors.newFixedThreadPool(DISPATCH_THREADS, r -> {
+        Thread thread = new Thread(r, "RpcBatcher-send-" + dispatchThreadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong requestsSent = new AtomicLong();
+    private final AtomicLong fallbackRequests = new AtomicLong();
+
+    public RpcBatcher(Web3j web3j) {
+        this.web3j = web3j;
+    }
+
+    /**
+     * 提交请求，返回在批量响应到达后完成的 Future
+     */
+    public <T extends Response<?>> CompletableFuture<T> submit(Request<?, T> request) {
+        if (!enabled) {
+            // 未启用批量时直接使用 web3j 异步发送，不阻塞提交线程
+            fallbackRequests.incrementAndGet();
+            return request.sendAsync();
+        }
+
+        Pending<T> entry = new Pending<>(request);
+
+        List<Pending<?>> ready = null;
+        synchronized (this) {
+            pending.add(entry);
+            if (pending.size() >= maxBatchSize) {
+                ready = drain();
+            } else if (lingerTask == null) {
+                lingerTask = scheduler.schedule(this::flushLingering, maxLingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            // 批次已满，由提交线程直接发送
+            dispatch(ready);
+        }
+        return entry.future;
+    }
+
+    /**
+     * 同步发送单个请求（与其他并发请求共享批次）
+     */
+    public <T extends Response<?>> T send(Request<?, T> request) throws IOException {
+        return await(submit(request));
+    }
+
+    /**
+     * 立即批量发送一组请求，结果顺序与请求顺序一致
+     * 适用于循环中已知全部请求的场景，不需要等待 linger
+     */
+    public <T extends Response<?>> List<T> sendAll(List<? extends Request<?, T>> requests) throws IOException {
+        List<Pending<T>> entries = new ArrayList<>(requests.size());
+        for (Request<?, T> request : requests) {
+            entries.add(new Pending<>(request));
+        }
+        for (int start = 0; start < entries.size(); start += Math.max(1, maxBatchSize)) {
+            List<Pending<?>> chunk = new ArrayList<>(entries.subList(start, Math.min(entries.size(), start + Math.max(1, maxBatchSize))));
+            if (enabled) {
+                dispatch(chunk);
+            } else {
+                sendIndividually(chunk);
+            }
+        }
+        List<T> results = new ArrayList<>(entries.size());
+        for (Pending<T> entry : entries) {
+            results.add(await(entry.future));
+        }
+        return results;
+    }
+
+    /**
+     * 批量统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long batches = batchesSent.get();
+        long requests = requestsSent.get();
+        stats.put("enabled", enabled);
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("maxLingerMs", maxLingerMs);
+        stats.put("batchesSent", batches);
+        stats.put("requestsBatched", requests);
+        stats.put("averageBatchSize", batches == 0 ? 0 : (double) requests / batches);
+        stats.put("fallbackRequests", fallbackRequests.get());
+        return stats;
+    }
+
+    /**
+     * linger 到期：在定时线程上只取出批次，发送交给发送线程池
+     */
+    private void flushLingering() {
+        List<Pending<?>> ready;
+        synchronized (this) {
+            ready = drain();
+        }
+        if (ready.isEmpty()) {
+            return;
+        }
+        try {
+            dispatchPool.execute(() -> dispatch(ready));
+        } catch (RejectedExecutionException e) {
+            // 关闭过程中由当前线程发送，不丢弃已提交的请求
+            dispatch(ready);
+        }
+    }
+
+    /**
+     * 取出全部待发送请求（调用方需持有 this 锁）
+     */
+    private List<Pending<?>> drain() {
+        List<Pending<?>> ready = pending;
+        pending = new ArrayList<>();
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+        return ready;
+    }
+
+    private void dispatch(List<Pending<?>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            sendIndividually(batch);
+            return;
+        }
+
+        BatchRequest batchRequest = web3j.newBatch();
+        for (Pending<?> entry : batch) {
+            batchRequest.add(entry.request);
+        }
+
+        BatchResponse batchResponse;
+        try {
+            batchResponse = batchRequest.send();
+        } catch (Exception e) {
+            // 节点不支持批量或批量请求失败时逐个重试
+            log.warn("JSON-RPC batch of {} requests failed, falling back to single requests: {}", batch.size(), e.getMessage());
+            sendIndividually(batch);
+            return;
+        }
+
+        batchesSent.incrementAndGet();
+        requestsSent.addAndGet(batch.size());
+
+        Map<Long, Response<?>> responsesById = new HashMap<>();
+        for (Response<?> response : batchResponse.getResponses()) {
+            responsesById.put(response.getId(), response);
+        }
+
+        List<Pending<?>> unmatched = new ArrayList<>();
+        for (Pending<?> entry : batch) {
+            Response<?> response = responsesById.get(entry.request.getId());
+            if (response == null || !entry.complete(response)) {
+                unmatched.add(entry);
+            }
+        }
+        if (!unmatched.isEmpty()) {
+            // 节点乱序返回且类型不匹配时，对这些请求单独重发
+            log.debug("{} batch responses could not be matched, resending individually", unmatched.size());
+            sendIndividually(unmatched);
+        }
+    }
+
+    /**
+     * 逐个异步发送（并行进行，不在当前线程上依次等待）
+     */
+    private void sendIndividually(List<Pending<?>> entries) {
+        for (Pending<?> entry : entries) {
+            fallbackRequests.incrementAndGet();
+            try {
+                entry.request.sendAsync().whenComplete((response, error) -> {
+                    if (error != null) {
+                        entry.future.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    } else if (!entry.complete(response)) {
+                        entry.future.completeExceptionally(new IOException("Unexpected response type for "
+                                + entry.request.getMethod()));
+                    }
+                });
+            } catch (Exception e) {
+                entry.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for RPC response", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        List<Pending<?>> ready;
+        synchronized (this) {
+            ready = drain();
+        }
+        dispatch(ready);
+        dispatchPool.shutdown();
+    }
+
+    /**
+     * 待发送请求及其结果 Future
+     */
+    private static final class Pending<T extends Response<?>> {
+        private final Request<?, T> request;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Pending(Request<?, T> request) {
+            this.request = request;
+        }
+
+        /**
+         * 以响应完成 Future，类型不匹配时返回 false
+         */
+        private boolean complete(Object response) {
+            Class<T> responseType = request.getResponseType();
+            if (!responseType.isInstance(response)) {
+                return false;
+            }
+            future.complete(responseType.cast(response));
+            return true;
+        }
+    }
+}
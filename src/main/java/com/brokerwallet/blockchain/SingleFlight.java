@@ -0,0 +1,83 @@
+package com.brokerwallet.blockchain;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在途请求去重
+ * 同一键的并发请求只有第一个（leader）真正发往上游，其余调用方共享它的结果；
+ * 结果返回后键即被移除，之后的请求重新发起。
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 认领键：没有在途请求时成为 leader，调用方必须随后调用 complete 或 fail
+     */
+    public Claim<V> claim(K key) {
+        AtomicBoolean created = new AtomicBoolean();
+        CompletableFuture<V> future = inFlight.computeIfAbsent(key, k -> {
+            created.set(true);
+            return new CompletableFuture<>();
+        });
+        if (created.get()) {
+            leaders.increment();
+        } else {
+            coalesced.increment();
+        }
+        return new Claim<>(future, created.get());
+    }
+
+    /**
+     * leader 发布结果（先移除键，再唤醒共享的调用方）
+     */
+    public void complete(K key, Claim<V> claim, V value) {
+        inFlight.remove(key, claim.future);
+        claim.future.complete(value);
+    }
+
+    /**
+     * leader 发布失败，共享的调用方收到同一个异常
+     */
+    public void fail(K key, Claim<V> claim, Throwable error) {
+        inFlight.remove(key, claim.future);
+        claim.future.completeExceptionally(error);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("upstreamCalls", leaders.sum());
+        stats.put("coalescedCalls", coalesced.sum());
+        return stats;
+    }
+
+    /**
+     * 认领结果
+     */
+    public static final class Claim<V> {
+        private final CompletableFuture<V> future;
+        private final boolean leader;
+
+        private Claim(CompletableFuture<V> future, boolean leader) {
+            this.future = future;
+            this.leader = leader;
+        }
+
+        public CompletableFuture<V> future() {
+            return future;
+        }
+
+        public boolean isLeader() {
+            return leader;
+        }
+    }
+}
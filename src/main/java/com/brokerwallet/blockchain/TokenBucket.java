@@ -0,0 +1,68 @@
+package com.brokerwallet.blockchain;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 令牌桶限流
+ * 令牌按固定速率补充，桶容量即允许的突发量；一次申请的令牌数可以超过容量，
+ * 此时桶余额变为负数，后续申请方等待补齐欠额，整体速率仍不超过设定值。
+ */
+public final class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final double capacity;
+
+    private double available;
+    private long lastRefillNanos;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder waitedNanos = new LongAdder();
+
+    public TokenBucket(double permitsPerSecond, double capacity) {
+        if (permitsPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and capacity must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.available = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 申请令牌，余额不足时阻塞到欠额补齐
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            waitedNanos.add(waitNanos);
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        acquired.add(permits);
+    }
+
+    /**
+     * 扣除令牌并返回需要等待的时长（纳秒）
+     */
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefillNanos) * permitsPerSecond / 1_000_000_000d);
+        lastRefillNanos = now;
+
+        // 本次申请排在已有欠额之后
+        long waitNanos = available >= 0 ? 0 : (long) (-available / permitsPerSecond * 1_000_000_000d);
+        available -= permits;
+        return waitNanos;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("permitsPerSecond", permitsPerSecond);
+        stats.put("capacity", capacity);
+        stats.put("acquired", acquired.sum());
+        stats.put("waitedMs", TimeUnit.NANOSECONDS.toMillis(waitedNanos.sum()));
+        return stats;
+    }
+}
@@ -60,6 +60,43 @@ public class AsyncConfig {
         return executor;
     }
     
+    /**
+     * 新区块事件处理线程池（事件索引、链上状态刷新）
+     * 这些监听器可能耗时较长（首次运行的全量基线），不能占用 @Scheduled 的调度线程。
+     * 新区块事件可合并：队列满时丢弃最早的事件，下一个事件会处理到更新的链头。
+     */
+    @Bean("chainEventExecutor")
+    public Executor chainEventExecutor() {
+        logger.info("Creating chain event thread pool");
+        
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        // 核心线程数（索引与预言机刷新各占一个）
+        executor.setCorePoolSize(2);
+        
+        // 最大线程数
+        executor.setMaxPoolSize(2);
+        
+        // 队列容量
+        executor.setQueueCapacity(16);
+        
+        // 线程名前缀
+        executor.setThreadNamePrefix("ChainEvent-");
+        
+        // 拒绝策略：丢弃最早的事件，不阻塞链头轮询
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy());
+        
+        // 关闭时不等待：未处理的区块下次启动从检查点继续
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        
+        executor.initialize();
+        
+        logger.info("Chain event thread pool created - Core: {}, Max: {}, Queue: {}", 
+                   executor.getCorePoolSize(), executor.getMaxPoolSize(), executor.getQueueCapacity());
+        
+        return executor;
+    }
+    
     /**
      * 通用异步任务线程池
      */
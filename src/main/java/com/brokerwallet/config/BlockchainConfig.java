@@ -1,14 +1,15 @@
 package com.brokerwallet.config;
 
+import com.brokerwallet.blockchain.RoutingWeb3jService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.protocol.core.methods.response.EthBlockNumber;
 import okhttp3.OkHttpClient;
 import lombok.extern.slf4j.Slf4j;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,6 +24,27 @@ public class BlockchainConfig {
     @Value("${blockchain.rpc-url}")
     private String rpcUrl;
 
+    /**
+     * 额外的只读节点（逗号分隔），写交易始终走 rpc-url
+     */
+    @Value("${blockchain.rpc-urls:}")
+    private String readRpcUrls;
+
+    @Value("${blockchain.rpc.pool.hedge-delay-ms:300}")
+    private long hedgeDelayMs;
+
+    @Value("${blockchain.rpc.pool.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+
+    @Value("${blockchain.rpc.pool.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${blockchain.rpc.pool.max-block-lag:5}")
+    private long maxBlockLag;
+
+    @Value("${blockchain.rpc.pool.max-in-flight:32}")
+    private int maxInFlight;
+
     @Value("${blockchain.account-address}")
     private String accountAddress;
 
@@ -41,18 +63,25 @@ public class BlockchainConfig {
     @Value("${timeout.write:30}")
     private int writeTimeout;
 
+    /**
+     * RPC 节点池：只读请求按延迟路由并对冲，写请求固定发往 rpc-url
+     */
     @Bean
-    public Web3j web3j() {
-        // 创建OkHttpClient并设置超时时间
+    public RoutingWeb3jService routingWeb3jService() {
+        // 创建OkHttpClient并设置超时时间（各节点共享连接池）
         OkHttpClient okHttpClient = new OkHttpClient.Builder()
                 .connectTimeout(connectTimeout, TimeUnit.SECONDS)
                 .readTimeout(readTimeout, TimeUnit.SECONDS)
                 .writeTimeout(writeTimeout, TimeUnit.SECONDS)
                 .build();
         
-        // 创建HttpService并设置超时时间
-        HttpService httpService = new HttpService(rpcUrl, okHttpClient);
-        Web3j web3j = Web3j.build(httpService);
+        return new RoutingWeb3jService(rpcUrl, Arrays.asList(readRpcUrls.split(",")), okHttpClient,
+                hedgeDelayMs, ewmaAlpha, failureThreshold, maxBlockLag, maxInFlight);
+    }
+
+    @Bean
+    public Web3j web3j(RoutingWeb3jService routingWeb3jService) {
+        Web3j web3j = Web3j.build(routingWeb3jService);
         
         // 测试连接
         try {
@@ -1,18 +1,24 @@
 package com.brokerwallet.controller;
 
+import com.brokerwallet.blockchain.ReceiptTracker;
+import com.brokerwallet.dto.CursorPage;
+import com.brokerwallet.entity.MedalDistributionTask;
 import com.brokerwallet.entity.ProofFile;
 import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.event.ReviewDecisionEvent;
 import com.brokerwallet.repository.ProofFileRepository;
 import com.brokerwallet.repository.UserAccountRepository;
 import com.brokerwallet.service.UserAccountService;
 import com.brokerwallet.service.BlockchainService;
-import com.brokerwallet.service.BlockchainSyncService;
-import com.brokerwallet.dto.DistributeRequest;
-import com.brokerwallet.dto.DistributeResponse;
+import com.brokerwallet.service.MedalDistributionQueue;
+import com.brokerwallet.service.DirtyWalletSyncService;
+import com.brokerwallet.service.ProofBatchPager;
 import com.brokerwallet.util.FileUtil;
+import com.brokerwallet.util.InvalidCursorException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.data.domain.Page;
@@ -32,6 +38,8 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -64,7 +72,16 @@ public class AdminController {
     private UserAccountService userAccountService;
     
     @Autowired
-    private BlockchainSyncService blockchainSyncService;
+    private MedalDistributionQueue medalDistributionQueue;
+    
+    @Autowired
+    private DirtyWalletSyncService dirtyWalletSyncService;
+    
+    @Autowired
+    private ProofBatchPager proofBatchPager;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @Autowired
     private com.brokerwallet.repository.NftImageRepository nftImageRepository;
@@ -142,39 +159,67 @@ public class AdminController {
         }
     }
     
+    /**
+     * 游标分页返回的批次文件为最新在前，转换为与按页码分页一致的上传时间正序
+     */
+    private static List<List<ProofFile>> oldestFirst(List<List<ProofFile>> batches) {
+        List<List<ProofFile>> result = new ArrayList<>(batches.size());
+        for (List<ProofFile> batchFiles : batches) {
+            List<ProofFile> ascending = new ArrayList<>(batchFiles);
+            Collections.reverse(ascending);
+            result.add(ascending);
+        }
+        return result;
+    }
+    
     /**
      * 获取待审核的文件列表（按批次分组）
      */
     @GetMapping("/pending-users")
     public ResponseEntity<Map<String, Object>> getPendingUsers(
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String cursor) {
         
         Map<String, Object> response = new HashMap<>();
         
         try {
             logger.info("获取待审核批次列表: page={}, limit={}", page, limit);
             
-            // 查询所有待审核的批次ID
-            List<String> allBatchIds = proofFileRepository.findDistinctBatchIdsByAuditStatus(
-                ProofFile.AuditStatus.PENDING);
-            
-            logger.info("找到 {} 个待审核批次", allBatchIds.size());
-            
-            // 手动分页
-            int start = (page - 1) * limit;
-            int end = Math.min(start + limit, allBatchIds.size());
-            List<String> pagedBatchIds = allBatchIds.subList(start, end);
+            List<List<ProofFile>> pagedBatches = new ArrayList<>();
+            List<String> allBatchIds = null;
+            String nextCursor = null;
+            if (cursor != null) {
+                // 游标分页：沿 (状态, 上传时间, ID) 索引从游标处扫描，翻页开销与第一页相同
+                CursorPage<List<ProofFile>> batchPage = proofBatchPager.byStatus(
+                        EnumSet.of(ProofFile.AuditStatus.PENDING), cursor, limit);
+                pagedBatches = oldestFirst(batchPage.getItems());
+                nextCursor = batchPage.getNextCursor();
+            } else {
+                // 查询所有待审核的批次ID
+                allBatchIds = proofFileRepository.findDistinctBatchIdsByAuditStatus(
+                    ProofFile.AuditStatus.PENDING);
+                
+                logger.info("找到 {} 个待审核批次", allBatchIds.size());
+                
+                // 手动分页
+                int start = (page - 1) * limit;
+                int end = Math.min(start + limit, allBatchIds.size());
+                List<String> pagedBatchIds = allBatchIds.subList(start, end);
+                
+                for (String batchId : pagedBatchIds) {
+                    pagedBatches.add(proofFileRepository.findBySubmissionBatchIdOrderByUploadTimeAsc(batchId));
+                }
+            }
             
             List<Map<String, Object>> users = new ArrayList<>();
             
-            for (String batchId : pagedBatchIds) {
-                // 获取该批次的所有文件
-                List<ProofFile> batchFiles = proofFileRepository.findBySubmissionBatchIdOrderByUploadTimeAsc(batchId);
+            for (List<ProofFile> batchFiles : pagedBatches) {
                 if (batchFiles.isEmpty()) continue;
                 
                 // 使用第一个文件的信息作为批次代表
                 ProofFile firstFile = batchFiles.get(0);
+                String batchId = firstFile.getSubmissionBatchId();
                 
                 // 获取用户信息
                 UserAccount user = userAccountService.findById(firstFile.getUserAccountId());
@@ -198,20 +243,29 @@ public class AdminController {
                 users.add(userInfo);
             }
             
-            // 计算总页数
-            int totalPages = (int) Math.ceil((double) allBatchIds.size() / limit);
-            
             response.put("code", 1);
             response.put("success", true);
             response.put("message", "获取成功");
             response.put("users", users);
-            response.put("total", allBatchIds.size());  // 总批次数
-            response.put("currentPage", page);
-            response.put("totalPages", totalPages);
+            if (cursor != null) {
+                response.put("nextCursor", nextCursor);
+                response.put("hasMore", nextCursor != null);
+            } else {
+                // 计算总页数
+                int totalPages = (int) Math.ceil((double) allBatchIds.size() / limit);
+                response.put("total", allBatchIds.size());  // 总批次数
+                response.put("currentPage", page);
+                response.put("totalPages", totalPages);
+            }
             
             logger.info("成功获取{}个待审核批次", users.size());
             return ResponseEntity.ok(response);
             
+        } catch (InvalidCursorException e) {
+            response.put("code", 0);
+            response.put("success", false);
+            response.put("message", "无效的分页游标");
+            return ResponseEntity.status(400).body(response);
         } catch (Exception e) {
             logger.error("获取待审核文件列表失败", e);
             response.put("code", 0);
@@ -227,41 +281,56 @@ public class AdminController {
     @GetMapping("/approved-users")
     public ResponseEntity<Map<String, Object>> getApprovedUsers(
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String cursor) {
         
         Map<String, Object> response = new HashMap<>();
         
         try {
             logger.info("获取已审核批次列表: page={}, limit={}", page, limit);
             
-            // 查询所有已审核的批次ID（包括通过和拒绝）
-            List<String> approvedBatchIds = proofFileRepository.findDistinctBatchIdsByAuditStatus(
-                ProofFile.AuditStatus.APPROVED);
-            List<String> rejectedBatchIds = proofFileRepository.findDistinctBatchIdsByAuditStatus(
-                ProofFile.AuditStatus.REJECTED);
-            
-            // 合并两个列表
-            List<String> allBatchIds = new ArrayList<>();
-            allBatchIds.addAll(approvedBatchIds);
-            allBatchIds.addAll(rejectedBatchIds);
-            
-            logger.info("找到 {} 个已审核批次（通过:{}, 拒绝:{}）", 
-                allBatchIds.size(), approvedBatchIds.size(), rejectedBatchIds.size());
-            
-            // 手动分页
-            int start = (page - 1) * limit;
-            int end = Math.min(start + limit, allBatchIds.size());
-            List<String> pagedBatchIds = allBatchIds.subList(start, end);
+            List<List<ProofFile>> pagedBatches = new ArrayList<>();
+            List<String> allBatchIds = null;
+            String nextCursor = null;
+            if (cursor != null) {
+                // 游标分页：沿 (状态, 上传时间, ID) 索引从游标处扫描，翻页开销与第一页相同
+                CursorPage<List<ProofFile>> batchPage = proofBatchPager.byStatus(
+                        EnumSet.of(ProofFile.AuditStatus.APPROVED, ProofFile.AuditStatus.REJECTED), cursor, limit);
+                pagedBatches = oldestFirst(batchPage.getItems());
+                nextCursor = batchPage.getNextCursor();
+            } else {
+                // 查询所有已审核的批次ID（包括通过和拒绝）
+                List<String> approvedBatchIds = proofFileRepository.findDistinctBatchIdsByAuditStatus(
+                    ProofFile.AuditStatus.APPROVED);
+                List<String> rejectedBatchIds = proofFileRepository.findDistinctBatchIdsByAuditStatus(
+                    ProofFile.AuditStatus.REJECTED);
+                
+                // 合并两个列表
+                allBatchIds = new ArrayList<>();
+                allBatchIds.addAll(approvedBatchIds);
+                allBatchIds.addAll(rejectedBatchIds);
+                
+                logger.info("找到 {} 个已审核批次（通过:{}, 拒绝:{}）", 
+                    allBatchIds.size(), approvedBatchIds.size(), rejectedBatchIds.size());
+                
+                // 手动分页
+                int start = (page - 1) * limit;
+                int end = Math.min(start + limit, allBatchIds.size());
+                List<String> pagedBatchIds = allBatchIds.subList(start, end);
+                
+                for (String batchId : pagedBatchIds) {
+                    pagedBatches.add(proofFileRepository.findBySubmissionBatchIdOrderByUploadTimeAsc(batchId));
+                }
+            }
             
             List<Map<String, Object>> users = new ArrayList<>();
             
-            for (String batchId : pagedBatchIds) {
-                // 获取该批次的所有文件
-                List<ProofFile> batchFiles = proofFileRepository.findBySubmissionBatchIdOrderByUploadTimeAsc(batchId);
+            for (List<ProofFile> batchFiles : pagedBatches) {
                 if (batchFiles.isEmpty()) continue;
                 
                 // 使用第一个文件的信息作为批次代表
                 ProofFile firstFile = batchFiles.get(0);
+                String batchId = firstFile.getSubmissionBatchId();
                 
                 // 获取用户信息
                 UserAccount user = userAccountService.findById(firstFile.getUserAccountId());
@@ -289,20 +358,29 @@ public class AdminController {
                 users.add(userInfo);
             }
             
-            // 计算总页数
-            int totalPages = (int) Math.ceil((double) allBatchIds.size() / limit);
-            
             response.put("code", 1);
             response.put("success", true);
             response.put("message", "获取成功");
             response.put("users", users);
-            response.put("total", allBatchIds.size());  // 总批次数
-            response.put("currentPage", page);
-            response.put("totalPages", totalPages);
+            if (cursor != null) {
+                response.put("nextCursor", nextCursor);
+                response.put("hasMore", nextCursor != null);
+            } else {
+                // 计算总页数
+                int totalPages = (int) Math.ceil((double) allBatchIds.size() / limit);
+                response.put("total", allBatchIds.size());  // 总批次数
+                response.put("currentPage", page);
+                response.put("totalPages", totalPages);
+            }
             
             logger.info("成功获取{}个已审核批次", users.size());
             return ResponseEntity.ok(response);
             
+        } catch (InvalidCursorException e) {
+            response.put("code", 0);
+            response.put("success", false);
+            response.put("message", "无效的分页游标");
+            return ResponseEntity.status(400).body(response);
         } catch (Exception e) {
             logger.error("获取已审核文件列表失败", e);
             response.put("code", 0);
@@ -318,32 +396,46 @@ public class AdminController {
     @GetMapping("/all-users")
     public ResponseEntity<Map<String, Object>> getAllUsers(
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String cursor) {
         
         Map<String, Object> response = new HashMap<>();
         
         try {
             logger.info("获取所有批次列表: page={}, limit={}", page, limit);
             
-            // 直接查询所有批次ID（不区分状态，按时间倒序）
-            List<String> allBatchIds = proofFileRepository.findAllDistinctBatchIds();
-            
-            logger.info("找到 {} 个批次（按时间倒序）", allBatchIds.size());
-            
-            // 手动分页
-            int start = (page - 1) * limit;
-            int end = Math.min(start + limit, allBatchIds.size());
-            List<String> pagedBatchIds = allBatchIds.subList(start, end);
+            List<List<ProofFile>> pagedBatches = new ArrayList<>();
+            List<String> allBatchIds = null;
+            String nextCursor = null;
+            if (cursor != null) {
+                // 游标分页：沿 (状态, 上传时间, ID) 索引从游标处扫描，翻页开销与第一页相同
+                CursorPage<List<ProofFile>> batchPage = proofBatchPager.all(cursor, limit);
+                pagedBatches = oldestFirst(batchPage.getItems());
+                nextCursor = batchPage.getNextCursor();
+            } else {
+                // 直接查询所有批次ID（不区分状态，按时间倒序）
+                allBatchIds = proofFileRepository.findAllDistinctBatchIds();
+                
+                logger.info("找到 {} 个批次（按时间倒序）", allBatchIds.size());
+                
+                // 手动分页
+                int start = (page - 1) * limit;
+                int end = Math.min(start + limit, allBatchIds.size());
+                List<String> pagedBatchIds = allBatchIds.subList(start, end);
+                
+                for (String batchId : pagedBatchIds) {
+                    pagedBatches.add(proofFileRepository.findBySubmissionBatchIdOrderByUploadTimeAsc(batchId));
+                }
+            }
             
             List<Map<String, Object>> users = new ArrayList<>();
             
-            for (String batchId : pagedBatchIds) {
-                // 获取该批次的所有文件
-                List<ProofFile> batchFiles = proofFileRepository.findBySubmissionBatchIdOrderByUploadTimeAsc(batchId);
+            for (List<ProofFile> batchFiles : pagedBatches) {
                 if (batchFiles.isEmpty()) continue;
                 
                 // 使用第一个文件的信息作为批次代表
                 ProofFile firstFile = batchFiles.get(0);
+                String batchId = firstFile.getSubmissionBatchId();
                 
                 // 获取用户信息
                 UserAccount user = userAccountService.findById(firstFile.getUserAccountId());
@@ -371,20 +463,29 @@ public class AdminController {
                 users.add(userInfo);
             }
             
-            // 计算总页数
-            int totalPages = (int) Math.ceil((double) allBatchIds.size() / limit);
-            
             response.put("code", 1);
             response.put("success", true);
             response.put("message", "获取成功");
             response.put("users", users);
-            response.put("total", allBatchIds.size());  // 总批次数
-            response.put("currentPage", page);
-            response.put("totalPages", totalPages);
+            if (cursor != null) {
+                response.put("nextCursor", nextCursor);
+                response.put("hasMore", nextCursor != null);
+            } else {
+                // 计算总页数
+                int totalPages = (int) Math.ceil((double) allBatchIds.size() / limit);
+                response.put("total", allBatchIds.size());  // 总批次数
+                response.put("currentPage", page);
+                response.put("totalPages", totalPages);
+            }
             
             logger.info("成功获取{}个批次", users.size());
             return ResponseEntity.ok(response);
             
+        } catch (InvalidCursorException e) {
+            response.put("code", 0);
+            response.put("success", false);
+            response.put("message", "无效的分页游标");
+            return ResponseEntity.status(400).body(response);
         } catch (Exception e) {
             logger.error("获取文件列表失败", e);
             response.put("code", 0);
@@ -427,6 +528,10 @@ public class AdminController {
                 return ResponseEntity.status(400).body(response);
             }
             
+            // 实际审核的批次与状态发生变化的文件数（用于推送审核结果）
+            String reviewedBatchId = null;
+            int reviewedFiles = 0;
+            
             if (approve == 1) {
                 // 审核通过，分配勋章
                 if (goldNum != null && goldNum > 0) {
@@ -443,35 +548,23 @@ public class AdminController {
                 user.setUpdateTime(LocalDateTime.now());
                 userAccountService.save(user);
                 
-                // 调用区块链发放勋章
-                try {
-                    logger.info("开始向区块链发放勋章: 用户={}, 金牌={}, 银牌={}, 铜牌={}", 
-                        user.getWalletAddress(), goldNum, silverNum, bronzeNum);
-                    
-                    DistributeRequest distributeRequest = new DistributeRequest();
-                    distributeRequest.setTo(user.getWalletAddress());
-                    distributeRequest.setGoldQty(goldNum != null ? goldNum : 0);
-                    distributeRequest.setSilverQty(silverNum != null ? silverNum : 0);
-                    distributeRequest.setBronzeQty(bronzeNum != null ? bronzeNum : 0);
-                    
-                    DistributeResponse distributeResponse = blockchainService.distributeMedalsWithWalletSigning(distributeRequest);
-                    
-                    if (distributeResponse.isSuccess()) {
-                        logger.info("区块链勋章发放成功: txHash={}", distributeResponse.getTransactionHash());
-                        
-                        // 同步区块链数据回数据库
-                        try {
-                            blockchainSyncService.syncUserMedals(user.getWalletAddress());
-                            logger.info("区块链数据同步成功");
-                        } catch (Exception syncEx) {
-                            logger.error("区块链数据同步失败: {}", syncEx.getMessage());
-                        }
-                    } else {
-                        logger.error("区块链勋章发放失败: {}", distributeResponse.getMessage());
+                // 勋章发放写入持久化队列，由后台调度器合并后上链（不阻塞审核请求）
+                int goldQty = goldNum != null ? goldNum : 0;
+                int silverQty = silverNum != null ? silverNum : 0;
+                int bronzeQty = bronzeNum != null ? bronzeNum : 0;
+                if (goldQty > 0 || silverQty > 0 || bronzeQty > 0) {
+                    try {
+                        MedalDistributionTask task = medalDistributionQueue.enqueue(
+                            user.getWalletAddress(), goldQty, silverQty, bronzeQty);
+                        response.put("distributionTaskId", task.getId());
+                        logger.info("勋章发放已加入队列: 用户={}, 任务ID={}", user.getWalletAddress(), task.getId());
+                        // 发放确认前增量同步会跳过该钱包，确认后以链上数据为准
+                        dirtyWalletSyncService.markDirty(user.getWalletAddress(), 
+                            DirtyWalletSyncService.REASON_ADMIN_APPROVAL);
+                    } catch (Exception queueEx) {
+                        logger.error("勋章发放入队失败: {}", queueEx.getMessage(), queueEx);
+                        // 区块链操作失败不影响审核流程，只记录日志
                     }
-                } catch (Exception blockchainEx) {
-                    logger.error("区块链操作失败: {}", blockchainEx.getMessage(), blockchainEx);
-                    // 区块链操作失败不影响审核流程，只记录日志
                 }
                 
                 // 更新相关证明文件的审核状态
@@ -483,6 +576,8 @@ public class AdminController {
                         if (proofFile.getUserAccountId().equals(user.getId()) && 
                             proofFile.getAuditStatus() == ProofFile.AuditStatus.PENDING) {
                             
+                            reviewedBatchId = proofFile.getSubmissionBatchId();
+                            
                             // 获取该批次的所有文件
                             List<ProofFile> batchFiles = new ArrayList<>();
                             if (proofFile.getSubmissionBatchId() != null) {
@@ -510,6 +605,7 @@ public class AdminController {
                                 
                                 file.setMedalAwardTime(LocalDateTime.now());
                                 proofFileRepository.save(file);
+                                reviewedFiles++;
                             }
                             
                             logger.info("审核通过: 批次中的 {} 个文件已全部审核通过", batchFiles.size());
@@ -539,6 +635,7 @@ public class AdminController {
                         
                         proofFile.setMedalAwardTime(LocalDateTime.now());
                         proofFileRepository.save(proofFile);
+                        reviewedFiles++;
                     }
                 }
                 
@@ -559,6 +656,8 @@ public class AdminController {
                         if (proofFile.getUserAccountId().equals(user.getId()) && 
                             proofFile.getAuditStatus() == ProofFile.AuditStatus.PENDING) {
                             
+                            reviewedBatchId = proofFile.getSubmissionBatchId();
+                            
                             // 获取该批次的所有文件
                             List<ProofFile> batchFiles = new ArrayList<>();
                             if (proofFile.getSubmissionBatchId() != null) {
@@ -575,6 +674,7 @@ public class AdminController {
                                 file.setAuditStatus(ProofFile.AuditStatus.REJECTED);
                                 file.setAuditTime(LocalDateTime.now());
                                 proofFileRepository.save(file);
+                                reviewedFiles++;
                             }
                             
                             logger.info("审核拒绝: 批次中的 {} 个文件已全部拒绝", batchFiles.size());
@@ -593,6 +693,7 @@ public class AdminController {
                         proofFile.setAuditStatus(ProofFile.AuditStatus.REJECTED);
                         proofFile.setAuditTime(LocalDateTime.now());
                         proofFileRepository.save(proofFile);
+                        reviewedFiles++;
                     }
                 }
                 
@@ -603,6 +704,15 @@ public class AdminController {
                 logger.info("审核拒绝: 用户{}", username);
             }
             
+            // 有文件的审核状态实际变化时才推送给在线的用户客户端（勋章变化由用户实体监听器在提交后单独发布）
+            if (reviewedFiles > 0) {
+                eventPublisher.publishEvent(new ReviewDecisionEvent(user.getWalletAddress(), approve == 1,
+                    proofFileId, reviewedBatchId,
+                    approve == 1 && goldNum != null ? goldNum : 0,
+                    approve == 1 && silverNum != null ? silverNum : 0,
+                    approve == 1 && bronzeNum != null ? bronzeNum : 0));
+            }
+            
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -1703,6 +1813,24 @@ public class AdminController {
         }
     }
     
+    /**
+     * 勋章发放队列深度与吞吐统计
+     */
+    @GetMapping("/medal-queue/stats")
+    public ResponseEntity<Map<String, Object>> medalQueueStats() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", medalDistributionQueue.getStats());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("查询勋章发放队列统计失败", e);
+            response.put("success", false);
+            response.put("message", "查询失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
     /**
      * 管理员转账代币奖励
      */
@@ -1721,11 +1849,14 @@ public class AdminController {
             // 调用区块链服务转账
             String txHash = blockchainService.transferTokenReward(toAddress, amount);
             
-            logger.info("✅ 转账成功: txHash={}", txHash);
+            logger.info("✅ 转账交易已提交: txHash={}", txHash);
+            dirtyWalletSyncService.markDirty(toAddress, 
+                DirtyWalletSyncService.REASON_TOKEN_TRANSFER);
             
             response.put("success", true);
-            response.put("message", "转账成功");
+            response.put("message", "转账交易已提交，等待链上确认");
             response.put("transactionHash", txHash);
+            response.put("status", ReceiptTracker.TxStatus.PENDING.name());
             
             return ResponseEntity.ok(response);
             
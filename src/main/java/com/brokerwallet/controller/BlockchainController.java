@@ -1,17 +1,28 @@
 package com.brokerwallet.controller;
 
-import com.brokerwallet.dto.MedalQueryResult;
+import com.brokerwallet.blockchain.ChainStateOracle;
+import com.brokerwallet.blockchain.ContractReadCache;
+import com.brokerwallet.blockchain.MulticallClient;
+import com.brokerwallet.blockchain.ReceiptTracker;
+import com.brokerwallet.blockchain.RoutingWeb3jService;
+import com.brokerwallet.blockchain.RpcBatcher;
 import com.brokerwallet.dto.DistributeRequest;
 import com.brokerwallet.dto.DistributeResponse;
 import com.brokerwallet.dto.UnsignedTransactionData;
 import com.brokerwallet.dto.NftMintRequest;
 import com.brokerwallet.dto.NftMintResponse;
 import com.brokerwallet.dto.NftQueryResult;
+import com.brokerwallet.entity.NftImage;
+import com.brokerwallet.service.AsyncBlockchainService;
 import com.brokerwallet.service.BlockchainService;
 import com.brokerwallet.service.BlockchainSyncService;
+import com.brokerwallet.service.DirtyWalletSyncService;
+import com.brokerwallet.service.NftMintQueue;
+import com.brokerwallet.service.QueryQueueFullException;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.validation.annotation.Validated;
@@ -20,6 +31,7 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 区块链操作控制器
@@ -34,7 +46,16 @@ import java.util.Map;
 public class BlockchainController {
 
     private final BlockchainService blockchainService;
+    private final AsyncBlockchainService asyncBlockchainService;
     private final BlockchainSyncService blockchainSyncService;
+    private final DirtyWalletSyncService dirtyWalletSyncService;
+    private final ContractReadCache contractReadCache;
+    private final RpcBatcher rpcBatcher;
+    private final RoutingWeb3jService routingWeb3jService;
+    private final MulticallClient multicallClient;
+    private final ReceiptTracker receiptTracker;
+    private final NftMintQueue nftMintQueue;
+    private final ChainStateOracle chainStateOracle;
 
     /**
      * 检查NFT铸造权限（详细版）
@@ -123,25 +144,30 @@ public class BlockchainController {
      * 查询用户勋章
      */
     @GetMapping("/medals/{address}")
-    public ResponseEntity<?> queryUserMedals(
+    public CompletableFuture<ResponseEntity<?>> queryUserMedals(
             @PathVariable 
             @NotBlank(message = "Address cannot be empty")
             @Pattern(regexp = "^0x[a-fA-F0-9]{40}$", message = "Invalid Ethereum address")
             String address) {
         
-        try {
-            log.info("Querying medals for address: {}", address);
-            
-            // 按需同步用户数据到数据库
-            blockchainSyncService.syncUserMedals(address);
-            
-            // 查询区块链上的最新数据
-            MedalQueryResult result = blockchainService.queryUserMedals(address);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            log.error("Failed to query medals: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body(new ErrorResponse("Query failed", e.getMessage()));
-        }
+        log.info("Querying medals for address: {}", address);
+        
+        // 异步查询区块链上的最新数据，返回后按需同步到数据库
+        return asyncBlockchainService.queryUserMedals(address)
+                .<ResponseEntity<?>>thenApply(result -> {
+                    blockchainSyncService.applyUserMedals(address, result);
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof QueryQueueFullException) {
+                        log.warn("Medal query rejected: {}", cause.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .body(new ErrorResponse("Too many pending queries", cause.getMessage()));
+                    }
+                    log.error("Failed to query medals: {}", cause.getMessage(), cause);
+                    return ResponseEntity.badRequest().body(new ErrorResponse("Query failed", cause.getMessage()));
+                });
     }
 
     /**
@@ -210,6 +236,57 @@ public class BlockchainController {
         return ResponseEntity.ok(new HealthResponse("OK", System.currentTimeMillis()));
     }
 
+    /**
+     * 合约读缓存与RPC批量统计
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<?> cacheStats() {
+        Map<String, Object> data = new java.util.LinkedHashMap<>();
+        data.put("readCache", contractReadCache.getStats());
+        data.put("rpcBatch", rpcBatcher.getStats());
+        data.put("rpcPool", routingWeb3jService.getStats());
+        data.put("multicall", multicallClient.getStats());
+        data.put("receiptTracker", receiptTracker.getStats());
+        data.put("chainState", chainStateOracle.getStats());
+        data.put("async", asyncBlockchainService.getStats());
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", data
+        ));
+    }
+
+    /**
+     * 勋章同步进度：全量对账（已处理数、写回数、吞吐量与预计剩余时间）与待同步钱包增量同步
+     */
+    @GetMapping("/sync-progress")
+    public ResponseEntity<?> syncProgress() {
+        Map<String, Object> data = blockchainSyncService.getSyncProgress();
+        data.put("dirtySync", dirtyWalletSyncService.getStats());
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", data
+        ));
+    }
+
+    /**
+     * 查询交易确认状态（交易哈希即跟踪ID）
+     */
+    @GetMapping("/tx/{txHash}")
+    public ResponseEntity<?> transactionStatus(
+            @PathVariable
+            @Pattern(regexp = "^0x[a-fA-F0-9]{64}$", message = "Invalid transaction hash")
+            String txHash) {
+        try {
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "data", receiptTracker.getStatus(txHash)
+            ));
+        } catch (Exception e) {
+            log.error("Failed to query transaction status: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(new ErrorResponse("Failed to query transaction status", e.getMessage()));
+        }
+    }
+
     /**
      * 铸造NFT
      */
@@ -224,7 +301,20 @@ public class BlockchainController {
             log.info("Image Data Preview: {}", request.getImageData() != null ? request.getImageData().substring(0, Math.min(100, request.getImageData().length())) : "null");
             log.info("Attributes: {}", request.getAttributes());
             
-            NftMintResponse response = blockchainService.mintNft(request);
+            NftMintResponse response;
+            if (request.getNftImageId() != null) {
+                // 有对应NFT记录的请求进入铸造队列，客户端通过状态接口轮询结果
+                NftImage queued = nftMintQueue.enqueue(request);
+                response = NftMintResponse.builder()
+                        .success(true)
+                        .message("NFT mint request queued, poll /api/blockchain/nft/mint/" + queued.getId() + "/status")
+                        .transactionHash(queued.getTransactionHash())
+                        .tokenId(queued.getTokenId())
+                        .status(queued.getMintStatus().name())
+                        .build();
+            } else {
+                response = blockchainService.mintNft(request);
+            }
             
             log.info("=== NFT Minting Response ===");
             log.info("Success: {}", response.isSuccess());
@@ -245,50 +335,58 @@ public class BlockchainController {
         }
     }
 
+    /**
+     * 查询NFT铸造状态
+     */
+    @GetMapping("/nft/mint/{nftImageId}/status")
+    public ResponseEntity<?> mintStatus(@PathVariable Long nftImageId) {
+        return nftMintQueue.getMintStatus(nftImageId)
+                .<ResponseEntity<?>>map(status -> ResponseEntity.ok(Map.of("success", true, "data", status)))
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of(
+                    "success", false,
+                    "message", "NFT record not found: " + nftImageId
+                )));
+    }
+
+    /**
+     * NFT铸造队列统计
+     */
+    @GetMapping("/nft/mint-queue/stats")
+    public ResponseEntity<?> mintQueueStats() {
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", nftMintQueue.getStats()
+        ));
+    }
+
     /**
      * 查询用户拥有的NFT
+     * 传入 cursor（第一页传空字符串）时按续页令牌翻页，跳过缺失的Token并补满一页；不传时按页码定位
      */
     @GetMapping("/nft/user/{address}")
-    public ResponseEntity<NftQueryResult> queryUserNfts(
+    public CompletableFuture<ResponseEntity<NftQueryResult>> queryUserNfts(
             @PathVariable 
             @NotBlank(message = "Address cannot be empty")
             @Pattern(regexp = "^0x[a-fA-F0-9]{40}$", message = "Invalid Ethereum address")
             String address,
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size) {
-        try {
-            log.info("Querying NFTs for address: {}, page: {}, size: {}", address, page, size);
-            NftQueryResult result = blockchainService.queryUserNfts(address, page, size);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            log.error("Failed to query user NFTs: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body(NftQueryResult.builder()
-                    .address(address)
-                    .nfts(new java.util.ArrayList<>())
-                    .totalCount(0)
-                    .build());
-        }
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        log.info("Querying NFTs for address: {}, page: {}, size: {}", address, page, size);
+        return asyncBlockchainService.queryUserNfts(address, page, size, cursor).thenApply(ResponseEntity::ok);
     }
 
     /**
      * 查询所有NFT
+     * 传入 cursor（第一页传空字符串）时按续页令牌翻页，跳过缺失的Token并补满一页；不传时按页码定位
      */
     @GetMapping("/nft/all")
-    public ResponseEntity<NftQueryResult> queryAllNfts(
+    public CompletableFuture<ResponseEntity<NftQueryResult>> queryAllNfts(
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "20") int size) {
-        try {
-            log.info("Querying all NFTs: page={}, size={}", page, size);
-            NftQueryResult result = blockchainService.queryAllNfts(page, size);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            log.error("Failed to query all NFTs: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body(NftQueryResult.builder()
-                    .address("all")
-                    .nfts(new java.util.ArrayList<>())
-                    .totalCount(0)
-                    .build());
-        }
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        log.info("Querying all NFTs: page={}, size={}", page, size);
+        return asyncBlockchainService.queryAllNfts(page, size, cursor).thenApply(ResponseEntity::ok);
     }
 
     // 内部类用于错误响应
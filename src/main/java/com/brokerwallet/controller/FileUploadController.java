@@ -1,18 +1,23 @@
 package com.brokerwallet.controller;
 
+import com.brokerwallet.dto.CursorPage;
 import com.brokerwallet.entity.UserAccount;
 import com.brokerwallet.entity.ProofFile;
 import com.brokerwallet.entity.NftImage;
 import com.brokerwallet.service.AsyncFileProcessorService;
+import com.brokerwallet.service.ProofBatchPager;
 import com.brokerwallet.service.UserAccountService;
 import com.brokerwallet.repository.ProofFileRepository;
 import com.brokerwallet.repository.NftImageRepository;
 import com.brokerwallet.util.FileUtil;
+import com.brokerwallet.util.InvalidCursorException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -45,6 +50,12 @@ public class FileUploadController {
     @Autowired
     private AsyncFileProcessorService asyncFileProcessorService;
     
+    @Autowired
+    private ProofBatchPager proofBatchPager;
+    
+    @Value("${spring.servlet.multipart.file-size-threshold:0B}")
+    private DataSize multipartFileSizeThreshold;
+    
     /**
      * 初始化方法：为旧数据生成批次ID
      */
@@ -126,25 +137,30 @@ public class FileUploadController {
             UserAccount user = userAccountService.getOrCreateUser(walletAddress);
             logger.info("User account ready: ID={}", user.getId());
             
-            // 2. 保存所有证明文件到文件系统
+            // 2. 保存所有证明文件到文件系统（写入时同时计算哈希）
             String userProofDir = FileUtil.getUserProofDirectory(user.getId());
-            List<String> proofFilePaths = new ArrayList<>();
+            List<FileUtil.StoredFile> storedProofFiles = new ArrayList<>();
             
             for (int i = 0; i < proofFiles.length; i++) {
                 MultipartFile proofFile = proofFiles[i];
-                String proofFilePath = FileUtil.saveFile(proofFile, userProofDir);
-                proofFilePaths.add(proofFilePath);
-                tempFilePaths.add(proofFilePath);
-                logger.info("Proof file {} saved to: {}", i+1, proofFilePath);
+                FileUtil.StoredFile storedProofFile = FileUtil.storeFile(proofFile, userProofDir, spooledThreshold());
+                storedProofFiles.add(storedProofFile);
+                tempFilePaths.add(storedProofFile.getPath());
+                logger.info("Proof file {} saved to: {}", i+1, storedProofFile.getPath());
             }
             
-            // 3. 检查NFT图片唯一性并保存到文件系统（如果有）
+            // 3. 保存NFT图片到文件系统并检查唯一性（如果有）
+            FileUtil.StoredFile storedNftImage = null;
             String nftImagePath = null;
             String nftImageHash = null;
             if (nftImage != null && !nftImage.isEmpty()) {
-                // 计算NFT图片的SHA-256哈希值
-                nftImageHash = calculateImageHash(nftImage);
-                logger.info("NFT image hash calculated: {}", nftImageHash);
+                // 保存时同时计算NFT图片的SHA-256哈希值
+                String userNftDir = FileUtil.getUserNftDirectory(user.getId());
+                storedNftImage = FileUtil.storeFile(nftImage, userNftDir, spooledThreshold());
+                nftImagePath = storedNftImage.getPath();
+                nftImageHash = storedNftImage.getSha256();
+                tempFilePaths.add(nftImagePath);
+                logger.info("NFT image saved to: {}, hash: {}", nftImagePath, nftImageHash);
                 
                 // 检查哈希是否已存在（仅针对用户上传的NFT图片）
                 if (proofFileRepository.existsByNftImageHash(nftImageHash)) {
@@ -153,19 +169,13 @@ public class FileUploadController {
                     response.put("message", "该NFT图片已存在，请上传不同的图片");
                     response.put("errorCode", "DUPLICATE_NFT_IMAGE");
                     
-                    // 清理已上传的证明文件
+                    // 清理已上传的证明文件和NFT图片
                     for (String tempPath : tempFilePaths) {
                         FileUtil.deleteFile(tempPath);
                     }
                     
                     return ResponseEntity.badRequest().body(response);
                 }
-                
-                // 保存NFT图片到文件系统
-                String userNftDir = FileUtil.getUserNftDirectory(user.getId());
-                nftImagePath = FileUtil.saveFile(nftImage, userNftDir);
-                tempFilePaths.add(nftImagePath);
-                logger.info("NFT image saved to: {}", nftImagePath);
             }
             
             // 4. 更新用户信息
@@ -187,8 +197,7 @@ public class FileUploadController {
             List<ProofFile> savedProofFiles = new ArrayList<>();
             for (int i = 0; i < proofFiles.length; i++) {
                 MultipartFile proofFile = proofFiles[i];
-                String proofFilePath = proofFilePaths.get(i);
-                ProofFile savedProofFile = saveProofFileToDatabase(proofFile, proofFilePath, user.getId());
+                ProofFile savedProofFile = saveProofFileToDatabase(proofFile, storedProofFiles.get(i), user.getId());
                 
                 // 设置提交批次ID
                 savedProofFile.setSubmissionBatchId(submissionBatchId);
@@ -210,7 +219,7 @@ public class FileUploadController {
             if (nftImage != null && !nftImage.isEmpty() && nftImagePath != null) {
                 // NFT图片关联到第一个证明文件
                 Long firstProofFileId = savedProofFiles.get(0).getId();
-                savedNftImage = saveNftImageToDatabase(nftImage, nftImagePath, user.getId(), firstProofFileId);
+                savedNftImage = saveNftImageToDatabase(nftImage, storedNftImage, user.getId(), firstProofFileId);
             }
             
             // 7. 构建详细响应（为Android端优化）
@@ -300,34 +309,18 @@ public class FileUploadController {
     }
     
     /**
-     * 计算图片的SHA-256哈希值
+     * 超过该大小的 multipart 已由容器写入临时文件，保存时直接重命名
      */
-    private String calculateImageHash(MultipartFile file) throws Exception {
-        try {
-            java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(file.getBytes());
-            
-            // 转换为十六进制字符串
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (Exception e) {
-            logger.error("Failed to calculate image hash", e);
-            throw new Exception("计算图片哈希失败: " + e.getMessage());
-        }
+    private long spooledThreshold() {
+        return multipartFileSizeThreshold.toBytes();
     }
     
     /**
      * 保存证明文件到数据库
      */
-    private ProofFile saveProofFileToDatabase(MultipartFile file, String filePath, Long userAccountId) throws Exception {
+    private ProofFile saveProofFileToDatabase(MultipartFile file, FileUtil.StoredFile storedFile, Long userAccountId) throws Exception {
         // 文件已经保存到文件系统，只需要创建数据库记录
+        String filePath = storedFile.getPath();
         String fileName = filePath.substring(filePath.lastIndexOf("/") + 1);
         
         logger.info("Creating database record for proof file: {}", filePath);
@@ -339,25 +332,22 @@ public class FileUploadController {
         proofFile.setFilePath(filePath);  // 设置文件路径
         proofFile.setOriginalName(file.getOriginalFilename());
         proofFile.setFileType(file.getContentType());
-        proofFile.setFileSize(file.getSize());
+        proofFile.setFileSize(storedFile.getSize());
+        proofFile.setFileHash(storedFile.getMd5());
         proofFile.setUploadTime(LocalDateTime.now());
         proofFile.setAuditStatus(ProofFile.AuditStatus.PENDING);
         proofFile.setMedalAwarded(ProofFile.MedalType.NONE);
         proofFile.setStatus(ProofFile.FileStatus.ACTIVE);
         
-        ProofFile savedProofFile = proofFileRepository.save(proofFile);
-        
-        // 异步处理文件哈希计算
-        asyncFileProcessorService.calculateFileHashAsync(filePath);
-        
-        return savedProofFile;
+        return proofFileRepository.save(proofFile);
     }
     
     /**
      * 保存NFT图片到数据库
      */
-    private NftImage saveNftImageToDatabase(MultipartFile file, String imagePath, Long userAccountId, Long proofFileId) throws Exception {
+    private NftImage saveNftImageToDatabase(MultipartFile file, FileUtil.StoredFile storedImage, Long userAccountId, Long proofFileId) throws Exception {
         // 文件已经保存到文件系统，只需要创建数据库记录
+        String imagePath = storedImage.getPath();
         String imageName = imagePath.substring(imagePath.lastIndexOf("/") + 1);
         
         logger.info("Creating database record for NFT image: {}", imagePath);
@@ -370,7 +360,8 @@ public class FileUploadController {
         nftImage.setImagePath(imagePath);  // 设置图片路径
         nftImage.setOriginalName(file.getOriginalFilename());
         nftImage.setImageType(file.getContentType());
-        nftImage.setImageSize(file.getSize());
+        nftImage.setImageSize(storedImage.getSize());
+        nftImage.setImageHash(storedImage.getMd5());
         nftImage.setUploadTime(LocalDateTime.now());
         nftImage.setMintStatus(NftImage.MintStatus.NOT_STARTED);
         nftImage.setStatus(NftImage.ImageStatus.ACTIVE);
@@ -382,9 +373,6 @@ public class FileUploadController {
         String thumbnailPath = thumbnailDir + "thumb_" + imageName;
         asyncFileProcessorService.generateThumbnailAsync(imagePath, thumbnailPath, 300, 300);
         
-        // 异步计算文件哈希
-        asyncFileProcessorService.calculateFileHashAsync(imagePath);
-        
         return savedNftImage;
     }
     
@@ -395,12 +383,13 @@ public class FileUploadController {
     public ResponseEntity<Map<String, Object>> getUserSubmissions(
             @RequestParam String walletAddress,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
         
         Map<String, Object> response = new HashMap<>();
         
         try {
-            logger.info("获取用户提交历史: {}, page={}, size={}", walletAddress, page, size);
+            logger.info("获取用户提交历史: {}, page={}, size={}, cursor={}", walletAddress, page, size, cursor != null);
             
             // 规范化钱包地址（尝试多种格式）
             UserAccount user = null;
@@ -434,28 +423,35 @@ public class FileUploadController {
             
             logger.info("找到用户: {}, displayName={}", user.getWalletAddress(), user.getDisplayName());
             
-            // 获取用户的所有证明文件（按时间倒序）
-            List<ProofFile> allProofFiles = proofFileRepository.findByUserAccountIdOrderByUploadTimeDesc(user.getId());
-            
-            // 按批次分组（使用LinkedHashMap保持顺序）
-            java.util.LinkedHashMap<String, List<ProofFile>> batchMap = new java.util.LinkedHashMap<>();
-            for (ProofFile file : allProofFiles) {
-                String batchId = file.getSubmissionBatchId();
-                if (batchId == null) {
+            List<List<ProofFile>> pagedBatches;
+            List<ProofFile> allProofFiles = null;
+            List<List<ProofFile>> allBatches = null;
+            String nextCursor = null;
+            if (cursor != null) {
+                // 游标分页：沿 (用户, 上传时间, ID) 索引只读取本页需要的文件
+                CursorPage<List<ProofFile>> batchPage = proofBatchPager.byUser(user.getId(), cursor, size);
+                pagedBatches = batchPage.getItems();
+                nextCursor = batchPage.getNextCursor();
+            } else {
+                // 获取用户的所有证明文件（按时间倒序）
+                allProofFiles = proofFileRepository.findByUserAccountIdOrderByUploadTimeDesc(user.getId());
+                
+                // 按批次分组（使用LinkedHashMap保持顺序）
+                java.util.LinkedHashMap<String, List<ProofFile>> batchMap = new java.util.LinkedHashMap<>();
+                for (ProofFile file : allProofFiles) {
                     // 旧数据没有批次ID，使用文件ID作为唯一批次
-                    batchId = "LEGACY_" + file.getId();
+                    batchMap.computeIfAbsent(ProofBatchPager.batchKey(file), k -> new ArrayList<>()).add(file);
                 }
-                batchMap.computeIfAbsent(batchId, k -> new ArrayList<>()).add(file);
+                
+                // 获取批次列表（已按时间排序）
+                allBatches = new ArrayList<>(batchMap.values());
+                
+                // 简单分页处理
+                int start = page * size;
+                int end = Math.min(start + size, allBatches.size());
+                pagedBatches = allBatches.subList(start, end);
             }
             
-            // 获取批次列表（已按时间排序）
-            List<List<ProofFile>> allBatches = new ArrayList<>(batchMap.values());
-            
-            // 简单分页处理
-            int start = page * size;
-            int end = Math.min(start + size, allBatches.size());
-            List<List<ProofFile>> pagedBatches = allBatches.subList(start, end);
-            
             List<Map<String, Object>> submissions = new ArrayList<>();
             for (List<ProofFile> batchFiles : pagedBatches) {
                 // 使用批次中的第一个文件作为代表
@@ -537,17 +533,31 @@ public class FileUploadController {
             
             response.put("success", true);
             response.put("data", submissions);
-            response.put("pagination", Map.of(
-                "currentPage", page,
-                "pageSize", size,
-                "totalItems", allBatches.size(),  // 使用批次数量
-                "totalPages", (int) Math.ceil((double) allBatches.size() / size)
-            ));
-            
-            logger.info("返回 {} 个提交批次（共 {} 个文件）", submissions.size(), allProofFiles.size());
+            if (cursor != null) {
+                Map<String, Object> pagination = new HashMap<>();
+                pagination.put("pageSize", size);
+                pagination.put("nextCursor", nextCursor);
+                pagination.put("hasMore", nextCursor != null);
+                response.put("pagination", pagination);
+                
+                logger.info("返回 {} 个提交批次（游标分页）", submissions.size());
+            } else {
+                response.put("pagination", Map.of(
+                    "currentPage", page,
+                    "pageSize", size,
+                    "totalItems", allBatches.size(),  // 使用批次数量
+                    "totalPages", (int) Math.ceil((double) allBatches.size() / size)
+                ));
+                
+                logger.info("返回 {} 个提交批次（共 {} 个文件）", submissions.size(), allProofFiles.size());
+            }
             
             return ResponseEntity.ok(response);
             
+        } catch (InvalidCursorException e) {
+            response.put("success", false);
+            response.put("message", "无效的分页游标");
+            return ResponseEntity.status(400).body(response);
         } catch (Exception e) {
             logger.error("获取用户提交历史失败", e);
             response.put("success", false);
@@ -1,18 +1,27 @@
 package com.brokerwallet.controller;
 
+import com.brokerwallet.dto.CursorPage;
 import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.service.MedalRankingIndex;
+import com.brokerwallet.service.RankingResponseCache;
 import com.brokerwallet.service.UserAccountService;
-import com.brokerwallet.service.BlockchainSyncService;
+import com.brokerwallet.util.InvalidCursorException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,49 +39,154 @@ public class MedalRankingController {
 
     @Autowired
     private UserAccountService userAccountService;
-    
+
+    @Autowired
+    private RankingResponseCache rankingResponseCache;
+
     @Autowired
-    private BlockchainSyncService blockchainSyncService;
+    private ObjectMapper objectMapper;
 
     /**
      * 获取勋章排行榜
+     * 排行榜索引就绪时返回按（页码, 每页大小）缓存的已序列化响应，并带上由排行榜版本生成的 ETag；
+     * 客户端带 If-None-Match 轮询且排行榜未变化时直接返回 304，不查库也不序列化。
      * @param page 页码（从0开始）
      * @param size 每页大小
      * @return 排行榜数据
      */
     @GetMapping("/ranking")
-    // 移除缓存，因为数据需要实时同步
+    // 勋章数据由后台按新区块增量同步，此处只读数据库
     public ResponseEntity<?> getMedalRanking(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         
         try {
-            logger.info("Getting medal ranking: page={}, size={}", page, size);
+            if (rankingResponseCache.isAvailable()) {
+                String currentETag = rankingResponseCache.currentETag();
+                if (matchesETag(ifNoneMatch, currentETag)) {
+                    rankingResponseCache.recordNotModified();
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .eTag(currentETag)
+                            .cacheControl(CacheControl.noCache())
+                            .build();
+                }
+                
+                RankingResponseCache.CachedResponse cached = rankingResponseCache.get(page, size,
+                        () -> serialize(buildRankingResponse(page, size)));
+                return ResponseEntity.ok()
+                        .eTag(cached.getETag())
+                        .cacheControl(CacheControl.noCache())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(cached.getBody());
+            }
             
-            // 按需同步所有用户数据
-            blockchainSyncService.syncBlockchainData();
+            return ResponseEntity.ok(buildRankingResponse(page, size));
             
-            Pageable pageable = PageRequest.of(page, size);
-            Page<UserAccount> rankingPage = userAccountService.getMedalRanking(pageable);
+        } catch (Exception e) {
+            logger.error("获取勋章排行榜失败", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "获取排行榜失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
+
+    /**
+     * 查询并组装排行榜响应
+     */
+    private Map<String, Object> buildRankingResponse(int page, int size) {
+        logger.info("Getting medal ranking: page={}, size={}", page, size);
+        
+        Pageable pageable = PageRequest.of(page, size);
+        Page<UserAccount> rankingPage = userAccountService.getMedalRanking(pageable);
+        
+        // 转换为排行榜格式
+        List<Map<String, Object>> rankings = rankingPage.getContent().stream()
+                .map(this::convertToRankingItem)
+                .collect(Collectors.toList());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", rankings);
+        response.put("totalElements", rankingPage.getTotalElements());
+        response.put("totalPages", rankingPage.getTotalPages());
+        response.put("currentPage", page);
+        response.put("pageSize", size);
+        
+        logger.info("排行榜查询成功，返回{}条记录", rankings.size());
+        return response;
+    }
+
+    private byte[] serialize(Map<String, Object> response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("排行榜序列化失败", e);
+        }
+    }
+
+    /**
+     * If-None-Match 是否包含给定 ETag（支持逗号分隔的多个值、弱校验前缀和 *）
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || eTag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按游标获取勋章排行榜（翻页开销与第一页相同）
+     * @param cursor 上一页返回的 nextCursor，为空时从第一名开始
+     * @param size 每页大小
+     * @return 排行榜数据，每项带名次（索引未就绪时无名次）
+     */
+    @GetMapping("/ranking/cursor")
+    public ResponseEntity<?> getMedalRankingByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        try {
+            int pageSize = Math.max(1, Math.min(size, 100));
+            CursorPage<UserAccount> rankingPage = userAccountService.getMedalRankingAfter(cursor, pageSize);
             
-            // 转换为排行榜格式
-            List<Map<String, Object>> rankings = rankingPage.getContent().stream()
-                    .map(this::convertToRankingItem)
-                    .collect(Collectors.toList());
+            List<Map<String, Object>> rankings = new ArrayList<>(rankingPage.getItems().size());
+            Integer rank = rankingPage.getFirstRank();
+            for (UserAccount user : rankingPage.getItems()) {
+                Map<String, Object> item = convertToRankingItem(user);
+                item.put("rank", rank);
+                if (rank != null) {
+                    rank++;
+                }
+                rankings.add(item);
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", rankings);
-            response.put("totalElements", rankingPage.getTotalElements());
-            response.put("totalPages", rankingPage.getTotalPages());
-            response.put("currentPage", page);
-            response.put("pageSize", size);
+            response.put("nextCursor", rankingPage.getNextCursor());
+            response.put("hasMore", rankingPage.isHasMore());
+            response.put("pageSize", pageSize);
             
-            logger.info("排行榜查询成功，返回{}条记录", rankings.size());
             return ResponseEntity.ok(response);
             
+        } catch (InvalidCursorException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "无效的分页游标");
+            return ResponseEntity.status(400).body(errorResponse);
         } catch (Exception e) {
-            logger.error("获取勋章排行榜失败", e);
+            logger.error("按游标获取勋章排行榜失败", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
             errorResponse.put("message", "获取排行榜失败: " + e.getMessage());
@@ -124,11 +238,59 @@ public class MedalRankingController {
         }
     }
 
+    /**
+     * 获取用户附近的排行榜（前后各 radius 名）
+     * @param walletAddress 钱包地址
+     * @param radius 前后名次数
+     * @return 排行榜窗口，每项带名次
+     */
+    @GetMapping("/around/{walletAddress}")
+    public ResponseEntity<?> getRankingAround(
+            @PathVariable String walletAddress,
+            @RequestParam(defaultValue = "5") int radius) {
+        try {
+            logger.info("获取用户附近排名: {}, radius={}", walletAddress, radius);
+            
+            UserAccount user = userAccountService.findByWalletAddress(walletAddress);
+            if (user == null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "用户不存在");
+                return ResponseEntity.status(404).body(response);
+            }
+            
+            MedalRankingIndex.Window window = userAccountService.getRankingAround(user.getId(), Math.max(0, Math.min(radius, 50)));
+            List<UserAccount> users = userAccountService.loadInOrder(window.getUserIds());
+            
+            List<Map<String, Object>> rankings = new ArrayList<>(users.size());
+            int rank = window.getFirstRank();
+            for (UserAccount rankedUser : users) {
+                Map<String, Object> item = convertToRankingItem(rankedUser);
+                item.put("rank", rank++);
+                rankings.add(item);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", rankings);
+            response.put("userRank", window.getUserRank() > 0 ? window.getUserRank() : null);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("获取用户附近排名失败", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "获取用户附近排名失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
+
     /**
      * 获取排行榜统计信息
      */
     @GetMapping("/stats")
-    @Cacheable(value = "medal-stats")
+    // 统计由 MedalStatsService 增量维护，读取为 O(1)，不再缓存（原 medal-stats 缓存不在缓存配置中且永不过期）
     public ResponseEntity<?> getMedalStats() {
         try {
             logger.info("获取勋章统计信息");
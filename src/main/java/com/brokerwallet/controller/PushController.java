@@ -0,0 +1,71 @@
+package com.brokerwallet.controller;
+
+import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.service.UserAccountService;
+import com.brokerwallet.service.WalletPushService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 钱包事件推送控制器（Server-Sent Events）
+ * 事件类型：rank（名次变化）、medals（勋章变化）、review（审核结果）
+ */
+@RestController
+@RequestMapping("/api/push")
+// @CrossOrigin 已在 WebConfig 中统一配置，此处删除避免冲突
+public class PushController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushController.class);
+
+    @Autowired
+    private WalletPushService walletPushService;
+
+    @Autowired
+    private UserAccountService userAccountService;
+
+    /**
+     * 订阅钱包事件流
+     * 连接建立后先推送一次当前名次；之后只在审核完成、勋章或名次变化时推送，空闲时定期发送心跳注释。
+     * @param walletAddress 钱包地址
+     * @return SSE 事件流
+     */
+    @GetMapping(value = "/wallet/{walletAddress}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable String walletAddress) {
+        // 尝试多种地址格式；尚未注册的钱包只接收审核事件
+        UserAccount user = userAccountService.findByWalletAddress(walletAddress);
+        if (user == null && !walletAddress.startsWith("0x")) {
+            user = userAccountService.findByWalletAddress("0x" + walletAddress);
+        }
+        if (user == null && walletAddress.startsWith("0x")) {
+            user = userAccountService.findByWalletAddress(walletAddress.substring(2));
+        }
+
+        SseEmitter emitter = walletPushService.subscribe(walletAddress, user != null ? user.getId() : null);
+        if (emitter == null) {
+            logger.warn("推送连接数已达上限，拒绝订阅: {}", walletAddress);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "推送连接数已达上限");
+        }
+        return emitter;
+    }
+
+    /**
+     * 推送连接统计
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", walletPushService.getStats());
+        return ResponseEntity.ok(response);
+    }
+}
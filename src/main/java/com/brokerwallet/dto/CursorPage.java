@@ -0,0 +1,39 @@
+package com.brokerwallet.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+/**
+ * 游标分页结果DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    
+    /**
+     * 本页数据
+     */
+    private List<T> items;
+    
+    /**
+     * 下一页的续页令牌（没有更多数据时为 null）
+     */
+    private String nextCursor;
+    
+    /**
+     * 本页第一项的名次（仅排行榜，从1开始）
+     */
+    private Integer firstRank;
+    
+    /**
+     * 是否还有下一页
+     */
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+}
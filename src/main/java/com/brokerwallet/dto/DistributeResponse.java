@@ -12,6 +12,7 @@ public class DistributeResponse {
     private boolean success;
     private String message;
     private String transactionHash;
+    private String status;
     private String blockNumber;
     private long timestamp;
 }
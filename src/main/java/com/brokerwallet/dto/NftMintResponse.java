@@ -43,5 +43,10 @@ public class NftMintResponse {
      * 交易哈希
      */
     private String transactionHash;
+    
+    /**
+     * 交易状态（PENDING 表示已提交、等待链上确认，可通过交易哈希查询）
+     */
+    private String status;
 }
 
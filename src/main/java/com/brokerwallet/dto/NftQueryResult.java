@@ -45,6 +45,11 @@ public class NftQueryResult {
      */
     private int totalPages;
     
+    /**
+     * 续页令牌：下一页从该令牌记录的Token之后继续，没有更多NFT时为 null
+     */
+    private String nextCursor;
+    
     /**
      * NFT信息
      */
@@ -0,0 +1,230 @@
+package com.brokerwallet.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 勋章发放任务实体类
+ * 审核通过后的勋章发放先持久化到队列，由后台调度器合并后上链
+ */
+@Entity
+@Table(name = "medal_distribution_tasks")
+public class MedalDistributionTask {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 接收勋章的钱包地址
+     */
+    @Column(name = "wallet_address", nullable = false, length = 100)
+    private String walletAddress;
+    
+    /**
+     * 金牌数量
+     */
+    @Column(name = "gold_qty", nullable = false)
+    private Integer goldQty = 0;
+    
+    /**
+     * 银牌数量
+     */
+    @Column(name = "silver_qty", nullable = false)
+    private Integer silverQty = 0;
+    
+    /**
+     * 铜牌数量
+     */
+    @Column(name = "bronze_qty", nullable = false)
+    private Integer bronzeQty = 0;
+    
+    /**
+     * 任务状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private TaskStatus status = TaskStatus.PENDING;
+    
+    /**
+     * 上链交易哈希（同一批次合并的任务共享同一交易）
+     */
+    @Column(name = "transaction_hash", length = 100)
+    private String transactionHash;
+    
+    /**
+     * 发送交易使用的 nonce（发送前写入；已提交但没有交易哈希表示发送结果不确定）
+     */
+    @Column(name = "nonce")
+    private Long nonce;
+    
+    /**
+     * 已尝试次数
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+    
+    /**
+     * 最近一次失败原因
+     */
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    /**
+     * 创建时间
+     */
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+    
+    // 构造方法
+    public MedalDistributionTask() {
+        this.createTime = LocalDateTime.now();
+        this.updateTime = LocalDateTime.now();
+    }
+    
+    public MedalDistributionTask(String walletAddress, Integer goldQty, Integer silverQty, Integer bronzeQty) {
+        this();
+        this.walletAddress = walletAddress;
+        this.goldQty = goldQty;
+        this.silverQty = silverQty;
+        this.bronzeQty = bronzeQty;
+    }
+    
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getWalletAddress() {
+        return walletAddress;
+    }
+    
+    public void setWalletAddress(String walletAddress) {
+        this.walletAddress = walletAddress;
+    }
+    
+    public Integer getGoldQty() {
+        return goldQty;
+    }
+    
+    public void setGoldQty(Integer goldQty) {
+        this.goldQty = goldQty;
+    }
+    
+    public Integer getSilverQty() {
+        return silverQty;
+    }
+    
+    public void setSilverQty(Integer silverQty) {
+        this.silverQty = silverQty;
+    }
+    
+    public Integer getBronzeQty() {
+        return bronzeQty;
+    }
+    
+    public void setBronzeQty(Integer bronzeQty) {
+        this.bronzeQty = bronzeQty;
+    }
+    
+    public TaskStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(TaskStatus status) {
+        this.status = status;
+    }
+    
+    public String getTransactionHash() {
+        return transactionHash;
+    }
+    
+    public void setTransactionHash(String transactionHash) {
+        this.transactionHash = transactionHash;
+    }
+    
+    public Long getNonce() {
+        return nonce;
+    }
+    
+    public void setNonce(Long nonce) {
+        this.nonce = nonce;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+    
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+    
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "MedalDistributionTask{" +
+                "id=" + id +
+                ", walletAddress='" + walletAddress + '\'' +
+                ", goldQty=" + goldQty +
+                ", silverQty=" + silverQty +
+                ", bronzeQty=" + bronzeQty +
+                ", status=" + status +
+                ", transactionHash='" + transactionHash + '\'' +
+                ", nonce=" + nonce +
+                ", attempts=" + attempts +
+                '}';
+    }
+    
+    /**
+     * 发放任务状态枚举
+     */
+    public enum TaskStatus {
+        PENDING("待发放"),
+        SUBMITTED("已提交"),
+        CONFIRMED("已确认"),
+        FAILED("发放失败");
+        
+        private final String description;
+        
+        TaskStatus(String description) {
+            this.description = description;
+        }
+        
+        public String getDescription() {
+            return description;
+        }
+    }
+}
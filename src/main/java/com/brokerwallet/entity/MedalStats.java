@@ -0,0 +1,125 @@
+package com.brokerwallet.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 勋章统计汇总实体类
+ * 单行记录用户总数与各类勋章总数，随勋章变化增量更新，由定期校验修正偏差
+ */
+@Entity
+@Table(name = "medal_stats")
+public class MedalStats {
+    
+    /**
+     * 固定主键（只有一行）
+     */
+    public static final Long SINGLETON_ID = 1L;
+    
+    @Id
+    @Column(name = "id")
+    private Long id = SINGLETON_ID;
+    
+    /**
+     * 用户总数
+     */
+    @Column(name = "total_users", nullable = false)
+    private Long totalUsers = 0L;
+    
+    /**
+     * 金牌总数
+     */
+    @Column(name = "total_gold", nullable = false)
+    private Long totalGold = 0L;
+    
+    /**
+     * 银牌总数
+     */
+    @Column(name = "total_silver", nullable = false)
+    private Long totalSilver = 0L;
+    
+    /**
+     * 铜牌总数
+     */
+    @Column(name = "total_bronze", nullable = false)
+    private Long totalBronze = 0L;
+    
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time", nullable = false)
+    private LocalDateTime updateTime;
+    
+    // 构造方法
+    public MedalStats() {
+        this.updateTime = LocalDateTime.now();
+    }
+    
+    public MedalStats(long totalUsers, long totalGold, long totalSilver, long totalBronze) {
+        this();
+        this.totalUsers = totalUsers;
+        this.totalGold = totalGold;
+        this.totalSilver = totalSilver;
+        this.totalBronze = totalBronze;
+    }
+    
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getTotalUsers() {
+        return totalUsers;
+    }
+    
+    public void setTotalUsers(Long totalUsers) {
+        this.totalUsers = totalUsers;
+    }
+    
+    public Long getTotalGold() {
+        return totalGold;
+    }
+    
+    public void setTotalGold(Long totalGold) {
+        this.totalGold = totalGold;
+    }
+    
+    public Long getTotalSilver() {
+        return totalSilver;
+    }
+    
+    public void setTotalSilver(Long totalSilver) {
+        this.totalSilver = totalSilver;
+    }
+    
+    public Long getTotalBronze() {
+        return totalBronze;
+    }
+    
+    public void setTotalBronze(Long totalBronze) {
+        this.totalBronze = totalBronze;
+    }
+    
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "MedalStats{" +
+                "totalUsers=" + totalUsers +
+                ", totalGold=" + totalGold +
+                ", totalSilver=" + totalSilver +
+                ", totalBronze=" + totalBronze +
+                ", updateTime=" + updateTime +
+                '}';
+    }
+}
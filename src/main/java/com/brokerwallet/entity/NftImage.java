@@ -124,6 +124,42 @@ public class NftImage {
     @Column(name = "token_id", length = 100)
     private String tokenId;
     
+    /**
+     * 铸造接收地址（铸造请求入队时记录）
+     */
+    @Column(name = "mint_owner_address", length = 100)
+    private String mintOwnerAddress;
+    
+    /**
+     * 上链的图片元数据（铸造请求入队时记录）
+     */
+    @Column(name = "mint_metadata", columnDefinition = "LONGTEXT")
+    private String mintMetadata;
+    
+    /**
+     * 上链的NFT属性（铸造请求入队时记录）
+     */
+    @Column(name = "mint_attributes", columnDefinition = "TEXT")
+    private String mintAttributes;
+    
+    /**
+     * 铸造请求入队时间
+     */
+    @Column(name = "mint_request_time")
+    private LocalDateTime mintRequestTime;
+    
+    /**
+     * 铸造失败原因
+     */
+    @Column(name = "mint_error", length = 500)
+    private String mintError;
+    
+    /**
+     * 批量铸造交易使用的 nonce（发送前写入；铸造中但没有交易哈希表示发送结果不确定）
+     */
+    @Column(name = "mint_nonce")
+    private Long mintNonce;
+    
     /**
      * 图片状态
      */
@@ -307,6 +343,54 @@ public class NftImage {
         this.tokenId = tokenId;
     }
     
+    public String getMintOwnerAddress() {
+        return mintOwnerAddress;
+    }
+    
+    public void setMintOwnerAddress(String mintOwnerAddress) {
+        this.mintOwnerAddress = mintOwnerAddress;
+    }
+    
+    public String getMintMetadata() {
+        return mintMetadata;
+    }
+    
+    public void setMintMetadata(String mintMetadata) {
+        this.mintMetadata = mintMetadata;
+    }
+    
+    public String getMintAttributes() {
+        return mintAttributes;
+    }
+    
+    public void setMintAttributes(String mintAttributes) {
+        this.mintAttributes = mintAttributes;
+    }
+    
+    public LocalDateTime getMintRequestTime() {
+        return mintRequestTime;
+    }
+    
+    public void setMintRequestTime(LocalDateTime mintRequestTime) {
+        this.mintRequestTime = mintRequestTime;
+    }
+    
+    public String getMintError() {
+        return mintError;
+    }
+    
+    public void setMintError(String mintError) {
+        this.mintError = mintError;
+    }
+    
+    public Long getMintNonce() {
+        return mintNonce;
+    }
+    
+    public void setMintNonce(Long mintNonce) {
+        this.mintNonce = mintNonce;
+    }
+    
     public ImageStatus getStatus() {
         return status;
     }
@@ -333,6 +417,7 @@ public class NftImage {
      */
     public enum MintStatus {
         NOT_STARTED("未开始"),
+        PENDING("排队中"),
         PROCESSING("铸造中"),
         SUCCESS("铸造成功"),
         FAILED("铸造失败");
@@ -8,7 +8,10 @@ import java.time.LocalDateTime;
  * 用于存储用户上传的证明材料信息
  */
 @Entity
-@Table(name = "proof_files")
+@Table(name = "proof_files", indexes = {
+    @Index(name = "idx_status_upload_time", columnList = "audit_status, upload_time, id"),
+    @Index(name = "idx_user_upload_time", columnList = "user_account_id, upload_time, id")
+})
 public class ProofFile {
     
     @Id
@@ -0,0 +1,77 @@
+package com.brokerwallet.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 区块链同步检查点实体类
+ * 记录各同步任务已处理到的区块高度，保证重启后从断点继续
+ */
+@Entity
+@Table(name = "sync_checkpoints")
+public class SyncCheckpoint {
+    
+    /**
+     * 同步任务名称（主键，例如 medal-sync）
+     */
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+    
+    /**
+     * 已完成同步的最后区块高度
+     */
+    @Column(name = "last_block", nullable = false)
+    private Long lastBlock = 0L;
+    
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time", nullable = false)
+    private LocalDateTime updateTime;
+    
+    // 构造方法
+    public SyncCheckpoint() {
+        this.updateTime = LocalDateTime.now();
+    }
+    
+    public SyncCheckpoint(String name, Long lastBlock) {
+        this();
+        this.name = name;
+        this.lastBlock = lastBlock;
+    }
+    
+    // Getter和Setter方法
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public Long getLastBlock() {
+        return lastBlock;
+    }
+    
+    public void setLastBlock(Long lastBlock) {
+        this.lastBlock = lastBlock;
+    }
+    
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "SyncCheckpoint{" +
+                "name='" + name + '\'' +
+                ", lastBlock=" + lastBlock +
+                ", updateTime=" + updateTime +
+                '}';
+    }
+}
@@ -0,0 +1,104 @@
+package com.brokerwallet.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 待同步钱包实体类
+ * 记录链上状态可能已变化、需要重新读取勋章数据的钱包；同一钱包只保留一条记录，
+ * 重复标记只递增 markCount，同步完成后按读取时的 markCount 条件删除
+ */
+@Entity
+@Table(name = "sync_dirty_wallets", indexes = {
+    @Index(name = "idx_update_time", columnList = "update_time")
+})
+public class SyncDirtyWallet {
+    
+    /**
+     * 钱包地址（主键，统一为小写带0x前缀）
+     */
+    @Id
+    @Column(name = "wallet_address", length = 100)
+    private String walletAddress;
+    
+    /**
+     * 最近一次标记的来源（admin-approval、token-transfer、nft-mint、medal-distribution）
+     */
+    @Column(name = "reason", length = 32)
+    private String reason;
+    
+    /**
+     * 累计标记次数（同步期间被再次标记时用于避免误删）
+     */
+    @Column(name = "mark_count", nullable = false)
+    private Integer markCount = 1;
+    
+    /**
+     * 创建时间
+     */
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time", nullable = false)
+    private LocalDateTime updateTime;
+    
+    // 构造方法
+    public SyncDirtyWallet() {
+        this.createTime = LocalDateTime.now();
+        this.updateTime = this.createTime;
+    }
+    
+    // Getter和Setter方法
+    public String getWalletAddress() {
+        return walletAddress;
+    }
+    
+    public void setWalletAddress(String walletAddress) {
+        this.walletAddress = walletAddress;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+    
+    public Integer getMarkCount() {
+        return markCount;
+    }
+    
+    public void setMarkCount(Integer markCount) {
+        this.markCount = markCount;
+    }
+    
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+    
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+    
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "SyncDirtyWallet{" +
+                "walletAddress='" + walletAddress + '\'' +
+                ", reason='" + reason + '\'' +
+                ", markCount=" + markCount +
+                ", updateTime=" + updateTime +
+                '}';
+    }
+}
@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "user_accounts")
+@EntityListeners(com.brokerwallet.service.UserAccountRankingListener.class)
 public class UserAccount {
     
     @Id
@@ -0,0 +1,57 @@
+package com.brokerwallet.event;
+
+/**
+ * 用户勋章变化事件
+ * 勋章变化的事务提交后由 UserAccountRankingListener 发布（审核发放、链上同步写回等所有路径）
+ */
+public class MedalsChangedEvent {
+
+    private final Long userId;
+
+    private final String walletAddress;
+
+    private final int goldMedals;
+
+    private final int silverMedals;
+
+    private final int bronzeMedals;
+
+    public MedalsChangedEvent(Long userId, String walletAddress, int goldMedals, int silverMedals, int bronzeMedals) {
+        this.userId = userId;
+        this.walletAddress = walletAddress;
+        this.goldMedals = goldMedals;
+        this.silverMedals = silverMedals;
+        this.bronzeMedals = bronzeMedals;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getWalletAddress() {
+        return walletAddress;
+    }
+
+    public int getGoldMedals() {
+        return goldMedals;
+    }
+
+    public int getSilverMedals() {
+        return silverMedals;
+    }
+
+    public int getBronzeMedals() {
+        return bronzeMedals;
+    }
+
+    @Override
+    public String toString() {
+        return "MedalsChangedEvent{" +
+                "userId=" + userId +
+                ", walletAddress='" + walletAddress + '\'' +
+                ", gold=" + goldMedals +
+                ", silver=" + silverMedals +
+                ", bronze=" + bronzeMedals +
+                '}';
+    }
+}
@@ -0,0 +1,39 @@
+package com.brokerwallet.event;
+
+/**
+ * 新区块事件
+ * 链头高度前进时由 ChainHeadMonitor 发布
+ */
+public class NewBlockEvent {
+
+    /**
+     * 上一次观察到的区块高度（首次观察时为 -1）
+     */
+    private final long previousBlock;
+
+    /**
+     * 当前链头区块高度
+     */
+    private final long blockNumber;
+
+    public NewBlockEvent(long previousBlock, long blockNumber) {
+        this.previousBlock = previousBlock;
+        this.blockNumber = blockNumber;
+    }
+
+    public long getPreviousBlock() {
+        return previousBlock;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "NewBlockEvent{" +
+                "previousBlock=" + previousBlock +
+                ", blockNumber=" + blockNumber +
+                '}';
+    }
+}
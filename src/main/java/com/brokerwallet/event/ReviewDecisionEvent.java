@@ -0,0 +1,77 @@
+package com.brokerwallet.event;
+
+/**
+ * 审核结果事件
+ * 管理员审核通过或拒绝用户提交后由 AdminController 发布
+ */
+public class ReviewDecisionEvent {
+
+    private final String walletAddress;
+
+    private final boolean approved;
+
+    /**
+     * 审核的证明文件ID（按用户审核全部待审核文件时为 null）
+     */
+    private final Long proofFileId;
+
+    /**
+     * 审核的提交批次ID（旧数据或按用户审核时为 null）
+     */
+    private final String batchId;
+
+    private final int goldMedals;
+
+    private final int silverMedals;
+
+    private final int bronzeMedals;
+
+    public ReviewDecisionEvent(String walletAddress, boolean approved, Long proofFileId, String batchId,
+                               int goldMedals, int silverMedals, int bronzeMedals) {
+        this.walletAddress = walletAddress;
+        this.approved = approved;
+        this.proofFileId = proofFileId;
+        this.batchId = batchId;
+        this.goldMedals = goldMedals;
+        this.silverMedals = silverMedals;
+        this.bronzeMedals = bronzeMedals;
+    }
+
+    public String getWalletAddress() {
+        return walletAddress;
+    }
+
+    public boolean isApproved() {
+        return approved;
+    }
+
+    public Long getProofFileId() {
+        return proofFileId;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public int getGoldMedals() {
+        return goldMedals;
+    }
+
+    public int getSilverMedals() {
+        return silverMedals;
+    }
+
+    public int getBronzeMedals() {
+        return bronzeMedals;
+    }
+
+    @Override
+    public String toString() {
+        return "ReviewDecisionEvent{" +
+                "walletAddress='" + walletAddress + '\'' +
+                ", approved=" + approved +
+                ", proofFileId=" + proofFileId +
+                ", batchId='" + batchId + '\'' +
+                '}';
+    }
+}
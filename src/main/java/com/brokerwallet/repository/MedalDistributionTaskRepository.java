@@ -0,0 +1,48 @@
+package com.brokerwallet.repository;
+
+import com.brokerwallet.entity.MedalDistributionTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 勋章发放任务数据访问层
+ */
+@Repository
+public interface MedalDistributionTaskRepository extends JpaRepository<MedalDistributionTask, Long> {
+    
+    /**
+     * 按创建顺序取出指定状态的任务（调度器每轮处理的上限为500条）
+     */
+    List<MedalDistributionTask> findTop500ByStatusOrderByIdAsc(MedalDistributionTask.TaskStatus status);
+    
+    /**
+     * 查找指定状态的所有任务
+     */
+    List<MedalDistributionTask> findByStatus(MedalDistributionTask.TaskStatus status);
+    
+    /**
+     * 查找使用指定 nonce 发送的任务
+     */
+    List<MedalDistributionTask> findByStatusAndNonce(MedalDistributionTask.TaskStatus status, Long nonce);
+    
+    /**
+     * 查找同一交易中合并发放的任务
+     */
+    List<MedalDistributionTask> findByTransactionHash(String transactionHash);
+    
+    /**
+     * 查找有指定状态任务的钱包地址（去重）
+     */
+    @Query("SELECT DISTINCT t.walletAddress FROM MedalDistributionTask t WHERE t.status IN :statuses")
+    List<String> findDistinctWalletAddressesByStatusIn(@Param("statuses") Collection<MedalDistributionTask.TaskStatus> statuses);
+    
+    /**
+     * 统计指定状态的任务数
+     */
+    long countByStatus(MedalDistributionTask.TaskStatus status);
+}
@@ -0,0 +1,29 @@
+package com.brokerwallet.repository;
+
+import com.brokerwallet.entity.MedalStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 勋章统计汇总数据访问层
+ */
+@Repository
+public interface MedalStatsRepository extends JpaRepository<MedalStats, Long> {
+    
+    /**
+     * 按增量更新汇总行（在数据库内累加，多实例并发更新不会互相覆盖）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MedalStats s SET s.totalUsers = s.totalUsers + :users, s.totalGold = s.totalGold + :gold, " +
+            "s.totalSilver = s.totalSilver + :silver, s.totalBronze = s.totalBronze + :bronze, s.updateTime = :now " +
+            "WHERE s.id = :id")
+    int addDelta(@Param("id") Long id, @Param("users") long users, @Param("gold") long gold,
+                 @Param("silver") long silver, @Param("bronze") long bronze, @Param("now") LocalDateTime now);
+}
@@ -58,9 +58,19 @@ public interface NftImageRepository extends JpaRepository<NftImage, Long> {
     List<NftImage> findByNftNameContainingIgnoreCaseOrderByUploadTimeDesc(String nftName);
     
     /**
-     * 根据交易哈希查找NFT
+     * 根据交易哈希查找NFT（批量铸造时多条记录共享同一交易）
      */
-    Optional<NftImage> findByTransactionHash(String transactionHash);
+    List<NftImage> findByTransactionHash(String transactionHash);
+    
+    /**
+     * 按入队顺序取出待铸造的记录（铸造队列每轮处理的上限为100条）
+     */
+    List<NftImage> findTop100ByMintStatusOrderByIdAsc(NftImage.MintStatus mintStatus);
+    
+    /**
+     * 按铸造状态和交易 nonce 查找（nonce 被确认丢弃时找回占用它的记录）
+     */
+    List<NftImage> findByMintStatusAndMintNonce(NftImage.MintStatus mintStatus, Long mintNonce);
     
     /**
      * 根据Token ID查找NFT
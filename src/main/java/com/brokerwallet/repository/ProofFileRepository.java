@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -152,5 +153,36 @@ public interface ProofFileRepository extends JpaRepository<ProofFile, Long> {
     @Query("SELECT p.submissionBatchId FROM ProofFile p WHERE p.submissionBatchId IS NOT NULL " +
            "GROUP BY p.submissionBatchId ORDER BY MAX(p.uploadTime) DESC")
     List<String> findAllDistinctBatchIds();
+    
+    /**
+     * 游标分页：按（上传时间, ID）倒序取游标之后指定审核状态的批次文件
+     */
+    @Query("SELECT p FROM ProofFile p WHERE p.auditStatus IN :auditStatuses AND p.submissionBatchId IS NOT NULL " +
+           "AND (p.uploadTime < :uploadTime OR (p.uploadTime = :uploadTime AND p.id < :id)) " +
+           "ORDER BY p.uploadTime DESC, p.id DESC")
+    List<ProofFile> findBatchFilesBefore(@Param("auditStatuses") Collection<ProofFile.AuditStatus> auditStatuses,
+                                         @Param("uploadTime") LocalDateTime uploadTime, @Param("id") Long id, Pageable pageable);
+    
+    /**
+     * 游标分页：按（上传时间, ID）倒序取游标之后的批次文件（不区分审核状态）
+     */
+    @Query("SELECT p FROM ProofFile p WHERE p.submissionBatchId IS NOT NULL " +
+           "AND (p.uploadTime < :uploadTime OR (p.uploadTime = :uploadTime AND p.id < :id)) " +
+           "ORDER BY p.uploadTime DESC, p.id DESC")
+    List<ProofFile> findAllBatchFilesBefore(@Param("uploadTime") LocalDateTime uploadTime, @Param("id") Long id, Pageable pageable);
+    
+    /**
+     * 游标分页：按（上传时间, ID）倒序取游标之后用户的文件（含没有批次ID的旧数据）
+     */
+    @Query("SELECT p FROM ProofFile p WHERE p.userAccountId = :userAccountId " +
+           "AND (p.uploadTime < :uploadTime OR (p.uploadTime = :uploadTime AND p.id < :id)) " +
+           "ORDER BY p.uploadTime DESC, p.id DESC")
+    List<ProofFile> findUserFilesBefore(@Param("userAccountId") Long userAccountId,
+                                        @Param("uploadTime") LocalDateTime uploadTime, @Param("id") Long id, Pageable pageable);
+    
+    /**
+     * 批量查找多个批次的文件
+     */
+    List<ProofFile> findBySubmissionBatchIdIn(Collection<String> submissionBatchIds);
 }
 
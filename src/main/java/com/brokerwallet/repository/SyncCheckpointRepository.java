@@ -0,0 +1,12 @@
+package com.brokerwallet.repository;
+
+import com.brokerwallet.entity.SyncCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 同步检查点数据访问层
+ */
+@Repository
+public interface SyncCheckpointRepository extends JpaRepository<SyncCheckpoint, String> {
+}
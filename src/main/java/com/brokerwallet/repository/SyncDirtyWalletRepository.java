@@ -0,0 +1,44 @@
+package com.brokerwallet.repository;
+
+import com.brokerwallet.entity.SyncDirtyWallet;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 待同步钱包数据访问层
+ */
+@Repository
+public interface SyncDirtyWalletRepository extends JpaRepository<SyncDirtyWallet, String> {
+    
+    /**
+     * 标记钱包待同步（已存在时只递增标记次数，保证同一钱包只有一条记录）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO sync_dirty_wallets (wallet_address, reason, mark_count, create_time, update_time) " +
+            "VALUES (:walletAddress, :reason, 1, :now, :now) " +
+            "ON DUPLICATE KEY UPDATE reason = VALUES(reason), mark_count = mark_count + 1, update_time = VALUES(update_time)",
+            nativeQuery = true)
+    int upsert(@Param("walletAddress") String walletAddress, @Param("reason") String reason, @Param("now") LocalDateTime now);
+    
+    /**
+     * 按标记时间取出最早的待同步钱包
+     */
+    List<SyncDirtyWallet> findByOrderByUpdateTimeAsc(Pageable pageable);
+    
+    /**
+     * 同步完成后删除记录（读取之后又被标记过的记录保留到下一轮）
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SyncDirtyWallet w WHERE w.walletAddress = :walletAddress AND w.markCount = :markCount")
+    int deleteIfUnchanged(@Param("walletAddress") String walletAddress, @Param("markCount") Integer markCount);
+}
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +25,11 @@ public interface UserAccountRepository extends JpaRepository<UserAccount, Long>
      */
     Optional<UserAccount> findByWalletAddress(String walletAddress);
     
+    /**
+     * 根据钱包地址批量查找用户（IN 查询）
+     */
+    List<UserAccount> findByWalletAddressIn(Collection<String> walletAddresses);
+    
     /**
      * 根据显示名称查找用户（模糊匹配）
      */
@@ -99,6 +106,20 @@ public interface UserAccountRepository extends JpaRepository<UserAccount, Long>
     @Query("SELECT u FROM UserAccount u WHERE (u.goldMedals > 0 OR u.silverMedals > 0 OR u.bronzeMedals > 0) ORDER BY (u.goldMedals * 3 + u.silverMedals * 2 + u.bronzeMedals) DESC, u.goldMedals DESC, u.silverMedals DESC, u.bronzeMedals DESC, u.createTime ASC")
     Page<UserAccount> findAllByOrderByTotalMedalScoreDescGoldMedalsDescSilverMedalsDesc(Pageable pageable);
     
+    /**
+     * 游标分页：排在给定排序键之后的有勋章用户（排序与上面的排行榜一致，最后按ID保证全序）
+     * 总分、金牌、银牌相同时铜牌必然相同，因此比较到银牌后直接比较创建时间
+     */
+    @Query("SELECT u FROM UserAccount u WHERE (u.goldMedals > 0 OR u.silverMedals > 0 OR u.bronzeMedals > 0) AND (" +
+           "(u.goldMedals * 3 + u.silverMedals * 2 + u.bronzeMedals) < :score " +
+           "OR ((u.goldMedals * 3 + u.silverMedals * 2 + u.bronzeMedals) = :score AND u.goldMedals < :gold) " +
+           "OR ((u.goldMedals * 3 + u.silverMedals * 2 + u.bronzeMedals) = :score AND u.goldMedals = :gold AND u.silverMedals < :silver) " +
+           "OR ((u.goldMedals * 3 + u.silverMedals * 2 + u.bronzeMedals) = :score AND u.goldMedals = :gold AND u.silverMedals = :silver " +
+           "AND (u.createTime > :createTime OR (u.createTime = :createTime AND u.id > :id)))) " +
+           "ORDER BY (u.goldMedals * 3 + u.silverMedals * 2 + u.bronzeMedals) DESC, u.goldMedals DESC, u.silverMedals DESC, u.bronzeMedals DESC, u.createTime ASC, u.id ASC")
+    List<UserAccount> findMedalRankingAfter(@Param("score") int score, @Param("gold") int gold, @Param("silver") int silver,
+                                            @Param("createTime") LocalDateTime createTime, @Param("id") Long id, Pageable pageable);
+    
     /**
      * 根据总分数计算排名
      */
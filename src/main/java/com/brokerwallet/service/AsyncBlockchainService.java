@@ -0,0 +1,329 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.ContractReadCache;
+import com.brokerwallet.dto.MedalQueryResult;
+import com.brokerwallet.dto.NftQueryResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 区块链异步查询服务
+ * 在 BlockchainService 的请求构建与解析之上提供返回 CompletableFuture 的查询接口：
+ * 合约调用异步提交（与其他请求共享 JSON-RPC 批次），页内查询、所有者查询并发展开，
+ * 同时在途的 RPC 调用数受 max-in-flight 限制，超出的调用排队而不阻塞调用线程；
+ * 排队数达到 max-queued 后新调用直接以 {@link QueryQueueFullException}（HTTP 503）失败，排队的内存与等待时间都有上限。
+ * 控制器直接返回这些 Future 作为异步 Servlet 结果，等待 RPC 期间不占用 Tomcat 线程。
+ */
+@Service
+@Slf4j
+public class AsyncBlockchainService {
+
+    private final BlockchainService blockchainService;
+    private final ContractReadCache readCache;
+    private final Executor executor;
+
+    /**
+     * 在途 RPC 调用许可
+     */
+    private final Semaphore permits;
+    private final int maxInFlight;
+
+    /**
+     * 等待许可的调用，数量不超过 maxQueued
+     */
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final int maxQueued;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong queuedCalls = new AtomicLong();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    public AsyncBlockchainService(BlockchainService blockchainService,
+                                  ContractReadCache readCache,
+                                  @Qualifier("taskExecutor") Executor executor,
+                                  @Value("${blockchain.async.max-in-flight:32}") int maxInFlight,
+                                  @Value("${blockchain.async.max-queued:256}") int maxQueued) {
+        this.blockchainService = blockchainService;
+        this.readCache = readCache;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * 查询用户勋章数量
+     */
+    public CompletableFuture<MedalQueryResult> queryUserMedals(String address) {
+        return call(blockchainService.userMedalsRequest(address))
+                .thenApplyAsync(response -> blockchainService.decodeUserMedals(address, response), executor);
+    }
+
+    /**
+     * 查询代币余额（wei）
+     */
+    public CompletableFuture<BigInteger> getTokenBalance(String address) {
+        return call(blockchainService.tokenBalanceRequest(address))
+                .thenApplyAsync(blockchainService::decodeTokenBalance, executor);
+    }
+
+    /**
+     * 查询NFT总供应量
+     */
+    public CompletableFuture<BigInteger> getTotalSupply() {
+        return call(blockchainService.totalSupplyRequest())
+                .thenApplyAsync(blockchainService::decodeTotalSupply, executor);
+    }
+
+    /**
+     * 查询用户拥有的NFT（倒序分页）
+     */
+    public CompletableFuture<NftQueryResult> queryUserNfts(String address, int page, int size) {
+        return queryUserNfts(address, page, size, null);
+    }
+
+    /**
+     * 查询用户拥有的NFT（倒序分页）
+     * @param cursor 续页令牌（为 null 时按页码分页，空字符串表示续页模式的第一页）
+     */
+    public CompletableFuture<NftQueryResult> queryUserNfts(String address, int page, int size, String cursor) {
+        log.info("Querying NFTs for address (async): {}", address);
+        return call(blockchainService.userNftsRequest(address))
+                .thenApplyAsync(blockchainService::decodeUserNftIds, executor)
+                .thenCompose(allTokenIds -> {
+                    List<BigInteger> candidateIds = blockchainService.userNftPageCandidates(allTokenIds, page, size, cursor);
+                    return fetchNftPage(candidateIds, size)
+                            .thenApply(nfts -> {
+                                nfts.forEach(nft -> nft.setOwnerAddress(address));
+                                return NftQueryResult.builder()
+                                        .address(address)
+                                        .nfts(nfts)
+                                        .totalCount(allTokenIds.size())
+                                        .nextCursor(blockchainService.nextNftCursor(nfts, candidateIds, size,
+                                                allTokenIds.isEmpty() ? null : allTokenIds.get(0)))
+                                        .build();
+                            });
+                })
+                .exceptionally(e -> {
+                    rethrowIfQueueFull(e);
+                    log.error("Failed to query user NFTs: {}", e.getMessage(), e);
+                    return emptyResult(address);
+                });
+    }
+
+    /**
+     * 查询所有NFT（倒序分页）
+     */
+    public CompletableFuture<NftQueryResult> queryAllNfts(int page, int size) {
+        return queryAllNfts(page, size, null);
+    }
+
+    /**
+     * 查询所有NFT（倒序分页）
+     * @param cursor 续页令牌（为 null 时按页码分页，空字符串表示续页模式的第一页）
+     */
+    public CompletableFuture<NftQueryResult> queryAllNfts(int page, int size, String cursor) {
+        log.info("Querying all NFTs (async): page={}, size={}", page, size);
+        return getTotalSupply()
+                .thenCompose(totalSupply -> {
+                    int totalCount = totalSupply.intValue();
+                    if (totalCount == 0) {
+                        return CompletableFuture.completedFuture(emptyResult("all"));
+                    }
+                    List<BigInteger> candidateIds = blockchainService.allNftPageCandidates(totalCount, page, size, cursor);
+                    return fetchNftPage(candidateIds, size)
+                            .thenApplyAsync(nfts -> {
+                                // 花名解析访问数据库，放在任务线程池执行
+                                blockchainService.resolveOwnerDisplayNames(nfts);
+                                return NftQueryResult.builder()
+                                        .address("all")
+                                        .nfts(nfts)
+                                        .totalCount(totalCount)
+                                        .nextCursor(blockchainService.nextNftCursor(nfts, candidateIds, size, BigInteger.ONE))
+                                        .build();
+                            }, executor);
+                })
+                .exceptionally(e -> {
+                    rethrowIfQueueFull(e);
+                    log.error("Failed to query all NFTs: {}", e.getMessage(), e);
+                    return emptyResult("all");
+                });
+    }
+
+    /**
+     * 异步查询统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxInFlight", maxInFlight);
+        stats.put("inFlight", maxInFlight - permits.availablePermits());
+        stats.put("maxQueued", maxQueued);
+        stats.put("queued", waitingCount.get());
+        stats.put("calls", calls.get());
+        stats.put("queuedCalls", queuedCalls.get());
+        stats.put("rejectedCalls", rejectedCalls.get());
+        return stats;
+    }
+
+    /**
+     * 按顺序读取一页NFT：先取整页，不足时再从后续候选ID中补齐（只有续页模式会提供多于一页的候选ID）
+     */
+    private CompletableFuture<List<NftQueryResult.NftInfo>> fetchNftPage(List<BigInteger> candidateIds, int size) {
+        return fillPage(candidateIds, size, 0, new ArrayList<>());
+    }
+
+    private CompletableFuture<List<NftQueryResult.NftInfo>> fillPage(List<BigInteger> candidateIds, int size,
+                                                                    int cursor, List<NftQueryResult.NftInfo> page) {
+        if (page.size() >= size || cursor >= candidateIds.size()) {
+            return CompletableFuture.completedFuture(page);
+        }
+        int want = size - page.size();
+        List<BigInteger> chunk = candidateIds.subList(cursor, Math.min(candidateIds.size(), cursor + want));
+        return batchGetNftMetadata(chunk).thenCompose(nfts -> {
+            page.addAll(nfts);
+            return fillPage(candidateIds, size, cursor + chunk.size(), page);
+        });
+    }
+
+    /**
+     * 一次 batchGetNftMetadata 调用读取多个Token；合约不支持时回退为并发的逐个查询
+     */
+    private CompletableFuture<List<NftQueryResult.NftInfo>> batchGetNftMetadata(List<BigInteger> tokenIds) {
+        if (tokenIds.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return call(blockchainService.batchNftMetadataRequest(tokenIds))
+                .thenApplyAsync(response -> blockchainService.decodeBatchNftMetadata(tokenIds, response), executor)
+                .thenCompose(nfts -> nfts != null
+                        ? CompletableFuture.completedFuture(nfts)
+                        : getNftDataPerToken(tokenIds));
+    }
+
+    /**
+     * 元数据与所有者查询对每个Token并发发出，查询失败的Token被跳过
+     */
+    private CompletableFuture<List<NftQueryResult.NftInfo>> getNftDataPerToken(List<BigInteger> tokenIds) {
+        List<CompletableFuture<NftQueryResult.NftInfo>> futures = new ArrayList<>(tokenIds.size());
+        for (BigInteger tokenId : tokenIds) {
+            CompletableFuture<EthCall> metadata = call(blockchainService.nftMetadataRequest(tokenId));
+            CompletableFuture<EthCall> owner = call(blockchainService.nftOwnerRequest(tokenId));
+            futures.add(metadata.thenCombineAsync(owner, (metadataResponse, ownerResponse) -> blockchainService.toNftInfo(
+                            tokenId,
+                            blockchainService.decodeNftOwner(ownerResponse),
+                            blockchainService.decodeNftData(tokenId, metadataResponse)), executor)
+                    .exceptionally(e -> {
+                        rethrowIfQueueFull(e);
+                        log.warn("Failed to get NFT data for token ID {}: {}", tokenId, e.getMessage());
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<NftQueryResult.NftInfo> nfts = new ArrayList<>(futures.size());
+            for (CompletableFuture<NftQueryResult.NftInfo> future : futures) {
+                NftQueryResult.NftInfo nft = future.join();
+                if (nft != null) {
+                    nfts.add(nft);
+                }
+            }
+            return nfts;
+        });
+    }
+
+    /**
+     * 经缓存执行只读调用，受在途数量限制
+     */
+    private CompletableFuture<EthCall> call(Request<?, EthCall> request) {
+        return limited(() -> readCache.callAsync(request));
+    }
+
+    /**
+     * 有许可时立即发出调用，否则排队（排队已满时直接失败）；调用完成后释放许可并启动下一个排队的调用
+     */
+    private <T> CompletableFuture<T> limited(Supplier<CompletableFuture<T>> task) {
+        calls.incrementAndGet();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = task.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, error) -> {
+                permits.release();
+                startWaiting();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        if (permits.tryAcquire()) {
+            start.run();
+        } else {
+            if (waitingCount.incrementAndGet() > maxQueued) {
+                waitingCount.decrementAndGet();
+                rejectedCalls.incrementAndGet();
+                return CompletableFuture.failedFuture(new QueryQueueFullException(maxQueued));
+            }
+            queuedCalls.incrementAndGet();
+            waiting.add(start);
+            // 入队期间可能已有许可被释放
+            startWaiting();
+        }
+        return result;
+    }
+
+    private void startWaiting() {
+        while (!waiting.isEmpty() && permits.tryAcquire()) {
+            Runnable next = waiting.poll();
+            if (next == null) {
+                permits.release();
+                return;
+            }
+            waitingCount.decrementAndGet();
+            // 在线程池中启动，避免已完成的调用在回调链中层层递归
+            executor.execute(next);
+        }
+    }
+
+    /**
+     * 排队已满的失败不降级为空结果，交给调用方返回 503
+     */
+    private static void rethrowIfQueueFull(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof QueryQueueFullException) {
+            throw (QueryQueueFullException) cause;
+        }
+    }
+
+    private NftQueryResult emptyResult(String address) {
+        return NftQueryResult.builder()
+                .address(address)
+                .nfts(new ArrayList<>())
+                .totalCount(0)
+                .build();
+    }
+}
@@ -10,15 +10,10 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 /**
  * 异步文件处理服务
- * 处理文件上传后的异步任务，如缩略图生成、文件哈希计算等
+ * 处理文件上传后的异步任务，如缩略图生成、临时文件清理等（文件哈希在保存时由 FileUtil.storeFile 计算）
  */
 @Service
 public class AsyncFileProcessorService {
@@ -87,46 +82,6 @@ public class AsyncFileProcessorService {
         }
     }
     
-    /**
-     * 异步计算文件哈希值
-     * @param filePath 文件路径
-     * @return 文件SHA-256哈希值
-     */
-    @Async("fileProcessorExecutor")
-    public void calculateFileHashAsync(String filePath) {
-        try {
-            logger.info("开始异步计算文件哈希: {}", filePath);
-            
-            Path path = Paths.get(filePath);
-            if (!Files.exists(path)) {
-                logger.warn("文件不存在: {}", filePath);
-                return;
-            }
-            
-            byte[] fileBytes = Files.readAllBytes(path);
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(fileBytes);
-            
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            
-            String hash = hexString.toString();
-            logger.info("文件哈希计算完成: {} -> {}", filePath, hash);
-            
-            // 这里可以将哈希值更新到数据库
-            // TODO: 实现数据库更新逻辑
-            
-        } catch (IOException | NoSuchAlgorithmException e) {
-            logger.error("计算文件哈希失败: " + filePath, e);
-        }
-    }
-    
     /**
      * 异步清理临时文件
      * @param tempFilePath 临时文件路径
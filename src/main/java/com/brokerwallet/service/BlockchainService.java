@@ -7,14 +7,23 @@ import com.brokerwallet.dto.UnsignedTransactionData;
 import com.brokerwallet.dto.NftMintRequest;
 import com.brokerwallet.dto.NftMintResponse;
 import com.brokerwallet.dto.NftQueryResult;
+import com.brokerwallet.blockchain.ChainStateOracle;
+import com.brokerwallet.blockchain.ContractCodec;
+import com.brokerwallet.blockchain.ContractReadCache;
+import com.brokerwallet.blockchain.MulticallClient;
+import com.brokerwallet.blockchain.NonceManager;
+import com.brokerwallet.blockchain.ReceiptTracker;
+import com.brokerwallet.util.InvalidCursorException;
+import com.brokerwallet.util.PageCursor;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
-import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.core.Request;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.EthCall;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
@@ -26,6 +35,7 @@ import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.abi.datatypes.Utf8String;
 import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.DynamicArray;
 import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
 import org.web3j.utils.Numeric;
 
@@ -35,6 +45,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * 区块链服务类
@@ -45,9 +56,56 @@ import java.util.Optional;
 @Slf4j
 public class BlockchainService {
 
+    /**
+     * getNftMetadata 返回值类型（name, description, imageMetadata, attributes, mintTime, minter, owner）
+     */
+    private static final List<TypeReference<?>> NFT_METADATA_OUTPUTS = Arrays.asList(
+            new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}, // name
+            new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}, // description
+            new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}, // imageMetadata（新：图片元数据JSON）
+            new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}, // attributes
+            new TypeReference<Uint256>() {},                             // mintTime（新）
+            new TypeReference<Address>() {},                             // minter（新）
+            new TypeReference<Address>() {}                              // owner（新）
+    );
+
+    /**
+     * batchGetNftMetadata 返回值类型（7个并行数组）
+     */
+    private static final List<TypeReference<?>> BATCH_NFT_METADATA_OUTPUTS = Arrays.asList(
+            new TypeReference<DynamicArray<Utf8String>>() {}, // names
+            new TypeReference<DynamicArray<Utf8String>>() {}, // descriptions
+            new TypeReference<DynamicArray<Utf8String>>() {}, // imageMetadatas
+            new TypeReference<DynamicArray<Utf8String>>() {}, // attributesArray
+            new TypeReference<DynamicArray<Uint256>>() {},    // mintTimes
+            new TypeReference<DynamicArray<Address>>() {},    // nftMinters
+            new TypeReference<DynamicArray<Address>>() {}     // owners
+    );
+
+    /**
+     * 翻页时跳过缺失Token最多向后补取的页数
+     */
+    static final int MAX_PAGE_FILL_ROUNDS = 3;
+
+    /**
+     * NFT列表续页令牌类型（字段为上一页最后使用的Token ID）
+     */
+    private static final String NFT_CURSOR = "nft";
+
+    /**
+     * 图片元数据解析器（线程安全，全局复用）
+     */
+    private static final com.fasterxml.jackson.databind.ObjectMapper METADATA_MAPPER =
+            new com.fasterxml.jackson.databind.ObjectMapper();
+
     private final Web3j web3j;
     private final com.brokerwallet.repository.UserAccountRepository userAccountRepository;
     private final com.brokerwallet.repository.NftImageRepository nftImageRepository;
+    private final ContractReadCache readCache;
+    private final NonceManager nonceManager;
+    private final ReceiptTracker receiptTracker;
+    private final MulticallClient multicallClient;
+    private final ChainStateOracle chainStateOracle;
     
     @Value("${blockchain.contracts.medal-contract}")
     private String medalContractAddress;
@@ -75,37 +133,121 @@ public class BlockchainService {
     public MedalQueryResult queryUserMedals(String address) throws Exception {
         log.info("Querying medals for address: {}", address);
         
-        // 构建查询函数
-        Function function = new Function(
-                "getUserMedals",
-                Arrays.asList(new Address(address)),
-                Arrays.asList(
-                        new TypeReference<Uint256>() {}, // gold
-                        new TypeReference<Uint256>() {}, // silver
-                        new TypeReference<Uint256>() {}, // bronze
-                        new TypeReference<Uint256>() {}  // total
-                )
-        );
+        // 调用合约
+        EthCall response = readCache.call(userMedalsRequest(address));
         
-        String encodedFunction = FunctionEncoder.encode(function);
+        return decodeUserMedals(address, response);
+    }
+
+    /**
+     * 批量查询用户勋章数量（合并为JSON-RPC批量请求，结果顺序与地址顺序一致）
+     */
+    public List<MedalQueryResult> queryUserMedalsBatch(List<String> addresses) throws Exception {
+        return queryUserMedalsBatch(addresses, DefaultBlockParameterName.LATEST);
+    }
+
+    /**
+     * 在指定区块上批量查询用户勋章数量（事件索引与基线对账按确定的区块读取绝对值）
+     */
+    public List<MedalQueryResult> queryUserMedalsBatch(List<String> addresses, DefaultBlockParameter block) throws Exception {
+        if (multicallClient.isEnabled()) {
+            return queryUserMedalsMulticall(addresses, block);
+        }
         
-        // 调用合约
-        EthCall response = web3j.ethCall(
-                new Transaction(address, null, null, null, medalContractAddress, BigInteger.ZERO, encodedFunction),
-                DefaultBlockParameterName.LATEST
-        ).send();
+        List<Request<?, EthCall>> requests = new java.util.ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            requests.add(userMedalsRequest(address, block));
+        }
         
-        if (response.hasError()) {
-            throw new RuntimeException("Contract call failed: " + response.getError().getMessage());
+        // 非 LATEST 的调用不进入缓存，仍合并为批量请求
+        List<EthCall> responses = readCache.callAll(requests);
+        
+        List<MedalQueryResult> results = new java.util.ArrayList<>(addresses.size());
+        for (int i = 0; i < addresses.size(); i++) {
+            results.add(decodeUserMedals(addresses.get(i), responses.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * 通过 Multicall 合约聚合查询勋章（分块后每块一次 eth_call）
+     */
+    private List<MedalQueryResult> queryUserMedalsMulticall(List<String> addresses, DefaultBlockParameter block) throws Exception {
+        List<String> callDatas = new java.util.ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            callDatas.add(ContractCodec.encodeAddressCall(ContractCodec.GET_USER_MEDALS, address));
         }
         
-        // 解码结果
-        List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                response.getValue(), function.getOutputParameters()
-        );
+        List<String> returnDatas = multicallClient.tryAggregate(medalContractAddress, callDatas, block);
         
+        List<MedalQueryResult> results = new java.util.ArrayList<>(addresses.size());
+        for (int i = 0; i < addresses.size(); i++) {
+            String returnData = returnDatas.get(i);
+            // 单个子调用失败时退回单独查询
+            results.add(returnData != null
+                    ? decodeUserMedals(addresses.get(i), returnData)
+                    : decodeUserMedals(addresses.get(i), readCache.call(userMedalsRequest(addresses.get(i), block))));
+        }
+        return results;
+    }
+
+    /**
+     * 在指定区块上批量查询用户持有的NFT数量（getUserNftCount），结果顺序与地址顺序一致
+     */
+    public List<Long> queryUserNftCountsBatch(List<String> addresses, DefaultBlockParameter block) throws Exception {
+        List<Request<?, EthCall>> requests = new java.util.ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            requests.add(web3j.ethCall(
+                    Transaction.createEthCallTransaction(null, nftContractAddress,
+                            ContractCodec.encodeAddressCall(ContractCodec.GET_USER_NFT_COUNT, address)),
+                    block));
+        }
+        
+        List<EthCall> responses = readCache.callAll(requests);
+        
+        List<Long> counts = new java.util.ArrayList<>(addresses.size());
+        for (int i = 0; i < addresses.size(); i++) {
+            EthCall response = responses.get(i);
+            if (response.hasError()) {
+                throw new RuntimeException("getUserNftCount failed for " + addresses.get(i) + ": " + response.getError().getMessage());
+            }
+            counts.add(ContractCodec.decodeUint64(response.getValue(), 0));
+        }
+        return counts;
+    }
+
+    /**
+     * 构建 getUserMedals 查询请求
+     */
+    Request<?, EthCall> userMedalsRequest(String address) {
+        return userMedalsRequest(address, DefaultBlockParameterName.LATEST);
+    }
+
+    private Request<?, EthCall> userMedalsRequest(String address, DefaultBlockParameter block) {
+        String encodedFunction = ContractCodec.encodeAddressCall(ContractCodec.GET_USER_MEDALS, address);
+        
+        return web3j.ethCall(
+                new Transaction(address, null, null, null, medalContractAddress, BigInteger.ZERO, encodedFunction),
+                block
+        );
+    }
+
+    /**
+     * 解析 getUserMedals 查询结果
+     */
+    MedalQueryResult decodeUserMedals(String address, EthCall response) {
+        if (response.hasError()) {
+            throw new RuntimeException("Contract call failed: " + response.getError().getMessage());
+        }
+        return decodeUserMedals(address, response.getValue());
+    }
+
+    /**
+     * 解析 getUserMedals 返回数据（4 个 uint256：金、银、铜、总数）
+     */
+    private MedalQueryResult decodeUserMedals(String address, String returnData) {
         // 检查结果是否为空
-        if (results.isEmpty()) {
+        if (ContractCodec.wordCount(returnData) < 4) {
             log.warn("Contract call returned empty results for address: {}", address);
             return MedalQueryResult.builder()
                     .address(address)
@@ -113,18 +255,15 @@ public class BlockchainService {
                     .build();
         }
         
-        BigInteger gold = (BigInteger) results.get(0).getValue();
-        BigInteger silver = (BigInteger) results.get(1).getValue();
-        BigInteger bronze = (BigInteger) results.get(2).getValue();
-        BigInteger total = (BigInteger) results.get(3).getValue();
+        long[] words = ContractCodec.decodeUint64Words(returnData, 4);
         
         return MedalQueryResult.builder()
                 .address(address)
                 .medals(new MedalQueryResult.Medals(
-                        gold.intValue(),
-                        silver.intValue(),
-                        bronze.intValue(),
-                        total.intValue()
+                        (int) words[0],
+                        (int) words[1],
+                        (int) words[2],
+                        (int) words[3]
                 ))
                 .build();
     }
@@ -175,8 +314,8 @@ public class BlockchainService {
     public DistributeResponse distributeMedalsWithWalletSigning(DistributeRequest request) throws Exception {
         log.info("Distributing medals to: {} (wallet signing)", request.getTo());
         
-        // 检查发放权限（与contract demo一致）
-        boolean isDistributor = checkDistributorPermission(accountAddress);
+        // 检查发放权限（读取链上状态快照）
+        boolean isDistributor = chainStateOracle.isDistributor();
         if (!isDistributor) {
             throw new RuntimeException("没有发放权限");
         }
@@ -195,44 +334,32 @@ public class BlockchainService {
         
         String encodedFunction = FunctionEncoder.encode(distributeFunction);
         
-        // 获取nonce（与contract demo一致）
-        BigInteger nonce;
-        try {
-            EthGetTransactionCount ethGetTransactionCount = web3j.ethGetTransactionCount(
-                    accountAddress, DefaultBlockParameterName.LATEST).send();
-            nonce = ethGetTransactionCount.getTransactionCount();
-            log.info("Current nonce: {}", nonce);
-        } catch (Exception e) {
-            log.warn("Failed to get nonce, using default value 0: {}", e.getMessage());
-            nonce = BigInteger.ZERO;
-        }
-        
-        // 获取gas price（动态获取，与contract demo一致）
-        BigInteger gasPrice = web3j.ethGasPrice().send().getGasPrice();
+        // 获取gas price（来自按区块刷新的链上状态快照）
+        BigInteger gasPrice = chainStateOracle.getGasPrice();
         log.info("Current gas price: {} wei", gasPrice);
         
-        // 创建交易对象（gas limit改为300000，与contract demo一致）
-        Transaction transaction = Transaction.createFunctionCallTransaction(
-                accountAddress,
-                nonce,
-                gasPrice,
-                BigInteger.valueOf(300000), // gas limit
-                medalContractAddress,
-                BigInteger.ZERO,
-                encodedFunction
-        );
-        
         log.info("Transaction info:");
         log.info("From: {}", accountAddress);
         log.info("To: {}", medalContractAddress);
-        log.info("Nonce: {}", nonce);
         log.info("Gas Price: {}", gasPrice);
         log.info("Gas Limit: 300000");
         log.info("Value: 0");
         log.info("Data: {}", encodedFunction);
         
-        // 使用 eth_sendTransaction 发送交易（钱包程序会自动签名）
-        EthSendTransaction ethSendTransaction = web3j.ethSendTransaction(transaction).send();
+        // 使用 eth_sendTransaction 发送交易（钱包程序会自动签名），nonce 由 NonceManager 分配
+        EthSendTransaction ethSendTransaction = nonceManager.send(nonce -> {
+            log.info("Nonce: {}", nonce);
+            // 创建交易对象（gas limit改为300000，与contract demo一致）
+            return Transaction.createFunctionCallTransaction(
+                    accountAddress,
+                    nonce,
+                    gasPrice,
+                    BigInteger.valueOf(300000), // gas limit
+                    medalContractAddress,
+                    BigInteger.ZERO,
+                    encodedFunction
+            );
+        });
         
         if (ethSendTransaction.hasError()) {
             log.error("Transaction failed: {}", ethSendTransaction.getError().getMessage());
@@ -244,14 +371,17 @@ public class BlockchainService {
         
         if (txHash != null && !txHash.isEmpty()) {
             log.info("Transaction sent to blockchain, hash: {}", txHash);
+            chainStateOracle.recordSpend(gasPrice.multiply(BigInteger.valueOf(300000)));
             
-            // 等待交易确认（与contract demo一致）
-            TransactionReceipt receipt = waitForTransactionReceipt(txHash);
+            // 交由回执跟踪器异步确认，交易哈希作为跟踪ID立即返回
+            receiptTracker.track(txHash);
             
             return DistributeResponse.builder()
                     .success(true)
-                    .message("勋章发放成功")
+                    .message("勋章发放交易已提交，等待链上确认")
                     .transactionHash(txHash)
+                    .status(ReceiptTracker.TxStatus.PENDING.name())
+                    .timestamp(System.currentTimeMillis())
                     .build();
         } else {
             throw new RuntimeException("交易发送失败或未返回交易哈希");
@@ -259,120 +389,119 @@ public class BlockchainService {
     }
     
     /**
-     * 检查发放权限
+     * 发送单用户勋章发放交易（不等待确认，供发放队列使用）
+     * @param beforeSend 分配 nonce 后、交易发出前回调，供队列先持久化 nonce
+     * @return 交易哈希
      */
-    private boolean checkDistributorPermission(String address) throws Exception {
-        log.info("Checking distributor permission for address: {}", address);
-        
-        Function distributorsFunction = new Function(
-                "distributors",
-                Arrays.asList(new Address(address)),
-                Arrays.asList(new TypeReference<org.web3j.abi.datatypes.Bool>() {})
+    public String sendDistributeMedals(String to, BigInteger goldQty, BigInteger silverQty, BigInteger bronzeQty,
+                                       BigInteger gasLimit, Consumer<BigInteger> beforeSend) throws Exception {
+        Function function = new Function(
+                "distributeMedals",
+                Arrays.asList(new Address(to), new Uint256(goldQty), new Uint256(silverQty), new Uint256(bronzeQty)),
+                Collections.emptyList()
         );
-        
-        String encodedFunction = FunctionEncoder.encode(distributorsFunction);
-        
-        EthCall ethCall = web3j.ethCall(
-                new Transaction(address, null, null, null, medalContractAddress, BigInteger.ZERO, encodedFunction),
+        return sendMedalContractTransaction(FunctionEncoder.encode(function), gasLimit, beforeSend);
+    }
+    
+    /**
+     * 发送批量勋章发放交易 batchDistributeMedals（一笔交易为多个用户发放，不等待确认）
+     * @param beforeSend 分配 nonce 后、交易发出前回调，供队列先持久化 nonce
+     * @return 交易哈希
+     */
+    public String sendBatchDistributeMedals(List<String> recipients, List<BigInteger> goldQtys,
+                                            List<BigInteger> silverQtys, List<BigInteger> bronzeQtys,
+                                            BigInteger gasLimit, Consumer<BigInteger> beforeSend) throws Exception {
+        return sendMedalContractTransaction(encodeBatchDistributeMedals(recipients, goldQtys, silverQtys, bronzeQtys),
+                gasLimit, beforeSend);
+    }
+    
+    /**
+     * 探测勋章合约是否部署了 batchDistributeMedals：以零数量向签名账户自身发放做一次 eth_call
+     * 方法不存在或签名账户没有发放权限时调用回滚，返回 false；节点不可达时抛出 IOException
+     */
+    public boolean supportsBatchDistributeMedals() throws java.io.IOException {
+        String encodedFunction = encodeBatchDistributeMedals(List.of(accountAddress),
+                List.of(BigInteger.ZERO), List.of(BigInteger.ZERO), List.of(BigInteger.ZERO));
+        EthCall response = web3j.ethCall(
+                Transaction.createEthCallTransaction(accountAddress, medalContractAddress, encodedFunction),
                 DefaultBlockParameterName.LATEST
         ).send();
-        
-        if (ethCall.hasError()) {
-            log.error("Error checking distributor permission: {}", ethCall.getError().getMessage());
-            return false;
-        }
-        
-        String value = ethCall.getValue();
-        log.info("Distributor permission response: {}", value);
-        
-        if (value == null || value.equals("0x")) {
-            log.warn("Contract call returned null or empty response");
+        if (response.hasError() || response.isReverted()) {
+            log.warn("batchDistributeMedals probe reverted: {}", response.hasError()
+                    ? response.getError().getMessage() : response.getRevertReason());
             return false;
         }
-        
-        List<org.web3j.abi.datatypes.Type> decoded = FunctionReturnDecoder.decode(value, distributorsFunction.getOutputParameters());
-        
-        if (decoded.isEmpty()) {
-            log.warn("No decoded values returned from permission check");
-            return false;
-        }
-        
-        boolean hasPermission = (Boolean) decoded.get(0).getValue();
-        log.info("Has distributor permission: {}", hasPermission);
-        
-        return hasPermission;
+        return true;
+    }
+    
+    private static String encodeBatchDistributeMedals(List<String> recipients, List<BigInteger> goldQtys,
+                                                      List<BigInteger> silverQtys, List<BigInteger> bronzeQtys) {
+        Function function = new Function(
+                "batchDistributeMedals",
+                Arrays.asList(
+                        new DynamicArray<>(Address.class, recipients.stream().map(Address::new).collect(java.util.stream.Collectors.toList())),
+                        new DynamicArray<>(Uint256.class, goldQtys.stream().map(Uint256::new).collect(java.util.stream.Collectors.toList())),
+                        new DynamicArray<>(Uint256.class, silverQtys.stream().map(Uint256::new).collect(java.util.stream.Collectors.toList())),
+                        new DynamicArray<>(Uint256.class, bronzeQtys.stream().map(Uint256::new).collect(java.util.stream.Collectors.toList()))
+                ),
+                Collections.emptyList()
+        );
+        return FunctionEncoder.encode(function);
     }
     
     /**
-     * 等待交易确认
+     * 向勋章合约发送交易，nonce 由 NonceManager 分配，连续调用即可流水线发送
      */
-    private TransactionReceipt waitForTransactionReceipt(String transactionHash) throws Exception {
-        log.info("Waiting for transaction receipt: {}", transactionHash);
-        
-        Optional<TransactionReceipt> receiptOptional = Optional.empty();
-        int attempts = 0;
-        int maxAttempts = 40; // 最多等待40次，每次2秒 = 80秒
+    private String sendMedalContractTransaction(String encodedFunction, BigInteger gasLimit,
+                                                Consumer<BigInteger> beforeSend) throws Exception {
+        BigInteger gasPrice = chainStateOracle.getGasPrice();
+        EthSendTransaction ethSendTransaction = nonceManager.send(nonce -> Transaction.createFunctionCallTransaction(
+                accountAddress,
+                nonce,
+                gasPrice,
+                gasLimit,
+                medalContractAddress,
+                BigInteger.ZERO,
+                encodedFunction
+        ), beforeSend);
         
-        while (attempts < maxAttempts && !receiptOptional.isPresent()) {
-            receiptOptional = web3j.ethGetTransactionReceipt(transactionHash).send().getTransactionReceipt();
-            
-            if (!receiptOptional.isPresent()) {
-                Thread.sleep(2000);
-                attempts++;
-                log.info("Waiting for transaction confirmation... attempt {}/{}", attempts, maxAttempts);
-            }
+        if (ethSendTransaction.hasError()) {
+            throw new RuntimeException("交易发送失败: " + ethSendTransaction.getError().getMessage());
         }
-        
-        if (receiptOptional.isPresent()) {
-            log.info("Transaction confirmed!");
-            return receiptOptional.get();
+        String txHash = ethSendTransaction.getTransactionHash();
+        if (txHash == null || txHash.isEmpty()) {
+            throw new RuntimeException("交易发送失败或未返回交易哈希");
         }
-        
-        throw new RuntimeException("Transaction confirmation timeout");
+        chainStateOracle.recordSpend(gasLimit.multiply(gasPrice));
+        return txHash;
     }
-
+    
     /**
      * 查询全局统计
      */
     public String queryGlobalStats() throws Exception {
         try {
             // 调用合约的全局统计函数
-            Function function = new Function(
-                    "getGlobalStats",
-                    Collections.emptyList(),
-                    Arrays.asList(
-                            new TypeReference<Uint256>() {}, // totalGold
-                            new TypeReference<Uint256>() {}, // totalSilver
-                            new TypeReference<Uint256>() {}  // totalBronze
-                    )
-            );
-            
-            String encodedFunction = FunctionEncoder.encode(function);
+            String encodedFunction = ContractCodec.GET_GLOBAL_STATS;
             
-            EthCall response = web3j.ethCall(
+            EthCall response = readCache.call(web3j.ethCall(
                     new Transaction(accountAddress, null, null, null, medalContractAddress, BigInteger.ZERO, encodedFunction),
                     DefaultBlockParameterName.LATEST
-            ).send();
+            ));
             
             if (response.hasError()) {
                 return "Failed to query global stats: " + response.getError().getMessage();
             }
             
-            // 解码结果
-            List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                    response.getValue(), function.getOutputParameters()
-            );
-            
-            if (results.isEmpty()) {
+            // 解码结果（totalGold, totalSilver, totalBronze）
+            if (ContractCodec.wordCount(response.getValue()) < 3) {
                 return "Global stats query returned empty result";
             }
             
-            BigInteger totalGold = (BigInteger) results.get(0).getValue();
-            BigInteger totalSilver = (BigInteger) results.get(1).getValue();
-            BigInteger totalBronze = (BigInteger) results.get(2).getValue();
+            long[] totals = ContractCodec.decodeUint64Words(response.getValue(), 3);
             
             return String.format("Global stats - Gold: %d, Silver: %d, Bronze: %d", 
-                    totalGold.intValue(), totalSilver.intValue(), totalBronze.intValue());
+                    (int) totals[0], (int) totals[1], (int) totals[2]);
             
         } catch (Exception e) {
             return "Failed to query global stats: " + e.getMessage();
@@ -397,10 +526,10 @@ public class BlockchainService {
             
             String encodedFunction = FunctionEncoder.encode(function);
             
-            EthCall response = web3j.ethCall(
+            EthCall response = readCache.callUncached(web3j.ethCall(
                     new Transaction(accountAddress, null, null, null, medalContractAddress, BigInteger.ZERO, encodedFunction),
                     DefaultBlockParameterName.LATEST
-            ).send();
+            ));
             
             if (response.hasError()) {
                 return "Contract connection failed: " + response.getError().getMessage();
@@ -428,8 +557,8 @@ public class BlockchainService {
             String normalizedAddress = ownerAddress.toLowerCase();
             log.info("Normalized address: {}", normalizedAddress);
             
-            // 检查铸造权限
-            boolean hasPermission = hasMintPermission(accountAddress);
+            // 检查铸造权限（读取链上状态快照）
+            boolean hasPermission = chainStateOracle.hasMintPermission();
             if (!hasPermission) {
                 return NftMintResponse.builder()
                         .success(false)
@@ -437,8 +566,8 @@ public class BlockchainService {
                         .build();
             }
             
-            // 查询铸造费用（关键！）
-            BigInteger mintFee = getMintFee();
+            // 查询铸造费用（关键！来自链上状态快照）
+            BigInteger mintFee = chainStateOracle.getMintFee();
             log.info("Contract mint fee: {} wei ({} ETH)", mintFee, mintFee.divide(BigInteger.valueOf(1000000000000000000L)));
             
             // 构建铸造函数 - 使用新的OptimizedNftMinter合约
@@ -458,37 +587,11 @@ public class BlockchainService {
             String encodedFunction = FunctionEncoder.encode(mintFunction);
             log.info("Encoded function data: {}", encodedFunction);
             
-            // 获取nonce - 使用contract项目的方式
-            BigInteger nonce;
-            try {
-                var nonceResponse = web3j.ethGetTransactionCount(accountAddress, DefaultBlockParameterName.LATEST).send();
-                log.info("Nonce response raw: {}", nonceResponse.getResult());
-                
-                if (nonceResponse.hasError()) {
-                    log.error("Failed to get nonce: {}", nonceResponse.getError().getMessage());
-                    nonce = BigInteger.ZERO;
-                } else {
-                    nonce = nonceResponse.getTransactionCount();
-                    log.info("Nonce: {}", nonce);
-                }
-            } catch (Exception e) {
-                log.error("Exception while getting nonce: {}", e.getMessage());
-                nonce = BigInteger.ZERO;
-            }
-            
-            // 获取gas price - 使用contract项目的方式
+            // 获取gas price（来自链上状态快照）
             BigInteger gasPrice;
             try {
-                var gasPriceResponse = web3j.ethGasPrice().send();
-                log.info("Gas price response raw: {}", gasPriceResponse.getResult());
-                
-                if (gasPriceResponse.hasError()) {
-                    log.error("Failed to get gas price: {}", gasPriceResponse.getError().getMessage());
-                    gasPrice = BigInteger.valueOf(1000000000L); // 1 Gwei as fallback
-                } else {
-                    gasPrice = gasPriceResponse.getGasPrice();
-                    log.info("Gas Price: {}", gasPrice);
-                }
+                gasPrice = chainStateOracle.getGasPrice();
+                log.info("Gas Price: {}", gasPrice);
             } catch (Exception e) {
                 log.error("Exception while getting gas price: {}", e.getMessage());
                 gasPrice = BigInteger.valueOf(1000000000L); // 1 Gwei as fallback
@@ -522,57 +625,57 @@ public class BlockchainService {
                 log.info("Set Gas Limit: {} (for small metadata)", gasLimit);
             }
             
-            // 创建交易对象 - 使用mintFee作为value（关键修复！）
-            Transaction transaction = Transaction.createFunctionCallTransaction(
-                    accountAddress,
-                    nonce,
-                    gasPrice,
-                    gasLimit,
-                    nftContractAddress,
-                    mintFee,  // ✅ 使用查询到的mintFee，而不是0
-                    encodedFunction
-            );
-            
             log.info("Transaction details:");
-            log.info("From: {}", transaction.getFrom());
-            log.info("To: {}", transaction.getTo());
-            log.info("Nonce: {}", transaction.getNonce());
-            log.info("Gas Price: {}", transaction.getGasPrice());
+            log.info("From: {}", accountAddress);
+            log.info("To: {}", nftContractAddress);
+            log.info("Gas Price: {}", gasPrice);
             log.info("Gas Limit: {}", gasLimit);
-            log.info("Value: {}", transaction.getValue());
-            log.info("Data: {}", transaction.getData());
+            log.info("Value: {}", mintFee);
+            log.info("Data: {}", encodedFunction);
             
-            // 检查账户余额
+            // 检查账户余额（快照余额已扣除之后发出交易的预计花费）
             try {
-                EthGetBalance balanceResponse = web3j.ethGetBalance(accountAddress, DefaultBlockParameterName.LATEST).send();
-                if (!balanceResponse.hasError()) {
-                    BigInteger balance = balanceResponse.getBalance();
-                    BigInteger estimatedGasCost = gasLimit.multiply(gasPrice);
-                    BigInteger totalRequired = mintFee.add(estimatedGasCost);
-                    
-                    log.info("=== Balance Check ===");
-                    log.info("Current balance: {} wei ({} ETH)", balance, balance.divide(BigInteger.valueOf(1000000000000000000L)));
-                    log.info("Mint fee: {} wei", mintFee);
-                    log.info("Estimated gas cost: {} wei", estimatedGasCost);
-                    log.info("Total required: {} wei ({} ETH)", totalRequired, totalRequired.divide(BigInteger.valueOf(1000000000000000000L)));
-                    
-                    if (balance.compareTo(totalRequired) < 0) {
-                        log.error("❌ Insufficient balance!");
-                        double balanceEth = balance.doubleValue() / 1e18;
-                        double requiredEth = totalRequired.doubleValue() / 1e18;
-                        return NftMintResponse.builder()
-                                .success(false)
-                                .message(String.format("后端账户余额不足！当前余额: %.6f ETH，需要: %.6f ETH（请为后端账户充值）", balanceEth, requiredEth))
-                                .build();
-                    }
-                    log.info("✅ Balance check passed");
+                BigInteger balance = chainStateOracle.getBalance();
+                BigInteger estimatedGasCost = gasLimit.multiply(gasPrice);
+                BigInteger totalRequired = mintFee.add(estimatedGasCost);
+                
+                log.info("=== Balance Check ===");
+                log.info("Current balance: {} wei ({} ETH)", balance, balance.divide(BigInteger.valueOf(1000000000000000000L)));
+                log.info("Mint fee: {} wei", mintFee);
+                log.info("Estimated gas cost: {} wei", estimatedGasCost);
+                log.info("Total required: {} wei ({} ETH)", totalRequired, totalRequired.divide(BigInteger.valueOf(1000000000000000000L)));
+                
+                if (balance.compareTo(totalRequired) < 0) {
+                    log.error("❌ Insufficient balance!");
+                    double balanceEth = balance.doubleValue() / 1e18;
+                    double requiredEth = totalRequired.doubleValue() / 1e18;
+                    return NftMintResponse.builder()
+                            .success(false)
+                            .message(String.format("后端账户余额不足！当前余额: %.6f ETH，需要: %.6f ETH（请为后端账户充值）", balanceEth, requiredEth))
+                            .build();
                 }
+                log.info("✅ Balance check passed");
             } catch (Exception e) {
                 log.warn("Failed to check balance: {}", e.getMessage());
             }
             
-            // 发送交易
-            EthSendTransaction ethSendTransaction = web3j.ethSendTransaction(transaction).send();
+            // 发送交易（nonce 由 NonceManager 分配）
+            final BigInteger txGasPrice = gasPrice;
+            final BigInteger txGasLimit = gasLimit;
+            final BigInteger txValue = mintFee;
+            EthSendTransaction ethSendTransaction = nonceManager.send(nonce -> {
+                log.info("Nonce: {}", nonce);
+                // 创建交易对象 - 使用mintFee作为value（关键修复！）
+                return Transaction.createFunctionCallTransaction(
+                        accountAddress,
+                        nonce,
+                        txGasPrice,
+                        txGasLimit,
+                        nftContractAddress,
+                        txValue,  // ✅ 使用查询到的mintFee，而不是0
+                        encodedFunction
+                );
+            });
             
             if (ethSendTransaction.hasError()) {
                 log.error("Transaction failed: {}", ethSendTransaction.getError().getMessage());
@@ -585,58 +688,28 @@ public class BlockchainService {
             
             String txHash = ethSendTransaction.getTransactionHash();
             log.info("Transaction sent successfully, Hash: {}", txHash);
+            chainStateOracle.recordSpend(txValue.add(txGasLimit.multiply(txGasPrice)));
             
-            // 等待交易确认（与contract demo一致）
-            TransactionReceipt receipt = waitForTransactionReceipt(txHash);
-            log.info("Transaction confirmed!");
-            
-            // 解析返回的Token ID - 从交易收据中获取
-            String tokenId = parseTokenIdFromReceipt(receipt);
-            if (tokenId == null) {
-                // 如果无法解析，使用总供应量作为tokenId
-                try {
-                    BigInteger totalSupply = getTotalSupply();
-                    tokenId = totalSupply.toString();
-                    log.info("Using total supply as token ID: {}", tokenId);
-                } catch (Exception e) {
-                    log.warn("Failed to get total supply, using tx hash as token ID");
-                    tokenId = txHash;
-                }
-            }
-            
-            // ⭐ 更新数据库中的NFT记录（如果提供了nftImageId）
-            if (request.getNftImageId() != null) {
-                try {
-                    log.info("更新数据库中的NFT记录: nftImageId={}", request.getNftImageId());
-                    Optional<com.brokerwallet.entity.NftImage> nftImageOpt = 
-                            nftImageRepository.findById(request.getNftImageId());
-                    
-                    if (nftImageOpt.isPresent()) {
-                        com.brokerwallet.entity.NftImage nftImage = nftImageOpt.get();
-                        nftImage.setMintStatus(com.brokerwallet.entity.NftImage.MintStatus.SUCCESS);
-                        nftImage.setTransactionHash(txHash);
-                        nftImage.setTokenId(tokenId);
-                        nftImageRepository.save(nftImage);
-                        log.info("✅ NFT记录更新成功: id={}, tokenId={}, txHash={}", 
-                                nftImage.getId(), tokenId, txHash);
-                    } else {
-                        log.warn("⚠️ 未找到NFT记录: nftImageId={}", request.getNftImageId());
-                    }
-                } catch (Exception e) {
-                    log.error("❌ 更新NFT记录失败: {}", e.getMessage(), e);
-                    // 不影响铸造结果，只记录错误
-                }
+            // ⭐ 先把交易哈希写入数据库中的NFT记录（如果提供了nftImageId），确认结果由回执跟踪器异步回写
+            Long nftImageId = request.getNftImageId();
+            if (nftImageId != null) {
+                markNftImageSubmitted(nftImageId, txHash);
             } else {
                 log.info("未提供nftImageId，跳过数据库更新");
             }
             
+            receiptTracker.track(txHash)
+                    .thenAccept(receipt -> onMintConfirmed(nftImageId, txHash, receipt))
+                    .exceptionally(e -> {
+                        log.warn("NFT mint transaction {} not confirmed: {}", txHash, e.getMessage());
+                        return null;
+                    });
+            
             return NftMintResponse.builder()
                     .success(true)
-                    .message("NFT minted successfully")
+                    .message("NFT mint transaction submitted")
                     .transactionHash(txHash)
-                    .tokenId(tokenId)
-                    .imageHash("blockchain://" + tokenId)
-                    .metadataHash("blockchain://" + tokenId)
+                    .status(ReceiptTracker.TxStatus.PENDING.name())
                     .build();
                     
         } catch (Exception e) {
@@ -652,96 +725,145 @@ public class BlockchainService {
     }
 
     /**
-     * 查询用户拥有的NFT
+     * 发送批量铸造交易 batchMintNftWithMetadata（不等待确认，供铸造队列使用）
+     * value 为 mintFee × 数量，nonce 由 NonceManager 分配
+     * @param beforeSend 分配 nonce 后、交易发出前回调，供队列先持久化 nonce
+     * @return 交易哈希
      */
-    public NftQueryResult queryUserNfts(String address, int page, int size) throws Exception {
-        log.info("Querying NFTs for address: {}", address);
+    public String sendBatchMintNfts(List<String> recipients, List<String> names, List<String> descriptions,
+                                    List<String> imageMetadatas, List<String> attributesList,
+                                    BigInteger gasLimit, Consumer<BigInteger> beforeSend) throws Exception {
+        BigInteger mintFee = chainStateOracle.getMintFee();
+        BigInteger value = mintFee.multiply(BigInteger.valueOf(recipients.size()));
+        
+        Function batchMintFunction = new Function(
+                "batchMintNftWithMetadata",
+                Arrays.asList(
+                        new DynamicArray<>(Address.class, recipients.stream().map(Address::new).collect(java.util.stream.Collectors.toList())),
+                        new DynamicArray<>(Utf8String.class, names.stream().map(Utf8String::new).collect(java.util.stream.Collectors.toList())),
+                        new DynamicArray<>(Utf8String.class, descriptions.stream().map(Utf8String::new).collect(java.util.stream.Collectors.toList())),
+                        new DynamicArray<>(Utf8String.class, imageMetadatas.stream().map(Utf8String::new).collect(java.util.stream.Collectors.toList())),
+                        new DynamicArray<>(Utf8String.class, attributesList.stream().map(Utf8String::new).collect(java.util.stream.Collectors.toList()))
+                ),
+                Collections.emptyList()
+        );
+        String encodedFunction = FunctionEncoder.encode(batchMintFunction);
+        BigInteger gasPrice = chainStateOracle.getGasPrice();
         
+        log.info("Sending batch mint: {} NFTs, value={} wei, gasLimit={}", recipients.size(), value, gasLimit);
+        EthSendTransaction ethSendTransaction = nonceManager.send(nonce -> Transaction.createFunctionCallTransaction(
+                accountAddress,
+                nonce,
+                gasPrice,
+                gasLimit,
+                nftContractAddress,
+                value,
+                encodedFunction
+        ), beforeSend);
+        
+        if (ethSendTransaction.hasError()) {
+            throw new RuntimeException("批量铸造交易发送失败: " + ethSendTransaction.getError().getMessage());
+        }
+        String txHash = ethSendTransaction.getTransactionHash();
+        if (txHash == null || txHash.isEmpty()) {
+            throw new RuntimeException("交易发送失败或未返回交易哈希");
+        }
+        chainStateOracle.recordSpend(value.add(gasLimit.multiply(gasPrice)));
+        return txHash;
+    }
+    
+    /**
+     * 铸造交易已提交：记录交易哈希并标记为铸造中
+     */
+    private void markNftImageSubmitted(Long nftImageId, String txHash) {
         try {
-            // 构建查询函数
-            Function function = new Function(
-                    "getUserNfts",
-                    Arrays.asList(new Address(address)),
-                    Arrays.asList(new TypeReference<org.web3j.abi.datatypes.DynamicArray<Uint256>>() {})
-            );
-            
-            String encodedFunction = FunctionEncoder.encode(function);
-            
-            // 调用合约
-            EthCall response = web3j.ethCall(
-                    new Transaction(accountAddress, null, null, null, nftContractAddress, BigInteger.ZERO, encodedFunction),
-                    DefaultBlockParameterName.LATEST
-            ).send();
-            
-            if (response.hasError()) {
-                throw new RuntimeException("Contract call failed: " + response.getError().getMessage());
-            }
-            
-            // 解码结果
-            List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                    response.getValue(), function.getOutputParameters()
-            );
-            
-            if (results.isEmpty()) {
-                return NftQueryResult.builder()
-                        .address(address)
-                        .nfts(new java.util.ArrayList<>())
-                        .totalCount(0)
-                        .build();
+            Optional<com.brokerwallet.entity.NftImage> nftImageOpt = nftImageRepository.findById(nftImageId);
+            if (nftImageOpt.isPresent()) {
+                com.brokerwallet.entity.NftImage nftImage = nftImageOpt.get();
+                nftImage.setMintStatus(com.brokerwallet.entity.NftImage.MintStatus.PROCESSING);
+                nftImage.setTransactionHash(txHash);
+                nftImageRepository.save(nftImage);
+            } else {
+                log.warn("⚠️ 未找到NFT记录: nftImageId={}", nftImageId);
             }
-            
-            // 解析Token IDs
-            @SuppressWarnings("unchecked")
-            org.web3j.abi.datatypes.DynamicArray<Uint256> tokenIds = 
-                    (org.web3j.abi.datatypes.DynamicArray<Uint256>) results.get(0);
-            
-            List<Uint256> allTokenIds = tokenIds.getValue();
-            int totalCount = allTokenIds.size();
-            
-            // ✅ 优化：只查询当前页需要的NFT，按时间倒序（最新的在前）
-            // 计算倒序的索引范围
-            int startIndex = totalCount - 1 - (page * size); // 从最后一个开始
-            int endIndex = Math.max(startIndex - size + 1, 0); // 确保不小于0
-            
-            log.info("✅ 优化分页查询（倒序）: 用户共有 {} 个NFT，只查询第 {} 到 {} 个（倒序）", 
-                    totalCount, startIndex + 1, endIndex + 1);
-            
-            List<NftQueryResult.NftInfo> nftList = new java.util.ArrayList<>();
-            
-            // 从后往前遍历Token ID（最新的在前）
-            for (int i = startIndex; i >= endIndex; i--) {
-                Uint256 tokenId = allTokenIds.get(i);
+        } catch (Exception e) {
+            log.error("❌ 更新NFT记录失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 铸造交易确认后解析Token ID并回写数据库中的NFT记录
+     */
+    private void onMintConfirmed(Long nftImageId, String txHash, TransactionReceipt receipt) {
+        String tokenId = null;
+        if (receipt.isStatusOK()) {
+            // 解析返回的Token ID - 从交易收据中获取
+            tokenId = parseTokenIdFromReceipt(receipt);
+            if (tokenId == null) {
+                // 如果无法解析，使用总供应量作为tokenId
                 try {
-                    // 获取NFT数据
-                    NftQueryResult.NftMetadata metadata = getNftData(tokenId.getValue());
-                    
-                    NftQueryResult.NftInfo nftInfo = NftQueryResult.NftInfo.builder()
-                            .tokenId(tokenId.getValue().toString())
-                            .ownerAddress(address)
-                            .name(metadata.getName())
-                            .description(metadata.getDescription())
-                            .imageUrl(metadata.getImage())
-                            .attributes(metadata.getAttributes())
-                            .mintTime(metadata.getMintTime())
-                            .minter(metadata.getMinter())
-                            .build();
-                    
-                    nftList.add(nftInfo);
-                    
+                    BigInteger totalSupply = getTotalSupply();
+                    tokenId = totalSupply.toString();
+                    log.info("Using total supply as token ID: {}", tokenId);
                 } catch (Exception e) {
-                    log.warn("Failed to get NFT data for token ID {}: {}", tokenId.getValue(), e.getMessage());
-                    // 添加默认信息
-                    NftQueryResult.NftInfo nftInfo = NftQueryResult.NftInfo.builder()
-                            .tokenId(tokenId.getValue().toString())
-                            .ownerAddress(address)
-                            .name("NFT #" + tokenId.getValue())
-                            .description("Data loading failed")
-                            .imageUrl("")
-                            .attributes("")  // 空字符串
-                            .build();
-                    nftList.add(nftInfo);
+                    log.warn("Failed to get total supply, using tx hash as token ID");
+                    tokenId = txHash;
                 }
             }
+            log.info("✅ NFT minted: tokenId={}, txHash={}", tokenId, txHash);
+        } else {
+            log.error("❌ NFT mint transaction reverted: txHash={}", txHash);
+        }
+        
+        if (nftImageId == null) {
+            return;
+        }
+        try {
+            Optional<com.brokerwallet.entity.NftImage> nftImageOpt = nftImageRepository.findById(nftImageId);
+            if (nftImageOpt.isPresent()) {
+                com.brokerwallet.entity.NftImage nftImage = nftImageOpt.get();
+                if (tokenId != null) {
+                    nftImage.setMintStatus(com.brokerwallet.entity.NftImage.MintStatus.SUCCESS);
+                    nftImage.setTokenId(tokenId);
+                } else {
+                    nftImage.setMintStatus(com.brokerwallet.entity.NftImage.MintStatus.FAILED);
+                }
+                nftImage.setTransactionHash(txHash);
+                nftImageRepository.save(nftImage);
+                log.info("✅ NFT记录更新成功: id={}, tokenId={}, txHash={}", nftImage.getId(), tokenId, txHash);
+            } else {
+                log.warn("⚠️ 未找到NFT记录: nftImageId={}", nftImageId);
+            }
+        } catch (Exception e) {
+            log.error("❌ 更新NFT记录失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 查询用户拥有的NFT
+     */
+    public NftQueryResult queryUserNfts(String address, int page, int size) throws Exception {
+        return queryUserNfts(address, page, size, null);
+    }
+
+    /**
+     * 查询用户拥有的NFT
+     * @param cursor 续页令牌（为 null 时按页码分页，空字符串表示续页模式的第一页）
+     */
+    public NftQueryResult queryUserNfts(String address, int page, int size, String cursor) throws Exception {
+        log.info("Querying NFTs for address: {}", address);
+        
+        try {
+            // 调用合约
+            List<BigInteger> allTokenIds = decodeUserNftIds(readCache.call(userNftsRequest(address)));
+            int totalCount = allTokenIds.size();
+            
+            // 当前页（从后往前，最新的在前）的Token ID
+            List<BigInteger> candidateIds = userNftPageCandidates(allTokenIds, page, size, cursor);
+            
+            // 一次 batchGetNftMetadata 调用获取整页元数据
+            List<NftQueryResult.NftInfo> nftList = fetchNftPage(candidateIds, size);
+            nftList.forEach(nft -> nft.setOwnerAddress(address));
             
             log.info("✅ 分页查询完成: Total={}, Page={}, PageSize={}, ReturnCount={}", 
                     totalCount, page, size, nftList.size());
@@ -750,6 +872,7 @@ public class BlockchainService {
                     .address(address)
                     .nfts(nftList)
                     .totalCount(totalCount)
+                    .nextCursor(nextNftCursor(nftList, candidateIds, size, allTokenIds.isEmpty() ? null : allTokenIds.get(0)))
                     .build();
                     
         } catch (Exception e) {
@@ -762,11 +885,85 @@ public class BlockchainService {
         }
     }
 
+    /**
+     * 构建 getUserNfts 查询请求
+     */
+    Request<?, EthCall> userNftsRequest(String address) {
+        String encodedFunction = ContractCodec.encodeAddressCall(ContractCodec.GET_USER_NFTS, address);
+        
+        return web3j.ethCall(
+                new Transaction(accountAddress, null, null, null, nftContractAddress, BigInteger.ZERO, encodedFunction),
+                DefaultBlockParameterName.LATEST
+        );
+    }
+
+    /**
+     * 解析 getUserNfts 查询结果（按铸造顺序的Token ID列表）
+     */
+    List<BigInteger> decodeUserNftIds(EthCall response) {
+        if (response.hasError()) {
+            throw new RuntimeException("Contract call failed: " + response.getError().getMessage());
+        }
+        
+        if (ContractCodec.wordCount(response.getValue()) < 2) {
+            return new java.util.ArrayList<>();
+        }
+        return ContractCodec.decodeUint256Array(response.getValue(), 0);
+    }
+
+    /**
+     * 用户NFT当前页的候选Token ID（倒序，最新的在前）
+     * 按页码分页时严格按位置取当前页，缺失的Token不补位（补位的Token会在下一页重复出现）；
+     * 续页模式从游标记录的Token之后开始，多取几页作为跳过缺失Token时的补位
+     */
+    List<BigInteger> userNftPageCandidates(List<BigInteger> allTokenIds, int page, int size, String cursor) {
+        int totalCount = allTokenIds.size();
+        
+        int startIndex;
+        int limit;
+        if (cursor == null) {
+            // ✅ 优化：只查询当前页需要的NFT，按时间倒序（最新的在前）
+            startIndex = totalCount - 1 - (page * size); // 从最后一个开始
+            limit = size;
+        } else {
+            startIndex = totalCount - 1;
+            if (!PageCursor.isFirstPage(cursor)) {
+                BigInteger after = decodeNftCursor(cursor);
+                int index = allTokenIds.lastIndexOf(after);
+                if (index >= 0) {
+                    startIndex = index - 1;
+                } else {
+                    // 游标Token已不在列表中（已转出），从比它更早铸造的Token继续
+                    while (startIndex >= 0 && allTokenIds.get(startIndex).compareTo(after) >= 0) {
+                        startIndex--;
+                    }
+                }
+            }
+            limit = size * MAX_PAGE_FILL_ROUNDS;
+        }
+        
+        log.info("✅ 优化分页查询（倒序）: 用户共有 {} 个NFT，从第 {} 个开始查询（倒序）", totalCount, startIndex + 1);
+        
+        List<BigInteger> candidateIds = new java.util.ArrayList<>();
+        for (int i = startIndex; i >= 0 && candidateIds.size() < limit; i--) {
+            candidateIds.add(allTokenIds.get(i));
+        }
+        return candidateIds;
+    }
+
     /**
      * 查询所有NFT
      * 通过totalSupply()获取总数量，然后遍历所有Token ID
      */
     public NftQueryResult queryAllNfts(int page, int size) throws Exception {
+        return queryAllNfts(page, size, null);
+    }
+
+    /**
+     * 查询所有NFT
+     * @param cursor 续页令牌（为 null 时按页码分页，空字符串表示续页模式的第一页）
+     */
+    public NftQueryResult queryAllNfts(int page, int size, String cursor) throws Exception {
         log.info("Querying all NFTs: page={}, size={}", page, size);
         
         try {
@@ -784,50 +981,12 @@ public class BlockchainService {
             
             int totalCount = totalSupply.intValue();
             
-            // ✅ 优化：只查询当前页需要的NFT，按时间倒序（最新的在前）
-            // 计算倒序的Token ID范围
-            int startTokenId = totalCount - (page * size); // 从最大的Token ID开始
-            int endTokenId = Math.max(startTokenId - size + 1, 1); // 确保不小于1
-            
-            log.info("✅ 优化分页查询（倒序）: 只查询 Token ID {} 到 {} (共 {} 个)", 
-                    startTokenId, endTokenId, startTokenId - endTokenId + 1);
+            // 当前页（从大到小，最新的在前）的Token ID
+            List<BigInteger> candidateIds = allNftPageCandidates(totalCount, page, size, cursor);
             
-            List<NftQueryResult.NftInfo> nftList = new java.util.ArrayList<>();
-            
-            // 从大到小遍历Token ID（最新的在前）
-            for (int tokenId = startTokenId; tokenId >= endTokenId; tokenId--) {
-                try {
-                    BigInteger tokenIdBig = BigInteger.valueOf(tokenId);
-                    
-                    // 直接获取NFT数据（如果不存在会抛出异常）
-                    NftQueryResult.NftMetadata metadata = getNftData(tokenIdBig);
-                    
-                    // 获取NFT所有者
-                    String ownerAddress = getNftOwner(tokenIdBig);
-                    
-                    // 查询所有者的花名
-                    String ownerDisplayName = getOwnerDisplayName(ownerAddress);
-                    log.info("NFT #{} 持有者: {} ({})", tokenId, ownerAddress, ownerDisplayName);
-                    
-                    NftQueryResult.NftInfo nftInfo = NftQueryResult.NftInfo.builder()
-                            .tokenId(String.valueOf(tokenId))
-                            .ownerAddress(ownerAddress)
-                            .ownerDisplayName(ownerDisplayName)
-                            .name(metadata.getName())
-                            .description(metadata.getDescription())
-                            .imageUrl(metadata.getImage())
-                            .attributes(metadata.getAttributes())
-                            .mintTime(metadata.getMintTime())
-                            .minter(metadata.getMinter())
-                            .build();
-                    
-                    log.info("NftInfo构建完成: tokenId={}, ownerDisplayName={}", nftInfo.getTokenId(), nftInfo.getOwnerDisplayName());
-                    nftList.add(nftInfo);
-                } catch (Exception e) {
-                    log.error("Failed to get NFT data for token ID {}: {}", tokenId, e.getMessage(), e);
-                    // 跳过这个NFT，继续处理下一个
-                }
-            }
+            // 一次 batchGetNftMetadata 调用获取整页元数据和所有者，花名用一次 IN 查询解析
+            List<NftQueryResult.NftInfo> nftList = fetchNftPage(candidateIds, size);
+            resolveOwnerDisplayNames(nftList);
             
             log.info("✅ 分页查询完成: Total={}, Page={}, PageSize={}, ReturnCount={}", 
                     totalCount, page, size, nftList.size());
@@ -836,6 +995,7 @@ public class BlockchainService {
                     .address("all")
                     .nfts(nftList)
                     .totalCount(totalCount)
+                    .nextCursor(nextNftCursor(nftList, candidateIds, size, BigInteger.ONE))
                     .build();
                     
         } catch (Exception e) {
@@ -849,131 +1009,318 @@ public class BlockchainService {
     }
 
     /**
-     * 获取总供应量（公开方法，供其他服务调用）
+     * 全部NFT当前页的候选Token ID（从大到小，最新的在前）
+     * 按页码分页时严格按位置取当前页，缺失的Token不补位（补位的Token会在下一页重复出现）；
+     * 续页模式从游标记录的Token之后开始，多取几页作为跳过缺失Token时的补位
      */
-    public BigInteger getTotalSupply() throws Exception {
+    List<BigInteger> allNftPageCandidates(int totalCount, int page, int size, String cursor) {
+        int startTokenId;
+        int limit;
+        if (cursor == null) {
+            // ✅ 优化：只查询当前页需要的NFT，按时间倒序（最新的在前）
+            startTokenId = totalCount - (page * size); // 从最大的Token ID开始
+            limit = size;
+        } else {
+            startTokenId = PageCursor.isFirstPage(cursor)
+                    ? totalCount
+                    : decodeNftCursor(cursor).min(BigInteger.valueOf(totalCount + 1L)).intValue() - 1;
+            limit = size * MAX_PAGE_FILL_ROUNDS;
+        }
+        
+        log.info("✅ 优化分页查询（倒序）: 从 Token ID {} 开始查询，最多 {} 个", startTokenId, limit);
+        
+        List<BigInteger> candidateIds = new java.util.ArrayList<>();
+        for (int tokenId = startTokenId; tokenId >= 1 && candidateIds.size() < limit; tokenId--) {
+            candidateIds.add(BigInteger.valueOf(tokenId));
+        }
+        return candidateIds;
+    }
+
+    /**
+     * 下一页的续页令牌：记录本页最后使用的Token ID
+     * 整页时为本页最后一个NFT；不足一页时候选ID已全部读过，为最后一个候选ID。
+     * 已读到最早的Token时返回 null。
+     */
+    String nextNftCursor(List<NftQueryResult.NftInfo> nfts, List<BigInteger> candidateIds, int size, BigInteger oldestTokenId) {
+        BigInteger last;
+        if (nfts.size() >= size && !nfts.isEmpty()) {
+            last = new BigInteger(nfts.get(nfts.size() - 1).getTokenId());
+        } else if (!candidateIds.isEmpty()) {
+            last = candidateIds.get(candidateIds.size() - 1);
+        } else {
+            return null;
+        }
+        return last.equals(oldestTokenId) ? null : PageCursor.encode(NFT_CURSOR, last);
+    }
+
+    private static BigInteger decodeNftCursor(String cursor) {
+        String[] fields = PageCursor.decode(cursor, NFT_CURSOR, 1);
+        try {
+            return new BigInteger(fields[0]);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    /**
+     * 按顺序读取一页NFT，不存在的Token被跳过
+     * 不足一页时继续从后续候选ID中补齐（只有续页模式会提供多于一页的候选ID）
+     */
+    private List<NftQueryResult.NftInfo> fetchNftPage(List<BigInteger> candidateIds, int size) throws Exception {
+        List<NftQueryResult.NftInfo> page = new java.util.ArrayList<>();
+        int cursor = 0;
+        while (page.size() < size && cursor < candidateIds.size()) {
+            int want = size - page.size();
+            List<BigInteger> chunk = candidateIds.subList(cursor, Math.min(candidateIds.size(), cursor + want));
+            cursor += chunk.size();
+            page.addAll(batchGetNftMetadata(chunk));
+        }
+        return page;
+    }
+
+    /**
+     * 通过 batchGetNftMetadata 一次读取多个Token的元数据和所有者
+     * 合约对不存在的Token返回零地址所有者，这些Token会被跳过
+     */
+    private List<NftQueryResult.NftInfo> batchGetNftMetadata(List<BigInteger> tokenIds) throws Exception {
+        if (tokenIds.isEmpty()) {
+            return new java.util.ArrayList<>();
+        }
+        
+        List<NftQueryResult.NftInfo> nfts = decodeBatchNftMetadata(tokenIds, readCache.call(batchNftMetadataRequest(tokenIds)));
+        return nfts != null ? nfts : getNftDataPerToken(tokenIds);
+    }
+
+    /**
+     * 构建 batchGetNftMetadata 查询请求
+     */
+    Request<?, EthCall> batchNftMetadataRequest(List<BigInteger> tokenIds) {
+        List<Uint256> ids = new java.util.ArrayList<>(tokenIds.size());
+        for (BigInteger tokenId : tokenIds) {
+            ids.add(new Uint256(tokenId));
+        }
+        
         Function function = new Function(
-                "totalSupply",
-                Collections.emptyList(),
-                Arrays.asList(new TypeReference<Uint256>() {})
+                "batchGetNftMetadata",
+                Arrays.asList(new DynamicArray<>(Uint256.class, ids)),
+                BATCH_NFT_METADATA_OUTPUTS
         );
         
         String encodedFunction = FunctionEncoder.encode(function);
         
-        EthCall response = web3j.ethCall(
+        return web3j.ethCall(
                 new Transaction(accountAddress, null, null, null, nftContractAddress, BigInteger.ZERO, encodedFunction),
                 DefaultBlockParameterName.LATEST
-        ).send();
-        
-        if (response.hasError()) {
-            throw new RuntimeException("Failed to get total supply: " + response.getError().getMessage());
+        );
+    }
+
+    /**
+     * 解析 batchGetNftMetadata 查询结果，不存在的Token被跳过
+     * @return NFT列表；合约不支持批量接口时返回 null，由调用方回退为逐个查询
+     */
+    @SuppressWarnings("unchecked")
+    List<NftQueryResult.NftInfo> decodeBatchNftMetadata(List<BigInteger> tokenIds, EthCall response) {
+        if (response.hasError() || response.getValue() == null || response.getValue().length() <= 2) {
+            log.warn("batchGetNftMetadata unavailable ({}), falling back to per-token queries",
+                    response.hasError() ? response.getError().getMessage() : "empty response");
+            return null;
         }
         
         List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                response.getValue(), function.getOutputParameters()
+                response.getValue(), (List<TypeReference<org.web3j.abi.datatypes.Type>>) (List<?>) BATCH_NFT_METADATA_OUTPUTS
         );
         
-        if (results.isEmpty()) {
-            return BigInteger.ZERO;
+        List<Utf8String> names = ((DynamicArray<Utf8String>) results.get(0)).getValue();
+        List<Utf8String> descriptions = ((DynamicArray<Utf8String>) results.get(1)).getValue();
+        List<Utf8String> imageMetadatas = ((DynamicArray<Utf8String>) results.get(2)).getValue();
+        List<Utf8String> attributesArray = ((DynamicArray<Utf8String>) results.get(3)).getValue();
+        List<Uint256> mintTimes = ((DynamicArray<Uint256>) results.get(4)).getValue();
+        List<Address> minters = ((DynamicArray<Address>) results.get(5)).getValue();
+        List<Address> owners = ((DynamicArray<Address>) results.get(6)).getValue();
+        
+        List<NftQueryResult.NftInfo> nfts = new java.util.ArrayList<>(tokenIds.size());
+        for (int i = 0; i < tokenIds.size(); i++) {
+            String owner = owners.get(i).getValue();
+            if (Numeric.toBigInt(owner).signum() == 0) {
+                log.debug("NFT #{} does not exist, skipped", tokenIds.get(i));
+                continue;
+            }
+            
+            NftQueryResult.NftMetadata metadata = buildNftMetadata(
+                    tokenIds.get(i),
+                    names.get(i).getValue(),
+                    descriptions.get(i).getValue(),
+                    imageMetadatas.get(i).getValue(),
+                    attributesArray.get(i).getValue(),
+                    mintTimes.get(i).getValue(),
+                    minters.get(i).getValue()
+            );
+            nfts.add(toNftInfo(tokenIds.get(i), owner, metadata));
         }
-        
-        return (BigInteger) results.get(0).getValue();
+        return nfts;
     }
-    
+
     /**
-     * 根据钱包地址查询用户花名
+     * 逐个Token查询元数据和所有者（合约不支持批量接口时的回退路径，仍合并为JSON-RPC批量请求）
      */
-    private String getOwnerDisplayName(String ownerAddress) {
-        try {
-            if (ownerAddress == null || ownerAddress.trim().isEmpty()) {
-                log.debug("持有者地址为空，返回匿名用户");
-                return "匿名用户";
+    private List<NftQueryResult.NftInfo> getNftDataPerToken(List<BigInteger> tokenIds) throws Exception {
+        List<Request<?, EthCall>> requests = new java.util.ArrayList<>(tokenIds.size() * 2);
+        for (BigInteger tokenId : tokenIds) {
+            requests.add(nftMetadataRequest(tokenId));
+            requests.add(nftOwnerRequest(tokenId));
+        }
+        List<EthCall> responses = readCache.callAll(requests);
+        
+        List<NftQueryResult.NftInfo> nfts = new java.util.ArrayList<>(tokenIds.size());
+        for (int i = 0; i < tokenIds.size(); i++) {
+            try {
+                NftQueryResult.NftMetadata metadata = decodeNftData(tokenIds.get(i), responses.get(i * 2));
+                String owner = decodeNftOwner(responses.get(i * 2 + 1));
+                nfts.add(toNftInfo(tokenIds.get(i), owner, metadata));
+            } catch (Exception e) {
+                log.warn("Failed to get NFT data for token ID {}: {}", tokenIds.get(i), e.getMessage());
+                // 跳过这个NFT，继续处理下一个
             }
-            
-            // 标准化地址（去掉0x前缀，统一为小写）
-            String normalizedAddress = ownerAddress.toLowerCase();
-            if (normalizedAddress.startsWith("0x")) {
-                normalizedAddress = normalizedAddress.substring(2);
+        }
+        return nfts;
+    }
+
+    NftQueryResult.NftInfo toNftInfo(BigInteger tokenId, String ownerAddress, NftQueryResult.NftMetadata metadata) {
+        return NftQueryResult.NftInfo.builder()
+                .tokenId(tokenId.toString())
+                .ownerAddress(ownerAddress)
+                .name(metadata.getName())
+                .description(metadata.getDescription())
+                .imageUrl(metadata.getImage())
+                .attributes(metadata.getAttributes())
+                .mintTime(metadata.getMintTime())
+                .minter(metadata.getMinter())
+                .build();
+    }
+
+    /**
+     * 批量解析NFT持有者花名（一次 IN 查询）
+     */
+    void resolveOwnerDisplayNames(List<NftQueryResult.NftInfo> nfts) {
+        if (nfts.isEmpty()) {
+            return;
+        }
+        
+        // 数据库中的地址可能带或不带 0x 前缀，两种形式都参与查询
+        java.util.Set<String> keys = new java.util.HashSet<>();
+        for (NftQueryResult.NftInfo nft : nfts) {
+            String normalized = stripHexPrefix(nft.getOwnerAddress());
+            if (normalized != null) {
+                keys.add(normalized);
+                keys.add("0x" + normalized);
             }
-            log.debug("查询持有者花名: 原始地址={}, 标准化地址={}", ownerAddress, normalizedAddress);
-            
-            // 查询用户
-            Optional<com.brokerwallet.entity.UserAccount> userOptional = 
-                    userAccountRepository.findByWalletAddress(normalizedAddress);
-            
-            if (userOptional.isPresent()) {
-                String displayName = userOptional.get().getDisplayName();
-                log.debug("找到用户: 地址={}, 花名={}", normalizedAddress, displayName);
-                return (displayName != null && !displayName.trim().isEmpty()) 
-                        ? displayName : "匿名用户";
+        }
+        
+        java.util.Map<String, String> displayNames = new java.util.HashMap<>();
+        try {
+            for (com.brokerwallet.entity.UserAccount user : userAccountRepository.findByWalletAddressIn(keys)) {
+                String displayName = user.getDisplayName();
+                if (displayName != null && !displayName.trim().isEmpty()) {
+                    displayNames.put(stripHexPrefix(user.getWalletAddress()), displayName);
+                }
             }
-            
-            log.debug("未找到用户: 地址={}", normalizedAddress);
-            return "匿名用户";
         } catch (Exception e) {
-            log.warn("Failed to get display name for address {}: {}", ownerAddress, e.getMessage());
-            return "匿名用户";
+            log.warn("Failed to resolve owner display names: {}", e.getMessage());
+        }
+        
+        for (NftQueryResult.NftInfo nft : nfts) {
+            nft.setOwnerDisplayName(displayNames.getOrDefault(stripHexPrefix(nft.getOwnerAddress()), "匿名用户"));
         }
     }
-    
+
     /**
-     * 获取NFT所有者
+     * 地址转为小写并去掉 0x 前缀
      */
-    private String getNftOwner(BigInteger tokenId) throws Exception {
-        Function function = new Function(
-                "ownerOf",
-                Arrays.asList(new Uint256(tokenId)),
-                Arrays.asList(new TypeReference<Address>() {})
+    private String stripHexPrefix(String address) {
+        if (address == null || address.trim().isEmpty()) {
+            return null;
+        }
+        String normalized = address.trim().toLowerCase();
+        return normalized.startsWith("0x") ? normalized.substring(2) : normalized;
+    }
+
+    /**
+     * 获取总供应量（公开方法，供其他服务调用）
+     */
+    public BigInteger getTotalSupply() throws Exception {
+        return decodeTotalSupply(readCache.call(totalSupplyRequest()));
+    }
+
+    /**
+     * 构建 totalSupply 查询请求
+     */
+    Request<?, EthCall> totalSupplyRequest() {
+        return web3j.ethCall(
+                new Transaction(accountAddress, null, null, null, nftContractAddress, BigInteger.ZERO, ContractCodec.TOTAL_SUPPLY),
+                DefaultBlockParameterName.LATEST
         );
+    }
+
+    /**
+     * 解析 totalSupply 查询结果
+     */
+    BigInteger decodeTotalSupply(EthCall response) {
+        if (response.hasError()) {
+            throw new RuntimeException("Failed to get total supply: " + response.getError().getMessage());
+        }
         
-        String encodedFunction = FunctionEncoder.encode(function);
+        if (ContractCodec.wordCount(response.getValue()) < 1) {
+            return BigInteger.ZERO;
+        }
         
-        EthCall response = web3j.ethCall(
+        return ContractCodec.decodeUint256(response.getValue(), 0);
+    }
+    
+    /**
+     * 构建 ownerOf 查询请求
+     */
+    Request<?, EthCall> nftOwnerRequest(BigInteger tokenId) {
+        String encodedFunction = ContractCodec.encodeUint256Call(ContractCodec.OWNER_OF, tokenId);
+        
+        return web3j.ethCall(
                 new Transaction(accountAddress, null, null, null, nftContractAddress, BigInteger.ZERO, encodedFunction),
                 DefaultBlockParameterName.LATEST
-        ).send();
-        
+        );
+    }
+
+    /**
+     * 解析 ownerOf 查询结果
+     */
+    String decodeNftOwner(EthCall response) {
         if (response.hasError()) {
             return "unknown";
         }
         
-        List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                response.getValue(), function.getOutputParameters()
-        );
-        
-        if (results.isEmpty()) {
+        if (ContractCodec.wordCount(response.getValue()) < 1) {
             return "unknown";
         }
         
-        return results.get(0).getValue().toString();
+        return ContractCodec.decodeAddress(response.getValue(), 0);
     }
 
     /**
-     * 获取NFT元数据（适配新合约OptimizedNftMinter）
+     * 构建 getNftMetadata 查询请求（适配新合约OptimizedNftMinter）
      */
-    private NftQueryResult.NftMetadata getNftData(BigInteger tokenId) throws Exception {
+    Request<?, EthCall> nftMetadataRequest(BigInteger tokenId) {
         // 新合约使用 getNftMetadata 方法，返回更多字段
-        Function function = new Function(
-                "getNftMetadata",  // 新合约的方法名
-                Arrays.asList(new Uint256(tokenId)),
-                Arrays.asList(
-                        new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}, // name
-                        new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}, // description
-                        new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}, // imageMetadata（新：图片元数据JSON）
-                        new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}, // attributes
-                        new TypeReference<Uint256>() {},                             // mintTime（新）
-                        new TypeReference<Address>() {},                             // minter（新）
-                        new TypeReference<Address>() {}                              // owner（新）
-                )
-        );
-        
-        String encodedFunction = FunctionEncoder.encode(function);
+        String encodedFunction = ContractCodec.encodeUint256Call(ContractCodec.GET_NFT_METADATA, tokenId);
         
-        EthCall response = web3j.ethCall(
+        return web3j.ethCall(
                 new Transaction(accountAddress, null, null, null, nftContractAddress, BigInteger.ZERO, encodedFunction),
                 DefaultBlockParameterName.LATEST
-        ).send();
-        
+        );
+    }
+
+    /**
+     * 解析 getNftMetadata 查询结果
+     */
+    @SuppressWarnings("unchecked")
+    NftQueryResult.NftMetadata decodeNftData(BigInteger tokenId, EthCall response) {
         if (response.hasError()) {
             throw new RuntimeException("Failed to get NFT data: " + response.getError().getMessage());
         }
@@ -990,7 +1337,7 @@ public class BlockchainService {
         }
         
         List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                responseValue, function.getOutputParameters()
+                responseValue, (List<TypeReference<org.web3j.abi.datatypes.Type>>) (List<?>) NFT_METADATA_OUTPUTS
         );
         
         log.info("Decoded {} fields from NFT metadata", results.size());
@@ -1013,41 +1360,50 @@ public class BlockchainService {
             log.info("Mint time: {}", mintTime);
             log.info("Minter: {}", minter);
             
-            // 验证NFT数据质量
-            if (name == null || name.trim().isEmpty()) {
-                log.warn("NFT name is empty, using default");
-                name = "NFT #" + tokenId;
-            }
-            
-            if (description == null || description.trim().isEmpty()) {
-                log.warn("NFT description is empty, using default");
-                description = "No description available";
-            }
-            
-            // 构建图片URL（从图片元数据中提取）
-            String imageUrl = buildImageUrl(imageMetadata);
-            log.info("Final image URL: {}", imageUrl);
-            
-            // 格式化铸造时间（Unix时间戳转为可读格式）
-            String formattedMintTime = formatUnixTimestamp(mintTime);
-            
-            return NftQueryResult.NftMetadata.builder()
-                    .name(name)
-                    .description(description)
-                    .image(imageUrl)
-                    .attributes(attributes)  // 直接传递JSON字符串，不解析
-                    .mintTime(formattedMintTime)
-                    .minter(minter)
-                    .build();
+            return buildNftMetadata(tokenId, name, description, imageMetadata, attributes, mintTime, minter);
         }
         
         throw new RuntimeException("NFT data format error");
     }
 
+    /**
+     * 由链上原始字段构建NFT元数据（补全默认值、解析图片URL、格式化时间）
+     */
+    private NftQueryResult.NftMetadata buildNftMetadata(BigInteger tokenId, String name, String description,
+                                                        String imageMetadata, String attributes,
+                                                        BigInteger mintTime, String minter) {
+        // 验证NFT数据质量
+        if (name == null || name.trim().isEmpty()) {
+            log.warn("NFT name is empty, using default");
+            name = "NFT #" + tokenId;
+        }
+        
+        if (description == null || description.trim().isEmpty()) {
+            log.warn("NFT description is empty, using default");
+            description = "No description available";
+        }
+        
+        // 构建图片URL（从图片元数据中提取）
+        String imageUrl = buildImageUrl(imageMetadata);
+        log.debug("Final image URL: {}", imageUrl);
+        
+        // 格式化铸造时间（Unix时间戳转为可读格式）
+        String formattedMintTime = formatUnixTimestamp(mintTime);
+        
+        return NftQueryResult.NftMetadata.builder()
+                .name(name)
+                .description(description)
+                .image(imageUrl)
+                .attributes(attributes)  // 直接传递JSON字符串，不解析
+                .mintTime(formattedMintTime)
+                .minter(minter)
+                .build();
+    }
+
     /**
      * 构建图片URL（处理JSON元数据格式）
      */
-    private String buildImageUrl(String imageMetadata) {
+    String buildImageUrl(String imageMetadata) {
         if (imageMetadata == null || imageMetadata.isEmpty()) {
             log.warn("Image metadata is null or empty");
             return "";
@@ -1060,8 +1416,7 @@ public class BlockchainService {
             if (imageMetadata.startsWith("{") && imageMetadata.contains("storageType")) {
                 try {
                     // 使用Jackson解析JSON
-                    com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                    com.fasterxml.jackson.databind.JsonNode metadata = mapper.readTree(imageMetadata);
+                    com.fasterxml.jackson.databind.JsonNode metadata = METADATA_MAPPER.readTree(imageMetadata);
                     
                     String storageType = metadata.has("storageType") ? metadata.get("storageType").asText() : "";
                     
@@ -1157,7 +1512,7 @@ public class BlockchainService {
     /**
      * 格式化Unix时间戳为可读格式（支持毫秒级和秒级）
      */
-    private String formatUnixTimestamp(BigInteger timestamp) {
+    String formatUnixTimestamp(BigInteger timestamp) {
         try {
             if (timestamp == null || timestamp.equals(BigInteger.ZERO)) {
                 return "";
@@ -1195,34 +1550,24 @@ public class BlockchainService {
     public BigInteger getMintFee() throws Exception {
         log.info("Querying NFT mint fee");
         
-        Function function = new Function(
-                "mintFee",
-                Collections.emptyList(),
-                Arrays.asList(new TypeReference<Uint256>() {})
-        );
-        
-        String encodedFunction = FunctionEncoder.encode(function);
+        String encodedFunction = ContractCodec.MINT_FEE;
         
-        EthCall response = web3j.ethCall(
+        EthCall response = readCache.call(web3j.ethCall(
                 new Transaction(accountAddress, null, null, null, nftContractAddress, BigInteger.ZERO, encodedFunction),
                 DefaultBlockParameterName.LATEST
-        ).send();
+        ));
         
         if (response.hasError()) {
             log.error("Failed to query mint fee: {}", response.getError().getMessage());
             return BigInteger.ZERO;
         }
         
-        List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                response.getValue(), function.getOutputParameters()
-        );
-        
-        if (results.isEmpty()) {
+        if (ContractCodec.wordCount(response.getValue()) < 1) {
             log.warn("No mint fee returned, assuming 0");
             return BigInteger.ZERO;
         }
         
-        BigInteger mintFee = (BigInteger) results.get(0).getValue();
+        BigInteger mintFee = ContractCodec.decodeUint256(response.getValue(), 0);
         log.info("NFT mint fee: {} wei", mintFee);
         return mintFee;
     }
@@ -1235,19 +1580,13 @@ public class BlockchainService {
         log.info("Checking address: {}", address);
         log.info("NFT contract address: {}", nftContractAddress);
         
-        Function function = new Function(
-                "hasMintPermission",
-                Arrays.asList(new Address(address)),
-                Arrays.asList(new TypeReference<org.web3j.abi.datatypes.Bool>() {})
-        );
-        
-        String encodedFunction = FunctionEncoder.encode(function);
+        String encodedFunction = ContractCodec.encodeAddressCall(ContractCodec.HAS_MINT_PERMISSION, address);
         log.info("Encoded function: {}", encodedFunction);
         
-        EthCall response = web3j.ethCall(
+        EthCall response = readCache.call(web3j.ethCall(
                 new Transaction(accountAddress, null, null, null, nftContractAddress, BigInteger.ZERO, encodedFunction),
                 DefaultBlockParameterName.LATEST
-        ).send();
+        ));
         
         if (response.hasError()) {
             log.error("Error checking mint permission: {}", response.getError().getMessage());
@@ -1262,16 +1601,12 @@ public class BlockchainService {
             return false;
         }
         
-        List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                response.getValue(), function.getOutputParameters()
-        );
-        
-        if (results.isEmpty()) {
+        if (ContractCodec.wordCount(value) < 1) {
             log.warn("No decoded values returned from permission check");
             return false;
         }
         
-        boolean hasPermission = (Boolean) results.get(0).getValue();
+        boolean hasPermission = ContractCodec.decodeBool(value, 0);
         log.info("=== Mint Permission Result: {} ===", hasPermission ? "✅ HAS PERMISSION" : "❌ NO PERMISSION");
         
         return hasPermission;
@@ -1292,7 +1627,7 @@ public class BlockchainService {
     /**
      * 从交易收据中解析Token ID（与contract demo一致）
      */
-    private String parseTokenIdFromReceipt(TransactionReceipt receipt) {
+    String parseTokenIdFromReceipt(TransactionReceipt receipt) {
         try {
             if (receipt == null || receipt.getLogs() == null) {
                 log.warn("Transaction receipt is empty or has no logs");
@@ -1342,6 +1677,14 @@ public class BlockchainService {
     public BigInteger getTokenBalance(String address) throws Exception {
         log.info("查询代币余额: {}", address);
         
+        // 调用合约
+        return decodeTokenBalance(readCache.call(tokenBalanceRequest(address)));
+    }
+    
+    /**
+     * 构建 balanceOf 查询请求
+     */
+    Request<?, EthCall> tokenBalanceRequest(String address) {
         // 标准化地址格式
         if (!address.startsWith("0x")) {
             address = "0x" + address;
@@ -1349,20 +1692,18 @@ public class BlockchainService {
         
         // 构建balanceOf函数调用
         // function balanceOf(address account) returns (uint256)
-        Function balanceOfFunction = new Function(
-                "balanceOf",
-                Arrays.asList(new Address(address)),
-                Arrays.asList(new TypeReference<Uint256>() {})
-        );
-        
-        String encodedFunction = FunctionEncoder.encode(balanceOfFunction);
+        String encodedFunction = ContractCodec.encodeAddressCall(ContractCodec.BALANCE_OF, address);
         
-        // 调用合约
-        EthCall response = web3j.ethCall(
+        return web3j.ethCall(
                 Transaction.createEthCallTransaction(address, tokenContractAddress, encodedFunction),
                 DefaultBlockParameterName.LATEST
-        ).send();
-        
+        );
+    }
+    
+    /**
+     * 解析 balanceOf 查询结果
+     */
+    BigInteger decodeTokenBalance(EthCall response) {
         log.info("余额查询响应: hasError={}, value={}", response.hasError(), response.getValue());
         
         if (response.hasError()) {
@@ -1374,17 +1715,11 @@ public class BlockchainService {
         log.info("响应数据长度: {}", responseValue != null ? responseValue.length() : 0);
         
         // 解码结果
-        List<org.web3j.abi.datatypes.Type> results = FunctionReturnDecoder.decode(
-                responseValue, balanceOfFunction.getOutputParameters()
-        );
-        
-        log.info("解码结果数量: {}", results.size());
-        
-        if (results.isEmpty()) {
+        if (ContractCodec.wordCount(responseValue) < 1) {
             throw new RuntimeException("无法解析余额数据 - 响应: " + responseValue);
         }
         
-        BigInteger balance = (BigInteger) results.get(0).getValue();
+        BigInteger balance = ContractCodec.decodeUint256(responseValue, 0);
         log.info("代币余额: {} wei ({} Token)", balance, balance.divide(BigInteger.TEN.pow(18)));
         
         return balance;
@@ -1409,13 +1744,12 @@ public class BlockchainService {
         // 将金额字符串转换为BigInteger
         BigInteger amountInWei = new BigInteger(amount);
         
-        // 获取管理员账户余额
-        BigInteger adminBalance = web3j.ethGetBalance(accountAddress, DefaultBlockParameterName.LATEST)
-                .send().getBalance();
+        // 获取管理员账户余额（链上状态快照，已扣除之后发出交易的预计花费）
+        BigInteger adminBalance = chainStateOracle.getBalance();
         log.info("管理员账户余额: {} wei ({} Token)", adminBalance, adminBalance.divide(BigInteger.TEN.pow(18)));
         
         // 检查余额是否充足（包括gas费用）
-        BigInteger gasPrice = web3j.ethGasPrice().send().getGasPrice();
+        BigInteger gasPrice = chainStateOracle.getGasPrice();
         BigInteger gasLimit = BigInteger.valueOf(21000); // 简单转账的gas limit
         BigInteger totalCost = amountInWei.add(gasPrice.multiply(gasLimit));
         
@@ -1424,42 +1758,31 @@ public class BlockchainService {
                     totalCost, adminBalance));
         }
         
-        // 获取nonce
-        BigInteger nonce;
-        try {
-            EthGetTransactionCount ethGetTransactionCount = web3j.ethGetTransactionCount(
-                    accountAddress, DefaultBlockParameterName.LATEST).send();
-            nonce = ethGetTransactionCount.getTransactionCount();
-            log.info("当前nonce: {}", nonce);
-        } catch (Exception e) {
-            log.warn("获取nonce失败，使用默认值0: {}", e.getMessage());
-            nonce = BigInteger.ZERO;
-        }
-        
         log.info("当前gas price: {} wei", gasPrice);
         
-        // 创建简单的转账交易（BrokerChain要求必须有Data字段，即使是空值）
-        Transaction transaction = Transaction.createFunctionCallTransaction(
-                accountAddress,     // from
-                nonce,              // nonce
-                gasPrice,           // gas price
-                gasLimit,           // gas limit (21000 for simple transfer)
-                toAddress,          // to
-                amountInWei,        // value
-                "0x"                // data (空数据，但必须存在)
-        );
-        
         log.info("交易信息:");
         log.info("From: {}", accountAddress);
         log.info("To: {}", toAddress);
-        log.info("Nonce: {}", nonce);
         log.info("Gas Price: {}", gasPrice);
         log.info("Gas Limit: {}", gasLimit);
         log.info("Value: {} wei ({} Token)", amountInWei, amountInWei.divide(BigInteger.TEN.pow(18)));
         log.info("Data: 0x (empty but required)");
         
-        // 使用 eth_sendTransaction 发送交易（节点会自动签名）
-        EthSendTransaction ethSendTransaction = web3j.ethSendTransaction(transaction).send();
+        // 使用 eth_sendTransaction 发送交易（节点会自动签名），nonce 由 NonceManager 分配
+        final String recipient = toAddress;
+        EthSendTransaction ethSendTransaction = nonceManager.send(nonce -> {
+            log.info("Nonce: {}", nonce);
+            // 创建简单的转账交易（BrokerChain要求必须有Data字段，即使是空值）
+            return Transaction.createFunctionCallTransaction(
+                    accountAddress,     // from
+                    nonce,              // nonce
+                    gasPrice,           // gas price
+                    gasLimit,           // gas limit (21000 for simple transfer)
+                    recipient,          // to
+                    amountInWei,        // value
+                    "0x"                // data (空数据，但必须存在)
+            );
+        });
         
         if (ethSendTransaction.hasError()) {
             log.error("转账失败: {}", ethSendTransaction.getError().getMessage());
@@ -1471,11 +1794,15 @@ public class BlockchainService {
         
         if (txHash != null && !txHash.isEmpty()) {
             log.info("交易已发送，哈希: {}", txHash);
-            
-            // 等待交易确认
-            log.info("等待交易确认: {}", txHash);
-            TransactionReceipt receipt = waitForTransactionReceipt(txHash);
-            log.info("交易已确认！");
+            chainStateOracle.recordSpend(totalCost);
+            
+            // 交由回执跟踪器异步确认，交易哈希作为跟踪ID立即返回
+            receiptTracker.track(txHash)
+                    .thenAccept(receipt -> log.info("转账交易已确认: {} (status={})", txHash, receipt.getStatus()))
+                    .exceptionally(e -> {
+                        log.warn("转账交易未确认: {} - {}", txHash, e.getMessage());
+                        return null;
+                    });
             
             return txHash;
         } else {
@@ -1,17 +1,26 @@
 package com.brokerwallet.service;
 
+import com.brokerwallet.blockchain.ContractReadCache;
+import com.brokerwallet.blockchain.TokenBucket;
 import com.brokerwallet.dto.MedalQueryResult;
+import com.brokerwallet.entity.MedalDistributionTask.TaskStatus;
 import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.repository.MedalDistributionTaskRepository;
 import com.brokerwallet.repository.UserAccountRepository;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.EthCall;
@@ -20,15 +29,28 @@ import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.abi.datatypes.Address;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 区块链数据同步服务
- * 定期同步链上勋章数据到数据库
+ * 提供全量同步与按地址刷新；日常增量同步由 ChainEventIndexer 根据链上事件完成
  */
 @Service
 @RequiredArgsConstructor
@@ -38,15 +60,114 @@ public class BlockchainSyncService {
     private final Web3j web3j;
     private final UserAccountRepository userAccountRepository;
     private final BlockchainService blockchainService;
+    private final ContractReadCache readCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final MedalRankingIndex medalRankingIndex;
+    private final MedalStatsService medalStatsService;
+    private final MedalDistributionTaskRepository taskRepository;
 
     @Value("${blockchain.contracts.medal-contract}")
     private String medalContractAddress;
 
     /**
-     * 自动同步已禁用，改为按需查询
-     * 当用户访问时才查询区块链数据
+     * 全量同步时每批查询的用户数（配置 Multicall 时每批会被打包成少量 eth_call）
+     */
+    @Value("${blockchain.sync.full-sync-batch-size:1000}")
+    private int syncBatchSize;
+
+    /**
+     * 全量同步时同时查询链上的块数
+     */
+    @Value("${blockchain.sync.full-sync-parallelism:4}")
+    private int syncParallelism;
+
+    /**
+     * 全量同步每秒最多查询的地址数
+     */
+    @Value("${blockchain.sync.full-sync-rate:2000}")
+    private double syncRate;
+
+    private static final String SELECT_MEDAL_ROWS =
+            "SELECT id, wallet_address, gold_medals, silver_medals, bronze_medals, total_medals, "
+            + "blockchain_gold_medals, blockchain_silver_medals, blockchain_bronze_medals "
+            + "FROM user_accounts WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_MEDAL_ROW =
+            "UPDATE user_accounts SET gold_medals = ?, silver_medals = ?, bronze_medals = ?, total_medals = ?, "
+            + "blockchain_gold_medals = ?, blockchain_silver_medals = ?, blockchain_bronze_medals = ?, "
+            + "blockchain_sync_time = ?, update_time = ? WHERE id = ?";
+
+    /**
+     * 勋章发放尚未确认的用户只更新链上镜像列，本地已记账的勋章保持不变
+     */
+    private static final String UPDATE_CHAIN_MEDAL_ROW =
+            "UPDATE user_accounts SET blockchain_gold_medals = ?, blockchain_silver_medals = ?, blockchain_bronze_medals = ?, "
+            + "blockchain_sync_time = ?, update_time = ? WHERE id = ?";
+
+    private static final RowMapper<MedalRow> MEDAL_ROW_MAPPER = (rs, rowNum) -> new MedalRow(rs);
+
+    private final AtomicBoolean reconcileRunning = new AtomicBoolean();
+    private volatile ReconcileProgress reconcileProgress;
+    private TokenBucket syncRateLimiter;
+
+    @PostConstruct
+    public void init() {
+        // 容量为一秒的量，允许一个完整批次立即发出
+        syncRateLimiter = new TokenBucket(syncRate, Math.max(syncRate, syncBatchSize));
+    }
+
+    /**
+     * 按链上地址查找本地用户（数据库中地址可能带或不带 0x 前缀）
+     */
+    public Optional<UserAccount> findUserByChainAddress(String address) {
+        String withoutPrefix = address.startsWith("0x") ? address.substring(2) : address;
+        Optional<UserAccount> user = userAccountRepository.findByWalletAddress(withoutPrefix);
+        if (user.isEmpty()) {
+            user = userAccountRepository.findByWalletAddress("0x" + withoutPrefix);
+        }
+        return user;
+    }
+
+    /**
+     * 勋章发放尚未确认（待发放或已提交）的钱包（小写带0x前缀）
+     * 管理员审批时这些钱包的本地勋章已先行记账、领先于链上，同步时只能更新链上镜像列
+     */
+    public Set<String> openDistributionWallets() {
+        Set<String> wallets = new HashSet<>();
+        for (String address : taskRepository.findDistinctWalletAddressesByStatusIn(
+                EnumSet.of(TaskStatus.PENDING, TaskStatus.SUBMITTED))) {
+            wallets.add(normalizeAddress(address));
+        }
+        return wallets;
+    }
+
+    /**
+     * 统一为小写带0x前缀的地址
+     */
+    static String normalizeAddress(String address) {
+        String lower = address.trim().toLowerCase();
+        return lower.startsWith("0x") ? lower : "0x" + lower;
+    }
+
+    /**
+     * 按链上地址以链上绝对值刷新用户勋章
+     */
+    public void refreshUserByChainAddress(String address) {
+        Optional<UserAccount> user = findUserByChainAddress(address);
+        if (user.isEmpty()) {
+            log.debug("Chain address {} has no local account, skip", address);
+            return;
+        }
+        try {
+            refreshUserMedals(user.get());
+        } catch (Exception e) {
+            log.warn("Failed to refresh medals for {}: {}", address, e.getMessage());
+        }
+    }
+
+    /**
+     * 全量同步（手动触发或建立基线时使用）
      */
-    // @Scheduled(fixedRate = 300000) // 已禁用自动同步
     public void syncBlockchainData() {
         log.info("Starting blockchain data synchronization...");
         
@@ -55,7 +176,7 @@ public class BlockchainSyncService {
             syncGlobalStats();
             
             // 同步用户勋章数据
-            syncUserMedals();
+            syncUserMedals(DefaultBlockParameterName.LATEST);
             
             log.info("Blockchain data synchronization completed");
             
@@ -85,10 +206,10 @@ public class BlockchainSyncService {
             String encodedFunction = FunctionEncoder.encode(function);
             
             // 调用合约
-            EthCall response = web3j.ethCall(
+            EthCall response = readCache.callUncached(web3j.ethCall(
                     Transaction.createEthCallTransaction(null, medalContractAddress, encodedFunction),
                     DefaultBlockParameterName.LATEST
-            ).send();
+            ));
             
             if (response.hasError()) {
                 log.error("Failed to query global statistics: {}", response.getError().getMessage());
@@ -113,52 +234,283 @@ public class BlockchainSyncService {
     }
 
     /**
-     * 同步用户勋章数据
+     * 在指定区块上全量对账（事件索引建立基线用：之后从该区块的下一个区块开始索引事件）
+     * @return 对账完成且没有失败的块时返回 true
      */
-    private void syncUserMedals() {
-        try {
-            log.info("Syncing user medal data...");
+    public boolean reconcileAtBlock(long blockNumber) {
+        return syncUserMedals(DefaultBlockParameter.valueOf(BigInteger.valueOf(blockNumber)));
+    }
+
+    /**
+     * 同步用户勋章数据：按主键 keyset 分块流式读取用户，并发查询链上数据（受令牌桶限速），
+     * 只把与链上不一致的行通过 JDBC 批量更新写回
+     * @param block 读取链上数据的区块（全部块读取同一区块，结果是该区块上的一致快照）
+     * @return 对账完成且没有失败的块时返回 true
+     */
+    private boolean syncUserMedals(DefaultBlockParameter block) {
+        if (!reconcileRunning.compareAndSet(false, true)) {
+            log.warn("User medal reconciliation already running, skip");
+            return false;
+        }
             
-            // 获取所有用户账户
-            List<UserAccount> users = userAccountRepository.findAll();
+        ReconcileProgress progress = new ReconcileProgress(userAccountRepository.count());
+        reconcileProgress = progress;
+        ExecutorService pool = Executors.newFixedThreadPool(syncParallelism, reconcileThreadFactory());
+        // 读取领先于链上查询的块数有上限，内存中最多同时持有这么多块
+        Semaphore window = new Semaphore(syncParallelism * 2);
+        try {
+            log.info("Syncing user medal data at block {} (keyset chunks of {}, parallelism {}, {} addresses/s)...",
+                    block.getValue(), syncBatchSize, syncParallelism, syncRate);
+
+            long lastId = 0;
+            while (true) {
+                List<MedalRow> chunk = jdbcTemplate.query(SELECT_MEDAL_ROWS, MEDAL_ROW_MAPPER, lastId, syncBatchSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                lastId = chunk.get(chunk.size() - 1).id;
             
-            int syncedCount = 0;
-            for (UserAccount user : users) {
-                try {
-                    // 查询用户的链上勋章数据
-                    MedalQueryResult medalResult = blockchainService.queryUserMedals(user.getWalletAddress());
+                window.acquire();
+                pool.execute(() -> {
+                    try {
+                        reconcileChunk(chunk, block, progress);
+                    } finally {
+                        window.release();
+                    }
+                });
+            }
                     
-                    // 更新数据库中的勋章数据
-                    user.setGoldMedals(medalResult.getMedals().getGold());
-                    user.setSilverMedals(medalResult.getMedals().getSilver());
-                    user.setBronzeMedals(medalResult.getMedals().getBronze());
-                    user.setTotalMedals(medalResult.getMedals().getTotal());
+            // 等待所有在途块完成
+            window.acquire(syncParallelism * 2);
+            window.release(syncParallelism * 2);
                     
-                    // 同时更新区块链同步勋章信息
-                    user.setBlockchainGoldMedals(medalResult.getMedals().getGold());
-                    user.setBlockchainSilverMedals(medalResult.getMedals().getSilver());
-                    user.setBlockchainBronzeMedals(medalResult.getMedals().getBronze());
-                    user.setBlockchainSyncTime(LocalDateTime.now());
+            log.info("User medal data sync completed - processed: {}, updated: {}, failed: {}, elapsed: {}ms",
+                    progress.processed.sum(), progress.updated.sum(), progress.failed.sum(), progress.elapsedMillis());
                     
-                    userAccountRepository.save(user);
-                    syncedCount++;
+            // 批量更新绕过了实体监听器，排行榜索引整体重建、勋章统计重新校验
+            if (progress.updated.sum() > 0) {
+                medalRankingIndex.rebuild();
+                medalStatsService.verify();
+            }
+            return progress.failed.sum() == 0;
                     
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("User medal data sync interrupted");
+            return false;
+        } catch (Exception e) {
+            log.error("User medal data sync failed", e);
+            return false;
+        } finally {
+            pool.shutdownNow();
+            progress.finish();
+            reconcileRunning.set(false);
+        }
+    }
+
+    /**
+     * 对账一块用户：限速后批量查询链上勋章，差异行批量写回
+     */
+    private void reconcileChunk(List<MedalRow> chunk, DefaultBlockParameter block, ReconcileProgress progress) {
+        List<String> addresses = new java.util.ArrayList<>(chunk.size());
+        for (MedalRow row : chunk) {
+            addresses.add(row.walletAddress);
+        }
+
+        try {
+            syncRateLimiter.acquire(chunk.size());
+            List<MedalQueryResult> results = blockchainService.queryUserMedalsBatch(addresses, block);
+            // 读取链上之后再取发放未确认的钱包，缩小与管理员审批并发的窗口
+            Set<String> openWallets = openDistributionWallets();
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> updates = new java.util.ArrayList<>();
+            List<Object[]> chainOnlyUpdates = new java.util.ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                MedalRow row = chunk.get(i);
+                MedalQueryResult.Medals medals = results.get(i).getMedals();
+                if (openWallets.contains(normalizeAddress(row.walletAddress))) {
+                    if (!row.chainMatches(medals)) {
+                        chainOnlyUpdates.add(new Object[]{
+                                medals.getGold(), medals.getSilver(), medals.getBronze(), now, now, row.id});
+                    }
+                } else if (!row.matches(medals)) {
+                    updates.add(new Object[]{
+                            medals.getGold(), medals.getSilver(), medals.getBronze(), medals.getTotal(),
+                            medals.getGold(), medals.getSilver(), medals.getBronze(),
+                            now, now, row.id});
                     log.debug("Syncing user {} medal data - Gold: {}, Silver: {}, Bronze: {}", 
-                            user.getWalletAddress(), 
-                            medalResult.getMedals().getGold(),
-                            medalResult.getMedals().getSilver(),
-                            medalResult.getMedals().getBronze());
-                    
-                } catch (Exception e) {
-                    log.warn("Failed to sync user {} medal data: {}", user.getWalletAddress(), e.getMessage());
+                            row.walletAddress, medals.getGold(), medals.getSilver(), medals.getBronze());
                 }
             }
-            
-            log.info("User medal data sync completed, synced {} users", syncedCount);
-            
+                    
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_MEDAL_ROW, updates);
+            }
+            if (!chainOnlyUpdates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_CHAIN_MEDAL_ROW, chainOnlyUpdates);
+            }
+            progress.updated.add(updates.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.failed.add(chunk.size());
         } catch (Exception e) {
-            log.error("User medal data sync failed", e);
+            log.warn("Failed to sync medal chunk starting at user id {}: {}", chunk.get(0).id, e.getMessage());
+            progress.failed.add(chunk.size());
+        } finally {
+            progress.processed.add(chunk.size());
+        }
+    }
+
+
+    /**
+     * 全量对账进度：已处理数、写回数、吞吐量与预计剩余时间
+     */
+    public Map<String, Object> getSyncProgress() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        ReconcileProgress progress = reconcileProgress;
+        data.put("running", reconcileRunning.get());
+        data.put("parallelism", syncParallelism);
+        data.put("batchSize", syncBatchSize);
+        data.put("rateLimiter", syncRateLimiter.getStats());
+        if (progress == null) {
+            return data;
+        }
+            
+        long processed = progress.processed.sum();
+        long elapsedMillis = progress.elapsedMillis();
+        double throughput = elapsedMillis > 0 ? processed * 1000d / elapsedMillis : 0;
+        long remaining = Math.max(0, progress.total - processed);
+
+        data.put("startTime", progress.startTime.toString());
+        data.put("finishTime", progress.finishTime != null ? progress.finishTime.toString() : null);
+        data.put("totalUsers", progress.total);
+        data.put("processed", processed);
+        data.put("updated", progress.updated.sum());
+        data.put("failed", progress.failed.sum());
+        data.put("percent", progress.total > 0 ? Math.min(100d, processed * 100d / progress.total) : 100d);
+        data.put("elapsedMs", elapsedMillis);
+        data.put("usersPerSecond", Math.round(throughput * 10) / 10d);
+        data.put("etaSeconds", progress.finishTime == null && throughput > 0 ? Math.round(remaining / throughput) : null);
+        return data;
+    }
+
+    private static ThreadFactory reconcileThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "MedalReconcile-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 对账所需的用户勋章列
+     */
+    private static final class MedalRow {
+        private final long id;
+        private final String walletAddress;
+        private final int gold;
+        private final int silver;
+        private final int bronze;
+        private final int total;
+        private final int chainGold;
+        private final int chainSilver;
+        private final int chainBronze;
+
+        private MedalRow(ResultSet rs) throws SQLException {
+            this.id = rs.getLong("id");
+            this.walletAddress = rs.getString("wallet_address");
+            this.gold = rs.getInt("gold_medals");
+            this.silver = rs.getInt("silver_medals");
+            this.bronze = rs.getInt("bronze_medals");
+            this.total = rs.getInt("total_medals");
+            this.chainGold = rs.getInt("blockchain_gold_medals");
+            this.chainSilver = rs.getInt("blockchain_silver_medals");
+            this.chainBronze = rs.getInt("blockchain_bronze_medals");
+        }
+
+        /**
+         * 本地数据与链上一致时无需写回
+         */
+        private boolean matches(MedalQueryResult.Medals medals) {
+            return gold == medals.getGold() && silver == medals.getSilver() && bronze == medals.getBronze()
+                    && total == medals.getTotal() && chainMatches(medals);
+        }
+
+        private boolean chainMatches(MedalQueryResult.Medals medals) {
+            return chainGold == medals.getGold() && chainSilver == medals.getSilver() && chainBronze == medals.getBronze();
+        }
+    }
+
+    /**
+     * 单次全量对账的进度计数
+     */
+    private static final class ReconcileProgress {
+        private final long total;
+        private final LocalDateTime startTime = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder updated = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile LocalDateTime finishTime;
+        private volatile long finishNanos;
+
+        private ReconcileProgress(long total) {
+            this.total = total;
+        }
+
+        private void finish() {
+            finishNanos = System.nanoTime();
+            finishTime = LocalDateTime.now();
         }
+
+        private long elapsedMillis() {
+            long end = finishTime != null ? finishNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        }
+    }
+
+    /**
+     * 从链上读取并写回单个用户的勋章数据
+     */
+    private void refreshUserMedals(UserAccount user) throws Exception {
+        // 查询用户的链上勋章数据
+        applyChainMedals(user, blockchainService.queryUserMedals(user.getWalletAddress()));
+    }
+
+    /**
+     * 将链上勋章数据写回用户（本地数据与链上一致时跳过写库），返回是否写回
+     */
+    public boolean applyChainMedals(UserAccount user, MedalQueryResult medalResult) {
+        MedalQueryResult.Medals medals = medalResult.getMedals();
+        if (user.getGoldMedals() == medals.getGold()
+                && user.getSilverMedals() == medals.getSilver()
+                && user.getBronzeMedals() == medals.getBronze()
+                && user.getTotalMedals() == medals.getTotal()
+                && user.getBlockchainGoldMedals() == medals.getGold()
+                && user.getBlockchainSilverMedals() == medals.getSilver()
+                && user.getBlockchainBronzeMedals() == medals.getBronze()) {
+            return false;
+        }
+
+        // 更新数据库中的勋章数据
+        user.setGoldMedals(medals.getGold());
+        user.setSilverMedals(medals.getSilver());
+        user.setBronzeMedals(medals.getBronze());
+        user.setTotalMedals(medals.getTotal());
+
+        // 同时更新区块链同步勋章信息
+        user.setBlockchainGoldMedals(medals.getGold());
+        user.setBlockchainSilverMedals(medals.getSilver());
+        user.setBlockchainBronzeMedals(medals.getBronze());
+        user.setBlockchainSyncTime(LocalDateTime.now());
+
+        userAccountRepository.save(user);
+
+        log.debug("Syncing user {} medal data - Gold: {}, Silver: {}, Bronze: {}",
+                user.getWalletAddress(), medals.getGold(), medals.getSilver(), medals.getBronze());
+        return true;
     }
 
     /**
@@ -179,13 +531,35 @@ public class BlockchainSyncService {
             // 查询链上数据
             MedalQueryResult medalResult = blockchainService.queryUserMedals(walletAddress);
             
+            applyUserMedals(walletAddress, medalResult);
+
+        } catch (Exception e) {
+            log.error("Failed to sync medal data for user {}", walletAddress, e);
+        }
+    }
+
+    /**
+     * 将已查询到的链上勋章数据写入数据库（数据未变化时跳过写库）
+     */
+    public void applyUserMedals(String walletAddress, MedalQueryResult medalResult) {
+        try {
             // 更新数据库
             UserAccount user = userAccountRepository.findByWalletAddress(walletAddress).orElse(null);
             if (user != null) {
-                user.setGoldMedals(medalResult.getMedals().getGold());
-                user.setSilverMedals(medalResult.getMedals().getSilver());
-                user.setBronzeMedals(medalResult.getMedals().getBronze());
-                user.setTotalMedals(medalResult.getMedals().getTotal());
+                MedalQueryResult.Medals medals = medalResult.getMedals();
+                if (user.getGoldMedals() == medals.getGold()
+                        && user.getSilverMedals() == medals.getSilver()
+                        && user.getBronzeMedals() == medals.getBronze()
+                        && user.getTotalMedals() == medals.getTotal()) {
+                    // 数据未变化，跳过写库
+                    log.debug("Medal data unchanged for user {}", walletAddress);
+                    return;
+                }
+
+                user.setGoldMedals(medals.getGold());
+                user.setSilverMedals(medals.getSilver());
+                user.setBronzeMedals(medals.getBronze());
+                user.setTotalMedals(medals.getTotal());
                 
                 userAccountRepository.save(user);
                 
@@ -193,7 +567,6 @@ public class BlockchainSyncService {
             } else {
                 log.warn("User not found with wallet address {}", walletAddress);
             }
-            
         } catch (Exception e) {
             log.error("Failed to sync medal data for user {}", walletAddress, e);
         }
@@ -0,0 +1,321 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.ContractEvents;
+import com.brokerwallet.dto.MedalQueryResult;
+import com.brokerwallet.entity.NftImage;
+import com.brokerwallet.entity.SyncCheckpoint;
+import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.event.NewBlockEvent;
+import com.brokerwallet.repository.NftImageRepository;
+import com.brokerwallet.repository.SyncCheckpointRepository;
+import com.brokerwallet.repository.UserAccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 链上事件索引服务
+ * 按区块区间拉取 MedalsDistributed / NftMinted 日志，确定区间内涉及的用户，
+ * 在区间最后一个区块上重新读取这些用户的链上绝对值写入 UserAccount，并回填 NftImage。
+ * 写入的是指定区块上的绝对值而不是事件增量：与按 LATEST 刷新的对账/单用户同步并发时不会重复累加，
+ * 最坏情况只是暂时写回稍旧的值，由后续区间的事件再次纠正。
+ * 每个区间的写入与检查点在同一事务中提交，重启后从检查点继续。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChainEventIndexer {
+
+    /**
+     * 事件索引检查点名称
+     */
+    static final String CHECKPOINT_NAME = "event-indexer";
+
+    private final Web3j web3j;
+    private final UserAccountRepository userAccountRepository;
+    private final NftImageRepository nftImageRepository;
+    private final SyncCheckpointRepository syncCheckpointRepository;
+    private final BlockchainSyncService blockchainSyncService;
+    private final BlockchainService blockchainService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${blockchain.contracts.medal-contract}")
+    private String medalContractAddress;
+
+    @Value("${blockchain.contracts.nft-contract}")
+    private String nftContractAddress;
+
+    /**
+     * 单次 eth_getLogs 查询的最大区块跨度
+     */
+    @Value("${blockchain.sync.max-block-range:2000}")
+    private long maxBlockRange;
+
+    /**
+     * 确认区块数（只索引 head - confirmations 之前的区块）
+     */
+    @Value("${blockchain.sync.confirmations:0}")
+    private long confirmations;
+
+    /**
+     * 防止索引任务重入
+     */
+    private final AtomicBoolean indexing = new AtomicBoolean(false);
+
+    /**
+     * 链头前进时触发增量索引（在 chainEventExecutor 上执行，不占用调度线程）
+     */
+    @Async("chainEventExecutor")
+    @EventListener
+    public void onNewBlock(NewBlockEvent event) {
+        if (!indexing.compareAndSet(false, true)) {
+            log.debug("Event indexer already running, skip block {}", event.getBlockNumber());
+            return;
+        }
+        try {
+            indexTo(event.getBlockNumber() - confirmations);
+        } catch (Exception e) {
+            log.error("Event indexing to block {} failed", event.getBlockNumber(), e);
+        } finally {
+            indexing.set(false);
+        }
+    }
+
+    /**
+     * 索引到指定区块
+     */
+    void indexTo(long target) throws Exception {
+        if (target < 0) {
+            return;
+        }
+
+        Optional<SyncCheckpoint> checkpointOpt = syncCheckpointRepository.findById(CHECKPOINT_NAME);
+        if (checkpointOpt.isEmpty()) {
+            runBaseline(target);
+            return;
+        }
+
+        long fromBlock = checkpointOpt.get().getLastBlock() + 1;
+        for (long start = fromBlock; start <= target; start += maxBlockRange) {
+            long end = Math.min(target, start + maxBlockRange - 1);
+            List<Log> logs = fetchLogs(start, end);
+            applyRange(logs, end);
+            if (!logs.isEmpty()) {
+                log.info("Indexed blocks {}-{}: {} events", start, end, logs.size());
+            }
+        }
+    }
+
+    /**
+     * 首次运行：在目标区块上全量对账建立基线，检查点恰好记为该区块，之后的事件从下一个区块开始索引
+     * 对账未完整完成时不写检查点，下一个区块再重试
+     */
+    private void runBaseline(long target) {
+        log.info("No event indexer checkpoint found, building baseline at block {}", target);
+        if (!blockchainSyncService.reconcileAtBlock(target)) {
+            log.warn("Baseline reconciliation at block {} incomplete, will retry", target);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> saveCheckpoint(new SyncCheckpoint(CHECKPOINT_NAME, target)));
+        log.info("Event indexer baseline established at block {}", target);
+    }
+
+    /**
+     * 拉取两个合约在区块区间内的相关日志（按区块和日志序号排序）
+     */
+    private List<Log> fetchLogs(long fromBlock, long toBlock) throws Exception {
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(fromBlock)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(toBlock)),
+                Arrays.asList(medalContractAddress, nftContractAddress)
+        );
+        filter.addOptionalTopics(ContractEvents.MEDALS_DISTRIBUTED_TOPIC, ContractEvents.NFT_MINTED_TOPIC);
+
+        EthLog ethLog = web3j.ethGetLogs(filter).send();
+        if (ethLog.hasError()) {
+            throw new RuntimeException("eth_getLogs failed: " + ethLog.getError().getMessage());
+        }
+
+        List<Log> logs = new ArrayList<>();
+        for (EthLog.LogResult<?> result : ethLog.getLogs()) {
+            Log logEntry = (Log) result.get();
+            if (!logEntry.isRemoved()) {
+                logs.add(logEntry);
+            }
+        }
+        logs.sort(Comparator.comparing(Log::getBlockNumber).thenComparing(Log::getLogIndex));
+        return logs;
+    }
+
+    /**
+     * 在区间最后一个区块上读取涉及用户的链上绝对值，与 NFT 回填、检查点在同一事务中提交
+     */
+    private void applyRange(List<Log> logs, long endBlock) throws Exception {
+        Set<String> medalRecipients = new LinkedHashSet<>();
+        Set<String> nftOwners = new LinkedHashSet<>();
+        List<ContractEvents.NftMinted> mints = new ArrayList<>();
+        for (Log logEntry : logs) {
+            if (ContractEvents.isEvent(logEntry, ContractEvents.MEDALS_DISTRIBUTED_TOPIC)) {
+                ContractEvents.MedalsDistributed event = ContractEvents.decodeMedalsDistributed(logEntry);
+                medalRecipients.add(event.getTo());
+                log.debug("MedalsDistributed to {} (+{}/+{}/+{}) tx {}", event.getTo(),
+                        event.getGold(), event.getSilver(), event.getBronze(), event.getTransactionHash());
+            } else if (ContractEvents.isEvent(logEntry, ContractEvents.NFT_MINTED_TOPIC)) {
+                ContractEvents.NftMinted event = ContractEvents.decodeNftMinted(logEntry);
+                nftOwners.add(event.getOwner());
+                mints.add(event);
+            }
+        }
+
+        // 链上读取放在事务之外，避免长时间持有数据库连接
+        DefaultBlockParameter block = DefaultBlockParameter.valueOf(BigInteger.valueOf(endBlock));
+        List<String> recipients = new ArrayList<>(medalRecipients);
+        List<MedalQueryResult> medals = recipients.isEmpty()
+                ? List.of() : blockchainService.queryUserMedalsBatch(recipients, block);
+        List<String> owners = new ArrayList<>(nftOwners);
+        List<Long> nftCounts = owners.isEmpty()
+                ? List.of() : blockchainService.queryUserNftCountsBatch(owners, block);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            SyncCheckpoint checkpoint = syncCheckpointRepository.findById(CHECKPOINT_NAME)
+                    .orElseGet(() -> new SyncCheckpoint(CHECKPOINT_NAME, endBlock));
+            if (checkpoint.getLastBlock() >= endBlock) {
+                // 已被其他实例或上一次运行处理过
+                return;
+            }
+
+            Map<String, Optional<UserAccount>> users = new HashMap<>();
+            Set<UserAccount> changed = new LinkedHashSet<>();
+            Set<String> openWallets = recipients.isEmpty() ? Set.of() : blockchainSyncService.openDistributionWallets();
+            for (int i = 0; i < recipients.size(); i++) {
+                Optional<UserAccount> userOpt = users.computeIfAbsent(recipients.get(i), this::findUserByChainAddress);
+                if (userOpt.isEmpty()) {
+                    log.debug("Medal recipient {} has no local account, skip", recipients.get(i));
+                } else if (applyMedals(userOpt.get(), medals.get(i).getMedals(),
+                        openWallets.contains(BlockchainSyncService.normalizeAddress(recipients.get(i))))) {
+                    changed.add(userOpt.get());
+                }
+            }
+            for (int i = 0; i < owners.size(); i++) {
+                Optional<UserAccount> userOpt = users.computeIfAbsent(owners.get(i), this::findUserByChainAddress);
+                int count = nftCounts.get(i).intValue();
+                if (userOpt.isPresent() && !Integer.valueOf(count).equals(userOpt.get().getTotalNfts())) {
+                    userOpt.get().setTotalNfts(count);
+                    changed.add(userOpt.get());
+                }
+            }
+            changed.forEach(userAccountRepository::save);
+            mints.forEach(this::applyNftMinted);
+
+            checkpoint.setLastBlock(endBlock);
+            saveCheckpoint(checkpoint);
+        });
+    }
+
+    /**
+     * 以区块上的勋章绝对值同时更新链上镜像计数和展示值，返回是否有变化
+     * 勋章发放尚未确认的钱包本地已先行记账，只更新链上镜像计数，展示值留到发放确认后由增量同步写回
+     */
+    private boolean applyMedals(UserAccount user, MedalQueryResult.Medals medals, boolean openDistribution) {
+        boolean chainMatches = user.getBlockchainGoldMedals() == medals.getGold()
+                && user.getBlockchainSilverMedals() == medals.getSilver()
+                && user.getBlockchainBronzeMedals() == medals.getBronze();
+        if (openDistribution) {
+            if (chainMatches) {
+                return false;
+            }
+            user.setBlockchainGoldMedals(medals.getGold());
+            user.setBlockchainSilverMedals(medals.getSilver());
+            user.setBlockchainBronzeMedals(medals.getBronze());
+            user.setBlockchainSyncTime(LocalDateTime.now());
+            return true;
+        }
+        if (chainMatches
+                && user.getGoldMedals() == medals.getGold()
+                && user.getSilverMedals() == medals.getSilver()
+                && user.getBronzeMedals() == medals.getBronze()
+                && user.getTotalMedals() == medals.getTotal()) {
+            return false;
+        }
+        user.setBlockchainGoldMedals(medals.getGold());
+        user.setBlockchainSilverMedals(medals.getSilver());
+        user.setBlockchainBronzeMedals(medals.getBronze());
+        user.setGoldMedals(medals.getGold());
+        user.setSilverMedals(medals.getSilver());
+        user.setBronzeMedals(medals.getBronze());
+        user.setTotalMedals(medals.getTotal());
+        user.setBlockchainSyncTime(LocalDateTime.now());
+        return true;
+    }
+
+    /**
+     * NFT铸造：回填铸造记录的 tokenId / 交易哈希（用户NFT数量已按区块绝对值写入）
+     */
+    private void applyNftMinted(ContractEvents.NftMinted event) {
+        String tokenId = event.getTokenId().toString();
+
+        Optional<NftImage> imageOpt = nftImageRepository.findByTokenId(tokenId);
+        if (imageOpt.isEmpty()) {
+            // 批量铸造的多条记录共享交易哈希，按接收地址匹配尚未回写 tokenId 的记录
+            imageOpt = nftImageRepository.findByTransactionHash(event.getTransactionHash()).stream()
+                    .filter(image -> image.getTokenId() == null)
+                    .filter(image -> image.getMintOwnerAddress() == null
+                            || image.getMintOwnerAddress().equalsIgnoreCase(event.getOwner()))
+                    .findFirst();
+        }
+        imageOpt.ifPresent(image -> {
+            if (image.getMintStatus() != NftImage.MintStatus.SUCCESS || image.getTokenId() == null) {
+                image.setTokenId(tokenId);
+                image.setTransactionHash(event.getTransactionHash());
+                image.setMintStatus(NftImage.MintStatus.SUCCESS);
+                nftImageRepository.save(image);
+            }
+        });
+
+        log.debug("NftMinted token {} owner {} tx {}", tokenId, event.getOwner(), event.getTransactionHash());
+    }
+
+    /**
+     * 按链上地址查找本地用户（数据库中地址可能带或不带 0x 前缀）
+     */
+    private Optional<UserAccount> findUserByChainAddress(String address) {
+        return blockchainSyncService.findUserByChainAddress(address);
+    }
+
+    private void saveCheckpoint(SyncCheckpoint checkpoint) {
+        checkpoint.setUpdateTime(LocalDateTime.now());
+        syncCheckpointRepository.save(checkpoint);
+    }
+
+    /**
+     * 获取当前索引检查点（未建立时返回 -1）
+     */
+    public long getCheckpoint() {
+        return syncCheckpointRepository.findById(CHECKPOINT_NAME)
+                .map(SyncCheckpoint::getLastBlock)
+                .orElse(-1L);
+    }
+}
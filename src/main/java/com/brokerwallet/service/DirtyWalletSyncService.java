@@ -0,0 +1,186 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.dto.MedalQueryResult;
+import com.brokerwallet.entity.SyncDirtyWallet;
+import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.repository.SyncDirtyWalletRepository;
+import com.brokerwallet.repository.UserAccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 待同步钱包增量同步服务
+ * 审核通过、代币转账、NFT铸造和勋章发放确认时把钱包写入持久化的待同步集合（同一钱包去重），
+ * 调度器定期取出这些钱包，连同本地与链上缓存不一致的用户（findUsersNeedingSync）一起批量读取链上勋章，
+ * 每轮开销与变化量成正比，不再需要全表扫描。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DirtyWalletSyncService {
+
+    public static final String REASON_ADMIN_APPROVAL = "admin-approval";
+    public static final String REASON_TOKEN_TRANSFER = "token-transfer";
+    public static final String REASON_NFT_MINT = "nft-mint";
+    public static final String REASON_MEDAL_DISTRIBUTION = "medal-distribution";
+
+    private final SyncDirtyWalletRepository dirtyWalletRepository;
+    private final UserAccountRepository userAccountRepository;
+    private final BlockchainService blockchainService;
+    private final BlockchainSyncService blockchainSyncService;
+
+    @Value("${blockchain.sync.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每轮最多取出的待同步钱包数，同时也是单次链上批量查询的地址数
+     */
+    @Value("${blockchain.sync.dirty-batch-size:500}")
+    private int batchSize;
+
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    private final AtomicLong walletsMarked = new AtomicLong();
+    private final AtomicLong walletsSynced = new AtomicLong();
+    private final AtomicLong usersUpdated = new AtomicLong();
+    private final AtomicLong deferredByOpenTasks = new AtomicLong();
+    private final AtomicLong lastDrainMillis = new AtomicLong();
+    private final AtomicLong lastDrainSize = new AtomicLong();
+
+    /**
+     * 标记钱包待同步（失败只记录日志，不影响调用方的业务流程）
+     */
+    public void markDirty(String walletAddress, String reason) {
+        if (walletAddress == null || walletAddress.isBlank()) {
+            return;
+        }
+        try {
+            dirtyWalletRepository.upsert(normalize(walletAddress), reason, LocalDateTime.now());
+            walletsMarked.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("Failed to mark wallet {} dirty ({}): {}", walletAddress, reason, e.getMessage());
+        }
+    }
+
+    /**
+     * 定期处理待同步钱包与数据不一致的用户
+     */
+    @Scheduled(fixedDelayString = "${blockchain.sync.dirty-interval-ms:10000}",
+            initialDelayString = "${blockchain.sync.initial-delay-ms:5000}")
+    public void drain() {
+        if (!enabled || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            List<SyncDirtyWallet> dirty = dirtyWalletRepository.findByOrderByUpdateTimeAsc(PageRequest.of(0, batchSize));
+            List<UserAccount> mismatched = userAccountRepository.findUsersNeedingSync(UserAccount.AccountStatus.ACTIVE);
+            if (dirty.isEmpty() && mismatched.isEmpty()) {
+                return;
+            }
+
+            // 勋章发放尚未确认的钱包本地数据领先于链上，留到发放确认后再同步
+            Set<String> openWallets = blockchainSyncService.openDistributionWallets();
+
+            Map<String, UserAccount> users = new LinkedHashMap<>();
+            for (UserAccount user : mismatched) {
+                String key = normalize(user.getWalletAddress());
+                if (!openWallets.contains(key)) {
+                    users.put(key, user);
+                }
+            }
+
+            List<SyncDirtyWallet> completed = new ArrayList<>();
+            Set<String> lookup = new HashSet<>();
+            for (SyncDirtyWallet wallet : dirty) {
+                if (openWallets.contains(wallet.getWalletAddress())) {
+                    deferredByOpenTasks.incrementAndGet();
+                    continue;
+                }
+                completed.add(wallet);
+                if (!users.containsKey(wallet.getWalletAddress())) {
+                    // 数据库中地址可能带或不带 0x 前缀
+                    lookup.add(wallet.getWalletAddress());
+                    lookup.add(wallet.getWalletAddress().substring(2));
+                }
+            }
+            if (!lookup.isEmpty()) {
+                for (UserAccount user : userAccountRepository.findByWalletAddressIn(lookup)) {
+                    users.putIfAbsent(normalize(user.getWalletAddress()), user);
+                }
+            }
+
+            List<UserAccount> targets = new ArrayList<>(users.values());
+            for (int start = 0; start < targets.size(); start += batchSize) {
+                syncChunk(targets.subList(start, Math.min(targets.size(), start + batchSize)));
+            }
+
+            // 没有本地账户的钱包同样移出集合；读取之后又被标记的钱包保留到下一轮
+            for (SyncDirtyWallet wallet : completed) {
+                dirtyWalletRepository.deleteIfUnchanged(wallet.getWalletAddress(), wallet.getMarkCount());
+            }
+
+            walletsSynced.addAndGet(targets.size());
+            lastDrainSize.set(targets.size());
+            log.info("Dirty wallet sync: {} dirty, {} mismatched, {} synced, {} deferred",
+                    dirty.size(), mismatched.size(), targets.size(), dirty.size() - completed.size());
+
+        } catch (Exception e) {
+            // 批量查询失败时待同步记录保留，下一轮重试
+            log.error("Dirty wallet sync failed: {}", e.getMessage(), e);
+        } finally {
+            lastDrainMillis.set(System.currentTimeMillis() - started);
+            draining.set(false);
+        }
+    }
+
+    /**
+     * 批量读取链上勋章并写回有变化的用户
+     */
+    private void syncChunk(List<UserAccount> chunk) throws Exception {
+        List<String> addresses = new ArrayList<>(chunk.size());
+        for (UserAccount user : chunk) {
+            addresses.add(user.getWalletAddress());
+        }
+        List<MedalQueryResult> results = blockchainService.queryUserMedalsBatch(addresses);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (blockchainSyncService.applyChainMedals(chunk.get(i), results.get(i))) {
+                usersUpdated.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingWallets", dirtyWalletRepository.count());
+        stats.put("walletsMarked", walletsMarked.get());
+        stats.put("walletsSynced", walletsSynced.get());
+        stats.put("usersUpdated", usersUpdated.get());
+        stats.put("deferredByOpenTasks", deferredByOpenTasks.get());
+        stats.put("lastDrainSize", lastDrainSize.get());
+        stats.put("lastDrainMs", lastDrainMillis.get());
+        return stats;
+    }
+
+    /**
+     * 统一为小写带0x前缀的地址
+     */
+    private static String normalize(String address) {
+        String lower = address.trim().toLowerCase();
+        return lower.startsWith("0x") ? lower : "0x" + lower;
+    }
+}
@@ -0,0 +1,509 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.NonceManager;
+import com.brokerwallet.blockchain.ReceiptTracker;
+import com.brokerwallet.entity.MedalDistributionTask;
+import com.brokerwallet.entity.MedalDistributionTask.TaskStatus;
+import com.brokerwallet.repository.MedalDistributionTaskRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 勋章发放队列
+ * 审核通过后只写入持久化任务，由调度器把同一地址的多次审批合并为一次发放，
+ * 合约部署了 batchDistributeMedals 时多个地址合并为一笔交易，各交易使用连续 nonce 流水线发送，不等待前一笔确认。
+ * 批量交易失败时其中的地址下轮逐个发送，只有真正失败的地址计入重试次数。
+ * 任务在交易发出前以分配到的 nonce 标记为已提交：发送结果不确定（超时、进程崩溃）的任务不会被重新发放，
+ * 而是按 nonce 找回交易后继续跟踪回执，只有 nonce 被确认丢弃时才重新排队。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MedalDistributionQueue {
+
+    private final MedalDistributionTaskRepository taskRepository;
+    private final BlockchainService blockchainService;
+    private final DirtyWalletSyncService dirtyWalletSyncService;
+    private final ReceiptTracker receiptTracker;
+    private final NonceManager nonceManager;
+
+    @Value("${blockchain.medal-queue.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 是否使用合约的 batchDistributeMedals（开启后首次发放前会探测合约是否部署了该方法，未部署时逐地址发送）
+     */
+    @Value("${blockchain.medal-queue.batch-contract-enabled:false}")
+    private boolean batchContractEnabled;
+
+    /**
+     * 单笔批量交易最多包含的地址数
+     */
+    @Value("${blockchain.medal-queue.max-recipients-per-tx:50}")
+    private int maxRecipientsPerTx;
+
+    @Value("${blockchain.medal-queue.base-gas:100000}")
+    private long baseGas;
+
+    @Value("${blockchain.medal-queue.gas-per-recipient:80000}")
+    private long gasPerRecipient;
+
+    /**
+     * 单地址发放的 gas limit（与原 distributeMedals 调用一致）
+     */
+    @Value("${blockchain.medal-queue.single-gas:300000}")
+    private long singleGas;
+
+    /**
+     * 交易失败（回滚或发送失败）后的最大重试次数
+     */
+    @Value("${blockchain.medal-queue.max-attempts:3}")
+    private int maxAttempts;
+
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+    /**
+     * batchDistributeMedals 探测结果，null 表示尚未探测成功
+     */
+    private volatile Boolean batchContractSupported;
+
+    /**
+     * 所在批量交易失败的地址，下轮单独发送以定位失败的那一个
+     */
+    private final Set<String> isolated = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 本进程正在跟踪回执的交易哈希
+     */
+    private final Set<String> tracking = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong tasksEnqueued = new AtomicLong();
+    private final AtomicLong tasksConfirmed = new AtomicLong();
+    private final AtomicLong tasksFailed = new AtomicLong();
+    private final AtomicLong tasksDropped = new AtomicLong();
+    private final AtomicLong transactionsSent = new AtomicLong();
+    private final AtomicLong recipientsSent = new AtomicLong();
+    private final AtomicLong lastDispatchMillis = new AtomicLong();
+    private final long startedAt = System.currentTimeMillis();
+
+    /**
+     * 加入发放队列
+     */
+    public MedalDistributionTask enqueue(String walletAddress, int goldQty, int silverQty, int bronzeQty) {
+        MedalDistributionTask task = taskRepository.save(
+                new MedalDistributionTask(walletAddress, goldQty, silverQty, bronzeQty));
+        tasksEnqueued.incrementAndGet();
+        log.info("Medal distribution queued: task={}, to={}, gold={}, silver={}, bronze={}",
+                task.getId(), walletAddress, goldQty, silverQty, bronzeQty);
+        return task;
+    }
+
+    /**
+     * 恢复已提交任务占用的 nonce（在调度器开始发送之前），并在 nonce 被确认丢弃时重新排队
+     */
+    @PostConstruct
+    public void restoreNonces() {
+        nonceManager.addDropListener(this::requeueDropped);
+        taskRepository.findByStatus(TaskStatus.SUBMITTED).stream()
+                .map(MedalDistributionTask::getNonce)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(nonce -> nonceManager.restoreSent(BigInteger.valueOf(nonce)));
+    }
+
+    /**
+     * 启动时恢复已提交但尚未确认的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeSubmitted() {
+        List<MedalDistributionTask> submitted = taskRepository.findByStatus(TaskStatus.SUBMITTED);
+        Map<String, List<MedalDistributionTask>> byTx = submitted.stream()
+                .filter(task -> task.getTransactionHash() != null)
+                .collect(Collectors.groupingBy(MedalDistributionTask::getTransactionHash, LinkedHashMap::new, Collectors.toList()));
+        byTx.forEach(this::trackTransaction);
+        if (!byTx.isEmpty()) {
+            log.info("Resumed tracking {} submitted medal distribution transactions", byTx.size());
+        }
+    }
+
+    /**
+     * nonce 已被确认丢弃（PENDING 计数停在该 nonce 超过丢弃超时）：占用它的任务没有上链，重新排队且不计入重试次数
+     */
+    public void requeueDropped(BigInteger nonce) {
+        List<MedalDistributionTask> tasks = taskRepository.findByStatusAndNonce(TaskStatus.SUBMITTED, nonce.longValue());
+        if (tasks.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (MedalDistributionTask task : tasks) {
+            if (task.getTransactionHash() != null) {
+                tracking.remove(task.getTransactionHash());
+            }
+            task.setStatus(TaskStatus.PENDING);
+            task.setTransactionHash(null);
+            task.setNonce(null);
+            task.setLastError("transaction dropped (nonce " + nonce + ")");
+            task.setUpdateTime(now);
+        }
+        taskRepository.saveAll(tasks);
+        tasksDropped.addAndGet(tasks.size());
+        log.warn("Medal distribution with nonce {} was dropped, {} tasks requeued", nonce, tasks.size());
+    }
+
+    /**
+     * 调度发放：合并待发放任务并流水线发送
+     */
+    @Scheduled(fixedDelayString = "${blockchain.medal-queue.dispatch-interval-ms:3000}")
+    public void dispatch() {
+        if (!enabled || !dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            settleSubmitted();
+
+            List<MedalDistributionTask> pending = taskRepository.findTop500ByStatusOrderByIdAsc(TaskStatus.PENDING);
+            if (pending.isEmpty()) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+
+            // 同一地址的多次审批合并为一次发放
+            Map<String, List<MedalDistributionTask>> byAddress = pending.stream()
+                    .collect(Collectors.groupingBy(task -> normalizeAddress(task.getWalletAddress()),
+                            LinkedHashMap::new, Collectors.toList()));
+            List<String> addresses = new ArrayList<>(byAddress.keySet());
+
+            for (List<String> chunk : packChunks(addresses)) {
+                List<MedalDistributionTask> tasks = new ArrayList<>();
+                chunk.forEach(address -> tasks.addAll(byAddress.get(address)));
+                if (!sendChunk(chunk, byAddress, tasks)) {
+                    // 节点不可用时停止本轮，剩余任务下轮继续
+                    break;
+                }
+            }
+
+            lastDispatchMillis.set(System.currentTimeMillis() - start);
+            log.info("Medal queue dispatched {} tasks for {} addresses in {} ms",
+                    pending.size(), addresses.size(), lastDispatchMillis.get());
+        } catch (Exception e) {
+            log.error("Medal queue dispatch failed", e);
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    /**
+     * 队列深度与吞吐统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Long> depth = new LinkedHashMap<>();
+        for (TaskStatus status : TaskStatus.values()) {
+            depth.put(status.name(), taskRepository.countByStatus(status));
+        }
+        stats.put("depth", depth);
+        stats.put("batchContractEnabled", batchContractEnabled);
+        stats.put("batchContractSupported", batchContractSupported);
+        stats.put("isolated", isolated.size());
+        stats.put("tasksEnqueued", tasksEnqueued.get());
+        stats.put("tasksConfirmed", tasksConfirmed.get());
+        stats.put("tasksFailed", tasksFailed.get());
+        stats.put("tasksDropped", tasksDropped.get());
+        stats.put("transactionsSent", transactionsSent.get());
+        stats.put("averageRecipientsPerTx", transactionsSent.get() == 0 ? 0.0
+                : (double) recipientsSent.get() / transactionsSent.get());
+        double minutes = Math.max(1.0, (System.currentTimeMillis() - startedAt) / 60000.0);
+        stats.put("confirmedPerMinute", tasksConfirmed.get() / minutes);
+        stats.put("lastDispatchMillis", lastDispatchMillis.get());
+        return stats;
+    }
+
+    /**
+     * 按地址分组：批量可用时每组最多 maxRecipientsPerTx 个地址，被隔离的地址单独一组
+     */
+    private List<List<String>> packChunks(List<String> addresses) {
+        int chunkSize = useBatchContract() ? maxRecipientsPerTx : 1;
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String address : addresses) {
+            if (chunkSize > 1 && isolated.contains(address)) {
+                chunks.add(List.of(address));
+                continue;
+            }
+            current.add(address);
+            if (current.size() >= chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * 是否用 batchDistributeMedals 发送：配置开启且合约探测通过（探测时节点不可达则本轮逐地址发送，下轮再探测）
+     */
+    private boolean useBatchContract() {
+        if (!batchContractEnabled) {
+            return false;
+        }
+        if (batchContractSupported == null) {
+            try {
+                batchContractSupported = blockchainService.supportsBatchDistributeMedals();
+                log.info("batchDistributeMedals supported by medal contract: {}", batchContractSupported);
+            } catch (IOException e) {
+                log.warn("Failed to probe batchDistributeMedals, sending per address this round: {}", e.getMessage());
+                return false;
+            }
+        }
+        return batchContractSupported;
+    }
+
+    /**
+     * 发送一组地址的合并发放交易；返回 false 表示节点不可用，本轮应停止
+     */
+    private boolean sendChunk(List<String> addresses, Map<String, List<MedalDistributionTask>> byAddress,
+                              List<MedalDistributionTask> tasks) {
+        List<BigInteger> gold = new ArrayList<>(addresses.size());
+        List<BigInteger> silver = new ArrayList<>(addresses.size());
+        List<BigInteger> bronze = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            List<MedalDistributionTask> merged = byAddress.get(address);
+            gold.add(BigInteger.valueOf(merged.stream().mapToLong(MedalDistributionTask::getGoldQty).sum()));
+            silver.add(BigInteger.valueOf(merged.stream().mapToLong(MedalDistributionTask::getSilverQty).sum()));
+            bronze.add(BigInteger.valueOf(merged.stream().mapToLong(MedalDistributionTask::getBronzeQty).sum()));
+        }
+
+        // 交易发出前先持久化 nonce：之后无论发送超时还是进程崩溃，任务都不会被当作未发送而重发
+        Consumer<BigInteger> beforeSend = nonce -> markSending(tasks, nonce);
+        String txHash;
+        try {
+            if (addresses.size() > 1) {
+                BigInteger gasLimit = BigInteger.valueOf(baseGas + gasPerRecipient * addresses.size());
+                txHash = blockchainService.sendBatchDistributeMedals(addresses, gold, silver, bronze, gasLimit, beforeSend);
+            } else {
+                txHash = blockchainService.sendDistributeMedals(addresses.get(0), gold.get(0), silver.get(0), bronze.get(0),
+                        BigInteger.valueOf(singleGas), beforeSend);
+            }
+        } catch (IOException e) {
+            if (tasks.get(0).getNonce() != null) {
+                // 交易可能已被节点接受：保持已提交，由对账按 nonce 找回交易，或在 nonce 被确认丢弃后重新排队
+                log.warn("Medal distribution with nonce {} has unknown outcome: {}", tasks.get(0).getNonce(), e.getMessage());
+            } else {
+                // 节点不可达不计入重试次数，任务保持待发放
+                log.warn("Node unavailable while sending medal distribution: {}", e.getMessage());
+            }
+            return false;
+        } catch (Exception e) {
+            log.warn("Failed to send medal distribution for {} addresses: {}", addresses.size(), e.getMessage());
+            handleChunkFailure(tasks, e.getMessage());
+            return true;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (MedalDistributionTask task : tasks) {
+            task.setStatus(TaskStatus.SUBMITTED);
+            task.setTransactionHash(txHash);
+            task.setLastError(null);
+            task.setUpdateTime(now);
+        }
+        taskRepository.saveAll(tasks);
+        transactionsSent.incrementAndGet();
+        recipientsSent.addAndGet(addresses.size());
+        log.info("Medal distribution tx {} sent for {} addresses ({} tasks)", txHash, addresses.size(), tasks.size());
+
+        trackTransaction(txHash, tasks);
+        return true;
+    }
+
+    private void markSending(List<MedalDistributionTask> tasks, BigInteger nonce) {
+        LocalDateTime now = LocalDateTime.now();
+        for (MedalDistributionTask task : tasks) {
+            task.setStatus(TaskStatus.SUBMITTED);
+            task.setNonce(nonce.longValue());
+            task.setTransactionHash(null);
+            task.setUpdateTime(now);
+        }
+        taskRepository.saveAll(tasks);
+    }
+
+    /**
+     * 对账已提交的任务：发送结果不确定的按 nonce 找回交易，确认超时或重启后未在跟踪的交易重新跟踪回执
+     */
+    private void settleSubmitted() {
+        List<MedalDistributionTask> submitted = taskRepository.findByStatus(TaskStatus.SUBMITTED);
+        Map<String, List<MedalDistributionTask>> byTx = new LinkedHashMap<>();
+        Map<Long, List<MedalDistributionTask>> unknown = new LinkedHashMap<>();
+        for (MedalDistributionTask task : submitted) {
+            if (task.getTransactionHash() != null) {
+                byTx.computeIfAbsent(task.getTransactionHash(), hash -> new ArrayList<>()).add(task);
+            } else if (task.getNonce() != null) {
+                unknown.computeIfAbsent(task.getNonce(), nonce -> new ArrayList<>()).add(task);
+            }
+        }
+        byTx.forEach((txHash, tasks) -> {
+            if (!tracking.contains(txHash)) {
+                trackTransaction(txHash, tasks);
+            }
+        });
+        unknown.forEach(this::recoverTransaction);
+    }
+
+    /**
+     * 按 nonce 找回发送结果不确定的交易：找到则记录哈希并跟踪回执；nonce 尚未被占用时等待（被确认丢弃后重新排队）
+     */
+    private void recoverTransaction(Long nonce, List<MedalDistributionTask> tasks) {
+        long sentAt = tasks.get(0).getUpdateTime().atZone(ZoneId.systemDefault()).toEpochSecond();
+        Optional<String> txHash;
+        try {
+            txHash = nonceManager.findTransactionHash(BigInteger.valueOf(nonce), sentAt);
+        } catch (IOException e) {
+            log.debug("Lookup of medal distribution with nonce {} deferred: {}", nonce, e.getMessage());
+            return;
+        } catch (IllegalStateException e) {
+            // nonce 被其他交易占用：本任务的交易没有上链，但无法排除人工处理过，不自动重发
+            log.error("Medal distribution with nonce {} cannot be recovered: {}", nonce, e.getMessage());
+            updateTasks(tasks.stream().map(MedalDistributionTask::getId).collect(Collectors.toList()),
+                    TaskStatus.FAILED, e.getMessage());
+            return;
+        }
+        if (txHash.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (MedalDistributionTask task : tasks) {
+            task.setTransactionHash(txHash.get());
+            task.setUpdateTime(now);
+        }
+        taskRepository.saveAll(tasks);
+        log.info("Recovered medal distribution tx {} by nonce {} ({} tasks)", txHash.get(), nonce, tasks.size());
+        trackTransaction(txHash.get(), tasks);
+    }
+
+    private void trackTransaction(String txHash, List<MedalDistributionTask> tasks) {
+        List<Long> taskIds = tasks.stream().map(MedalDistributionTask::getId).collect(Collectors.toList());
+        tracking.add(txHash);
+        receiptTracker.track(txHash)
+                .thenAccept(receipt -> {
+                    tracking.remove(txHash);
+                    onReceipt(txHash, taskIds, receipt);
+                })
+                .exceptionally(e -> {
+                    // 确认超时不重发也不判失败：任务保持已提交，下轮重新查询回执；交易被丢弃时由 nonce 对账重新排队
+                    tracking.remove(txHash);
+                    log.warn("Medal distribution tx {} not confirmed yet: {}", txHash, e.getMessage());
+                    return null;
+                });
+    }
+
+    private void onReceipt(String txHash, List<Long> taskIds, TransactionReceipt receipt) {
+        // 只处理仍属于该交易的任务（被确认丢弃后已重新排队的任务不受影响）
+        taskIds = taskRepository.findAllById(taskIds).stream()
+                .filter(task -> task.getStatus() == TaskStatus.SUBMITTED && txHash.equals(task.getTransactionHash()))
+                .map(MedalDistributionTask::getId)
+                .collect(Collectors.toList());
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        if (receipt.isStatusOK()) {
+            List<MedalDistributionTask> tasks = updateTasks(taskIds, TaskStatus.CONFIRMED, null);
+            tasksConfirmed.addAndGet(tasks.size());
+            tasks.forEach(task -> isolated.remove(normalizeAddress(task.getWalletAddress())));
+            // 标记接收者待同步，由增量同步批量读取链上数据写回数据库
+            tasks.stream().map(MedalDistributionTask::getWalletAddress).distinct()
+                    .forEach(address -> dirtyWalletSyncService.markDirty(address,
+                            DirtyWalletSyncService.REASON_MEDAL_DISTRIBUTION));
+            log.info("Medal distribution tx {} confirmed ({} tasks)", txHash, tasks.size());
+        } else {
+            // 交易回滚没有改变链上状态，可以安全地重新排队
+            log.error("Medal distribution tx {} reverted", txHash);
+            handleChunkFailure(taskRepository.findAllById(taskIds), "transaction reverted: " + txHash);
+        }
+    }
+
+    private List<MedalDistributionTask> updateTasks(List<Long> taskIds, TaskStatus status, String error) {
+        List<MedalDistributionTask> tasks = taskRepository.findAllById(taskIds);
+        LocalDateTime now = LocalDateTime.now();
+        for (MedalDistributionTask task : tasks) {
+            task.setStatus(status);
+            task.setLastError(error);
+            task.setUpdateTime(now);
+        }
+        taskRepository.saveAll(tasks);
+        if (status == TaskStatus.FAILED) {
+            tasksFailed.addAndGet(tasks.size());
+        }
+        return tasks;
+    }
+
+    /**
+     * 交易失败：包含多个地址时拆开，各地址下轮单独发送且不计入重试次数；单个地址的失败计入重试次数
+     */
+    private void handleChunkFailure(List<MedalDistributionTask> tasks, String error) {
+        long addressCount = tasks.stream().map(task -> normalizeAddress(task.getWalletAddress())).distinct().count();
+        if (addressCount <= 1) {
+            markAttemptFailed(tasks, error);
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (MedalDistributionTask task : tasks) {
+            isolated.add(normalizeAddress(task.getWalletAddress()));
+            task.setStatus(TaskStatus.PENDING);
+            task.setTransactionHash(null);
+            task.setNonce(null);
+            task.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+            task.setUpdateTime(now);
+        }
+        taskRepository.saveAll(tasks);
+        log.info("Medal distribution for {} addresses failed, retrying each address separately", addressCount);
+    }
+
+    private void markAttemptFailed(List<MedalDistributionTask> tasks, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        for (MedalDistributionTask task : tasks) {
+            int attempts = task.getAttempts() + 1;
+            task.setAttempts(attempts);
+            task.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+            task.setStatus(attempts >= maxAttempts ? TaskStatus.FAILED : TaskStatus.PENDING);
+            task.setTransactionHash(null);
+            task.setNonce(null);
+            task.setUpdateTime(now);
+            if (task.getStatus() == TaskStatus.FAILED) {
+                tasksFailed.incrementAndGet();
+                isolated.remove(normalizeAddress(task.getWalletAddress()));
+            }
+        }
+        taskRepository.saveAll(tasks);
+    }
+
+    private static String normalizeAddress(String address) {
+        String lower = address.trim().toLowerCase();
+        return lower.startsWith("0x") ? lower : "0x" + lower;
+    }
+}
@@ -0,0 +1,414 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.util.OrderStatisticTree;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 勋章排行榜内存索引
+ * 有勋章的用户按（总分、金牌、银牌、铜牌 降序，注册时间 升序）保存在顺序统计树中，
+ * 按名次分页、查询用户名次和"我附近的用户"都是 O(log n)，不再对全表按表达式排序或计数。
+ * 启动时从数据库构建，之后由 UserAccountRankingListener 在勋章变化提交后增量更新。
+ * 与数据库排行榜查询一致，榜中只有有勋章的用户；用户名次与原先的计数查询一致，总分相同的用户名次相同。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MedalRankingIndex {
+
+    private static final String SELECT_RANKED_USERS =
+            "SELECT id, gold_medals, silver_medals, bronze_medals, create_time FROM user_accounts "
+            + "WHERE gold_medals > 0 OR silver_medals > 0 OR bronze_medals > 0";
+
+    /**
+     * 与 findAllByOrderByTotalMedalScoreDescGoldMedalsDescSilverMedalsDesc 的排序一致，最后按ID保证全序
+     */
+    private static final Comparator<RankKey> RANKING_ORDER = Comparator
+            .comparingInt((RankKey e) -> e.score).reversed()
+            .thenComparing(Comparator.comparingInt((RankKey e) -> e.gold).reversed())
+            .thenComparing(Comparator.comparingInt((RankKey e) -> e.silver).reversed())
+            .thenComparing(Comparator.comparingInt((RankKey e) -> e.bronze).reversed())
+            .thenComparing(e -> e.createTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(e -> e.userId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final OrderStatisticTree<RankKey> tree = new OrderStatisticTree<>(RANKING_ORDER);
+    private final Map<Long, RankKey> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 重建期间到达的增量（用户ID → 最新勋章数，删除记为全0），重建装入快照后重放；不在重建时为 null。由 lock 保护
+     */
+    private Map<Long, RankKey> rebuildJournal;
+
+    private volatile boolean ready = false;
+    private volatile LocalDateTime lastRebuildTime;
+
+    /**
+     * 排行榜版本：榜中用户的任何变化（包括昵称、代表作等展示字段）都会递增，用于响应缓存和 ETag
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            // 索引未就绪时排行榜查询回退到数据库
+            log.error("Failed to build medal ranking index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从数据库重新构建索引
+     * 快照查询不持锁，查询开始后提交的变化可能不在快照中：查询前开始记录增量，装入快照后按绝对值重放，
+     * 已包含在快照中的变化重放后不产生差异。
+     */
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            rebuildJournal = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<RankKey> loaded;
+        try {
+            loaded = jdbcTemplate.query(SELECT_RANKED_USERS, (rs, rowNum) -> {
+                Timestamp createTime = rs.getTimestamp("create_time");
+                return new RankKey(rs.getLong("id"), rs.getInt("gold_medals"), rs.getInt("silver_medals"),
+                        rs.getInt("bronze_medals"), createTime != null ? createTime.toLocalDateTime() : null);
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuildJournal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            tree.clear();
+            entries.clear();
+            for (RankKey entry : loaded) {
+                tree.add(entry);
+                entries.put(entry.userId, entry);
+            }
+            replayed = rebuildJournal.size();
+            for (RankKey change : rebuildJournal.values()) {
+                apply(change.userId, change.gold, change.silver, change.bronze, change.createTime);
+            }
+            rebuildJournal = null;
+            ready = true;
+            lastRebuildTime = LocalDateTime.now();
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Medal ranking index built: {} ranked users, {} concurrent changes replayed in {}ms",
+                loaded.size(), replayed, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * 用户勋章变化（没有勋章的用户移出排行榜），返回变化前的金、银、铜牌数；索引未就绪时返回 null
+     */
+    public int[] update(Long userId, int gold, int silver, int bronze, LocalDateTime createTime) {
+        if (userId == null) {
+            return null;
+        }
+        lock.writeLock().lock();
+        try {
+            if (rebuildJournal != null) {
+                rebuildJournal.put(userId, new RankKey(userId, gold, silver, bronze, createTime));
+            }
+            RankKey previous = entries.get(userId);
+            int[] before = medalsOf(previous);
+            if (previous != null || gold > 0 || silver > 0 || bronze > 0) {
+                // 勋章未变时展示字段也可能变化
+                version.incrementAndGet();
+            }
+            apply(userId, gold, silver, bronze, createTime);
+            return before;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 把用户的勋章数写入树中（调用方持有写锁）
+     */
+    private void apply(long userId, int gold, int silver, int bronze, LocalDateTime createTime) {
+        RankKey previous = entries.get(userId);
+        if (previous != null) {
+            if (previous.gold == gold && previous.silver == silver && previous.bronze == bronze) {
+                return;
+            }
+            tree.remove(previous);
+            entries.remove(userId);
+        }
+        if (gold > 0 || silver > 0 || bronze > 0) {
+            RankKey entry = new RankKey(userId, gold, silver, bronze,
+                    createTime != null ? createTime : previous != null ? previous.createTime : null);
+            tree.add(entry);
+            entries.put(userId, entry);
+        }
+    }
+
+    /**
+     * 用户被删除，返回删除前的金、银、铜牌数；索引未就绪时返回 null
+     */
+    public int[] remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            if (rebuildJournal != null && userId != null) {
+                rebuildJournal.put(userId, new RankKey(userId, 0, 0, 0, null));
+            }
+            RankKey previous = entries.remove(userId);
+            if (previous != null) {
+                tree.remove(previous);
+                version.incrementAndGet();
+            }
+            return medalsOf(previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 排名第一的用户ID，排行榜为空时返回 null
+     */
+    public Long topUserId() {
+        List<Long> top = page(0, 1);
+        return top.isEmpty() ? null : top.get(0);
+    }
+
+    /**
+     * 索引中记录的勋章数（不在榜中即为0）
+     */
+    private int[] medalsOf(RankKey entry) {
+        if (!ready) {
+            return null;
+        }
+        return entry != null ? new int[]{entry.gold, entry.silver, entry.bronze} : new int[3];
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * 排行榜人数（有勋章的用户数）
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return tree.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按名次区间取用户ID（offset 从0开始）
+     */
+    public List<Long> page(long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            if (offset >= tree.size() || limit <= 0) {
+                return Collections.emptyList();
+            }
+            return userIds(tree.range((int) offset, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 用户名次（从1开始）：总分高于该用户的人数 + 1，总分相同的用户名次相同，
+     * 与原先的 countByTotalMedalScoreGreaterThan + 1 一致；不在排行榜中（没有勋章）时返回 0
+     */
+    public int rankOf(Long userId) {
+        lock.readLock().lock();
+        try {
+            RankKey entry = entries.get(userId);
+            return entry != null ? tree.headSize(RankKey.scoreBoundary(entry.score), false) + 1 : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 用户前后各 radius 名的窗口；用户不在排行榜中时返回榜尾的窗口
+     * 窗口内的名次与排行榜分页一样按位置计算，总分相同的用户依次排列
+     */
+    public Window around(Long userId, int radius) {
+        lock.readLock().lock();
+        try {
+            RankKey entry = entries.get(userId);
+            int index = entry != null ? tree.indexOf(entry) : tree.size();
+            int from = Math.max(0, index - radius);
+            int to = Math.min(tree.size(), index + radius + 1);
+            return new Window(from + 1, entry != null ? index + 1 : 0, userIds(tree.range(from, to - from)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 排在 after 之后的 limit 个用户（after 为 null 时从第一名开始），用于游标分页：
+     * 按排序键定位而不是按偏移量，前面的名次有变化时本页不会整体错位
+     */
+    public Slice after(RankKey after, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = after != null ? tree.headSize(after, true) : 0;
+            return new Slice(from + 1, tree.range(from, Math.max(0, limit)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("rankedUsers", size());
+        stats.put("version", version.get());
+        stats.put("lastRebuildTime", lastRebuildTime != null ? lastRebuildTime.toString() : null);
+        return stats;
+    }
+
+    private static List<Long> userIds(List<RankKey> range) {
+        List<Long> ids = new ArrayList<>(range.size());
+        for (RankKey entry : range) {
+            ids.add(entry.userId);
+        }
+        return ids;
+    }
+
+    /**
+     * 排行榜窗口：firstRank 为窗口第一位的名次，userRank 为目标用户名次（不在榜中为0）
+     */
+    public static final class Window {
+        private final int firstRank;
+        private final int userRank;
+        private final List<Long> userIds;
+
+        private Window(int firstRank, int userRank, List<Long> userIds) {
+            this.firstRank = firstRank;
+            this.userRank = userRank;
+            this.userIds = userIds;
+        }
+
+        public int getFirstRank() {
+            return firstRank;
+        }
+
+        public int getUserRank() {
+            return userRank;
+        }
+
+        public List<Long> getUserIds() {
+            return userIds;
+        }
+    }
+
+    /**
+     * 排在游标之后的一段排行榜：firstRank 为第一位的名次，keys 为各用户当时的排序键
+     */
+    public static final class Slice {
+        private final int firstRank;
+        private final List<RankKey> keys;
+
+        private Slice(int firstRank, List<RankKey> keys) {
+            this.firstRank = firstRank;
+            this.keys = keys;
+        }
+
+        public int getFirstRank() {
+            return firstRank;
+        }
+
+        public List<RankKey> getKeys() {
+            return keys;
+        }
+    }
+
+    /**
+     * 用户在排行榜中的排序键
+     */
+    public static final class RankKey {
+        private final long userId;
+        private final int gold;
+        private final int silver;
+        private final int bronze;
+        private final int score;
+        private final LocalDateTime createTime;
+
+        public RankKey(long userId, int gold, int silver, int bronze, LocalDateTime createTime) {
+            this(userId, gold, silver, bronze, gold * 3 + silver * 2 + bronze, createTime);
+        }
+
+        private RankKey(long userId, int gold, int silver, int bronze, int score, LocalDateTime createTime) {
+            this.userId = userId;
+            this.gold = gold;
+            this.silver = silver;
+            this.bronze = bronze;
+            this.score = score;
+            this.createTime = createTime;
+        }
+
+        /**
+         * 排在该总分所有用户之前、更高总分所有用户之后的边界键（不对应真实用户）
+         */
+        private static RankKey scoreBoundary(int score) {
+            return new RankKey(Long.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, score, null);
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public int getGold() {
+            return gold;
+        }
+
+        public int getSilver() {
+            return silver;
+        }
+
+        public int getBronze() {
+            return bronze;
+        }
+
+        public LocalDateTime getCreateTime() {
+            return createTime;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.entity.MedalStats;
+import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.repository.MedalStatsRepository;
+import com.brokerwallet.repository.UserAccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 勋章统计服务
+ * 用户总数与各类勋章总数保存在内存计数器和单行汇总表 medal_stats 中，由用户实体监听器按增量更新，
+ * 读取为 O(1)；最高分用户取自排行榜索引。定期校验用聚合查询重新计算，修正计数偏差。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MedalStatsService {
+
+    private final MedalStatsRepository medalStatsRepository;
+    private final UserAccountRepository userAccountRepository;
+    private final MedalRankingIndex medalRankingIndex;
+
+    private final AtomicLong totalUsers = new AtomicLong();
+    private final AtomicLong totalGold = new AtomicLong();
+    private final AtomicLong totalSilver = new AtomicLong();
+    private final AtomicLong totalBronze = new AtomicLong();
+
+    private volatile boolean loaded = false;
+
+    /**
+     * 每次增量更新递增，校验期间有变化时放弃本轮修正
+     */
+    private final AtomicLong changeSeq = new AtomicLong();
+    private final AtomicBoolean verifying = new AtomicBoolean(false);
+
+    /**
+     * 已写入用户表、增量尚未应用的事务数：这类事务可能已被聚合查询计入，校验时有未完成的事务则放弃本轮修正
+     */
+    private final AtomicLong pendingChanges = new AtomicLong();
+
+    /**
+     * 增量应用与校验修正互斥，修正写入计数器时不会覆盖并发应用的增量
+     */
+    private final Object correctionLock = new Object();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            Optional<MedalStats> row = medalStatsRepository.findById(MedalStats.SINGLETON_ID);
+            if (row.isPresent()) {
+                MedalStats stats = row.get();
+                totalUsers.set(stats.getTotalUsers());
+                totalGold.set(stats.getTotalGold());
+                totalSilver.set(stats.getTotalSilver());
+                totalBronze.set(stats.getTotalBronze());
+                loaded = true;
+                log.info("Medal stats loaded: {}", stats);
+            } else {
+                // 首次运行：聚合计算并写入汇总行
+                verify();
+            }
+        } catch (Exception e) {
+            log.error("Failed to load medal stats: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按增量更新计数器与汇总行
+     */
+    public void applyDelta(long users, long gold, long silver, long bronze) {
+        if (users == 0 && gold == 0 && silver == 0 && bronze == 0) {
+            return;
+        }
+        synchronized (correctionLock) {
+            changeSeq.incrementAndGet();
+            totalUsers.addAndGet(users);
+            totalGold.addAndGet(gold);
+            totalSilver.addAndGet(silver);
+            totalBronze.addAndGet(bronze);
+            try {
+                if (medalStatsRepository.addDelta(MedalStats.SINGLETON_ID, users, gold, silver, bronze, LocalDateTime.now()) == 0) {
+                    log.debug("Medal stats row missing, will be created by verifier");
+                }
+            } catch (Exception e) {
+                // 汇总行写入失败由定期校验修正
+                log.warn("Failed to update medal stats row: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 用户表变更已写入当前事务，增量将在提交后应用（由实体监听器在事务内调用）
+     */
+    public void beginPendingChange() {
+        pendingChanges.incrementAndGet();
+    }
+
+    /**
+     * 事务结束（提交并应用增量，或回滚）
+     */
+    public void endPendingChange() {
+        pendingChanges.decrementAndGet();
+    }
+
+    /**
+     * 变化前的数据未知（排行榜索引未就绪），下一次校验时修正
+     */
+    public void markUnknownChange() {
+        changeSeq.incrementAndGet();
+        loaded = false;
+    }
+
+    /**
+     * 定期用聚合查询校验计数器，有偏差时修正内存与汇总行
+     * 已提交但增量尚未应用的事务会被聚合查询计入，随后又被增量累加一次；
+     * 因此修正在锁内进行，且查询期间有增量应用或仍有未完成的事务时放弃本轮修正。
+     */
+    @Scheduled(fixedDelayString = "${brokerwallet.medal-stats.verify-interval-ms:600000}",
+            initialDelayString = "${brokerwallet.medal-stats.verify-interval-ms:600000}")
+    public void verify() {
+        if (!verifying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long seq = changeSeq.get();
+            long users = userAccountRepository.count();
+            long gold = valueOf(userAccountRepository.sumGoldMedals());
+            long silver = valueOf(userAccountRepository.sumSilverMedals());
+            long bronze = valueOf(userAccountRepository.sumBronzeMedals());
+            synchronized (correctionLock) {
+                if (changeSeq.get() != seq || pendingChanges.get() > 0) {
+                    log.debug("Medal stats changed during verification, retry next round");
+                    return;
+                }
+
+                boolean drifted = users != totalUsers.get() || gold != totalGold.get()
+                        || silver != totalSilver.get() || bronze != totalBronze.get();
+                if (drifted || !loaded) {
+                    if (drifted && loaded) {
+                        log.warn("Medal stats drift corrected: users {}->{}, gold {}->{}, silver {}->{}, bronze {}->{}",
+                                totalUsers.get(), users, totalGold.get(), gold, totalSilver.get(), silver, totalBronze.get(), bronze);
+                    }
+                    totalUsers.set(users);
+                    totalGold.set(gold);
+                    totalSilver.set(silver);
+                    totalBronze.set(bronze);
+                    medalStatsRepository.save(new MedalStats(users, gold, silver, bronze));
+                    loaded = true;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Medal stats verification failed: {}", e.getMessage(), e);
+        } finally {
+            verifying.set(false);
+        }
+    }
+
+    /**
+     * 获取勋章统计信息（计数器未加载时读取汇总行，汇总行不存在时回退到聚合查询）
+     */
+    public Map<String, Object> getMedalStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        if (loaded) {
+            stats.put("totalUsers", totalUsers.get());
+            stats.put("totalGoldMedals", totalGold.get());
+            stats.put("totalSilverMedals", totalSilver.get());
+            stats.put("totalBronzeMedals", totalBronze.get());
+        } else {
+            Optional<MedalStats> row = medalStatsRepository.findById(MedalStats.SINGLETON_ID);
+            if (row.isPresent()) {
+                stats.put("totalUsers", row.get().getTotalUsers());
+                stats.put("totalGoldMedals", row.get().getTotalGold());
+                stats.put("totalSilverMedals", row.get().getTotalSilver());
+                stats.put("totalBronzeMedals", row.get().getTotalBronze());
+            } else {
+                stats.put("totalUsers", userAccountRepository.count());
+                stats.put("totalGoldMedals", valueOf(userAccountRepository.sumGoldMedals()));
+                stats.put("totalSilverMedals", valueOf(userAccountRepository.sumSilverMedals()));
+                stats.put("totalBronzeMedals", valueOf(userAccountRepository.sumBronzeMedals()));
+            }
+        }
+
+        // 最高分数
+        UserAccount topUser;
+        if (medalRankingIndex.isReady()) {
+            Long topUserId = medalRankingIndex.topUserId();
+            topUser = topUserId != null ? userAccountRepository.findById(topUserId).orElse(null) : null;
+        } else {
+            topUser = userAccountRepository.findTopByOrderByTotalMedalScoreDescGoldMedalsDescSilverMedalsDesc();
+        }
+        if (topUser != null) {
+            stats.put("highestScore", topUser.getTotalMedalScore());
+            stats.put("topUserDisplayName", topUser.getDisplayName() != null ? topUser.getDisplayName() : "Anonymous User");
+        } else {
+            stats.put("highestScore", 0);
+            stats.put("topUserDisplayName", null);
+        }
+
+        return stats;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+}
@@ -0,0 +1,538 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.ContractEvents;
+import com.brokerwallet.blockchain.NonceManager;
+import com.brokerwallet.blockchain.ReceiptTracker;
+import com.brokerwallet.dto.NftMintRequest;
+import com.brokerwallet.entity.NftImage;
+import com.brokerwallet.entity.NftImage.MintStatus;
+import com.brokerwallet.repository.NftImageRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * NFT铸造队列
+ * 铸造请求先以 MintStatus.PENDING 写入 NftImage 记录，由后台任务按 gas 上限分批调用
+ * batchMintNftWithMetadata，确认后从 NftMinted 事件回写每条记录的 tokenId 与交易哈希。
+ * 记录在交易发出前以分配到的 nonce 标记为铸造中：发送结果不确定（超时、进程崩溃）的批次不会被重新铸造，
+ * 而是按 nonce 找回交易后继续跟踪回执；确认超时的批次按 nonce 状态复查，nonce 被确认丢弃时重新排队，
+ * 被其他交易占用时标记失败。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NftMintQueue {
+
+    private final NftImageRepository nftImageRepository;
+    private final BlockchainService blockchainService;
+    private final ReceiptTracker receiptTracker;
+    private final DirtyWalletSyncService dirtyWalletSyncService;
+    private final NonceManager nonceManager;
+
+    @Value("${blockchain.contracts.nft-contract}")
+    private String nftContractAddress;
+
+    @Value("${blockchain.nft-queue.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 单笔批量铸造最多包含的NFT数
+     */
+    @Value("${blockchain.nft-queue.max-batch-size:20}")
+    private int maxBatchSize;
+
+    /**
+     * 单笔批量铸造的 gas 上限
+     */
+    @Value("${blockchain.nft-queue.max-batch-gas:8000000}")
+    private long maxBatchGas;
+
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+    /**
+     * 所在批次回滚的记录，下轮单独发送以定位失败的那一条
+     */
+    private final Set<Long> isolated = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 本进程正在跟踪回执的交易哈希
+     */
+    private final Set<String> tracking = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 确认超时的交易哈希，下轮按 nonce 状态复查后再重新跟踪
+     */
+    private final Set<String> timedOut = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong requestsQueued = new AtomicLong();
+    private final AtomicLong nftsMinted = new AtomicLong();
+    private final AtomicLong nftsFailed = new AtomicLong();
+    private final AtomicLong nftsDropped = new AtomicLong();
+    private final AtomicLong transactionsSent = new AtomicLong();
+
+    /**
+     * 铸造请求入队（幂等：已排队、铸造中或已成功的记录直接返回）
+     */
+    public NftImage enqueue(NftMintRequest request) {
+        NftImage nftImage = nftImageRepository.findById(request.getNftImageId())
+                .orElseThrow(() -> new IllegalArgumentException("NFT记录不存在: " + request.getNftImageId()));
+
+        MintStatus status = nftImage.getMintStatus();
+        if (status == MintStatus.PENDING || status == MintStatus.PROCESSING || status == MintStatus.SUCCESS) {
+            log.info("NFT image {} already {}, skip enqueue", nftImage.getId(), status);
+            return nftImage;
+        }
+        if (request.getImageData() == null || request.getImageData().isEmpty()) {
+            throw new IllegalArgumentException("Image metadata cannot be empty");
+        }
+
+        String ownerAddress = request.getOwnerAddress().toLowerCase();
+        if (!ownerAddress.startsWith("0x")) {
+            ownerAddress = "0x" + ownerAddress;
+        }
+
+        nftImage.setMintOwnerAddress(ownerAddress);
+        nftImage.setNftName(request.getName());
+        nftImage.setNftDescription(request.getDescription());
+        nftImage.setMintMetadata(request.getImageData());
+        nftImage.setMintAttributes(request.getAttributes());
+        nftImage.setMintRequestTime(LocalDateTime.now());
+        nftImage.setMintError(null);
+        nftImage.setTransactionHash(null);
+        nftImage.setMintNonce(null);
+        nftImage.setMintStatus(MintStatus.PENDING);
+        NftImage saved = nftImageRepository.save(nftImage);
+
+        requestsQueued.incrementAndGet();
+        log.info("NFT mint queued: nftImageId={}, owner={}", saved.getId(), ownerAddress);
+        return saved;
+    }
+
+    /**
+     * 查询单条记录的铸造状态
+     */
+    public Optional<Map<String, Object>> getMintStatus(Long nftImageId) {
+        return nftImageRepository.findById(nftImageId).map(image -> {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("nftImageId", image.getId());
+            status.put("mintStatus", image.getMintStatus());
+            status.put("transactionHash", image.getTransactionHash());
+            status.put("tokenId", image.getTokenId());
+            status.put("mintError", image.getMintError());
+            status.put("mintRequestTime", image.getMintRequestTime());
+            return status;
+        });
+    }
+
+    /**
+     * 恢复铸造中批次占用的 nonce（在调度器开始发送之前），并在 nonce 被确认丢弃时重新排队
+     */
+    @PostConstruct
+    public void restoreNonces() {
+        nonceManager.addDropListener(this::requeueDropped);
+        findProcessing().stream()
+                .map(NftImage::getMintNonce)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(nonce -> nonceManager.restoreSent(BigInteger.valueOf(nonce)));
+    }
+
+    /**
+     * 启动时恢复已提交但未确认的批次
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeProcessing() {
+        Map<String, List<NftImage>> byTx = findProcessing().stream()
+                .filter(image -> image.getTransactionHash() != null)
+                .collect(Collectors.groupingBy(NftImage::getTransactionHash, LinkedHashMap::new, Collectors.toList()));
+        byTx.forEach(this::trackBatch);
+        if (!byTx.isEmpty()) {
+            log.info("Resumed tracking {} submitted NFT mint batches", byTx.size());
+        }
+    }
+
+    /**
+     * nonce 已被确认丢弃（PENDING 计数停在该 nonce 超过丢弃超时）：占用它的记录没有上链，重新排队
+     */
+    public void requeueDropped(BigInteger nonce) {
+        List<NftImage> images = nftImageRepository.findByMintStatusAndMintNonce(MintStatus.PROCESSING, nonce.longValue());
+        if (images.isEmpty()) {
+            return;
+        }
+        for (NftImage image : images) {
+            if (image.getTransactionHash() != null) {
+                tracking.remove(image.getTransactionHash());
+                timedOut.remove(image.getTransactionHash());
+            }
+            image.setMintStatus(MintStatus.PENDING);
+            image.setTransactionHash(null);
+            image.setMintNonce(null);
+            image.setMintError("transaction dropped (nonce " + nonce + ")");
+        }
+        nftImageRepository.saveAll(images);
+        nftsDropped.addAndGet(images.size());
+        log.warn("NFT mint batch with nonce {} was dropped, {} NFTs requeued", nonce, images.size());
+    }
+
+    /**
+     * 分批铸造待处理的请求
+     */
+    @Scheduled(fixedDelayString = "${blockchain.nft-queue.dispatch-interval-ms:3000}")
+    public void dispatch() {
+        if (!enabled || !dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            settleProcessing();
+
+            List<NftImage> pending = nftImageRepository.findTop100ByMintStatusOrderByIdAsc(MintStatus.PENDING);
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            for (List<NftImage> batch : packBatches(pending)) {
+                if (!sendBatch(batch)) {
+                    // 节点不可用时停止本轮，剩余请求下轮继续
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("NFT mint queue dispatch failed", e);
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    /**
+     * 队列统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", nftImageRepository.countByMintStatus(MintStatus.PENDING));
+        stats.put("processing", nftImageRepository.countByMintStatus(MintStatus.PROCESSING));
+        stats.put("requestsQueued", requestsQueued.get());
+        stats.put("nftsMinted", nftsMinted.get());
+        stats.put("nftsFailed", nftsFailed.get());
+        stats.put("nftsDropped", nftsDropped.get());
+        stats.put("transactionsSent", transactionsSent.get());
+        return stats;
+    }
+
+    /**
+     * 按数量与 gas 上限打包批次
+     */
+    private List<List<NftImage>> packBatches(List<NftImage> pending) {
+        List<List<NftImage>> batches = new ArrayList<>();
+        List<NftImage> current = new ArrayList<>();
+        long currentGas = 0;
+        for (NftImage image : pending) {
+            if (isolated.contains(image.getId())) {
+                batches.add(List.of(image));
+                continue;
+            }
+            long gas = estimateMintGas(image);
+            if (!current.isEmpty() && (current.size() >= maxBatchSize || currentGas + gas > maxBatchGas)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentGas = 0;
+            }
+            current.add(image);
+            currentGas += gas;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * 单个NFT的 gas 估算（与单笔铸造的估算规则一致）
+     */
+    private long estimateMintGas(NftImage image) {
+        int imageDataLength = image.getMintMetadata() != null ? image.getMintMetadata().length() : 0;
+        if (imageDataLength > 10000) {
+            long safeGas = (long) (imageDataLength * 80 * 1.5);
+            return Math.max(2000000L, Math.min(5000000L, safeGas));
+        }
+        return 1000000L;
+    }
+
+    /**
+     * 发送一个批次；返回 false 表示节点不可用或发送结果不确定，本轮应停止
+     */
+    private boolean sendBatch(List<NftImage> batch) {
+        long gasLimit = batch.stream().mapToLong(this::estimateMintGas).sum();
+        // 交易发出前先持久化 nonce：之后无论发送超时还是进程崩溃，记录都不会被当作未发送而重复铸造
+        Consumer<BigInteger> beforeSend = nonce -> markSending(batch, nonce);
+        String txHash;
+        try {
+            txHash = blockchainService.sendBatchMintNfts(
+                    batch.stream().map(NftImage::getMintOwnerAddress).collect(Collectors.toList()),
+                    batch.stream().map(NftImage::getNftName).collect(Collectors.toList()),
+                    batch.stream().map(image -> nullToEmpty(image.getNftDescription())).collect(Collectors.toList()),
+                    batch.stream().map(NftImage::getMintMetadata).collect(Collectors.toList()),
+                    batch.stream().map(image -> nullToEmpty(image.getMintAttributes())).collect(Collectors.toList()),
+                    BigInteger.valueOf(gasLimit), beforeSend);
+        } catch (IOException e) {
+            if (batch.get(0).getMintNonce() != null) {
+                // 交易可能已被节点接受：保持铸造中，由对账按 nonce 找回交易，或在 nonce 被确认丢弃后重新排队
+                log.warn("NFT mint batch with nonce {} has unknown outcome: {}", batch.get(0).getMintNonce(), e.getMessage());
+            } else {
+                log.warn("Node unavailable while sending NFT mint batch: {}", e.getMessage());
+            }
+            return false;
+        } catch (Exception e) {
+            log.warn("Failed to send NFT mint batch of {}: {}", batch.size(), e.getMessage());
+            handleBatchFailure(batch, e.getMessage());
+            return true;
+        }
+
+        for (NftImage image : batch) {
+            image.setTransactionHash(txHash);
+        }
+        nftImageRepository.saveAll(batch);
+        transactionsSent.incrementAndGet();
+        log.info("NFT mint batch tx {} sent for {} NFTs", txHash, batch.size());
+
+        trackBatch(txHash, batch);
+        return true;
+    }
+
+    private void markSending(List<NftImage> batch, BigInteger nonce) {
+        for (NftImage image : batch) {
+            image.setMintStatus(MintStatus.PROCESSING);
+            image.setMintNonce(nonce.longValue());
+            image.setTransactionHash(null);
+        }
+        nftImageRepository.saveAll(batch);
+    }
+
+    /**
+     * 铸造队列提交的铸造中记录（单笔铸造接口直接写入的记录没有入队时间，不由队列处理）
+     */
+    private List<NftImage> findProcessing() {
+        return nftImageRepository.findByMintStatusOrderByUploadTimeDesc(MintStatus.PROCESSING).stream()
+                .filter(image -> image.getMintRequestTime() != null)
+                .sorted(Comparator.comparing(NftImage::getId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 对账铸造中的批次：发送结果不确定的按 nonce 找回交易；确认超时的按 nonce 状态复查；重启后未在跟踪的交易重新跟踪回执
+     */
+    private void settleProcessing() {
+        Map<String, List<NftImage>> byTx = new LinkedHashMap<>();
+        Map<Long, List<NftImage>> unknown = new LinkedHashMap<>();
+        for (NftImage image : findProcessing()) {
+            if (image.getTransactionHash() != null) {
+                byTx.computeIfAbsent(image.getTransactionHash(), hash -> new ArrayList<>()).add(image);
+            } else if (image.getMintNonce() != null) {
+                unknown.computeIfAbsent(image.getMintNonce(), nonce -> new ArrayList<>()).add(image);
+            }
+        }
+        byTx.forEach((txHash, images) -> {
+            if (tracking.contains(txHash)) {
+                return;
+            }
+            if (timedOut.contains(txHash)) {
+                recheckTimedOut(txHash, images);
+            } else {
+                trackBatch(txHash, images);
+            }
+        });
+        unknown.forEach(this::recoverTransaction);
+    }
+
+    /**
+     * 按 nonce 找回发送结果不确定的交易：找到则记录哈希并跟踪回执；nonce 尚未被占用时等待（被确认丢弃后重新排队）
+     */
+    private void recoverTransaction(Long nonce, List<NftImage> images) {
+        Optional<String> txHash;
+        try {
+            txHash = nonceManager.findTransactionHash(BigInteger.valueOf(nonce), sentAfter(images));
+        } catch (IOException e) {
+            log.debug("Lookup of NFT mint batch with nonce {} deferred: {}", nonce, e.getMessage());
+            return;
+        } catch (IllegalStateException e) {
+            // nonce 被其他交易占用：本批次没有上链，但无法排除人工处理过，不自动重新铸造
+            log.error("NFT mint batch with nonce {} cannot be recovered: {}", nonce, e.getMessage());
+            markFailed(images, e.getMessage());
+            return;
+        }
+        if (txHash.isEmpty()) {
+            return;
+        }
+        for (NftImage image : images) {
+            image.setTransactionHash(txHash.get());
+        }
+        nftImageRepository.saveAll(images);
+        log.info("Recovered NFT mint batch tx {} by nonce {} ({} NFTs)", txHash.get(), nonce, images.size());
+        trackBatch(txHash.get(), images);
+    }
+
+    /**
+     * 复查确认超时的批次：nonce 仍属于本交易（或尚未被占用）时继续跟踪回执；
+     * 被其他交易占用时本交易不可能再上链，标记失败
+     */
+    private void recheckTimedOut(String txHash, List<NftImage> images) {
+        Long nonce = images.get(0).getMintNonce();
+        if (nonce != null) {
+            try {
+                Optional<String> used = nonceManager.findTransactionHash(BigInteger.valueOf(nonce), sentAfter(images));
+                if (used.isPresent() && !used.get().equalsIgnoreCase(txHash)) {
+                    log.error("NFT mint batch tx {} was replaced by {} (nonce {})", txHash, used.get(), nonce);
+                    timedOut.remove(txHash);
+                    markFailed(images, "nonce " + nonce + " used by " + used.get());
+                    return;
+                }
+            } catch (IOException e) {
+                log.debug("Recheck of NFT mint batch tx {} deferred: {}", txHash, e.getMessage());
+                return;
+            } catch (IllegalStateException e) {
+                log.error("NFT mint batch tx {} cannot be recovered: {}", txHash, e.getMessage());
+                timedOut.remove(txHash);
+                markFailed(images, e.getMessage());
+                return;
+            }
+        }
+        timedOut.remove(txHash);
+        trackBatch(txHash, images);
+    }
+
+    private void trackBatch(String txHash, List<NftImage> batch) {
+        List<Long> ids = batch.stream().map(NftImage::getId).collect(Collectors.toList());
+        tracking.add(txHash);
+        receiptTracker.track(txHash)
+                .thenAccept(receipt -> {
+                    tracking.remove(txHash);
+                    onReceipt(txHash, ids, receipt);
+                })
+                .exceptionally(e -> {
+                    // 确认超时不重发也不判失败：记录保持铸造中，下轮按 nonce 状态复查；交易被丢弃时由 nonce 对账重新排队
+                    tracking.remove(txHash);
+                    timedOut.add(txHash);
+                    log.warn("NFT mint batch tx {} not confirmed yet: {}", txHash, e.getMessage());
+                    return null;
+                });
+    }
+
+    private void onReceipt(String txHash, List<Long> ids, TransactionReceipt receipt) {
+        // 只处理仍属于该交易的记录（被确认丢弃后已重新排队的记录不受影响）
+        List<NftImage> images = nftImageRepository.findAllById(ids).stream()
+                .filter(image -> image.getMintStatus() == MintStatus.PROCESSING && txHash.equals(image.getTransactionHash()))
+                .sorted(Comparator.comparing(NftImage::getId))
+                .collect(Collectors.toList());
+        if (images.isEmpty()) {
+            return;
+        }
+
+        if (!receipt.isStatusOK()) {
+            log.error("NFT mint batch tx {} reverted", txHash);
+            handleBatchFailure(images, "transaction reverted: " + txHash);
+            return;
+        }
+
+        // NftMinted 事件按接收地址依次对应批次中的记录
+        List<NftImage> unassigned = new ArrayList<>(images);
+        for (Log logEntry : receipt.getLogs()) {
+            if (!nftContractAddress.equalsIgnoreCase(logEntry.getAddress())
+                    || !ContractEvents.isEvent(logEntry, ContractEvents.NFT_MINTED_TOPIC)) {
+                continue;
+            }
+            ContractEvents.NftMinted event = ContractEvents.decodeNftMinted(logEntry);
+            for (NftImage image : unassigned) {
+                if (event.getOwner().equalsIgnoreCase(image.getMintOwnerAddress())) {
+                    image.setTokenId(event.getTokenId().toString());
+                    image.setMintStatus(MintStatus.SUCCESS);
+                    image.setMintError(null);
+                    isolated.remove(image.getId());
+                    unassigned.remove(image);
+                    nftsMinted.incrementAndGet();
+                    dirtyWalletSyncService.markDirty(image.getMintOwnerAddress(), DirtyWalletSyncService.REASON_NFT_MINT);
+                    break;
+                }
+            }
+        }
+        for (NftImage image : unassigned) {
+            log.warn("NftMinted event not found for nftImageId={} in tx {}", image.getId(), txHash);
+            image.setMintStatus(MintStatus.FAILED);
+            image.setMintError("NftMinted event not found in " + txHash);
+            nftsFailed.incrementAndGet();
+        }
+        nftImageRepository.saveAll(images);
+        log.info("NFT mint batch tx {} confirmed: {} minted, {} unmatched",
+                txHash, images.size() - unassigned.size(), unassigned.size());
+    }
+
+    /**
+     * 批次失败：多条的批次拆开单独重试，单条的批次标记失败
+     */
+    private void handleBatchFailure(List<NftImage> batch, String error) {
+        String message = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        for (NftImage image : batch) {
+            if (batch.size() > 1 && isolated.add(image.getId())) {
+                image.setMintStatus(MintStatus.PENDING);
+            } else {
+                image.setMintStatus(MintStatus.FAILED);
+                isolated.remove(image.getId());
+                nftsFailed.incrementAndGet();
+            }
+            image.setTransactionHash(null);
+            image.setMintNonce(null);
+            image.setMintError(message);
+        }
+        nftImageRepository.saveAll(batch);
+    }
+
+    /**
+     * 无法确定结果的批次标记失败，保留交易哈希与 nonce 供人工核对
+     */
+    private void markFailed(List<NftImage> images, String error) {
+        String message = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        for (NftImage image : images) {
+            image.setMintStatus(MintStatus.FAILED);
+            image.setMintError(message);
+            isolated.remove(image.getId());
+        }
+        nftImageRepository.saveAll(images);
+        nftsFailed.addAndGet(images.size());
+    }
+
+    /**
+     * 交易发送时间的下界（批次中最晚的入队时间，秒）：按 nonce 查找交易时早于它的区块不再扫描
+     */
+    private static long sentAfter(List<NftImage> images) {
+        return images.stream().map(NftImage::getMintRequestTime).max(Comparator.naturalOrder()).orElseThrow()
+                .atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,207 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.dto.CursorPage;
+import com.brokerwallet.entity.ProofFile;
+import com.brokerwallet.repository.ProofFileRepository;
+import com.brokerwallet.util.InvalidCursorException;
+import com.brokerwallet.util.PageCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 提交批次游标分页
+ * 批次按其最新文件的（上传时间, ID）倒序排列，游标记录上一页最后一个批次的最新文件。
+ * 每页沿 (audit_status / user_account_id, upload_time, id) 复合索引从游标处向后扫描文件，
+ * 只读取凑满一页所需的行，翻到第 N 页的开销与第一页相同，不再把全部批次ID加载到内存后截取。
+ */
+@Service
+@RequiredArgsConstructor
+public class ProofBatchPager {
+
+    private static final String BATCH_CURSOR = "batch";
+
+    /**
+     * 没有批次ID的旧数据每个文件单独成一批
+     */
+    public static final String LEGACY_BATCH_PREFIX = "LEGACY_";
+
+    /**
+     * 每次扫描的最少文件数
+     */
+    private static final int MIN_SCAN_CHUNK = 50;
+
+    /**
+     * 第一页的起点（数据库 DATETIME 的上限，LocalDateTime.MAX 超出其范围）
+     */
+    private static final LocalDateTime FIRST_PAGE_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final Comparator<ProofFile> NEWEST_FIRST = Comparator
+            .comparing(ProofFile::getUploadTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(ProofFile::getId, Comparator.reverseOrder());
+
+    private final ProofFileRepository proofFileRepository;
+
+    /**
+     * 按审核状态分页（批次中有任一文件处于这些状态即计入，排序取这些文件中最新的一个）
+     */
+    public CursorPage<List<ProofFile>> byStatus(Collection<ProofFile.AuditStatus> statuses, String cursor, int limit) {
+        Set<ProofFile.AuditStatus> statusSet = new HashSet<>(statuses);
+        return page(cursor, limit,
+                (time, id, chunk) -> proofFileRepository.findBatchFilesBefore(statuses, time, id, PageRequest.of(0, chunk)),
+                file -> statusSet.contains(file.getAuditStatus()));
+    }
+
+    /**
+     * 全部批次分页
+     */
+    public CursorPage<List<ProofFile>> all(String cursor, int limit) {
+        return page(cursor, limit,
+                (time, id, chunk) -> proofFileRepository.findAllBatchFilesBefore(time, id, PageRequest.of(0, chunk)),
+                file -> true);
+    }
+
+    /**
+     * 用户的提交批次分页（含没有批次ID的旧数据）
+     */
+    public CursorPage<List<ProofFile>> byUser(Long userAccountId, String cursor, int limit) {
+        return page(cursor, limit,
+                (time, id, chunk) -> proofFileRepository.findUserFilesBefore(userAccountId, time, id, PageRequest.of(0, chunk)),
+                file -> userAccountId.equals(file.getUserAccountId()));
+    }
+
+    /**
+     * 批次键：批次ID，旧数据为 LEGACY_{文件ID}
+     */
+    public static String batchKey(ProofFile file) {
+        return file.getSubmissionBatchId() != null ? file.getSubmissionBatchId() : LEGACY_BATCH_PREFIX + file.getId();
+    }
+
+    /**
+     * 从游标处按文件倒序扫描，收集代表文件（批次中符合条件的最新文件）排在游标之后的批次。
+     * 代表文件在游标之前的批次已在前面的页返回过，扫描到它们较早的文件时跳过。
+     * 返回的每个批次文件按上传时间倒序（第一个为最新文件）。
+     */
+    private CursorPage<List<ProofFile>> page(String cursor, int limit, FileSeek seek, Predicate<ProofFile> matches) {
+        LocalDateTime afterTime = FIRST_PAGE_TIME;
+        long afterId = Long.MAX_VALUE;
+        if (!PageCursor.isFirstPage(cursor)) {
+            String[] fields = PageCursor.decode(cursor, BATCH_CURSOR, 2);
+            try {
+                afterTime = LocalDateTime.parse(fields[0]);
+                afterId = Long.parseLong(fields[1]);
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException();
+            }
+        }
+
+        // 多取一个批次用于判断是否还有下一页
+        int wanted = limit + 1;
+        int chunk = Math.max(MIN_SCAN_CHUNK, wanted * 4);
+        Set<String> visited = new HashSet<>();
+        List<List<ProofFile>> batches = new ArrayList<>(wanted);
+
+        LocalDateTime scanTime = afterTime;
+        long scanId = afterId;
+        while (batches.size() < wanted) {
+            List<ProofFile> rows = seek.before(scanTime, scanId, chunk);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            // 本轮新出现的批次，按首次出现（即扫描到的最新文件）的顺序
+            Map<String, ProofFile> firstSeen = new LinkedHashMap<>();
+            for (ProofFile file : rows) {
+                String key = batchKey(file);
+                if (visited.add(key)) {
+                    firstSeen.put(key, file);
+                }
+            }
+            Map<String, List<ProofFile>> filesByBatch = loadBatches(firstSeen);
+
+            for (Map.Entry<String, ProofFile> entry : firstSeen.entrySet()) {
+                List<ProofFile> files = filesByBatch.get(entry.getKey());
+                ProofFile representative = files.stream().filter(matches).findFirst().orElse(entry.getValue());
+                // 批次中有比游标更新的文件：该批次已在之前的页返回
+                if (!representative.getId().equals(entry.getValue().getId())
+                        && isBefore(afterTime, afterId, representative)) {
+                    continue;
+                }
+                batches.add(files);
+                if (batches.size() >= wanted) {
+                    break;
+                }
+            }
+
+            if (rows.size() < chunk) {
+                break;
+            }
+            ProofFile last = rows.get(rows.size() - 1);
+            scanTime = last.getUploadTime();
+            scanId = last.getId();
+        }
+
+        String nextCursor = null;
+        if (batches.size() > limit) {
+            batches = new ArrayList<>(batches.subList(0, limit));
+            ProofFile last = batches.get(limit - 1).stream().filter(matches).findFirst()
+                    .orElse(batches.get(limit - 1).get(0));
+            nextCursor = PageCursor.encode(BATCH_CURSOR, last.getUploadTime(), last.getId());
+        }
+        return CursorPage.<List<ProofFile>>builder()
+                .items(batches)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * 一次查询加载多个批次的全部文件，旧数据直接使用扫描到的文件
+     */
+    private Map<String, List<ProofFile>> loadBatches(Map<String, ProofFile> firstSeen) {
+        Map<String, List<ProofFile>> filesByBatch = new HashMap<>();
+        List<String> batchIds = new ArrayList<>();
+        for (Map.Entry<String, ProofFile> entry : firstSeen.entrySet()) {
+            if (entry.getValue().getSubmissionBatchId() == null) {
+                filesByBatch.put(entry.getKey(), new ArrayList<>(List.of(entry.getValue())));
+            } else {
+                batchIds.add(entry.getKey());
+            }
+        }
+        if (!batchIds.isEmpty()) {
+            for (ProofFile file : proofFileRepository.findBySubmissionBatchIdIn(batchIds)) {
+                filesByBatch.computeIfAbsent(file.getSubmissionBatchId(), k -> new ArrayList<>()).add(file);
+            }
+        }
+        for (Map.Entry<String, ProofFile> entry : firstSeen.entrySet()) {
+            // 扫描后批次被删除时至少保留扫描到的文件
+            filesByBatch.computeIfAbsent(entry.getKey(), k -> new ArrayList<>(List.of(entry.getValue())))
+                    .sort(NEWEST_FIRST);
+        }
+        return filesByBatch;
+    }
+
+    /**
+     * 文件是否排在游标之前（比游标更新或就是游标本身）
+     */
+    private static boolean isBefore(LocalDateTime afterTime, long afterId, ProofFile file) {
+        int cmp = file.getUploadTime().compareTo(afterTime);
+        return cmp > 0 || (cmp == 0 && file.getId() >= afterId);
+    }
+
+    @FunctionalInterface
+    private interface FileSeek {
+        List<ProofFile> before(LocalDateTime uploadTime, long id, int limit);
+    }
+}
@@ -0,0 +1,15 @@
+package com.brokerwallet.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 异步区块链查询的排队数已达上限，请求被直接拒绝（HTTP 503，客户端稍后重试）
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "区块链查询繁忙，请稍后重试")
+public class QueryQueueFullException extends RuntimeException {
+
+    public QueryQueueFullException(int maxQueued) {
+        super("Blockchain query queue is full (" + maxQueued + " waiting)");
+    }
+}
@@ -0,0 +1,133 @@
+package com.brokerwallet.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 排行榜响应缓存
+ * 按（页码, 每页大小）缓存已序列化的 JSON 字节，并记录生成时的排行榜版本；
+ * 排行榜索引的版本在勋章或榜中用户资料变化提交后递增，版本不一致的缓存项视为失效。
+ * ETag 由实例纪元和版本号生成，客户端带着未变化的 ETag 轮询时无需查库和序列化。
+ */
+@Service
+@RequiredArgsConstructor
+public class RankingResponseCache {
+
+    /**
+     * 最多缓存的（页码, 每页大小）组合数，超出时整体清空
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    /**
+     * 超过该每页大小的请求不缓存
+     */
+    private static final int MAX_CACHED_PAGE_SIZE = 100;
+
+    private final MedalRankingIndex medalRankingIndex;
+
+    /**
+     * 实例纪元（启动时间 + 随机数）：版本号在重启后从0开始、各实例互不相同，
+     * 纪元保证重启前或其他实例签发的 ETag 不会与当前版本误判为相同
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36)
+            + Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36);
+
+    private final Map<String, CachedResponse> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    /**
+     * 排行榜索引就绪时才有可靠的版本号，未就绪时不缓存
+     */
+    public boolean isAvailable() {
+        return medalRankingIndex.isReady();
+    }
+
+    /**
+     * 当前排行榜版本对应的 ETag
+     */
+    public String currentETag() {
+        return eTagOf(epoch, medalRankingIndex.version());
+    }
+
+    /**
+     * 记录一次 304 响应
+     */
+    public void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    /**
+     * 取缓存的响应字节，版本不一致或不存在时用 renderer 生成
+     * 版本在生成之前读取：生成期间排行榜再次变化时，缓存项带旧版本，下一次请求会重新生成
+     */
+    public CachedResponse get(int page, int size, Supplier<byte[]> renderer) {
+        long version = medalRankingIndex.version();
+        if (size > MAX_CACHED_PAGE_SIZE) {
+            misses.incrementAndGet();
+            return new CachedResponse(version, eTagOf(epoch, version), renderer.get());
+        }
+
+        String key = page + ":" + size;
+        CachedResponse cached = entries.get(key);
+        if (cached != null && cached.version == version) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        CachedResponse rendered = new CachedResponse(version, eTagOf(epoch, version), renderer.get());
+        if (entries.size() >= MAX_ENTRIES && !entries.containsKey(key)) {
+            entries.clear();
+        }
+        entries.put(key, rendered);
+        return rendered;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("epoch", epoch);
+        stats.put("version", medalRankingIndex.version());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("notModified", notModified.get());
+        return stats;
+    }
+
+    private static String eTagOf(String epoch, long version) {
+        return "\"ranking-" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * 已序列化的排行榜响应
+     */
+    public static final class CachedResponse {
+        private final long version;
+        private final String eTag;
+        private final byte[] body;
+
+        private CachedResponse(long version, String eTag, byte[] body) {
+            this.version = version;
+            this.eTag = eTag;
+            this.body = body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
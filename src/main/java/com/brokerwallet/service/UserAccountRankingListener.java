@@ -0,0 +1,119 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.event.MedalsChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 用户账户实体监听器：勋章变化在事务提交后同步到排行榜内存索引和勋章统计，并发布 MedalsChangedEvent（事务回滚时不更新）
+ * 由 Hibernate 通过 Spring 容器创建；依赖延迟获取，避免与 EntityManagerFactory 的初始化形成循环依赖
+ */
+@Component
+public class UserAccountRankingListener {
+
+    private final ObjectProvider<MedalRankingIndex> rankingIndex;
+    private final ObjectProvider<MedalStatsService> medalStats;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserAccountRankingListener(ObjectProvider<MedalRankingIndex> rankingIndex,
+                                      ObjectProvider<MedalStatsService> medalStats,
+                                      ApplicationEventPublisher eventPublisher) {
+        this.rankingIndex = rankingIndex;
+        this.medalStats = medalStats;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    public void onCreated(UserAccount user) {
+        onSaved(user, 1);
+    }
+
+    @PostUpdate
+    public void onUpdated(UserAccount user) {
+        onSaved(user, 0);
+    }
+
+    @PostRemove
+    public void onRemoved(UserAccount user) {
+        Long userId = user.getId();
+        afterCommit(() -> {
+            MedalRankingIndex index = rankingIndex.getIfAvailable();
+            if (index != null) {
+                // 删除前的勋章数以索引中记录的为准
+                applyStats(-1, index.remove(userId), 0, 0, 0);
+            }
+        });
+    }
+
+    private void onSaved(UserAccount user, int userDelta) {
+        Long userId = user.getId();
+        int gold = valueOf(user.getGoldMedals());
+        int silver = valueOf(user.getSilverMedals());
+        int bronze = valueOf(user.getBronzeMedals());
+        String walletAddress = user.getWalletAddress();
+        afterCommit(() -> {
+            MedalRankingIndex index = rankingIndex.getIfAvailable();
+            if (index != null) {
+                int[] previous = index.update(userId, gold, silver, bronze, user.getCreateTime());
+                applyStats(userDelta, previous, gold, silver, bronze);
+                // 变化前的勋章数未知时同样发布
+                if (previous == null || previous[0] != gold || previous[1] != silver || previous[2] != bronze) {
+                    eventPublisher.publishEvent(new MedalsChangedEvent(userId, walletAddress, gold, silver, bronze));
+                }
+            }
+        });
+    }
+
+    /**
+     * 按索引中记录的变化前勋章数计算统计增量；索引未就绪时交给统计校验修正
+     */
+    private void applyStats(int userDelta, int[] previous, int gold, int silver, int bronze) {
+        MedalStatsService stats = medalStats.getIfAvailable();
+        if (stats == null) {
+            return;
+        }
+        if (previous == null) {
+            stats.markUnknownChange();
+            return;
+        }
+        stats.applyDelta(userDelta, gold - previous[0], silver - previous[1], bronze - previous[2]);
+    }
+
+    /**
+     * 提交后执行；事务结束前登记为勋章统计的未完成变更，避免统计校验把已提交、未应用的增量计入两次
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            MedalStatsService stats = medalStats.getIfAvailable();
+            if (stats != null) {
+                stats.beginPendingChange();
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (stats != null) {
+                        stats.endPendingChange();
+                    }
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static int valueOf(Integer count) {
+        return count != null ? count : 0;
+    }
+}
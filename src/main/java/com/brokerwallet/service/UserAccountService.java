@@ -1,19 +1,27 @@
 package com.brokerwallet.service;
 
+import com.brokerwallet.dto.CursorPage;
 import com.brokerwallet.entity.UserAccount;
 import com.brokerwallet.repository.UserAccountRepository;
+import com.brokerwallet.util.InvalidCursorException;
+import com.brokerwallet.util.PageCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 用户账户服务
@@ -26,6 +34,14 @@ public class UserAccountService {
     @Autowired
     private UserAccountRepository userAccountRepository;
     
+    @Autowired
+    private MedalRankingIndex medalRankingIndex;
+    
+    @Autowired
+    private MedalStatsService medalStatsService;
+    
+    private static final String RANK_CURSOR = "rank";
+    
     /**
      * 根据钱包地址获取或创建用户
      */
@@ -94,17 +110,93 @@ public class UserAccountService {
     }
     
     /**
-     * 获取勋章排行榜（实时查询，无缓存）
+     * 获取勋章排行榜（内存索引按名次取ID后按主键加载用户，索引未就绪时回退到数据库排序）
+     * 两条路径都只列出有勋章的用户，totalElements 为有勋章的用户数
      */
     public Page<UserAccount> getMedalRanking(Pageable pageable) {
         logger.info("查询勋章排行榜: page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
-        return userAccountRepository.findAllByOrderByTotalMedalScoreDescGoldMedalsDescSilverMedalsDesc(pageable);
+        if (!medalRankingIndex.isReady()) {
+            return userAccountRepository.findAllByOrderByTotalMedalScoreDescGoldMedalsDescSilverMedalsDesc(pageable);
+        }
+        
+        int total = medalRankingIndex.size();
+        List<Long> userIds = medalRankingIndex.page(pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(loadInOrder(userIds), pageable, total);
+    }
+    
+    /**
+     * 按游标获取勋章排行榜：游标记录上一页最后一位的排序键（金、银、铜牌，注册时间，ID），
+     * 下一页从该排序键之后开始，任何一页的开销都与第一页相同。
+     * 索引未就绪时回退到数据库键集查询（此时不返回名次）。
+     */
+    public CursorPage<UserAccount> getMedalRankingAfter(String cursor, int size) {
+        MedalRankingIndex.RankKey after = decodeRankCursor(cursor);
+        
+        List<UserAccount> users;
+        Integer firstRank = null;
+        if (medalRankingIndex.isReady()) {
+            MedalRankingIndex.Slice slice = medalRankingIndex.after(after, size + 1);
+            List<Long> userIds = new ArrayList<>(slice.getKeys().size());
+            for (MedalRankingIndex.RankKey key : slice.getKeys()) {
+                userIds.add(key.getUserId());
+            }
+            users = loadInOrder(userIds);
+            firstRank = slice.getFirstRank();
+        } else if (after != null) {
+            users = userAccountRepository.findMedalRankingAfter(after.getGold() * 3 + after.getSilver() * 2 + after.getBronze(),
+                    after.getGold(), after.getSilver(), after.getCreateTime(), after.getUserId(), PageRequest.of(0, size + 1));
+        } else {
+            users = userAccountRepository.findMedalRankingAfter(Integer.MAX_VALUE, 0, 0,
+                    LocalDateTime.now(), 0L, PageRequest.of(0, size + 1));
+        }
+        
+        // 多取一条用于判断是否还有下一页
+        String nextCursor = null;
+        if (users.size() > size) {
+            users = new ArrayList<>(users.subList(0, size));
+            UserAccount last = users.get(size - 1);
+            nextCursor = PageCursor.encode(RANK_CURSOR, valueOf(last.getGoldMedals()), valueOf(last.getSilverMedals()),
+                    valueOf(last.getBronzeMedals()), last.getCreateTime(), last.getId());
+        }
+        return CursorPage.<UserAccount>builder()
+                .items(users)
+                .nextCursor(nextCursor)
+                .firstRank(firstRank)
+                .build();
+    }
+    
+    private MedalRankingIndex.RankKey decodeRankCursor(String cursor) {
+        if (PageCursor.isFirstPage(cursor)) {
+            return null;
+        }
+        String[] fields = PageCursor.decode(cursor, RANK_CURSOR, 5);
+        try {
+            return new MedalRankingIndex.RankKey(Long.parseLong(fields[4]), Integer.parseInt(fields[0]),
+                    Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), LocalDateTime.parse(fields[3]));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException();
+        }
+    }
+    
+    private static int valueOf(Integer count) {
+        return count != null ? count : 0;
     }
     
     /**
-     * 获取用户排名
+     * 获取用户排名：总分高于该用户的人数 + 1，总分相同的用户名次相同；没有勋章的用户排在所有上榜用户之后
      */
     public Long getUserRank(Long userId) {
+        if (medalRankingIndex.isReady()) {
+            int rank = medalRankingIndex.rankOf(userId);
+            if (rank > 0) {
+                return (long) rank;
+            }
+            if (!userAccountRepository.existsById(userId)) {
+                return null;
+            }
+            return (long) medalRankingIndex.size() + 1;
+        }
+        
         UserAccount user = userAccountRepository.findById(userId).orElse(null);
         if (user == null) {
             return null;
@@ -117,37 +209,37 @@ public class UserAccountService {
     }
     
     /**
-     * 获取勋章统计信息（实时查询，无缓存）
+     * 获取用户前后各 radius 名的排行榜窗口（需要排行榜索引就绪）
+     */
+    public MedalRankingIndex.Window getRankingAround(Long userId, int radius) {
+        if (!medalRankingIndex.isReady()) {
+            throw new IllegalStateException("排行榜索引尚未就绪");
+        }
+        return medalRankingIndex.around(userId, radius);
+    }
+    
+    /**
+     * 按给定ID顺序加载用户（已删除的用户跳过）
+     */
+    public List<UserAccount> loadInOrder(List<Long> userIds) {
+        Map<Long, UserAccount> byId = userAccountRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(UserAccount::getId, Function.identity()));
+        List<UserAccount> users = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            UserAccount user = byId.get(userId);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+    
+    /**
+     * 获取勋章统计信息（增量维护的汇总计数，O(1)）
      */
     public Map<String, Object> getMedalStats() {
         logger.info("获取勋章统计信息");
-        
-        Map<String, Object> stats = new HashMap<>();
-        
-        // 总用户数
-        long totalUsers = userAccountRepository.count();
-        stats.put("totalUsers", totalUsers);
-        
-        // 各种勋章总数
-        Long totalGoldMedals = userAccountRepository.sumGoldMedals();
-        Long totalSilverMedals = userAccountRepository.sumSilverMedals();
-        Long totalBronzeMedals = userAccountRepository.sumBronzeMedals();
-        
-        stats.put("totalGoldMedals", totalGoldMedals != null ? totalGoldMedals : 0);
-        stats.put("totalSilverMedals", totalSilverMedals != null ? totalSilverMedals : 0);
-        stats.put("totalBronzeMedals", totalBronzeMedals != null ? totalBronzeMedals : 0);
-        
-        // 最高分数
-        UserAccount topUser = userAccountRepository.findTopByOrderByTotalMedalScoreDescGoldMedalsDescSilverMedalsDesc();
-        if (topUser != null) {
-            stats.put("highestScore", topUser.getTotalMedalScore());
-            stats.put("topUserDisplayName", topUser.getDisplayName() != null ? topUser.getDisplayName() : "Anonymous User");
-        } else {
-            stats.put("highestScore", 0);
-            stats.put("topUserDisplayName", null);
-        }
-        
-        return stats;
+        return medalStatsService.getMedalStats();
     }
     
     /**
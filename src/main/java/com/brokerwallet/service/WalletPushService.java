@@ -0,0 +1,380 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.event.MedalsChangedEvent;
+import com.brokerwallet.event.ReviewDecisionEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 钱包推送服务（Server-Sent Events）
+ * 客户端按钱包订阅后，审核结果、勋章变化和名次变化由服务端推送，不再轮询排行榜和提交历史。
+ * 连接基于 Servlet 异步请求，空闲连接不占用线程；每个连接有固定容量的发送队列，由少量分发线程写出，
+ * 慢客户端的队列写满时直接关闭连接（客户端重连后重新拉取状态），不会拖慢发布方或占用无界内存。
+ * 心跳定期写出注释行，写失败的连接随之清理。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletPushService {
+
+    public static final String EVENT_RANK = "rank";
+    public static final String EVENT_MEDALS = "medals";
+    public static final String EVENT_REVIEW = "review";
+
+    private final MedalRankingIndex medalRankingIndex;
+
+    /**
+     * 全局连接数上限
+     */
+    @Value("${brokerwallet.push.max-connections:20000}")
+    private int maxConnections;
+
+    /**
+     * 单个钱包的连接数上限（多设备同时在线）
+     */
+    @Value("${brokerwallet.push.max-per-wallet:4}")
+    private int maxPerWallet;
+
+    /**
+     * 每个连接待发送事件的队列容量
+     */
+    @Value("${brokerwallet.push.buffer-size:32}")
+    private int bufferSize;
+
+    /**
+     * 连接最长存活时间，到期后客户端自动重连
+     */
+    @Value("${brokerwallet.push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${brokerwallet.push.heartbeat-interval-ms:25000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${brokerwallet.push.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    private final Map<String, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong eventSeq = new AtomicLong();
+
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong overflowClosed = new AtomicLong();
+    private final AtomicLong deadClosed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile long lastRankVersion = -1;
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, r -> {
+            Thread thread = new Thread(r, "WalletPush-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Set<Connection> walletConnections : connections.values()) {
+            for (Connection connection : walletConnections) {
+                connection.emitter.complete();
+            }
+        }
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * 订阅钱包事件，连接数达到上限时返回 null
+     * @param userId 钱包对应的用户ID（尚未注册时为 null，只接收审核事件）
+     */
+    public SseEmitter subscribe(String walletAddress, Long userId) {
+        String wallet = normalize(walletAddress);
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            rejected.incrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Connection connection = new Connection(wallet, userId, emitter, bufferSize);
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+
+        // 与 remove 中的 computeIfPresent 互斥，避免加入刚被移出注册表的集合
+        Set<Connection> walletConnections = connections.compute(wallet, (k, existing) -> {
+            Set<Connection> set = existing != null ? existing : ConcurrentHashMap.newKeySet();
+            set.add(connection);
+            return set;
+        });
+        if (walletConnections.size() > maxPerWallet) {
+            // 同一钱包连接过多时关闭最早的连接
+            walletConnections.stream()
+                    .filter(c -> c != connection)
+                    .min((a, b) -> Long.compare(a.openedAt, b.openedAt))
+                    .ifPresent(this::close);
+        }
+
+        // 连接建立后先推送一次当前名次
+        if (userId != null && medalRankingIndex.isReady()) {
+            int rank = medalRankingIndex.rankOf(userId);
+            connection.lastRank = rank;
+            offer(connection, event(EVENT_RANK, rankPayload(rank)));
+        }
+        log.debug("Wallet push subscribed: {} ({} connections)", wallet, connectionCount.get());
+        return emitter;
+    }
+
+    /**
+     * 勋章变化推送给该钱包
+     */
+    @EventListener
+    public void onMedalsChanged(MedalsChangedEvent event) {
+        Set<Connection> walletConnections = connectionsOf(event.getWalletAddress());
+        if (walletConnections == null) {
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("goldMedals", event.getGoldMedals());
+        payload.put("silverMedals", event.getSilverMedals());
+        payload.put("bronzeMedals", event.getBronzeMedals());
+        payload.put("totalMedalScore", event.getGoldMedals() * 3 + event.getSilverMedals() * 2 + event.getBronzeMedals());
+        broadcast(walletConnections, EVENT_MEDALS, payload);
+    }
+
+    /**
+     * 审核结果推送给该钱包
+     */
+    @EventListener
+    public void onReviewDecision(ReviewDecisionEvent event) {
+        Set<Connection> walletConnections = connectionsOf(event.getWalletAddress());
+        if (walletConnections == null) {
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("approved", event.isApproved());
+        payload.put("auditStatus", event.isApproved() ? "APPROVED" : "REJECTED");
+        payload.put("proofFileId", event.getProofFileId());
+        payload.put("batchId", event.getBatchId());
+        payload.put("goldMedals", event.getGoldMedals());
+        payload.put("silverMedals", event.getSilverMedals());
+        payload.put("bronzeMedals", event.getBronzeMedals());
+        payload.put("auditTime", LocalDateTime.now().toString());
+        broadcast(walletConnections, EVENT_REVIEW, payload);
+    }
+
+    /**
+     * 排行榜版本变化后，为在线用户重新计算名次，只推送名次有变化的连接（多次变化合并为一次）
+     */
+    @Scheduled(fixedDelayString = "${brokerwallet.push.rank-interval-ms:2000}")
+    public void pushRankChanges() {
+        if (connectionCount.get() == 0 || !medalRankingIndex.isReady()) {
+            return;
+        }
+        long version = medalRankingIndex.version();
+        if (version == lastRankVersion) {
+            return;
+        }
+        lastRankVersion = version;
+
+        for (Set<Connection> walletConnections : connections.values()) {
+            int rank = -1;
+            for (Connection connection : walletConnections) {
+                if (connection.userId == null) {
+                    continue;
+                }
+                if (rank < 0) {
+                    rank = medalRankingIndex.rankOf(connection.userId);
+                }
+                if (connection.lastRank != rank) {
+                    connection.lastRank = rank;
+                    offer(connection, event(EVENT_RANK, rankPayload(rank)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 心跳：近期没有发送过数据的连接写出注释行，连接已断开时写失败并被清理
+     */
+    @Scheduled(fixedDelayString = "${brokerwallet.push.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        long threshold = System.currentTimeMillis() - heartbeatIntervalMs;
+        for (Set<Connection> walletConnections : connections.values()) {
+            for (Connection connection : walletConnections) {
+                if (connection.lastSentAt < threshold) {
+                    offer(connection, SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connectionCount.get());
+        stats.put("wallets", connections.size());
+        stats.put("maxConnections", maxConnections);
+        stats.put("eventsSent", eventsSent.get());
+        stats.put("overflowClosed", overflowClosed.get());
+        stats.put("deadClosed", deadClosed.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private void broadcast(Set<Connection> walletConnections, String name, Map<String, Object> payload) {
+        for (Connection connection : walletConnections) {
+            offer(connection, event(name, payload));
+        }
+    }
+
+    private SseEmitter.SseEventBuilder event(String name, Map<String, Object> payload) {
+        return SseEmitter.event()
+                .id(Long.toString(eventSeq.incrementAndGet()))
+                .name(name)
+                .data(payload, MediaType.APPLICATION_JSON);
+    }
+
+    private Map<String, Object> rankPayload(int rank) {
+        Map<String, Object> payload = new HashMap<>();
+        // 没有勋章的用户不在榜中，名次为 null
+        payload.put("rank", rank > 0 ? rank : null);
+        payload.put("rankedUsers", medalRankingIndex.size());
+        return payload;
+    }
+
+    /**
+     * 事件放入连接的发送队列；队列已满说明客户端长期不读，关闭连接
+     */
+    private void offer(Connection connection, SseEmitter.SseEventBuilder event) {
+        if (connection.closed.get()) {
+            return;
+        }
+        if (!connection.queue.offer(event)) {
+            overflowClosed.incrementAndGet();
+            log.debug("Wallet push buffer full, closing connection: {}", connection.wallet);
+            close(connection);
+            return;
+        }
+        scheduleDrain(connection);
+    }
+
+    private void scheduleDrain(Connection connection) {
+        if (connection.draining.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(connection));
+            } catch (RejectedExecutionException e) {
+                connection.draining.set(false);
+            }
+        }
+    }
+
+    /**
+     * 写出连接队列中的事件（同一连接同时只有一个分发线程在写）
+     */
+    private void drain(Connection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!connection.closed.get() && (event = connection.queue.poll()) != null) {
+                connection.emitter.send(event);
+                connection.lastSentAt = System.currentTimeMillis();
+                eventsSent.incrementAndGet();
+            }
+        } catch (Exception e) {
+            // 客户端已断开
+            deadClosed.incrementAndGet();
+            close(connection);
+        } finally {
+            connection.draining.set(false);
+        }
+        if (!connection.closed.get() && !connection.queue.isEmpty()) {
+            scheduleDrain(connection);
+        }
+    }
+
+    private void close(Connection connection) {
+        if (remove(connection)) {
+            try {
+                connection.emitter.complete();
+            } catch (Exception ignored) {
+                // 连接已失效
+            }
+        }
+    }
+
+    /**
+     * 从注册表移除连接，返回是否由本次调用移除
+     */
+    private boolean remove(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        connection.queue.clear();
+        connectionCount.decrementAndGet();
+        connections.computeIfPresent(connection.wallet, (k, walletConnections) -> {
+            walletConnections.remove(connection);
+            return walletConnections.isEmpty() ? null : walletConnections;
+        });
+        return true;
+    }
+
+    private Set<Connection> connectionsOf(String walletAddress) {
+        if (walletAddress == null || walletAddress.isBlank()) {
+            return null;
+        }
+        return connections.get(normalize(walletAddress));
+    }
+
+    /**
+     * 统一为小写带0x前缀的地址
+     */
+    private static String normalize(String address) {
+        String lower = address.trim().toLowerCase();
+        return lower.startsWith("0x") ? lower : "0x" + lower;
+    }
+
+    /**
+     * 一个 SSE 连接
+     */
+    private static final class Connection {
+        private final String wallet;
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private final long openedAt = System.currentTimeMillis();
+        private volatile long lastSentAt = System.currentTimeMillis();
+        private volatile int lastRank;
+
+        private Connection(String wallet, Long userId, SseEmitter emitter, int bufferSize) {
+            this.wallet = wallet;
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
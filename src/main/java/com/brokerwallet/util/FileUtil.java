@@ -7,10 +7,13 @@ import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
@@ -174,6 +177,70 @@ public class FileUtil {
         return filePath;
     }
     
+    /**
+     * 保存上传文件，同一次流式写入中计算 SHA-256 和 MD5，不把文件读入内存，也不再单独读取计算哈希。
+     * 超过 spooledAbove 字节的 multipart 已由容器写入临时文件：直接把临时文件重命名到目标目录
+     * （容器临时目录与目标目录不在同一文件系统时由容器回退为复制），之后只读一遍计算哈希。
+     * 先写入同目录下的 .part 文件，完成后原子重命名为最终文件名，不会出现写了一半的文件。
+     */
+    public static StoredFile storeFile(MultipartFile file, String directory, long spooledAbove) throws IOException {
+        ensureDirectoryExists(directory);
+        
+        String fileName = generateUniqueFileName(file.getOriginalFilename(), file.getContentType());
+        String filePath = directory + fileName;
+        Path targetPath = Paths.get(filePath).toAbsolutePath();
+        Path partPath = targetPath.resolveSibling(fileName + ".part");
+        
+        MessageDigest sha256 = newDigest("SHA-256");
+        MessageDigest md5 = newDigest("MD5");
+        long size;
+        try {
+            if (file.getSize() > spooledAbove) {
+                // transferTo(File) 交给容器的 Part.write，临时文件被重命名而不是复制
+                file.transferTo(partPath.toFile());
+                try (InputStream is = new DigestInputStream(new DigestInputStream(Files.newInputStream(partPath), sha256), md5)) {
+                    size = is.transferTo(OutputStream.nullOutputStream());
+                }
+            } else {
+                try (InputStream is = file.getInputStream();
+                     OutputStream os = new DigestOutputStream(new DigestOutputStream(Files.newOutputStream(partPath), sha256), md5)) {
+                    size = is.transferTo(os);
+                }
+            }
+            moveAtomically(partPath, targetPath);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partPath);
+            throw e;
+        }
+        
+        return new StoredFile(filePath, size, toHex(sha256.digest()), toHex(md5.digest()));
+    }
+    
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 与 MD5 是 JDK 必须提供的算法
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+    
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+    
     /**
      * 计算文件的MD5哈希值
      */
@@ -345,5 +412,37 @@ public class FileUtil {
             return String.format("%.1f GB", size / (1024.0 * 1024.0 * 1024.0));
         }
     }
+    
+    /**
+     * 已保存的上传文件：路径、字节数及写入时计算的哈希
+     */
+    public static final class StoredFile {
+        private final String path;
+        private final long size;
+        private final String sha256;
+        private final String md5;
+        
+        private StoredFile(String path, long size, String sha256, String md5) {
+            this.path = path;
+            this.size = size;
+            this.sha256 = sha256;
+            this.md5 = md5;
+        }
+        
+        public String getPath() {
+            return path;
+        }
+        
+        public long getSize() {
+            return size;
+        }
+        
+        public String getSha256() {
+            return sha256;
+        }
+        
+        public String getMd5() {
+            return md5;
+        }
+    }
 }
-
@@ -0,0 +1,12 @@
+package com.brokerwallet.util;
+
+/**
+ * 续页令牌无法解析：格式、类型或字段值不符
+ * 控制器只把这一异常映射为 400，页码模式下的其他参数错误不受影响
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException() {
+        super("Invalid cursor");
+    }
+}
@@ -0,0 +1,228 @@
+package com.brokerwallet.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 顺序统计树（带子树大小的 Treap）
+ * 按比较器排序保存元素，插入、删除、按名次取元素、查询元素名次的期望复杂度均为 O(log n)。
+ * 比较器必须是全序（不同元素不能比较为相等）；非线程安全，由调用方加锁。
+ */
+public class OrderStatisticTree<T> {
+
+    private static final class Node<T> {
+        private final T value;
+        private final int priority;
+        private Node<T> left;
+        private Node<T> right;
+        private int size = 1;
+
+        private Node(T value) {
+            this.value = value;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private final Comparator<? super T> comparator;
+    private Node<T> root;
+
+    public OrderStatisticTree(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * 插入元素（已存在相等元素时不插入），返回是否插入
+     */
+    public boolean add(T value) {
+        int before = size();
+        root = insert(root, value);
+        return size() > before;
+    }
+
+    /**
+     * 删除元素，返回是否删除
+     */
+    public boolean remove(T value) {
+        int before = size();
+        root = delete(root, value);
+        return size() < before;
+    }
+
+    /**
+     * 元素的名次（从0开始），不存在时返回 -1
+     */
+    public int indexOf(T value) {
+        int index = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(value, node.value);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                index += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return index + size(node.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 小于（inclusive 时为小于等于）给定值的元素个数，给定值不必在树中
+     */
+    public int headSize(T value, boolean inclusive) {
+        int count = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(value, node.value);
+            if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                node = node.left;
+            } else {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 按名次（从0开始）取元素
+     */
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    /**
+     * 按名次取出 [from, from + count) 区间内的元素
+     */
+    public List<T> range(int from, int count) {
+        List<T> result = new ArrayList<>(Math.max(0, Math.min(count, size() - from)));
+        collect(root, Math.max(0, from), from + count, 0, result);
+        return result;
+    }
+
+    private void collect(Node<T> node, int from, int to, int offset, List<T> result) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int index = offset + size(node.left);
+        if (from < index) {
+            collect(node.left, from, to, offset, result);
+        }
+        if (index >= from && index < to) {
+            result.add(node.value);
+        }
+        if (to > index + 1) {
+            collect(node.right, from, to, index + 1, result);
+        }
+    }
+
+    private Node<T> insert(Node<T> node, T value) {
+        if (node == null) {
+            return new Node<>(value);
+        }
+        int cmp = comparator.compare(value, node.value);
+        if (cmp < 0) {
+            node.left = insert(node.left, value);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else if (cmp > 0) {
+            node.right = insert(node.right, value);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        } else {
+            return node;
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> delete(Node<T> node, T value) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(value, node.value);
+        if (cmp < 0) {
+            node.left = delete(node.left, value);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, value);
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * 合并两棵子树（left 中的元素都小于 right）
+     */
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static <T> void update(Node<T> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static <T> int size(Node<T> node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,53 @@
+package com.brokerwallet.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 游标分页的续页令牌
+ * 令牌是"类型|字段1|字段2..."的 URL 安全 Base64 编码，对客户端不透明；
+ * 类型用于拒绝把一个列表的令牌用在另一个列表上。字段值不能包含 '|'。
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private PageCursor() {
+    }
+
+    /**
+     * 生成令牌
+     */
+    public static String encode(String kind, Object... fields) {
+        StringBuilder raw = new StringBuilder(kind);
+        for (Object field : fields) {
+            raw.append(SEPARATOR).append(field);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析令牌，返回字段值；令牌格式、类型或字段数不符时抛出 InvalidCursorException
+     */
+    public static String[] decode(String token, String kind, int fieldCount) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+        String[] parts = raw.split("\\|", -1);
+        if (parts.length != fieldCount + 1 || !kind.equals(parts[0])) {
+            throw new InvalidCursorException();
+        }
+        return Arrays.copyOfRange(parts, 1, parts.length);
+    }
+
+    /**
+     * 空字符串表示从第一页开始
+     */
+    public static boolean isFirstPage(String token) {
+        return token == null || token.isBlank();
+    }
+}
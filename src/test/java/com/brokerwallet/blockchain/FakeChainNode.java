@@ -0,0 +1,800 @@
+package com.brokerwallet.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.FileSystemResource;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内的 BrokerChain 模拟节点
+ * 用 JDK HttpServer 提供 JSON-RPC（含批量请求），在内存中模拟 MedalNFT、OptimizedNftMinter 与 Multicall 合约，
+ * 支持 eth_call、eth_sendTransaction（节点代签）、交易回执、eth_getLogs 与出块，
+ * 并可注入固定/随机延迟和按比例返回错误。用于在没有真实节点的环境中压测同步、铸造与分页。
+ * 出块间隔为 0 时每笔交易立即单独出块。
+ * 仅在测试代码中使用；压测时通过 {@link #main} 作为独立进程启动，后端的 rpc-url 指向它即可。
+ */
+@Slf4j
+public class FakeChainNode {
+
+    private static final String CLIENT_VERSION = "BrokerChain-Fake/v1.0";
+
+    private static final String ZERO_HASH = "0x0000000000000000000000000000000000000000000000000000000000000000";
+
+    private static final String EMPTY_BLOOM = "0x" + "0".repeat(512);
+
+    private static final int INJECTED_ERROR_CODE = -32000;
+
+    private static final int REVERT_ERROR_CODE = 3;
+
+    private final Options options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonNodeFactory json = JsonNodeFactory.instance;
+
+    /**
+     * 链状态：查询共享读锁，交易执行与出块独占写锁
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FakeContracts contracts;
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<PendingTx> pendingTxs = new ArrayList<>();
+    private final Map<String, Receipt> receipts = new HashMap<>();
+    private final Map<String, Long> nonces = new HashMap<>();
+    private final Map<String, Long> pendingNonces = new HashMap<>();
+
+    private HttpServer server;
+    private ExecutorService handlerPool;
+    private ScheduledExecutorService miner;
+
+    private final AtomicLong httpRequests = new AtomicLong();
+    private final AtomicLong rpcCalls = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong transactions = new AtomicLong();
+
+    public FakeChainNode(Options options) {
+        this.options = options;
+        this.contracts = new FakeContracts(options.medalContract, options.nftContract,
+                options.tokenContract, options.multicallContract);
+        contracts.setBalance(options.accountAddress, options.initialBalance);
+        contracts.addDistributor(options.accountAddress);
+        contracts.addMinter(options.accountAddress);
+        contracts.setMintFee(options.mintFee);
+        // 创世区块
+        blocks.add(new Block(0, ZERO_HASH, System.currentTimeMillis() / 1000,
+                Collections.emptyList(), Collections.emptyList(), new int[0]));
+    }
+
+    /**
+     * 启动 HTTP 服务与出块线程
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port), 0);
+        handlerPool = Executors.newCachedThreadPool(daemonThreads("fake-chain-rpc"));
+        server.setExecutor(handlerPool);
+        server.createContext("/", this::handle);
+        server.start();
+
+        if (options.blockTimeMs > 0) {
+            miner = Executors.newSingleThreadScheduledExecutor(daemonThreads("fake-chain-miner"));
+            miner.scheduleAtFixedRate(this::mineBlock, options.blockTimeMs, options.blockTimeMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("🧪 Fake BrokerChain node listening at {} (blockTime={}ms, latency={}±{}ms, errorRate={})",
+                getUrl(), options.blockTimeMs, options.latencyMs, options.latencyJitterMs, options.errorRate);
+    }
+
+    public synchronized void stop() {
+        if (miner != null) {
+            miner.shutdownNow();
+            miner = null;
+        }
+        if (server != null) {
+            server.stop(0);
+            handlerPool.shutdownNow();
+            server = null;
+        }
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 独立启动模拟节点：
+     * mvn test-compile exec:java -Dexec.mainClass=com.brokerwallet.blockchain.FakeChainNode -Dexec.classpathScope=test
+     * 账户与合约地址读取工作目录下的 blockchain-config.yml，节点参数通过 -Dfake-node.* 系统属性指定
+     * （port、block-time-ms、latency-ms、latency-jitter-ms、error-rate、mint-fee、seed-users、seed-nfts）。
+     */
+    public static void main(String[] args) throws Exception {
+        Properties config = new Properties();
+        FileSystemResource configFile = new FileSystemResource("blockchain-config.yml");
+        if (configFile.exists()) {
+            YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+            yaml.setResources(configFile);
+            config = yaml.getObject();
+        }
+
+        FakeChainNode node = new FakeChainNode(Options.builder()
+                .port(Integer.getInteger("fake-node.port", 8545))
+                .accountAddress(config.getProperty("blockchain.account-address", "0x8c056ccb92c567da3fee27c23d4f2f107f203879"))
+                .medalContract(config.getProperty("blockchain.contracts.medal-contract", "0x1a202bfa10ea97a742ad22fcb1a7913821bf1b18"))
+                .nftContract(config.getProperty("blockchain.contracts.nft-contract", "0x382ca68b8133893fdf46170efd839c7703d9e9ae"))
+                .tokenContract(config.getProperty("blockchain.contracts.token-contract", ""))
+                .multicallContract(config.getProperty("blockchain.contracts.multicall", ""))
+                .blockTimeMs(Long.getLong("fake-node.block-time-ms", 0))
+                .latencyMs(Long.getLong("fake-node.latency-ms", 0))
+                .latencyJitterMs(Long.getLong("fake-node.latency-jitter-ms", 0))
+                .errorRate(Double.parseDouble(System.getProperty("fake-node.error-rate", "0")))
+                .mintFee(new BigInteger(System.getProperty("fake-node.mint-fee", "0")))
+                .build());
+        int seedUsers = Integer.getInteger("fake-node.seed-users", 0);
+        int seedNfts = Integer.getInteger("fake-node.seed-nfts", 0);
+        if (seedUsers > 0) {
+            node.seedUsers(seedUsers, 42L);
+        }
+        if (seedNfts > 0) {
+            node.seedNfts(seedNfts, Math.max(1, seedUsers));
+        }
+        node.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(node::stop, "fake-chain-shutdown"));
+        log.info("Fake BrokerChain node ready, set blockchain.rpc-url to {}", node.getUrl());
+        Thread.currentThread().join();
+    }
+
+    // ==================== 预置数据 ====================
+
+    /**
+     * 预置 count 个有勋章的用户，全部事件打包进一个区块
+     *
+     * @return 用户地址（按生成顺序，可重复计算：0x + 序号补齐到 40 位）
+     */
+    public List<String> seedUsers(int count, long randomSeed) {
+        java.util.Random random = new java.util.Random(randomSeed);
+        List<String> addresses = new ArrayList<>(count);
+        List<FakeContracts.FakeLog> logs = new ArrayList<>(count);
+        lock.writeLock().lock();
+        try {
+            contracts.beginBlock(head().number + 1);
+            for (int i = 0; i < count; i++) {
+                String address = seedAddress(i);
+                addresses.add(address);
+                logs.add(contracts.seedMedals(address, random.nextInt(10), random.nextInt(20), random.nextInt(40)));
+            }
+            sealBlock(Collections.emptyList(), logs, seedLogOwners(logs.size()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Seeded {} users with medals on fake chain", count);
+        return addresses;
+    }
+
+    /**
+     * 预置 count 个NFT，依次分给前 owners 个预置用户，全部事件打包进一个区块
+     */
+    public void seedNfts(int count, int owners) {
+        lock.writeLock().lock();
+        try {
+            contracts.beginBlock(head().number + 1);
+            long now = System.currentTimeMillis() / 1000;
+            List<FakeContracts.FakeLog> logs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String imageMetadata = "{\"storageType\":\"backend-server\",\"path\":\"/api/nft/image/seed-" + i
+                        + ".png\",\"type\":\"image/png\",\"serverUrl\":\"http://localhost:5000\"}";
+                logs.add(contracts.seedNft(options.accountAddress, seedAddress(i % Math.max(1, owners)),
+                        "Seed NFT #" + (i + 1), "Seeded for load testing", imageMetadata, "{}", now));
+            }
+            sealBlock(Collections.emptyList(), logs, seedLogOwners(logs.size()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Seeded {} NFTs on fake chain", count);
+    }
+
+    /**
+     * 第 index 个预置用户的地址
+     */
+    public static String seedAddress(int index) {
+        return String.format("0x%040x", 0x100000L + index);
+    }
+
+    /**
+     * 节点统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("blockNumber", head().number);
+            stats.put("pendingTransactions", pendingTxs.size());
+            stats.put("medalUsers", contracts.getUserCount());
+            stats.put("totalSupply", contracts.getTotalSupply());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("httpRequests", httpRequests.get());
+        stats.put("rpcCalls", rpcCalls.get());
+        stats.put("injectedErrors", injectedErrors.get());
+        stats.put("transactions", transactions.get());
+        return stats;
+    }
+
+    // ==================== HTTP / JSON-RPC ====================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        httpRequests.incrementAndGet();
+        try (exchange) {
+            JsonNode request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = mapper.readTree(body);
+            } catch (IOException e) {
+                respond(exchange, error(json.nullNode(), -32700, "Parse error"));
+                return;
+            }
+
+            injectLatency();
+
+            JsonNode response;
+            if (request != null && request.isArray()) {
+                ArrayNode responses = json.arrayNode(request.size());
+                for (JsonNode call : request) {
+                    responses.add(dispatch(call));
+                }
+                response = responses;
+            } else {
+                response = dispatch(request);
+            }
+            respond(exchange, response);
+        }
+    }
+
+    private void respond(HttpExchange exchange, JsonNode response) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void injectLatency() {
+        long delay = options.latencyMs;
+        if (options.latencyJitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(options.latencyJitterMs + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private ObjectNode dispatch(JsonNode call) {
+        rpcCalls.incrementAndGet();
+        JsonNode id = call == null || !call.has("id") ? json.nullNode() : call.get("id");
+        if (call == null || !call.hasNonNull("method")) {
+            return error(id, -32600, "Invalid request");
+        }
+        if (options.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < options.errorRate) {
+            injectedErrors.incrementAndGet();
+            return error(id, INJECTED_ERROR_CODE, "injected failure");
+        }
+
+        String method = call.get("method").asText();
+        JsonNode params = call.has("params") ? call.get("params") : json.arrayNode();
+        try {
+            return result(id, execute(method, params));
+        } catch (FakeContracts.Revert e) {
+            return error(id, REVERT_ERROR_CODE, "execution reverted: " + e.getMessage());
+        } catch (RpcError e) {
+            return error(id, e.code, e.getMessage());
+        } catch (RuntimeException e) {
+            log.debug("Fake node failed to handle {}: {}", method, e.getMessage(), e);
+            return error(id, -32602, "Invalid params: " + e.getMessage());
+        }
+    }
+
+    private JsonNode execute(String method, JsonNode params) {
+        switch (method) {
+            case "web3_clientVersion":
+                return json.textNode(CLIENT_VERSION);
+            case "net_version":
+                return json.textNode(String.valueOf(options.chainId));
+            case "eth_chainId":
+                return quantity(options.chainId);
+            case "eth_accounts":
+                return json.arrayNode().add(FakeContracts.normalize(options.accountAddress));
+            case "eth_gasPrice":
+                return quantity(options.gasPrice);
+            case "eth_estimateGas":
+                return quantity(options.estimateGas);
+            case "eth_blockNumber":
+                return read(() -> quantity(head().number));
+            case "eth_getBalance":
+                return read(() -> quantity(contracts.getBalance(params.get(0).asText())));
+            case "eth_getTransactionCount":
+                return read(() -> quantity(nonce(params.get(0).asText(), "pending".equals(params.path(1).asText()))));
+            case "eth_call":
+                return read(() -> json.textNode(ethCall(params.get(0), params.path(1).asText("latest"))));
+            case "eth_sendTransaction":
+                return json.textNode(sendTransaction(params.get(0)));
+            case "eth_getTransactionReceipt":
+                return read(() -> {
+                    Receipt receipt = receipts.get(params.get(0).asText().toLowerCase());
+                    return receipt == null ? json.nullNode() : receipt.toJson();
+                });
+            case "eth_getBlockByNumber":
+                return read(() -> {
+                    Block block = block(params.get(0).asText());
+                    return block == null ? json.nullNode() : block.toJson();
+                });
+            case "eth_getLogs":
+                return read(() -> getLogs(params.get(0)));
+            default:
+                throw new RpcError(-32601, "the method " + method + " does not exist/is not available");
+        }
+    }
+
+    private JsonNode read(java.util.function.Supplier<JsonNode> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== 链逻辑 ====================
+
+    private String ethCall(JsonNode tx, String blockTag) {
+        long blockNumber = blockNumber(blockTag);
+        if (blockNumber > head().number) {
+            throw new RpcError(-32000, "header not found");
+        }
+        String to = tx.path("to").asText(null);
+        if (to == null) {
+            return "0x";
+        }
+        String data = tx.hasNonNull("data") ? tx.get("data").asText() : tx.path("input").asText("0x");
+        return contracts.call(tx.path("from").asText(null), to, data, blockNumber);
+    }
+
+    private String sendTransaction(JsonNode tx) {
+        String from = FakeContracts.normalize(tx.path("from").asText(null));
+        if (from == null || !from.equals(FakeContracts.normalize(options.accountAddress))) {
+            throw new RpcError(-32000, "unknown account");
+        }
+        BigInteger gasLimit = tx.hasNonNull("gas") ? Numeric.decodeQuantity(tx.get("gas").asText()) : null;
+        BigInteger gasPrice = tx.hasNonNull("gasPrice") ? Numeric.decodeQuantity(tx.get("gasPrice").asText())
+                : BigInteger.valueOf(options.gasPrice);
+        BigInteger value = tx.hasNonNull("value") ? Numeric.decodeQuantity(tx.get("value").asText()) : BigInteger.ZERO;
+        String data = tx.hasNonNull("data") ? tx.get("data").asText() : tx.path("input").asText("0x");
+
+        String hash;
+        lock.writeLock().lock();
+        try {
+            long expected = nonce(from, true);
+            long nonce = tx.hasNonNull("nonce") ? Numeric.decodeQuantity(tx.get("nonce").asText()).longValueExact() : expected;
+            if (nonce < expected) {
+                throw new RpcError(-32000, "nonce too low");
+            }
+            if (nonce > expected) {
+                throw new RpcError(-32000, "nonce too high");
+            }
+            BigInteger maxCost = value.add(gasPrice.multiply(gasLimit != null ? gasLimit : BigInteger.valueOf(options.estimateGas)));
+            if (contracts.getBalance(from).compareTo(maxCost) < 0) {
+                throw new RpcError(-32000, "insufficient funds for gas * price + value");
+            }
+
+            hash = Hash.sha3(Numeric.toHexString((from + ":" + nonce + ":" + transactions.incrementAndGet()).getBytes()));
+            pendingNonces.put(from, nonce + 1);
+            pendingTxs.add(new PendingTx(hash, from, tx.path("to").asText(null), value, data, gasLimit, gasPrice));
+            if (options.blockTimeMs <= 0) {
+                mineLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return hash;
+    }
+
+    private void mineBlock() {
+        lock.writeLock().lock();
+        try {
+            mineLocked();
+        } catch (RuntimeException e) {
+            log.warn("Fake chain failed to mine block: {}", e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 执行所有待打包交易并出块（调用方持有写锁）
+     */
+    private void mineLocked() {
+        long timestamp = System.currentTimeMillis() / 1000;
+        List<PendingTx> txs = new ArrayList<>(pendingTxs);
+        pendingTxs.clear();
+        contracts.beginBlock(head().number + 1);
+
+        List<Receipt> blockReceipts = new ArrayList<>(txs.size());
+        List<FakeContracts.FakeLog> blockLogs = new ArrayList<>();
+        List<Integer> logOwners = new ArrayList<>();
+        for (PendingTx tx : txs) {
+            boolean success = true;
+            long gasUsed;
+            List<FakeContracts.FakeLog> logs = Collections.emptyList();
+            try {
+                FakeContracts.Execution execution = contracts.execute(tx.from, tx.to, tx.value, tx.data, tx.gasLimit, timestamp);
+                gasUsed = execution.gasUsed;
+                logs = execution.logs;
+            } catch (FakeContracts.Revert e) {
+                success = false;
+                gasUsed = e.gasUsed;
+                log.debug("Fake chain transaction {} reverted: {}", tx.hash, e.getMessage());
+            }
+
+            BigInteger spent = tx.gasPrice.multiply(BigInteger.valueOf(gasUsed)).add(success ? tx.value : BigInteger.ZERO);
+            contracts.setBalance(tx.from, contracts.getBalance(tx.from).subtract(spent));
+            nonces.merge(tx.from, 1L, Long::sum);
+            Receipt receipt = new Receipt(tx, success, gasUsed, blockReceipts.size(), blockLogs.size(), logs.size());
+            blockReceipts.add(receipt);
+            blockLogs.addAll(logs);
+            logs.forEach(entry -> logOwners.add(receipt.transactionIndex));
+        }
+        Block block = sealBlock(blockReceipts, blockLogs, logOwners.stream().mapToInt(Integer::intValue).toArray());
+
+        for (Receipt receipt : blockReceipts) {
+            receipt.block = block;
+            receipts.put(receipt.tx.hash, receipt);
+        }
+    }
+
+    /**
+     * 追加区块（调用方持有写锁）
+     *
+     * @param logOwners 每条日志所属交易在区块内的序号，预置数据的日志为 -1
+     */
+    private Block sealBlock(List<Receipt> blockReceipts, List<FakeContracts.FakeLog> logs, int[] logOwners) {
+        Block parent = head();
+        long number = parent.number + 1;
+        long timestamp = Math.max(parent.timestamp, System.currentTimeMillis() / 1000);
+        List<String> txHashes = new ArrayList<>(blockReceipts.size());
+        blockReceipts.forEach(receipt -> txHashes.add(receipt.tx.hash));
+        Block block = new Block(number, parent.hash, timestamp, txHashes, logs, logOwners);
+        blocks.add(block);
+        return block;
+    }
+
+    private static int[] seedLogOwners(int count) {
+        int[] owners = new int[count];
+        java.util.Arrays.fill(owners, -1);
+        return owners;
+    }
+
+    private Block head() {
+        return blocks.get(blocks.size() - 1);
+    }
+
+    private Block block(String tag) {
+        long number = blockNumber(tag);
+        return number >= 0 && number < blocks.size() ? blocks.get((int) number) : null;
+    }
+
+    private long blockNumber(String tag) {
+        if (tag == null || "latest".equals(tag) || "pending".equals(tag) || "safe".equals(tag) || "finalized".equals(tag)) {
+            return head().number;
+        }
+        if ("earliest".equals(tag)) {
+            return 0;
+        }
+        return Numeric.decodeQuantity(tag).longValueExact();
+    }
+
+    private long nonce(String address, boolean pending) {
+        String key = FakeContracts.normalize(address);
+        long mined = nonces.getOrDefault(key, 0L);
+        return pending ? Math.max(mined, pendingNonces.getOrDefault(key, 0L)) : mined;
+    }
+
+    private JsonNode getLogs(JsonNode filter) {
+        long from = blockNumber(filter.path("fromBlock").asText("latest"));
+        long to = Math.min(blockNumber(filter.path("toBlock").asText("latest")), head().number);
+
+        List<String> addresses = new ArrayList<>();
+        JsonNode address = filter.path("address");
+        if (address.isArray()) {
+            address.forEach(a -> addresses.add(a.asText().toLowerCase()));
+        } else if (address.isTextual()) {
+            addresses.add(address.asText().toLowerCase());
+        }
+        JsonNode topics = filter.path("topics");
+
+        ArrayNode result = json.arrayNode();
+        for (long n = Math.max(0, from); n <= to; n++) {
+            Block block = blocks.get((int) n);
+            for (int i = 0; i < block.logs.size(); i++) {
+                FakeContracts.FakeLog entry = block.logs.get(i);
+                if ((addresses.isEmpty() || addresses.contains(entry.address)) && topicsMatch(entry.topics, topics)) {
+                    result.add(logJson(block, i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 每个位置可为 null（任意）、单个 topic 或 topic 数组（任一匹配）
+     */
+    private static boolean topicsMatch(List<String> logTopics, JsonNode filterTopics) {
+        if (!filterTopics.isArray()) {
+            return true;
+        }
+        for (int i = 0; i < filterTopics.size(); i++) {
+            JsonNode expected = filterTopics.get(i);
+            if (expected == null || expected.isNull()) {
+                continue;
+            }
+            if (i >= logTopics.size()) {
+                return false;
+            }
+            String actual = logTopics.get(i);
+            boolean matched = false;
+            if (expected.isArray()) {
+                for (JsonNode option : expected) {
+                    matched |= option.asText().equalsIgnoreCase(actual);
+                }
+            } else {
+                matched = expected.asText().equalsIgnoreCase(actual);
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ObjectNode logJson(Block block, int logIndex) {
+        FakeContracts.FakeLog entry = block.logs.get(logIndex);
+        ObjectNode node = json.objectNode();
+        node.put("address", entry.address);
+        ArrayNode topics = node.putArray("topics");
+        entry.topics.forEach(topics::add);
+        node.put("data", entry.data);
+        node.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(block.number)));
+        node.put("blockHash", block.hash);
+        int owner = block.logOwners[logIndex];
+        node.put("transactionHash", owner >= 0 ? block.transactions.get(owner) : ZERO_HASH);
+        node.put("transactionIndex", Numeric.encodeQuantity(BigInteger.valueOf(Math.max(0, owner))));
+        node.put("logIndex", Numeric.encodeQuantity(BigInteger.valueOf(logIndex)));
+        node.put("removed", false);
+        return node;
+    }
+
+    private JsonNode quantity(long value) {
+        return json.textNode(Numeric.encodeQuantity(BigInteger.valueOf(value)));
+    }
+
+    private JsonNode quantity(BigInteger value) {
+        return json.textNode(Numeric.encodeQuantity(value));
+    }
+
+    private ObjectNode result(JsonNode id, JsonNode result) {
+        ObjectNode node = json.objectNode();
+        node.put("jsonrpc", "2.0");
+        node.set("id", id);
+        node.set("result", result);
+        return node;
+    }
+
+    private ObjectNode error(JsonNode id, int code, String message) {
+        ObjectNode node = json.objectNode();
+        node.put("jsonrpc", "2.0");
+        node.set("id", id);
+        ObjectNode error = node.putObject("error");
+        error.put("code", code);
+        error.put("message", message);
+        return node;
+    }
+
+    private static java.util.concurrent.ThreadFactory daemonThreads(String prefix) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 节点配置
+     */
+    @Getter
+    @Builder
+    public static class Options {
+        /**
+         * 监听端口，0 表示随机端口
+         */
+        @Builder.Default
+        private final int port = 0;
+        private final String accountAddress;
+        private final String medalContract;
+        private final String nftContract;
+        private final String tokenContract;
+        private final String multicallContract;
+        @Builder.Default
+        private final long chainId = 1337;
+        /**
+         * 出块间隔（毫秒），0 表示每笔交易立即出块
+         */
+        @Builder.Default
+        private final long blockTimeMs = 0;
+        /**
+         * 每个 HTTP 请求的固定延迟与随机抖动上限（毫秒）
+         */
+        @Builder.Default
+        private final long latencyMs = 0;
+        @Builder.Default
+        private final long latencyJitterMs = 0;
+        /**
+         * 按该比例对单个 JSON-RPC 调用返回错误（0 ~ 1）
+         */
+        @Builder.Default
+        private final double errorRate = 0;
+        @Builder.Default
+        private final long gasPrice = 1_000_000_000L;
+        @Builder.Default
+        private final long estimateGas = 300_000L;
+        @Builder.Default
+        private final BigInteger initialBalance = BigInteger.TEN.pow(24);
+        @Builder.Default
+        private final BigInteger mintFee = BigInteger.ZERO;
+    }
+
+    private static final class PendingTx {
+        final String hash;
+        final String from;
+        final String to;
+        final BigInteger value;
+        final String data;
+        final BigInteger gasLimit;
+        final BigInteger gasPrice;
+
+        PendingTx(String hash, String from, String to, BigInteger value, String data,
+                  BigInteger gasLimit, BigInteger gasPrice) {
+            this.hash = hash;
+            this.from = from;
+            this.to = to == null ? null : to.toLowerCase();
+            this.value = value;
+            this.data = data;
+            this.gasLimit = gasLimit;
+            this.gasPrice = gasPrice;
+        }
+    }
+
+    private final class Block {
+        final long number;
+        final String hash;
+        final String parentHash;
+        final long timestamp;
+        final List<String> transactions;
+        final List<FakeContracts.FakeLog> logs;
+        final int[] logOwners;
+
+        Block(long number, String parentHash, long timestamp, List<String> transactions,
+              List<FakeContracts.FakeLog> logs, int[] logOwners) {
+            this.number = number;
+            this.parentHash = parentHash;
+            this.hash = Hash.sha3(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(number), 64)
+                    + Numeric.cleanHexPrefix(parentHash));
+            this.timestamp = timestamp;
+            this.transactions = transactions;
+            this.logs = logs;
+            this.logOwners = logOwners;
+        }
+
+        ObjectNode toJson() {
+            ObjectNode node = json.objectNode();
+            node.put("number", Numeric.encodeQuantity(BigInteger.valueOf(number)));
+            node.put("hash", hash);
+            node.put("parentHash", parentHash);
+            node.put("timestamp", Numeric.encodeQuantity(BigInteger.valueOf(timestamp)));
+            node.put("miner", FakeContracts.normalize(options.accountAddress));
+            node.put("gasLimit", Numeric.encodeQuantity(BigInteger.valueOf(30_000_000L)));
+            node.put("gasUsed", "0x0");
+            node.put("logsBloom", EMPTY_BLOOM);
+            node.put("nonce", "0x0000000000000000");
+            node.put("difficulty", "0x0");
+            ArrayNode txs = node.putArray("transactions");
+            transactions.forEach(txs::add);
+            node.putArray("uncles");
+            return node;
+        }
+    }
+
+    private final class Receipt {
+        final PendingTx tx;
+        final boolean success;
+        final long gasUsed;
+        final int transactionIndex;
+        final int firstLogIndex;
+        final int logCount;
+        Block block;
+
+        Receipt(PendingTx tx, boolean success, long gasUsed, int transactionIndex, int firstLogIndex, int logCount) {
+            this.tx = tx;
+            this.success = success;
+            this.gasUsed = gasUsed;
+            this.transactionIndex = transactionIndex;
+            this.firstLogIndex = firstLogIndex;
+            this.logCount = logCount;
+        }
+
+        ObjectNode toJson() {
+            ObjectNode node = json.objectNode();
+            node.put("transactionHash", tx.hash);
+            node.put("transactionIndex", Numeric.encodeQuantity(BigInteger.valueOf(transactionIndex)));
+            node.put("blockHash", block.hash);
+            node.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(block.number)));
+            node.put("from", tx.from);
+            node.put("to", tx.to);
+            node.put("gasUsed", Numeric.encodeQuantity(BigInteger.valueOf(gasUsed)));
+            node.put("cumulativeGasUsed", Numeric.encodeQuantity(BigInteger.valueOf(gasUsed)));
+            node.put("effectiveGasPrice", Numeric.encodeQuantity(tx.gasPrice));
+            node.putNull("contractAddress");
+            node.put("logsBloom", EMPTY_BLOOM);
+            node.put("status", success ? "0x1" : "0x0");
+            ArrayNode logArray = node.putArray("logs");
+            for (int i = 0; i < logCount; i++) {
+                logArray.add(logJson(block, firstLogIndex + i));
+            }
+            return node;
+        }
+    }
+
+    /**
+     * JSON-RPC 错误
+     */
+    private static final class RpcError extends RuntimeException {
+        final int code;
+
+        RpcError(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+}
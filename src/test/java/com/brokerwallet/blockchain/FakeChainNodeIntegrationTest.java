@@ -0,0 +1,155 @@
+package com.brokerwallet.blockchain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.http.HttpService;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 通过 HTTP JSON-RPC 驱动模拟节点：批量只读调用、发放交易、回执、事件日志与回滚
+ */
+class FakeChainNodeIntegrationTest {
+
+    static final String ACCOUNT = "0x8c056ccb92c567da3fee27c23d4f2f107f203879";
+    static final String MEDAL_CONTRACT = "0x1a202bfa10ea97a742ad22fcb1a7913821bf1b18";
+    static final String NFT_CONTRACT = "0x382ca68b8133893fdf46170efd839c7703d9e9ae";
+
+    private static final int SEED_USERS = 50;
+
+    private FakeChainNode node;
+    private Web3j web3j;
+
+    @BeforeEach
+    void startNode() throws Exception {
+        node = new FakeChainNode(FakeChainNode.Options.builder()
+                .accountAddress(ACCOUNT)
+                .medalContract(MEDAL_CONTRACT)
+                .nftContract(NFT_CONTRACT)
+                .build());
+        node.seedUsers(SEED_USERS, 42L);
+        node.start();
+        web3j = Web3j.build(new HttpService(node.getUrl()));
+    }
+
+    @AfterEach
+    void stopNode() {
+        web3j.shutdown();
+        node.stop();
+    }
+
+    @Test
+    void batchedMedalReadsAddUpToGlobalStats() throws Exception {
+        RpcBatcher batcher = new RpcBatcher(web3j);
+        ReflectionTestUtils.setField(batcher, "enabled", true);
+        ReflectionTestUtils.setField(batcher, "maxBatchSize", 20);
+
+        List<Request<?, EthCall>> requests = new ArrayList<>();
+        for (int i = 0; i < SEED_USERS; i++) {
+            requests.add(medalsCall(FakeChainNode.seedAddress(i)));
+        }
+        List<EthCall> responses = batcher.sendAll(requests);
+
+        long[] sum = new long[3];
+        for (EthCall response : responses) {
+            assertFalse(response.hasError());
+            long[] medals = ContractCodec.decodeUint64Words(response.getValue(), 4);
+            assertEquals(medals[0] + medals[1] + medals[2], medals[3]);
+            for (int k = 0; k < 3; k++) {
+                sum[k] += medals[k];
+            }
+        }
+
+        EthCall global = web3j.ethCall(Transaction.createEthCallTransaction(null, MEDAL_CONTRACT, ContractCodec.GET_GLOBAL_STATS),
+                DefaultBlockParameterName.LATEST).send();
+        long[] totals = ContractCodec.decodeUint64Words(global.getValue(), 3);
+        assertEquals(sum[0], totals[0]);
+        assertEquals(sum[1], totals[1]);
+        assertEquals(sum[2], totals[2]);
+        assertEquals(3L, batcher.getStats().get("batchesSent"));
+    }
+
+    @Test
+    void distributeMedalsIsMinedWithEventAndNewBalance() throws Exception {
+        String recipient = FakeChainNode.seedAddress(SEED_USERS + 1);
+
+        TransactionReceipt receipt = sendAndMine(distributeMedals(recipient, 2, 1, 3));
+
+        assertTrue(receipt.isStatusOK());
+        assertEquals(1, receipt.getLogs().size());
+        ContractEvents.MedalsDistributed event = ContractEvents.decodeMedalsDistributed(receipt.getLogs().get(0));
+        assertEquals(recipient, event.getTo());
+        assertEquals(2, event.getGold());
+        assertEquals(1, event.getSilver());
+        assertEquals(3, event.getBronze());
+
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(receipt.getBlockNumber()),
+                DefaultBlockParameter.valueOf(receipt.getBlockNumber()), MEDAL_CONTRACT);
+        filter.addSingleTopic(ContractEvents.MEDALS_DISTRIBUTED_TOPIC);
+        List<EthLog.LogResult> logs = web3j.ethGetLogs(filter).send().getLogs();
+        assertEquals(1, logs.size());
+        assertEquals(receipt.getTransactionHash(), ((Log) logs.get(0).get()).getTransactionHash());
+
+        long[] medals = ContractCodec.decodeUint64Words(medalsCall(recipient).send().getValue(), 4);
+        assertEquals(Arrays.asList(2L, 1L, 3L, 6L), Arrays.asList(medals[0], medals[1], medals[2], medals[3]));
+    }
+
+    @Test
+    void failedRequireIsMinedWithFailedStatus() throws Exception {
+        BigInteger nonceBefore = pendingNonce();
+
+        TransactionReceipt receipt = sendAndMine(distributeMedals("0x0000000000000000000000000000000000000000", 1, 0, 0));
+
+        assertFalse(receipt.isStatusOK());
+        assertTrue(receipt.getLogs().isEmpty());
+        assertEquals(nonceBefore.add(BigInteger.ONE), pendingNonce());
+    }
+
+    private Request<?, EthCall> medalsCall(String address) {
+        return web3j.ethCall(Transaction.createEthCallTransaction(address, MEDAL_CONTRACT,
+                ContractCodec.encodeAddressCall(ContractCodec.GET_USER_MEDALS, address)), DefaultBlockParameterName.LATEST);
+    }
+
+    private String distributeMedals(String to, long gold, long silver, long bronze) {
+        return FunctionEncoder.encode(new Function("distributeMedals",
+                Arrays.asList(new Address(to), new Uint256(gold), new Uint256(silver), new Uint256(bronze)),
+                Collections.emptyList()));
+    }
+
+    private TransactionReceipt sendAndMine(String data) throws Exception {
+        EthSendTransaction sent = web3j.ethSendTransaction(Transaction.createFunctionCallTransaction(ACCOUNT, pendingNonce(),
+                BigInteger.valueOf(1_000_000_000L), BigInteger.valueOf(300_000L), MEDAL_CONTRACT, data)).send();
+        assertFalse(sent.hasError(), () -> sent.getError().getMessage());
+        // 出块间隔为 0：交易发送后立即打包
+        return web3j.ethGetTransactionReceipt(sent.getTransactionHash()).send().getTransactionReceipt().orElseThrow();
+    }
+
+    private BigInteger pendingNonce() throws Exception {
+        return web3j.ethGetTransactionCount(ACCOUNT, DefaultBlockParameterName.PENDING).send().getTransactionCount();
+    }
+}
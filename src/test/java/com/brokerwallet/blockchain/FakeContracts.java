@@ -0,0 +1,597 @@
+package com.brokerwallet.blockchain;
+
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * FakeChainNode 的内存合约状态
+ * 按 contracts/ 下的 MedalNFT、OptimizedNftMinter、Multicall 的对外接口模拟存储与事件，
+ * 代币合约的 balanceOf 返回节点上的原生余额。
+ * 用户勋章与用户NFT数量按区块保留历史，eth_call 指定区块时返回该区块上的值（其余状态只有最新值）。
+ * 非线程安全，由 FakeChainNode 在读写锁内调用。
+ */
+public final class FakeContracts {
+
+    // MedalNFT
+    private static final String DISTRIBUTE_MEDALS = ContractCodec.selector("distributeMedals(address,uint256,uint256,uint256)");
+    private static final String BATCH_DISTRIBUTE_MEDALS = ContractCodec.selector("batchDistributeMedals(address[],uint256[],uint256[],uint256[])");
+    private static final String HAS_DISTRIBUTOR_PERMISSION = ContractCodec.selector("hasDistributorPermission(address)");
+
+    // OptimizedNftMinter
+    private static final String MINT_NFT = ContractCodec.selector("mintNftWithMetadata(address,string,string,string,string)");
+    private static final String BATCH_MINT_NFT = ContractCodec.selector("batchMintNftWithMetadata(address[],string[],string[],string[],string[])");
+    private static final String BATCH_GET_NFT_METADATA = ContractCodec.selector("batchGetNftMetadata(uint256[])");
+    private static final String GET_USER_NFT_COUNT = ContractCodec.selector("getUserNftCount(address)");
+    private static final String MINTERS = ContractCodec.selector("minters(address)");
+
+    // Multicall
+    private static final String TRY_AGGREGATE = ContractCodec.selector("tryAggregate(bool,(address,bytes)[])");
+    private static final String GET_BLOCK_NUMBER = ContractCodec.selector("getBlockNumber()");
+
+    private static final String MEDALS_DISTRIBUTED_TOPIC = ContractEvents.MEDALS_DISTRIBUTED_TOPIC;
+    private static final String NFT_MINTED_TOPIC = ContractEvents.NFT_MINTED_TOPIC;
+
+    private static final String ZERO_ADDRESS = "0x0000000000000000000000000000000000000000";
+
+    /**
+     * 模拟的 gas 消耗
+     */
+    static final long TRANSFER_GAS = 21000;
+    private static final long DISTRIBUTE_BASE_GAS = 30000;
+    private static final long DISTRIBUTE_GAS_PER_RECIPIENT = 25000;
+    private static final long MINT_BASE_GAS = 60000;
+    private static final long MINT_GAS_PER_NFT = 120000;
+    private static final long MINT_GAS_PER_BYTE = 20;
+
+    @SuppressWarnings("unchecked")
+    private static final List<TypeReference<Type>> DISTRIBUTE_INPUTS = (List<TypeReference<Type>>) (List<?>) Arrays.asList(
+            new TypeReference<Address>() {}, new TypeReference<Uint256>() {},
+            new TypeReference<Uint256>() {}, new TypeReference<Uint256>() {});
+
+    @SuppressWarnings("unchecked")
+    private static final List<TypeReference<Type>> BATCH_DISTRIBUTE_INPUTS = (List<TypeReference<Type>>) (List<?>) Arrays.asList(
+            new TypeReference<DynamicArray<Address>>() {}, new TypeReference<DynamicArray<Uint256>>() {},
+            new TypeReference<DynamicArray<Uint256>>() {}, new TypeReference<DynamicArray<Uint256>>() {});
+
+    @SuppressWarnings("unchecked")
+    private static final List<TypeReference<Type>> MINT_INPUTS = (List<TypeReference<Type>>) (List<?>) Arrays.asList(
+            new TypeReference<Address>() {}, new TypeReference<Utf8String>() {}, new TypeReference<Utf8String>() {},
+            new TypeReference<Utf8String>() {}, new TypeReference<Utf8String>() {});
+
+    @SuppressWarnings("unchecked")
+    private static final List<TypeReference<Type>> BATCH_MINT_INPUTS = (List<TypeReference<Type>>) (List<?>) Arrays.asList(
+            new TypeReference<DynamicArray<Address>>() {}, new TypeReference<DynamicArray<Utf8String>>() {},
+            new TypeReference<DynamicArray<Utf8String>>() {}, new TypeReference<DynamicArray<Utf8String>>() {},
+            new TypeReference<DynamicArray<Utf8String>>() {});
+
+    @SuppressWarnings("unchecked")
+    private static final List<TypeReference<Type>> UINT256_ARRAY_INPUTS = (List<TypeReference<Type>>) (List<?>)
+            Collections.singletonList(new TypeReference<DynamicArray<Uint256>>() {});
+
+    @SuppressWarnings("unchecked")
+    private static final List<TypeReference<Type>> TRY_AGGREGATE_INPUTS = (List<TypeReference<Type>>) (List<?>) Arrays.asList(
+            new TypeReference<Bool>() {}, new TypeReference<DynamicArray<MulticallClient.Call>>() {});
+
+    private final String medalContract;
+    private final String nftContract;
+    private final String tokenContract;
+    private final String multicallContract;
+
+    /**
+     * 原生余额（代币合约 balanceOf 也读这里）
+     */
+    private final Map<String, BigInteger> balances = new HashMap<>();
+
+    // MedalNFT 状态
+    private final Set<String> distributors = new HashSet<>();
+    private final Map<String, long[]> userMedals = new HashMap<>();
+    private final long[] globalMedals = new long[3];
+
+    // OptimizedNftMinter 状态（tokenId 从 1 开始，nfts.get(tokenId - 1)）
+    private final Set<String> minters = new HashSet<>();
+    private final List<Nft> nfts = new ArrayList<>();
+    private final Map<String, List<BigInteger>> userNfts = new HashMap<>();
+    private BigInteger mintFee = BigInteger.ZERO;
+
+    // 按区块的历史：地址 -> (区块号 -> 该区块结束时的值)
+    private final Map<String, TreeMap<Long, long[]>> medalHistory = new HashMap<>();
+    private final Map<String, TreeMap<Long, Integer>> nftCountHistory = new HashMap<>();
+
+    /**
+     * 正在打包的区块号，状态变化记在这个区块上
+     */
+    private long pendingBlock;
+
+    public FakeContracts(String medalContract, String nftContract, String tokenContract, String multicallContract) {
+        this.medalContract = normalize(medalContract);
+        this.nftContract = normalize(nftContract);
+        this.tokenContract = normalize(tokenContract);
+        this.multicallContract = multicallContract == null || multicallContract.isBlank() ? null : normalize(multicallContract);
+    }
+
+    // ==================== 状态初始化 ====================
+
+    public void setBalance(String address, BigInteger balance) {
+        balances.put(normalize(address), balance);
+    }
+
+    public BigInteger getBalance(String address) {
+        return balances.getOrDefault(normalize(address), BigInteger.ZERO);
+    }
+
+    public void addDistributor(String address) {
+        distributors.add(normalize(address));
+    }
+
+    public void addMinter(String address) {
+        minters.add(normalize(address));
+    }
+
+    public void setMintFee(BigInteger mintFee) {
+        this.mintFee = mintFee;
+    }
+
+    public int getTotalSupply() {
+        return nfts.size();
+    }
+
+    public int getUserCount() {
+        return userMedals.size();
+    }
+
+    /**
+     * 开始打包新区块，之后的状态变化记在该区块上
+     */
+    public void beginBlock(long blockNumber) {
+        this.pendingBlock = blockNumber;
+    }
+
+    // ==================== 只读调用 ====================
+
+    /**
+     * 执行 eth_call，返回 ABI 编码的结果；require 失败时抛出 Revert
+     */
+    public String call(String from, String to, String data, long blockNumber) {
+        String contract = normalize(to);
+        String selector = data == null || data.length() < 10 ? "" : data.substring(0, 10).toLowerCase();
+
+        if (contract.equals(medalContract)) {
+            return callMedal(selector, data, blockNumber);
+        }
+        if (contract.equals(nftContract)) {
+            return callNft(selector, data, blockNumber);
+        }
+        if (contract.equals(tokenContract) && selector.equals(ContractCodec.BALANCE_OF)) {
+            return encode(new Uint256(getBalance(ContractCodec.decodeAddress(args(data), 0))));
+        }
+        if (contract.equals(multicallContract)) {
+            return callMulticall(from, selector, data, blockNumber);
+        }
+        if (contract.equals(tokenContract)) {
+            throw new Revert("function selector was not recognized");
+        }
+        // 普通地址没有代码
+        return "0x";
+    }
+
+    private String callMedal(String selector, String data, long blockNumber) {
+        if (selector.equals(ContractCodec.GET_USER_MEDALS)) {
+            long[] medals = valueAt(medalHistory, ContractCodec.decodeAddress(args(data), 0), blockNumber, new long[3]);
+            return encode(uint(medals[0]), uint(medals[1]), uint(medals[2]), uint(medals[0] + medals[1] + medals[2]));
+        }
+        if (selector.equals(ContractCodec.GET_GLOBAL_STATS)) {
+            return encode(uint(globalMedals[0]), uint(globalMedals[1]), uint(globalMedals[2]));
+        }
+        if (selector.equals(ContractCodec.DISTRIBUTORS) || selector.equals(HAS_DISTRIBUTOR_PERMISSION)) {
+            return encode(new Bool(distributors.contains(ContractCodec.decodeAddress(args(data), 0))));
+        }
+        throw new Revert("function selector was not recognized");
+    }
+
+    private String callNft(String selector, String data, long blockNumber) {
+        if (selector.equals(ContractCodec.TOTAL_SUPPLY)) {
+            return encode(uint(nfts.size()));
+        }
+        if (selector.equals(ContractCodec.GET_USER_NFTS)) {
+            List<BigInteger> tokenIds = userNfts.getOrDefault(ContractCodec.decodeAddress(args(data), 0), Collections.emptyList());
+            List<Uint256> values = new ArrayList<>(tokenIds.size());
+            tokenIds.forEach(tokenId -> values.add(new Uint256(tokenId)));
+            return encode(new DynamicArray<>(Uint256.class, values));
+        }
+        if (selector.equals(GET_USER_NFT_COUNT)) {
+            return encode(uint(valueAt(nftCountHistory, ContractCodec.decodeAddress(args(data), 0), blockNumber, 0)));
+        }
+        if (selector.equals(ContractCodec.GET_NFT_METADATA)) {
+            Nft nft = nft(ContractCodec.decodeUint256(args(data), 0));
+            if (nft == null) {
+                throw new Revert("NFT does not exist");
+            }
+            return encode(new Utf8String(nft.name), new Utf8String(nft.description), new Utf8String(nft.imageMetadata),
+                    new Utf8String(nft.attributes), uint(nft.mintTime), new Address(nft.minter), new Address(nft.owner));
+        }
+        if (selector.equals(BATCH_GET_NFT_METADATA)) {
+            return batchGetNftMetadata(data);
+        }
+        if (selector.equals(ContractCodec.OWNER_OF)) {
+            Nft nft = nft(ContractCodec.decodeUint256(args(data), 0));
+            if (nft == null) {
+                throw new Revert("ERC721NonexistentToken");
+            }
+            return encode(new Address(nft.owner));
+        }
+        if (selector.equals(ContractCodec.MINT_FEE)) {
+            return encode(new Uint256(mintFee));
+        }
+        if (selector.equals(ContractCodec.HAS_MINT_PERMISSION) || selector.equals(MINTERS)) {
+            return encode(new Bool(minters.contains(ContractCodec.decodeAddress(args(data), 0))));
+        }
+        throw new Revert("function selector was not recognized");
+    }
+
+    @SuppressWarnings("unchecked")
+    private String batchGetNftMetadata(String data) {
+        List<Type> inputs = FunctionReturnDecoder.decode(args(data), UINT256_ARRAY_INPUTS);
+        List<Uint256> tokenIds = ((DynamicArray<Uint256>) inputs.get(0)).getValue();
+        int count = tokenIds.size();
+        List<Utf8String> names = new ArrayList<>(count);
+        List<Utf8String> descriptions = new ArrayList<>(count);
+        List<Utf8String> imageMetadatas = new ArrayList<>(count);
+        List<Utf8String> attributes = new ArrayList<>(count);
+        List<Uint256> mintTimes = new ArrayList<>(count);
+        List<Address> nftMinters = new ArrayList<>(count);
+        List<Address> owners = new ArrayList<>(count);
+        for (Uint256 tokenId : tokenIds) {
+            // 不存在的 Token 返回零值，与合约一致
+            Nft nft = nft(tokenId.getValue());
+            names.add(new Utf8String(nft != null ? nft.name : ""));
+            descriptions.add(new Utf8String(nft != null ? nft.description : ""));
+            imageMetadatas.add(new Utf8String(nft != null ? nft.imageMetadata : ""));
+            attributes.add(new Utf8String(nft != null ? nft.attributes : ""));
+            mintTimes.add(uint(nft != null ? nft.mintTime : 0));
+            nftMinters.add(new Address(nft != null ? nft.minter : ZERO_ADDRESS));
+            owners.add(new Address(nft != null ? nft.owner : ZERO_ADDRESS));
+        }
+        return encode(new DynamicArray<>(Utf8String.class, names), new DynamicArray<>(Utf8String.class, descriptions),
+                new DynamicArray<>(Utf8String.class, imageMetadatas), new DynamicArray<>(Utf8String.class, attributes),
+                new DynamicArray<>(Uint256.class, mintTimes), new DynamicArray<>(Address.class, nftMinters),
+                new DynamicArray<>(Address.class, owners));
+    }
+
+    @SuppressWarnings("unchecked")
+    private String callMulticall(String from, String selector, String data, long blockNumber) {
+        if (selector.equals(GET_BLOCK_NUMBER)) {
+            return encode(uint(blockNumber));
+        }
+        if (!selector.equals(TRY_AGGREGATE)) {
+            throw new Revert("function selector was not recognized");
+        }
+        List<Type> inputs = FunctionReturnDecoder.decode(args(data), TRY_AGGREGATE_INPUTS);
+        boolean requireSuccess = ((Bool) inputs.get(0)).getValue();
+        List<MulticallClient.Call> calls = ((DynamicArray<MulticallClient.Call>) inputs.get(1)).getValue();
+
+        List<MulticallClient.Result> results = new ArrayList<>(calls.size());
+        for (MulticallClient.Call call : calls) {
+            Address target = (Address) call.getValue().get(0);
+            DynamicBytes callData = (DynamicBytes) call.getValue().get(1);
+            try {
+                String returnData = call(multicallContract, target.getValue(), Numeric.toHexString(callData.getValue()), blockNumber);
+                results.add(new MulticallClient.Result(new Bool(true), new DynamicBytes(Numeric.hexStringToByteArray(returnData))));
+            } catch (Revert e) {
+                if (requireSuccess) {
+                    throw new Revert("Multicall: call failed");
+                }
+                results.add(new MulticallClient.Result(new Bool(false), new DynamicBytes(new byte[0])));
+            }
+        }
+        return encode(new DynamicArray<>(MulticallClient.Result.class, results));
+    }
+
+    // ==================== 交易执行 ====================
+
+    /**
+     * 执行交易，成功时返回产生的事件；require 失败或 gas 不足时抛出 Revert（交易仍会打包，status=0）
+     *
+     * @param gasLimit 交易 gas limit，null 表示不限
+     */
+    public Execution execute(String from, String to, BigInteger value, String data, BigInteger gasLimit, long timestamp) {
+        String sender = normalize(from);
+        String contract = to == null ? null : normalize(to);
+        boolean hasData = data != null && data.length() > 2;
+        String selector = hasData && data.length() >= 10 ? data.substring(0, 10).toLowerCase() : "";
+
+        Execution execution;
+        if (contract != null && contract.equals(medalContract) && selector.equals(DISTRIBUTE_MEDALS)) {
+            execution = distributeMedals(sender, data, gasLimit);
+        } else if (contract != null && contract.equals(medalContract) && selector.equals(BATCH_DISTRIBUTE_MEDALS)) {
+            execution = batchDistributeMedals(sender, data, gasLimit);
+        } else if (contract != null && contract.equals(nftContract) && selector.equals(MINT_NFT)) {
+            execution = mintNft(sender, value, data, gasLimit, timestamp);
+        } else if (contract != null && contract.equals(nftContract) && selector.equals(BATCH_MINT_NFT)) {
+            execution = batchMintNft(sender, value, data, gasLimit, timestamp);
+        } else if (contract != null && isContract(contract)) {
+            throw new Revert("function selector was not recognized", TRANSFER_GAS);
+        } else {
+            // 普通转账（BrokerChain 要求 data 字段存在，内容为 0x）
+            chargeGas(TRANSFER_GAS, gasLimit);
+            execution = new Execution(TRANSFER_GAS, Collections.emptyList());
+        }
+
+        if (contract != null && value != null && value.signum() > 0) {
+            balances.merge(contract, value, BigInteger::add);
+        }
+        return execution;
+    }
+
+    /**
+     * 直接写入勋章并产生事件（压测预置数据用）
+     */
+    public FakeLog seedMedals(String to, long gold, long silver, long bronze) {
+        return distribute(normalize(to), gold, silver, bronze);
+    }
+
+    /**
+     * 直接铸造NFT并产生事件（压测预置数据用）
+     */
+    public FakeLog seedNft(String minter, String to, String name, String description,
+                           String imageMetadata, String attributes, long timestamp) {
+        return mint(normalize(minter), normalize(to), name, description, imageMetadata, attributes, timestamp);
+    }
+
+    private Execution distributeMedals(String sender, String data, BigInteger gasLimit) {
+        requireThat(distributors.contains(sender), "Not authorized to distribute");
+        List<Type> inputs = FunctionReturnDecoder.decode(args(data), DISTRIBUTE_INPUTS);
+        String to = ((Address) inputs.get(0)).getValue();
+        requireThat(!ZERO_ADDRESS.equals(to), "Invalid recipient address");
+        long gasUsed = chargeGas(DISTRIBUTE_BASE_GAS + DISTRIBUTE_GAS_PER_RECIPIENT, gasLimit);
+        FakeLog log = distribute(to, longValue(inputs.get(1)), longValue(inputs.get(2)), longValue(inputs.get(3)));
+        return new Execution(gasUsed, Collections.singletonList(log));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Execution batchDistributeMedals(String sender, String data, BigInteger gasLimit) {
+        requireThat(distributors.contains(sender), "Not authorized to distribute");
+        List<Type> inputs = FunctionReturnDecoder.decode(args(data), BATCH_DISTRIBUTE_INPUTS);
+        List<Address> recipients = ((DynamicArray<Address>) inputs.get(0)).getValue();
+        List<Uint256> gold = ((DynamicArray<Uint256>) inputs.get(1)).getValue();
+        List<Uint256> silver = ((DynamicArray<Uint256>) inputs.get(2)).getValue();
+        List<Uint256> bronze = ((DynamicArray<Uint256>) inputs.get(3)).getValue();
+        requireThat(!recipients.isEmpty(), "No recipients");
+        requireThat(recipients.size() == gold.size() && gold.size() == silver.size() && silver.size() == bronze.size(),
+                "Array length mismatch");
+        for (Address recipient : recipients) {
+            requireThat(!ZERO_ADDRESS.equals(recipient.getValue()), "Invalid recipient address");
+        }
+        long gasUsed = chargeGas(DISTRIBUTE_BASE_GAS + DISTRIBUTE_GAS_PER_RECIPIENT * recipients.size(), gasLimit);
+
+        List<FakeLog> logs = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            logs.add(distribute(recipients.get(i).getValue(), longValue(gold.get(i)), longValue(silver.get(i)), longValue(bronze.get(i))));
+        }
+        return new Execution(gasUsed, logs);
+    }
+
+    private Execution mintNft(String sender, BigInteger value, String data, BigInteger gasLimit, long timestamp) {
+        requireThat(minters.contains(sender), "Not authorized to mint");
+        requireThat(value != null && value.compareTo(mintFee) >= 0, "Insufficient mint fee");
+        List<Type> inputs = FunctionReturnDecoder.decode(args(data), MINT_INPUTS);
+        String to = ((Address) inputs.get(0)).getValue();
+        String name = ((Utf8String) inputs.get(1)).getValue();
+        String imageMetadata = ((Utf8String) inputs.get(3)).getValue();
+        requireThat(!ZERO_ADDRESS.equals(to), "Invalid recipient address");
+        requireThat(!name.isEmpty(), "Name cannot be empty");
+        requireThat(!imageMetadata.isEmpty(), "Image metadata cannot be empty");
+        long gasUsed = chargeGas(MINT_BASE_GAS + MINT_GAS_PER_NFT + MINT_GAS_PER_BYTE * payloadBytes(data), gasLimit);
+
+        FakeLog log = mint(sender, to, name, ((Utf8String) inputs.get(2)).getValue(), imageMetadata,
+                ((Utf8String) inputs.get(4)).getValue(), timestamp);
+        return new Execution(gasUsed, Collections.singletonList(log));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Execution batchMintNft(String sender, BigInteger value, String data, BigInteger gasLimit, long timestamp) {
+        requireThat(minters.contains(sender), "Not authorized to mint");
+        List<Type> inputs = FunctionReturnDecoder.decode(args(data), BATCH_MINT_INPUTS);
+        List<Address> recipients = ((DynamicArray<Address>) inputs.get(0)).getValue();
+        List<Utf8String> names = ((DynamicArray<Utf8String>) inputs.get(1)).getValue();
+        List<Utf8String> descriptions = ((DynamicArray<Utf8String>) inputs.get(2)).getValue();
+        List<Utf8String> imageMetadatas = ((DynamicArray<Utf8String>) inputs.get(3)).getValue();
+        List<Utf8String> attributes = ((DynamicArray<Utf8String>) inputs.get(4)).getValue();
+        requireThat(!recipients.isEmpty(), "No recipients");
+        requireThat(recipients.size() == names.size() && names.size() == descriptions.size()
+                && descriptions.size() == imageMetadatas.size() && imageMetadatas.size() == attributes.size(),
+                "Array length mismatch");
+        requireThat(value != null && value.compareTo(mintFee.multiply(BigInteger.valueOf(recipients.size()))) >= 0,
+                "Insufficient mint fee");
+        for (int i = 0; i < recipients.size(); i++) {
+            requireThat(!ZERO_ADDRESS.equals(recipients.get(i).getValue()), "Invalid recipient address");
+            requireThat(!names.get(i).getValue().isEmpty(), "Name cannot be empty");
+        }
+        long gasUsed = chargeGas(MINT_BASE_GAS + MINT_GAS_PER_NFT * recipients.size() + MINT_GAS_PER_BYTE * payloadBytes(data),
+                gasLimit);
+
+        List<FakeLog> logs = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            logs.add(mint(sender, recipients.get(i).getValue(), names.get(i).getValue(), descriptions.get(i).getValue(),
+                    imageMetadatas.get(i).getValue(), attributes.get(i).getValue(), timestamp));
+        }
+        return new Execution(gasUsed, logs);
+    }
+
+    private FakeLog distribute(String to, long gold, long silver, long bronze) {
+        long[] medals = userMedals.computeIfAbsent(to, k -> new long[3]);
+        medals[0] += gold;
+        medals[1] += silver;
+        medals[2] += bronze;
+        globalMedals[0] += gold;
+        globalMedals[1] += silver;
+        globalMedals[2] += bronze;
+        medalHistory.computeIfAbsent(to, k -> new TreeMap<>()).put(pendingBlock, medals.clone());
+        return new FakeLog(medalContract,
+                Arrays.asList(MEDALS_DISTRIBUTED_TOPIC, addressTopic(to)),
+                encode(uint(gold), uint(silver), uint(bronze)));
+    }
+
+    private FakeLog mint(String minter, String to, String name, String description,
+                         String imageMetadata, String attributes, long timestamp) {
+        BigInteger tokenId = BigInteger.valueOf(nfts.size() + 1L);
+        nfts.add(new Nft(name, description, imageMetadata, attributes, timestamp, minter, to));
+        List<BigInteger> owned = userNfts.computeIfAbsent(to, k -> new ArrayList<>());
+        owned.add(tokenId);
+        nftCountHistory.computeIfAbsent(to, k -> new TreeMap<>()).put(pendingBlock, owned.size());
+        return new FakeLog(nftContract,
+                Arrays.asList(NFT_MINTED_TOPIC, Numeric.toHexStringWithPrefixZeroPadded(tokenId, 64), addressTopic(to)),
+                encode(new Utf8String(name), uint(timestamp)));
+    }
+
+    // ==================== 工具方法 ====================
+
+    private boolean isContract(String address) {
+        return address.equals(medalContract) || address.equals(nftContract)
+                || address.equals(tokenContract) || address.equals(multicallContract);
+    }
+
+    /**
+     * 地址在指定区块结束时的值（该区块及之前没有记录时返回默认值）
+     */
+    private static <T> T valueAt(Map<String, TreeMap<Long, T>> history, String address, long blockNumber, T defaultValue) {
+        TreeMap<Long, T> values = history.get(address);
+        Map.Entry<Long, T> entry = values == null ? null : values.floorEntry(blockNumber);
+        return entry != null ? entry.getValue() : defaultValue;
+    }
+
+    private Nft nft(BigInteger tokenId) {
+        if (tokenId.signum() <= 0 || tokenId.compareTo(BigInteger.valueOf(nfts.size())) > 0) {
+            return null;
+        }
+        return nfts.get(tokenId.intValue() - 1);
+    }
+
+    /**
+     * 在修改状态之前检查 gas limit，不足时整笔交易回滚并耗尽 gas
+     */
+    private static long chargeGas(long gasUsed, BigInteger gasLimit) {
+        if (gasLimit != null && BigInteger.valueOf(gasUsed).compareTo(gasLimit) > 0) {
+            throw new Revert("out of gas", gasLimit.longValue());
+        }
+        return gasUsed;
+    }
+
+    private static void requireThat(boolean condition, String reason) {
+        if (!condition) {
+            throw new Revert(reason);
+        }
+    }
+
+    private static long longValue(Type value) {
+        return ((BigInteger) value.getValue()).longValueExact();
+    }
+
+    private static Uint256 uint(long value) {
+        return new Uint256(value);
+    }
+
+    private static String encode(Type... values) {
+        return "0x" + FunctionEncoder.encodeConstructor(Arrays.asList(values));
+    }
+
+    private static String args(String data) {
+        return "0x" + data.substring(10);
+    }
+
+    private static long payloadBytes(String data) {
+        return (data.length() - 10) / 2;
+    }
+
+    private static String addressTopic(String address) {
+        return "0x000000000000000000000000" + Numeric.cleanHexPrefix(address).toLowerCase();
+    }
+
+    static String normalize(String address) {
+        return address == null ? null : address.toLowerCase();
+    }
+
+    /**
+     * 事件日志（区块信息在打包时补全）
+     */
+    public static final class FakeLog {
+        final String address;
+        final List<String> topics;
+        final String data;
+
+        FakeLog(String address, List<String> topics, String data) {
+            this.address = address;
+            this.topics = topics;
+            this.data = data;
+        }
+    }
+
+    /**
+     * 交易执行结果
+     */
+    public static final class Execution {
+        final long gasUsed;
+        final List<FakeLog> logs;
+
+        Execution(long gasUsed, List<FakeLog> logs) {
+            this.gasUsed = gasUsed;
+            this.logs = logs;
+        }
+    }
+
+    /**
+     * 合约 require 失败
+     */
+    public static final class Revert extends RuntimeException {
+        final long gasUsed;
+
+        Revert(String reason) {
+            this(reason, TRANSFER_GAS);
+        }
+
+        Revert(String reason, long gasUsed) {
+            super(reason);
+            this.gasUsed = gasUsed;
+        }
+    }
+
+    private static final class Nft {
+        final String name;
+        final String description;
+        final String imageMetadata;
+        final String attributes;
+        final long mintTime;
+        final String minter;
+        final String owner;
+
+        Nft(String name, String description, String imageMetadata, String attributes,
+            long mintTime, String minter, String owner) {
+            this.name = name;
+            this.description = description;
+            this.imageMetadata = imageMetadata;
+            this.attributes = attributes;
+            this.mintTime = mintTime;
+            this.minter = minter;
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.brokerwallet.blockchain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * nonce 分配：结果不确定的发送不回收 nonce，already known 按成功处理，被丢弃的 nonce 只在 PENDING 计数停在它时复用，
+ * 长期无人复用的空洞由自转账补上
+ */
+class NonceManagerTest {
+
+    private static final String ACCOUNT = "0x8c056ccb92c567da3fee27c23d4f2f107f203879";
+
+    private Web3j web3j;
+    private NonceManager nonceManager;
+    private long pendingCount = 5;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        web3j = Mockito.mock(Web3j.class);
+        doReturn(request(() -> {
+            EthGetTransactionCount count = new EthGetTransactionCount();
+            count.setResult("0x" + Long.toHexString(pendingCount));
+            return count;
+        })).when(web3j).ethGetTransactionCount(anyString(), eq(DefaultBlockParameterName.PENDING));
+
+        nonceManager = new NonceManager(web3j);
+        ReflectionTestUtils.setField(nonceManager, "accountAddress", ACCOUNT);
+        ReflectionTestUtils.setField(nonceManager, "maxRetries", 3);
+        ReflectionTestUtils.setField(nonceManager, "dropTimeoutMs", 120_000L);
+        nonceManager.resync();
+    }
+
+    @Test
+    void timedOutSendKeepsItsNonce() throws Exception {
+        doReturn(request(() -> {
+            throw new SocketTimeoutException("timeout");
+        })).when(web3j).ethSendTransaction(any(Transaction.class));
+
+        assertThrows(IOException.class, () -> nonceManager.send(this::transaction));
+
+        // 交易可能已进入交易池，5 不能再分配给另一笔交易
+        assertEquals(BigInteger.valueOf(6), nonceManager.acquire());
+    }
+
+    @Test
+    void alreadyKnownIsTreatedAsSent() throws Exception {
+        doReturn(request(() -> error("already known"))).when(web3j).ethSendTransaction(any(Transaction.class));
+        EthBlock.TransactionObject pooled = new EthBlock.TransactionObject();
+        pooled.setFrom(ACCOUNT);
+        pooled.setNonce("0x5");
+        pooled.setHash("0xabc");
+        EthBlock.Block block = new EthBlock.Block();
+        block.setTransactions(List.of(pooled));
+        doReturn(request(() -> {
+            EthBlock response = new EthBlock();
+            response.setResult(block);
+            return response;
+        })).when(web3j).ethGetBlockByNumber(DefaultBlockParameterName.PENDING, true);
+
+        EthSendTransaction response = nonceManager.send(this::transaction);
+
+        assertFalse(response.hasError());
+        assertEquals("0xabc", response.getTransactionHash());
+        assertEquals(BigInteger.valueOf(6), nonceManager.acquire());
+        assertEquals(1L, nonceManager.getStatus().get("resyncCount"));
+    }
+
+    @Test
+    void droppedNonceIsReusedOnlyWhenPendingCountStopsAtIt() throws Exception {
+        ReflectionTestUtils.setField(nonceManager, "dropTimeoutMs", -1L);
+        nonceManager.markSent(nonceManager.acquire());
+        nonceManager.markSent(nonceManager.acquire());
+        nonceManager.markSent(nonceManager.acquire());
+
+        // 5 已打包，6 停在 PENDING 计数上，7 可能还在排队队列中
+        pendingCount = 6;
+        nonceManager.reconcile();
+
+        assertEquals(BigInteger.valueOf(6), nonceManager.acquire());
+        assertEquals(BigInteger.valueOf(8), nonceManager.acquire());
+    }
+
+    @Test
+    void restoredNonceIsNotReallocatedAndDropIsReportedBeforeReuse() throws Exception {
+        ReflectionTestUtils.setField(nonceManager, "dropTimeoutMs", -1L);
+        List<BigInteger> dropped = new ArrayList<>();
+        List<Object> gapsWhenNotified = new ArrayList<>();
+        nonceManager.addDropListener(nonce -> {
+            dropped.add(nonce);
+            // 回调时该 nonce 还不在可复用的空洞中
+            gapsWhenNotified.add(nonceManager.getStatus().get("gaps"));
+        });
+
+        // 重启前以 nonce 6 发出、结果未确定的交易
+        nonceManager.restoreSent(BigInteger.valueOf(6));
+        nonceManager.markSent(nonceManager.acquire());
+        nonceManager.markSent(nonceManager.acquire());
+        assertEquals(0, nonceManager.getStatus().get("gaps"));
+
+        // 5 已打包，6 停在 PENDING 计数上
+        pendingCount = 6;
+        nonceManager.reconcile();
+
+        assertEquals(List.of(BigInteger.valueOf(6)), dropped);
+        assertEquals(List.of(0), gapsWhenNotified);
+        assertEquals(BigInteger.valueOf(6), nonceManager.acquire());
+    }
+
+    @Test
+    void gapBelowSentNoncesIsFilledWhenItPersists() throws Exception {
+        doReturn(request(() -> {
+            EthGasPrice gasPrice = new EthGasPrice();
+            gasPrice.setResult("0x3b9aca00");
+            return gasPrice;
+        })).when(web3j).ethGasPrice();
+        doReturn(request(() -> {
+            EthSendTransaction response = new EthSendTransaction();
+            response.setResult("0xfill");
+            return response;
+        })).when(web3j).ethSendTransaction(any(Transaction.class));
+
+        BigInteger first = nonceManager.acquire();
+        nonceManager.markSent(nonceManager.acquire());
+        nonceManager.markSent(nonceManager.acquire());
+        // 5 被节点拒绝后再没有新交易，6、7 停在排队队列中
+        nonceManager.release(first);
+
+        nonceManager.reconcile();
+        verify(web3j, never()).ethSendTransaction(any(Transaction.class));
+
+        nonceManager.reconcile();
+        ArgumentCaptor<Transaction> filler = ArgumentCaptor.forClass(Transaction.class);
+        verify(web3j).ethSendTransaction(filler.capture());
+        assertEquals("0x5", filler.getValue().getNonce());
+        assertEquals(ACCOUNT, filler.getValue().getTo());
+        assertEquals("0x0", filler.getValue().getValue());
+        assertEquals(1L, nonceManager.getStatus().get("gapFillCount"));
+
+        // 5 已被补空洞交易占用
+        assertEquals(BigInteger.valueOf(8), nonceManager.acquire());
+    }
+
+    private Transaction transaction(BigInteger nonce) {
+        return Transaction.createFunctionCallTransaction(ACCOUNT, nonce, BigInteger.ONE, BigInteger.valueOf(21000),
+                ACCOUNT, BigInteger.ZERO, "0x");
+    }
+
+    private static EthSendTransaction error(String message) {
+        EthSendTransaction response = new EthSendTransaction();
+        response.setError(new Response.Error(-32000, message));
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Response<?>> Request<?, T> request(ResponseSupplier<T> supplier) throws IOException {
+        Request<?, T> request = Mockito.mock(Request.class);
+        when(request.send()).thenAnswer(invocation -> supplier.get());
+        return request;
+    }
+
+    @FunctionalInterface
+    private interface ResponseSupplier<T> {
+        T get() throws IOException;
+    }
+}
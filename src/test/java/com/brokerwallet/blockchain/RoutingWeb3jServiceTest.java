@@ -0,0 +1,230 @@
+package com.brokerwallet.blockchain;
+
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.http.HttpService;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多个模拟节点组成的节点池：延迟最低的节点落后时，指定区块的日志与历史读取不会被它悄悄截断
+ */
+class RoutingWeb3jServiceTest {
+
+    private static final String ACCOUNT = FakeChainNodeIntegrationTest.ACCOUNT;
+    private static final String MEDAL_CONTRACT = FakeChainNodeIntegrationTest.MEDAL_CONTRACT;
+    private static final String NFT_CONTRACT = FakeChainNodeIntegrationTest.NFT_CONTRACT;
+
+    /**
+     * 主节点较慢，只读节点几乎没有延迟，EWMA 会把只读节点排在前面
+     */
+    private static final long PRIMARY_LATENCY_MS = 80;
+
+    private final List<FakeChainNode> nodes = new ArrayList<>();
+    private final List<Web3j> clients = new ArrayList<>();
+
+    private FakeChainNode primary;
+    private FakeChainNode lagging;
+    private FakeChainNode synced;
+    private RoutingWeb3jService routing;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = startNode(PRIMARY_LATENCY_MS);
+        lagging = startNode(0);
+        synced = startNode(0);
+
+        // 主节点与同步节点执行相同的交易，落后节点停在预置区块
+        for (FakeChainNode node : Arrays.asList(primary, synced)) {
+            distributeMedals(node, FakeChainNode.seedAddress(0), 2, 1, 3);
+            distributeMedals(node, FakeChainNode.seedAddress(1), 1, 0, 0);
+        }
+
+        // 对冲延迟大于主节点延迟，确保每次请求由排在最前的节点完成
+        routing = new RoutingWeb3jService(primary.getUrl(), Arrays.asList(lagging.getUrl(), synced.getUrl()),
+                new OkHttpClient(), 1000, 0.5, 3, 100, 4);
+        web3j = Web3j.build(routing);
+        routing.checkHealth();
+    }
+
+    @AfterEach
+    void tearDown() {
+        web3j.shutdown();
+        clients.forEach(Web3j::shutdown);
+        nodes.forEach(FakeChainNode::stop);
+    }
+
+    @Test
+    void headIsReadFromThePrimary() throws Exception {
+        assertEquals(head(primary), web3j.ethBlockNumber().send().getBlockNumber().longValue());
+    }
+
+    @Test
+    void logsUpToTheHeadAreNeverServedByALaggingNode() throws Exception {
+        synced.stop();
+        routing.checkHealth();
+
+        long head = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+        long laggingCalls = rpcCalls(lagging);
+
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(BigInteger.ONE),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(head)), MEDAL_CONTRACT);
+        filter.addSingleTopic(ContractEvents.MEDALS_DISTRIBUTED_TOPIC);
+        for (int i = 0; i < 3; i++) {
+            // 预置区块 1 的事件 + 两笔发放
+            assertEquals(primaryLogs(head), web3j.ethGetLogs(filter).send().getLogs().size());
+        }
+        assertEquals(laggingCalls, rpcCalls(lagging));
+    }
+
+    @Test
+    void syncedFastNodeStillServesBlockBoundReads() throws Exception {
+        long head = head(primary);
+        int expectedLogs = primaryLogs(head);
+        long primaryCalls = rpcCalls(primary);
+
+        EthCall atHead = web3j.ethCall(medalsCall(FakeChainNode.seedAddress(0)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(head))).send();
+        assertFalse(atHead.hasError());
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(BigInteger.ONE),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(head)), MEDAL_CONTRACT);
+        filter.addSingleTopic(ContractEvents.MEDALS_DISTRIBUTED_TOPIC);
+        assertEquals(expectedLogs, web3j.ethGetLogs(filter).send().getLogs().size());
+
+        assertEquals(primaryCalls, rpcCalls(primary));
+    }
+
+    @Test
+    void historicalCallBeyondALaggingNodeIsNotRoutedToIt() throws Exception {
+        synced.stop();
+        routing.checkHealth();
+        long head = head(primary);
+
+        for (int i = 0; i < 3; i++) {
+            EthCall response = web3j.ethCall(medalsCall(FakeChainNode.seedAddress(0)),
+                    DefaultBlockParameter.valueOf(BigInteger.valueOf(head))).send();
+            assertFalse(response.hasError(), () -> response.getError().getMessage());
+        }
+        // 不指定区块的读取仍优先发往延迟最低的节点
+        long laggingCalls = rpcCalls(lagging);
+        web3j.ethCall(medalsCall(FakeChainNode.seedAddress(0)), DefaultBlockParameterName.LATEST).send();
+        assertEquals(laggingCalls + 1, rpcCalls(lagging));
+    }
+
+    @Test
+    void pendingQueriesGoToThePrimaryTxpool() throws Exception {
+        long primaryCalls = rpcCalls(primary);
+        long laggingCalls = rpcCalls(lagging);
+        long syncedCalls = rpcCalls(synced);
+
+        web3j.ethGetBlockByNumber(DefaultBlockParameterName.PENDING, true).send();
+        web3j.ethCall(medalsCall(FakeChainNode.seedAddress(0)), DefaultBlockParameterName.PENDING).send();
+
+        assertEquals(primaryCalls + 2, rpcCalls(primary));
+        assertEquals(laggingCalls, rpcCalls(lagging));
+        assertEquals(syncedCalls, rpcCalls(synced));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void hedgeLoserIsCancelledAndThreadsStayBounded() throws Exception {
+        // 未探测时各节点得分相同，慢的主节点排在前面，20ms 后对冲到同步节点
+        RoutingWeb3jService hedged = new RoutingWeb3jService(primary.getUrl(), List.of(synced.getUrl()),
+                new OkHttpClient(), 20, 0.5, 3, 100, 1);
+        Web3j client = Web3j.build(hedged);
+        try {
+            EthCall response = client.ethCall(medalsCall(FakeChainNode.seedAddress(0)), DefaultBlockParameterName.LATEST).send();
+            assertFalse(response.hasError());
+            assertEquals(1L, hedged.getStats().get("hedgeWins"));
+
+            List<CompletableFuture<EthCall>> calls = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                calls.add(client.ethCall(medalsCall(FakeChainNode.seedAddress(i % 3)), DefaultBlockParameterName.LATEST).sendAsync());
+            }
+            for (CompletableFuture<EthCall> call : calls) {
+                assertFalse(call.get().hasError());
+            }
+            Map<String, Object> stats = hedged.getStats();
+            assertEquals(2, stats.get("maxRouteThreads"));
+            assertTrue((Integer) stats.get("routeThreads") <= 2);
+            // 被取消的对冲请求不计为节点故障
+            for (Map<String, Object> endpoint : (List<Map<String, Object>>) stats.get("endpoints")) {
+                assertEquals(0L, endpoint.get("failures"));
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private FakeChainNode startNode(long latencyMs) throws Exception {
+        FakeChainNode node = new FakeChainNode(FakeChainNode.Options.builder()
+                .accountAddress(ACCOUNT)
+                .medalContract(MEDAL_CONTRACT)
+                .nftContract(NFT_CONTRACT)
+                .latencyMs(latencyMs)
+                .build());
+        node.seedUsers(3, 7L);
+        node.start();
+        nodes.add(node);
+        clients.add(Web3j.build(new HttpService(node.getUrl())));
+        return node;
+    }
+
+    private Web3j client(FakeChainNode node) {
+        return clients.get(nodes.indexOf(node));
+    }
+
+    private long head(FakeChainNode node) {
+        return (Long) node.getStats().get("blockNumber");
+    }
+
+    private long rpcCalls(FakeChainNode node) {
+        return (Long) node.getStats().get("rpcCalls");
+    }
+
+    private int primaryLogs(long toBlock) throws Exception {
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(BigInteger.ONE),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(toBlock)), MEDAL_CONTRACT);
+        filter.addSingleTopic(ContractEvents.MEDALS_DISTRIBUTED_TOPIC);
+        return client(primary).ethGetLogs(filter).send().getLogs().size();
+    }
+
+    private static Transaction medalsCall(String address) {
+        return Transaction.createEthCallTransaction(null, MEDAL_CONTRACT,
+                ContractCodec.encodeAddressCall(ContractCodec.GET_USER_MEDALS, address));
+    }
+
+    private void distributeMedals(FakeChainNode node, String to, long gold, long silver, long bronze) throws Exception {
+        Web3j client = client(node);
+        String data = FunctionEncoder.encode(new Function("distributeMedals",
+                Arrays.asList(new Address(to), new Uint256(gold), new Uint256(silver), new Uint256(bronze)),
+                Collections.emptyList()));
+        BigInteger nonce = client.ethGetTransactionCount(ACCOUNT, DefaultBlockParameterName.PENDING).send().getTransactionCount();
+        // 出块间隔为 0：交易发送后立即打包
+        client.ethSendTransaction(Transaction.createFunctionCallTransaction(ACCOUNT, nonce,
+                BigInteger.valueOf(1_000_000_000L), BigInteger.valueOf(300_000L), MEDAL_CONTRACT, data)).send();
+    }
+}
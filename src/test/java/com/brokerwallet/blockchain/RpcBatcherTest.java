@@ -0,0 +1,131 @@
+package com.brokerwallet.blockchain;
+
+import io.reactivex.Flowable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.websocket.events.Notification;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * linger 批次在发送线程池上发送：一个卡住的批次不拖住之后到期的批次
+ */
+class RpcBatcherTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger batches = new AtomicInteger();
+    private final StubService service = new StubService();
+    private RpcBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        batcher.shutdown();
+    }
+
+    @Test
+    void stalledBatchDoesNotBlockLaterLingeringBatches() throws Exception {
+        batcher = new RpcBatcher(Web3j.build(service));
+        ReflectionTestUtils.setField(batcher, "enabled", true);
+        ReflectionTestUtils.setField(batcher, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(batcher, "maxLingerMs", 5L);
+
+        // 第一批在节点上卡住
+        List<CompletableFuture<EthBlockNumber>> stalled = submitTwo();
+        while (batches.get() == 0) {
+            Thread.sleep(5);
+        }
+
+        List<CompletableFuture<EthBlockNumber>> later = submitTwo();
+        for (CompletableFuture<EthBlockNumber> future : later) {
+            assertEquals(7L, future.get(2, TimeUnit.SECONDS).getBlockNumber().longValue());
+        }
+        assertFalse(stalled.get(0).isDone());
+
+        release.countDown();
+        assertEquals(7L, stalled.get(1).get(2, TimeUnit.SECONDS).getBlockNumber().longValue());
+    }
+
+    private List<CompletableFuture<EthBlockNumber>> submitTwo() {
+        List<CompletableFuture<EthBlockNumber>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(batcher.submit(new Request<>("eth_blockNumber", Collections.<String>emptyList(),
+                    service, EthBlockNumber.class)));
+        }
+        return futures;
+    }
+
+    /**
+     * 第一个批量请求阻塞到 release，其余立即返回区块高度 7
+     */
+    private final class StubService implements Web3jService {
+
+        @Override
+        public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+            if (batches.incrementAndGet() == 1) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            List<Response<?>> responses = new ArrayList<>();
+            for (Request<?, ? extends Response<?>> request : batchRequest.getRequests()) {
+                responses.add(blockNumber(request.getId()));
+            }
+            return new BatchResponse(batchRequest.getRequests(), responses);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends Response> T send(Request request, Class<T> responseType) {
+            return (T) blockNumber(request.getId());
+        }
+
+        @Override
+        public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+            return CompletableFuture.completedFuture(send(request, responseType));
+        }
+
+        @Override
+        public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                               Class<T> responseType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private EthBlockNumber blockNumber(long id) {
+            EthBlockNumber response = new EthBlockNumber();
+            response.setId(id);
+            response.setResult("0x7");
+            return response;
+        }
+    }
+}
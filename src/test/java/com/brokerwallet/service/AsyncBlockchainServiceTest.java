@@ -0,0 +1,66 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.ContractReadCache;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 异步查询的排队上限：排满后新调用立即失败，排队的调用在许可释放后照常完成
+ */
+class AsyncBlockchainServiceTest {
+
+    @Test
+    void callsBeyondTheQueueLimitFailFast() throws Exception {
+        List<CompletableFuture<EthCall>> pending = new ArrayList<>();
+        ContractReadCache readCache = Mockito.mock(ContractReadCache.class);
+        when(readCache.callAsync(any())).thenAnswer(invocation -> {
+            CompletableFuture<EthCall> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        });
+        BlockchainService blockchainService = Mockito.mock(BlockchainService.class);
+        when(blockchainService.decodeTotalSupply(any())).thenReturn(BigInteger.TEN);
+
+        AsyncBlockchainService service = new AsyncBlockchainService(blockchainService, readCache, Runnable::run, 1, 2);
+
+        CompletableFuture<BigInteger> inFlight = service.getTotalSupply();
+        CompletableFuture<BigInteger> queued1 = service.getTotalSupply();
+        CompletableFuture<BigInteger> queued2 = service.getTotalSupply();
+        CompletableFuture<BigInteger> rejected = service.getTotalSupply();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(QueryQueueFullException.class, error.getCause());
+        assertEquals(1L, service.getStats().get("rejectedCalls"));
+        assertEquals(2, service.getStats().get("queued"));
+
+        // 逐个完成在途调用，排队的调用依次发出
+        for (int i = 0; i < 3; i++) {
+            pending.get(i).complete(new EthCall());
+        }
+        assertEquals(BigInteger.TEN, inFlight.get(1, TimeUnit.SECONDS));
+        assertEquals(BigInteger.TEN, queued1.get(1, TimeUnit.SECONDS));
+        assertEquals(BigInteger.TEN, queued2.get(1, TimeUnit.SECONDS));
+        assertEquals(0, service.getStats().get("queued"));
+
+        // 队列腾空后可以再次排队
+        service.getTotalSupply();
+        CompletableFuture<BigInteger> again = service.getTotalSupply();
+        assertFalse(again.isCompletedExceptionally());
+        assertEquals(4, pending.size());
+    }
+}
@@ -0,0 +1,245 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.ContractCodec;
+import com.brokerwallet.blockchain.ContractReadCache;
+import com.brokerwallet.blockchain.FakeChainNode;
+import com.brokerwallet.blockchain.MulticallClient;
+import com.brokerwallet.blockchain.RpcBatcher;
+import com.brokerwallet.entity.SyncCheckpoint;
+import com.brokerwallet.entity.UserAccount;
+import com.brokerwallet.repository.NftImageRepository;
+import com.brokerwallet.repository.SyncCheckpointRepository;
+import com.brokerwallet.repository.UserAccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.http.HttpService;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 事件索引对着模拟节点运行：区间按区块上的链上绝对值写入，与按 LATEST 刷新的路径并发时不重复累加
+ */
+class ChainEventIndexerTest {
+
+    private static final String ACCOUNT = "0x8c056ccb92c567da3fee27c23d4f2f107f203879";
+    private static final String MEDAL_CONTRACT = "0x1a202bfa10ea97a742ad22fcb1a7913821bf1b18";
+    private static final String NFT_CONTRACT = "0x382ca68b8133893fdf46170efd839c7703d9e9ae";
+
+    private FakeChainNode node;
+    private Web3j web3j;
+    private BlockchainSyncService blockchainSyncService;
+    private ChainEventIndexer indexer;
+
+    private final Map<String, SyncCheckpoint> checkpoints = new HashMap<>();
+    private final Map<String, UserAccount> users = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        node = new FakeChainNode(FakeChainNode.Options.builder()
+                .accountAddress(ACCOUNT)
+                .medalContract(MEDAL_CONTRACT)
+                .nftContract(NFT_CONTRACT)
+                .build());
+        node.seedUsers(3, 7L);
+        node.start();
+        web3j = Web3j.build(new HttpService(node.getUrl()));
+
+        ContractReadCache readCache = new ContractReadCache(new RpcBatcher(web3j));
+        readCache.init();
+        BlockchainService blockchainService = new BlockchainService(web3j,
+                Mockito.mock(UserAccountRepository.class), Mockito.mock(NftImageRepository.class),
+                readCache, null, null, new MulticallClient(web3j, readCache), null);
+        ReflectionTestUtils.setField(blockchainService, "medalContractAddress", MEDAL_CONTRACT);
+        ReflectionTestUtils.setField(blockchainService, "nftContractAddress", NFT_CONTRACT);
+        ReflectionTestUtils.setField(blockchainService, "accountAddress", ACCOUNT);
+
+        SyncCheckpointRepository checkpointRepository = Mockito.mock(SyncCheckpointRepository.class);
+        when(checkpointRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(checkpoints.get(invocation.<String>getArgument(0))));
+        when(checkpointRepository.save(any(SyncCheckpoint.class))).thenAnswer(invocation -> {
+            SyncCheckpoint checkpoint = invocation.getArgument(0);
+            checkpoints.put(checkpoint.getName(), checkpoint);
+            return checkpoint;
+        });
+
+        blockchainSyncService = Mockito.mock(BlockchainSyncService.class);
+        when(blockchainSyncService.findUserByChainAddress(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(users.get(invocation.<String>getArgument(0))));
+
+        indexer = new ChainEventIndexer(web3j, Mockito.mock(UserAccountRepository.class),
+                Mockito.mock(NftImageRepository.class), checkpointRepository, blockchainSyncService, blockchainService,
+                new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(indexer, "medalContractAddress", MEDAL_CONTRACT);
+        ReflectionTestUtils.setField(indexer, "nftContractAddress", NFT_CONTRACT);
+        ReflectionTestUtils.setField(indexer, "maxBlockRange", 2000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        web3j.shutdown();
+        node.stop();
+    }
+
+    @Test
+    void eventAlreadyAppliedByLatestRefreshIsNotCountedTwice() throws Exception {
+        String address = FakeChainNode.seedAddress(0);
+        UserAccount user = userWithChainMedals(address);
+        checkpoints.put(ChainEventIndexer.CHECKPOINT_NAME, new SyncCheckpoint(ChainEventIndexer.CHECKPOINT_NAME, head()));
+
+        distributeMedals(address, 2, 1, 3);
+        // 单用户同步 / 对账先按 LATEST 写入了新值
+        long[] latest = chainMedals(address);
+        setMedals(user, latest);
+
+        indexer.indexTo(head());
+
+        assertMedals(latest, user);
+        assertEquals(head(), checkpoints.get(ChainEventIndexer.CHECKPOINT_NAME).getLastBlock());
+    }
+
+    @Test
+    void rangeIsAppliedAtItsEndBlockNotAtHead() throws Exception {
+        String address = FakeChainNode.seedAddress(1);
+        UserAccount user = userWithChainMedals(address);
+        checkpoints.put(ChainEventIndexer.CHECKPOINT_NAME, new SyncCheckpoint(ChainEventIndexer.CHECKPOINT_NAME, head()));
+
+        distributeMedals(address, 1, 0, 0);
+        long confirmed = head();
+        long[] atConfirmed = chainMedals(address);
+        // 尚未达到确认数的区块
+        distributeMedals(address, 5, 5, 5);
+        node.seedNfts(2, 2);
+
+        indexer.indexTo(confirmed);
+        assertMedals(atConfirmed, user);
+        assertEquals(0, user.getTotalNfts());
+
+        indexer.indexTo(head());
+        assertMedals(chainMedals(address), user);
+        assertEquals(1, user.getTotalNfts());
+    }
+
+    @Test
+    void walletWithOpenDistributionOnlyUpdatesChainMirror() throws Exception {
+        String address = FakeChainNode.seedAddress(2);
+        UserAccount user = userWithChainMedals(address);
+        checkpoints.put(ChainEventIndexer.CHECKPOINT_NAME, new SyncCheckpoint(ChainEventIndexer.CHECKPOINT_NAME, head()));
+        // 管理员审批已在本地先行记账，另一笔发放仍未确认
+        long[] local = chainMedals(address);
+        local[0] += 4;
+        local[3] += 4;
+        setMedals(user, local);
+        when(blockchainSyncService.openDistributionWallets()).thenReturn(Set.of(address.toLowerCase()));
+
+        distributeMedals(address, 1, 0, 0);
+        indexer.indexTo(head());
+
+        long[] chain = chainMedals(address);
+        assertEquals(Arrays.asList(local[0], local[1], local[2], local[3]),
+                Arrays.asList((long) user.getGoldMedals(), (long) user.getSilverMedals(),
+                        (long) user.getBronzeMedals(), (long) user.getTotalMedals()));
+        assertEquals(Arrays.asList(chain[0], chain[1], chain[2]),
+                Arrays.asList((long) user.getBlockchainGoldMedals(), (long) user.getBlockchainSilverMedals(),
+                        (long) user.getBlockchainBronzeMedals()));
+    }
+
+    @Test
+    void baselineCheckpointIsExactlyTheReconciledBlock() throws Exception {
+        long target = head();
+        when(blockchainSyncService.reconcileAtBlock(target)).thenAnswer(invocation -> {
+            // 对账期间链头继续前进
+            distributeMedals(FakeChainNode.seedAddress(2), 1, 1, 1);
+            return true;
+        });
+
+        indexer.indexTo(target);
+
+        assertEquals(target, checkpoints.get(ChainEventIndexer.CHECKPOINT_NAME).getLastBlock());
+    }
+
+    @Test
+    void incompleteBaselineLeavesNoCheckpoint() throws Exception {
+        when(blockchainSyncService.reconcileAtBlock(anyLong())).thenReturn(false);
+
+        indexer.indexTo(head());
+
+        assertFalse(checkpoints.containsKey(ChainEventIndexer.CHECKPOINT_NAME));
+        verify(blockchainSyncService, never()).refreshUserByChainAddress(anyString());
+    }
+
+    private UserAccount userWithChainMedals(String address) throws Exception {
+        UserAccount user = new UserAccount();
+        user.setId((long) users.size() + 1);
+        user.setWalletAddress(address);
+        setMedals(user, chainMedals(address));
+        users.put(address, user);
+        return user;
+    }
+
+    private static void setMedals(UserAccount user, long[] medals) {
+        user.setGoldMedals((int) medals[0]);
+        user.setSilverMedals((int) medals[1]);
+        user.setBronzeMedals((int) medals[2]);
+        user.setTotalMedals((int) medals[3]);
+        user.setBlockchainGoldMedals((int) medals[0]);
+        user.setBlockchainSilverMedals((int) medals[1]);
+        user.setBlockchainBronzeMedals((int) medals[2]);
+    }
+
+    private static void assertMedals(long[] expected, UserAccount user) {
+        assertEquals(Arrays.asList(expected[0], expected[1], expected[2], expected[3]),
+                Arrays.asList((long) user.getGoldMedals(), (long) user.getSilverMedals(),
+                        (long) user.getBronzeMedals(), (long) user.getTotalMedals()));
+        assertEquals(Arrays.asList(expected[0], expected[1], expected[2]),
+                Arrays.asList((long) user.getBlockchainGoldMedals(), (long) user.getBlockchainSilverMedals(),
+                        (long) user.getBlockchainBronzeMedals()));
+    }
+
+    private long[] chainMedals(String address) throws Exception {
+        String value = web3j.ethCall(Transaction.createEthCallTransaction(null, MEDAL_CONTRACT,
+                ContractCodec.encodeAddressCall(ContractCodec.GET_USER_MEDALS, address)), DefaultBlockParameterName.LATEST)
+                .send().getValue();
+        return ContractCodec.decodeUint64Words(value, 4);
+    }
+
+    private long head() throws Exception {
+        return web3j.ethBlockNumber().send().getBlockNumber().longValue();
+    }
+
+    private void distributeMedals(String to, long gold, long silver, long bronze) throws Exception {
+        String data = FunctionEncoder.encode(new Function("distributeMedals",
+                Arrays.asList(new Address(to), new Uint256(gold), new Uint256(silver), new Uint256(bronze)),
+                Collections.emptyList()));
+        BigInteger nonce = web3j.ethGetTransactionCount(ACCOUNT, DefaultBlockParameterName.PENDING).send().getTransactionCount();
+        // 出块间隔为 0：交易发送后立即打包
+        web3j.ethSendTransaction(Transaction.createFunctionCallTransaction(ACCOUNT, nonce,
+                BigInteger.valueOf(1_000_000_000L), BigInteger.valueOf(300_000L), MEDAL_CONTRACT, data)).send();
+    }
+}
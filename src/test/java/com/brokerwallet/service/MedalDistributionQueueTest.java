@@ -0,0 +1,228 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.NonceManager;
+import com.brokerwallet.blockchain.ReceiptTracker;
+import com.brokerwallet.entity.MedalDistributionTask;
+import com.brokerwallet.entity.MedalDistributionTask.TaskStatus;
+import com.brokerwallet.repository.MedalDistributionTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 勋章发放队列：合约不支持批量方法时逐地址发送；批量交易回滚时只让真正失败的地址计入重试；
+ * 发送或确认结果不确定的任务按 nonce 找回交易，只有 nonce 被确认丢弃时才重新发放
+ */
+class MedalDistributionQueueTest {
+
+    private static final String GOOD_1 = "0x0000000000000000000000000000000000100001";
+    private static final String GOOD_2 = "0x0000000000000000000000000000000000100002";
+    private static final String BAD = "0x0000000000000000000000000000000000100003";
+
+    private final Map<Long, MedalDistributionTask> tasks = new LinkedHashMap<>();
+    private final AtomicLong nextNonce = new AtomicLong(10);
+    private BlockchainService blockchainService;
+    private NonceManager nonceManager;
+    private MedalDistributionQueue queue;
+
+    /**
+     * 交易哈希 -> 回执跟踪结果
+     */
+    private Function<String, CompletableFuture<TransactionReceipt>> receipts;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MedalDistributionTaskRepository repository = Mockito.mock(MedalDistributionTaskRepository.class);
+        when(repository.save(any(MedalDistributionTask.class))).thenAnswer(invocation -> {
+            MedalDistributionTask task = invocation.getArgument(0);
+            task.setId((long) tasks.size() + 1);
+            tasks.put(task.getId(), task);
+            return task;
+        });
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.findTop500ByStatusOrderByIdAsc(TaskStatus.PENDING)).thenAnswer(invocation ->
+                tasks.values().stream().filter(task -> task.getStatus() == TaskStatus.PENDING).collect(Collectors.toList()));
+        when(repository.findByStatus(TaskStatus.SUBMITTED)).thenAnswer(invocation ->
+                tasks.values().stream().filter(task -> task.getStatus() == TaskStatus.SUBMITTED).collect(Collectors.toList()));
+        when(repository.findByStatusAndNonce(eq(TaskStatus.SUBMITTED), anyLong())).thenAnswer(invocation ->
+                tasks.values().stream().filter(task -> task.getStatus() == TaskStatus.SUBMITTED
+                        && invocation.<Long>getArgument(1).equals(task.getNonce())).collect(Collectors.toList()));
+        when(repository.findAllById(anyList())).thenAnswer(invocation -> {
+            List<MedalDistributionTask> found = new ArrayList<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                found.add(tasks.get(id));
+            }
+            return found;
+        });
+
+        blockchainService = Mockito.mock(BlockchainService.class);
+        // 批量交易哈希 0xbatch 回滚；逐地址发送时 BAD 回滚，其他成功
+        when(blockchainService.sendBatchDistributeMedals(anyList(), anyList(), anyList(), anyList(), any(), any()))
+                .thenAnswer(invocation -> {
+                    beforeSend(invocation);
+                    return "0xbatch";
+                });
+        when(blockchainService.sendDistributeMedals(anyString(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    beforeSend(invocation);
+                    return "0xsingle-" + invocation.<String>getArgument(0);
+                });
+        receipts = txHash -> receipt(!txHash.equals("0xbatch") && !txHash.endsWith(BAD));
+        ReceiptTracker receiptTracker = Mockito.mock(ReceiptTracker.class);
+        when(receiptTracker.track(anyString())).thenAnswer(invocation -> receipts.apply(invocation.getArgument(0)));
+        nonceManager = Mockito.mock(NonceManager.class);
+
+        queue = new MedalDistributionQueue(repository, blockchainService,
+                Mockito.mock(DirtyWalletSyncService.class), receiptTracker, nonceManager);
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "batchContractEnabled", true);
+        ReflectionTestUtils.setField(queue, "maxRecipientsPerTx", 50);
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+
+        queue.enqueue(GOOD_1, 1, 0, 0);
+        queue.enqueue(BAD, 0, 1, 0);
+        queue.enqueue(GOOD_2, 0, 0, 1);
+    }
+
+    @Test
+    void revertedBatchIsRetriedPerAddressWithoutChargingTheOthers() throws Exception {
+        when(blockchainService.supportsBatchDistributeMedals()).thenReturn(true);
+
+        queue.dispatch();
+        // 批量交易回滚：全部回到待发放，不计入重试次数
+        tasks.values().forEach(task -> {
+            assertEquals(TaskStatus.PENDING, task.getStatus());
+            assertEquals(0, task.getAttempts());
+        });
+
+        queue.dispatch();
+
+        assertEquals(TaskStatus.CONFIRMED, taskFor(GOOD_1).getStatus());
+        assertEquals(TaskStatus.CONFIRMED, taskFor(GOOD_2).getStatus());
+        assertEquals(TaskStatus.PENDING, taskFor(BAD).getStatus());
+        assertEquals(1, taskFor(BAD).getAttempts());
+        verify(blockchainService, Mockito.times(1)).sendBatchDistributeMedals(anyList(), anyList(), anyList(), anyList(), any(), any());
+    }
+
+    @Test
+    void contractWithoutBatchMethodFallsBackToPerAddressSends() throws Exception {
+        when(blockchainService.supportsBatchDistributeMedals()).thenReturn(false);
+
+        queue.dispatch();
+
+        verify(blockchainService, never()).sendBatchDistributeMedals(anyList(), anyList(), anyList(), anyList(), any(), any());
+        verify(blockchainService).sendDistributeMedals(eq(GOOD_1), eq(BigInteger.ONE), eq(BigInteger.ZERO), eq(BigInteger.ZERO), any(), any());
+        assertEquals(TaskStatus.CONFIRMED, taskFor(GOOD_1).getStatus());
+        assertEquals(TaskStatus.CONFIRMED, taskFor(GOOD_2).getStatus());
+        assertEquals(1, taskFor(BAD).getAttempts());
+    }
+
+    @Test
+    void sendWithUnknownOutcomeIsRecoveredByNonceInsteadOfResent() throws Exception {
+        when(blockchainService.supportsBatchDistributeMedals()).thenReturn(false);
+        when(blockchainService.sendDistributeMedals(eq(GOOD_1), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    beforeSend(invocation);
+                    throw new SocketTimeoutException("Read timed out");
+                });
+
+        queue.dispatch();
+
+        // 交易可能已进入交易池：任务按 nonce 保持已提交，本轮停止
+        MedalDistributionTask task = taskFor(GOOD_1);
+        assertEquals(TaskStatus.SUBMITTED, task.getStatus());
+        assertEquals(10L, task.getNonce());
+        assertNull(task.getTransactionHash());
+        assertEquals(TaskStatus.PENDING, taskFor(GOOD_2).getStatus());
+
+        when(nonceManager.findTransactionHash(eq(BigInteger.TEN), anyLong())).thenReturn(Optional.of("0xrecovered"));
+        queue.dispatch();
+
+        assertEquals(TaskStatus.CONFIRMED, task.getStatus());
+        assertEquals("0xrecovered", task.getTransactionHash());
+        assertEquals(0, task.getAttempts());
+        verify(blockchainService, Mockito.times(1)).sendDistributeMedals(eq(GOOD_1), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void confirmationTimeoutIsRecheckedInsteadOfFailed() throws Exception {
+        when(blockchainService.supportsBatchDistributeMedals()).thenReturn(false);
+        receipts = txHash -> CompletableFuture.failedFuture(new TimeoutException("Transaction confirmation timeout"));
+
+        queue.dispatch();
+
+        // 确认超时：交易可能只是慢，不判失败也不重发
+        tasks.values().forEach(task -> assertEquals(TaskStatus.SUBMITTED, task.getStatus()));
+
+        receipts = txHash -> receipt(true);
+        queue.dispatch();
+
+        tasks.values().forEach(task -> assertEquals(TaskStatus.CONFIRMED, task.getStatus()));
+        verify(blockchainService, Mockito.times(3)).sendDistributeMedals(anyString(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void droppedTransactionIsRequeuedWithoutChargingAttempts() throws Exception {
+        when(blockchainService.supportsBatchDistributeMedals()).thenReturn(false);
+        receipts = txHash -> CompletableFuture.failedFuture(new TimeoutException("Transaction confirmation timeout"));
+        queue.dispatch();
+        MedalDistributionTask task = taskFor(GOOD_1);
+        long droppedNonce = task.getNonce();
+
+        // PENDING 计数停在该 nonce：交易已被丢弃
+        queue.requeueDropped(BigInteger.valueOf(droppedNonce));
+
+        assertEquals(TaskStatus.PENDING, task.getStatus());
+        assertNull(task.getNonce());
+        assertEquals(0, task.getAttempts());
+
+        receipts = txHash -> receipt(true);
+        queue.dispatch();
+
+        assertEquals(TaskStatus.CONFIRMED, task.getStatus());
+        verify(blockchainService, Mockito.times(2)).sendDistributeMedals(eq(GOOD_1), any(), any(), any(), any(), any());
+    }
+
+    private void beforeSend(InvocationOnMock invocation) {
+        invocation.<Consumer<BigInteger>>getArgument(5).accept(BigInteger.valueOf(nextNonce.getAndIncrement()));
+    }
+
+    private static CompletableFuture<TransactionReceipt> receipt(boolean success) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setStatus(success ? "0x1" : "0x0");
+        return CompletableFuture.completedFuture(receipt);
+    }
+
+    private MedalDistributionTask taskFor(String address) {
+        return tasks.values().stream().filter(task -> task.getWalletAddress().equals(address)).findFirst().orElseThrow();
+    }
+}
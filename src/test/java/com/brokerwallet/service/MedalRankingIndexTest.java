@@ -0,0 +1,83 @@
+package com.brokerwallet.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * 排行榜索引：重建期间提交的变化不丢失，总分相同的用户名次相同
+ */
+class MedalRankingIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private MedalRankingIndex index;
+    private List<MedalRankingIndex.RankKey> snapshot;
+    private Runnable duringQuery;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenAnswer(invocation -> {
+            // 快照先读出，之后提交的变化不在快照中
+            List<MedalRankingIndex.RankKey> rows = new ArrayList<>(snapshot);
+            if (duringQuery != null) {
+                duringQuery.run();
+            }
+            return rows;
+        });
+        index = new MedalRankingIndex(jdbcTemplate);
+        snapshot = new ArrayList<>(Arrays.asList(
+                key(1, 3, 0, 0, 1),
+                key(2, 0, 2, 1, 2),
+                key(3, 1, 0, 0, 3)));
+        index.rebuild();
+    }
+
+    @Test
+    void changesCommittedDuringRebuildAreReplayed() {
+        duringQuery = () -> {
+            index.update(3L, 5, 0, 0, T0.plusDays(3));
+            index.update(4L, 0, 0, 2, T0.plusDays(4));
+            index.remove(2L);
+        };
+
+        index.rebuild();
+
+        assertEquals(Arrays.asList(3L, 1L, 4L), index.page(0, 10));
+        // 之后的增量按重放后的状态计算变化前的勋章数
+        assertArrayEquals(new int[]{5, 0, 0}, index.update(3L, 5, 1, 0, null));
+        assertArrayEquals(new int[]{0, 0, 0}, index.update(2L, 0, 0, 1, null));
+    }
+
+    @Test
+    void usersWithTheSameScoreShareARank() {
+        // 用户1：9分；用户2：5分；用户3：3分；用户5 与用户2 同为5分
+        index.update(5L, 1, 1, 0, T0.plusDays(5));
+
+        assertEquals(1, index.rankOf(1L));
+        assertEquals(2, index.rankOf(2L));
+        assertEquals(2, index.rankOf(5L));
+        assertEquals(4, index.rankOf(3L));
+        assertEquals(0, index.rankOf(6L));
+    }
+
+    private static MedalRankingIndex.RankKey key(long userId, int gold, int silver, int bronze, int day) {
+        return new MedalRankingIndex.RankKey(userId, gold, silver, bronze, T0.plusDays(day));
+    }
+}
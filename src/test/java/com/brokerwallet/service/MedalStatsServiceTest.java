@@ -0,0 +1,70 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.entity.MedalStats;
+import com.brokerwallet.repository.MedalStatsRepository;
+import com.brokerwallet.repository.UserAccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * 勋章统计校验：已提交、增量尚未应用的事务不会被聚合查询和增量各计一次
+ */
+class MedalStatsServiceTest {
+
+    private UserAccountRepository userAccountRepository;
+    private MedalStatsService medalStatsService;
+
+    /**
+     * 用户表中的金牌总数
+     */
+    private long committedGold = 1;
+
+    @BeforeEach
+    void setUp() {
+        MedalStatsRepository medalStatsRepository = Mockito.mock(MedalStatsRepository.class);
+        when(medalStatsRepository.findById(MedalStats.SINGLETON_ID))
+                .thenReturn(Optional.of(new MedalStats(1, 1, 0, 0)));
+        when(medalStatsRepository.addDelta(any(), anyLong(), anyLong(), anyLong(), anyLong(), any())).thenReturn(1);
+
+        userAccountRepository = Mockito.mock(UserAccountRepository.class);
+        when(userAccountRepository.count()).thenReturn(1L);
+        when(userAccountRepository.sumGoldMedals()).thenAnswer(invocation -> committedGold);
+        when(userAccountRepository.sumSilverMedals()).thenReturn(0L);
+        when(userAccountRepository.sumBronzeMedals()).thenReturn(0L);
+
+        medalStatsService = new MedalStatsService(medalStatsRepository, userAccountRepository,
+                Mockito.mock(MedalRankingIndex.class));
+        medalStatsService.init();
+    }
+
+    @Test
+    void committedButUnappliedChangeIsNotCountedTwice() {
+        // 事务写入并提交，afterCommit 尚未执行
+        medalStatsService.beginPendingChange();
+        committedGold = 2;
+
+        medalStatsService.verify();
+        medalStatsService.applyDelta(0, 1, 0, 0);
+        medalStatsService.endPendingChange();
+
+        assertEquals(2L, medalStatsService.getMedalStats().get("totalGoldMedals"));
+    }
+
+    @Test
+    void driftIsCorrectedOnceNoChangeIsPending() {
+        // 绕过监听器的批量更新
+        committedGold = 5;
+
+        medalStatsService.verify();
+
+        assertEquals(5L, medalStatsService.getMedalStats().get("totalGoldMedals"));
+    }
+}
@@ -0,0 +1,304 @@
+package com.brokerwallet.service;
+
+import com.brokerwallet.blockchain.ContractEvents;
+import com.brokerwallet.blockchain.NonceManager;
+import com.brokerwallet.blockchain.ReceiptTracker;
+import com.brokerwallet.dto.NftMintRequest;
+import com.brokerwallet.entity.NftImage;
+import com.brokerwallet.entity.NftImage.MintStatus;
+import com.brokerwallet.repository.NftImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * NFT铸造队列：按数量与 gas 上限打包批次，NftMinted 事件按接收地址对应到记录；
+ * 发送或确认结果不确定的批次按 nonce 找回或复查，不会重复铸造
+ */
+class NftMintQueueTest {
+
+    private static final String NFT_CONTRACT = "0x382ca68b8133893fdf46170efd839c7703d9e9ae";
+    private static final String OWNER_A = "0x0000000000000000000000000000000000200001";
+    private static final String OWNER_B = "0x0000000000000000000000000000000000200002";
+
+    private final Map<Long, NftImage> images = new LinkedHashMap<>();
+    private final AtomicLong nextNonce = new AtomicLong(10);
+    private final AtomicLong nextTokenId = new AtomicLong(1);
+
+    /**
+     * 交易哈希 -> 批次的接收地址
+     */
+    private final Map<String, List<String>> sentBatches = new LinkedHashMap<>();
+    private final List<BigInteger> gasLimits = new ArrayList<>();
+
+    private BlockchainService blockchainService;
+    private NonceManager nonceManager;
+    private NftMintQueue queue;
+
+    /**
+     * 交易哈希 -> 回执跟踪结果
+     */
+    private Function<String, CompletableFuture<TransactionReceipt>> receipts;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        NftImageRepository repository = Mockito.mock(NftImageRepository.class);
+        when(repository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(images.get(invocation.<Long>getArgument(0))));
+        when(repository.save(any(NftImage.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.findTop100ByMintStatusOrderByIdAsc(MintStatus.PENDING)).thenAnswer(invocation -> withStatus(MintStatus.PENDING));
+        when(repository.findByMintStatusOrderByUploadTimeDesc(MintStatus.PROCESSING))
+                .thenAnswer(invocation -> withStatus(MintStatus.PROCESSING));
+        when(repository.findByMintStatusAndMintNonce(eq(MintStatus.PROCESSING), anyLong())).thenAnswer(invocation ->
+                withStatus(MintStatus.PROCESSING).stream()
+                        .filter(image -> invocation.<Long>getArgument(1).equals(image.getMintNonce()))
+                        .collect(Collectors.toList()));
+        when(repository.findAllById(anyList())).thenAnswer(invocation -> {
+            List<NftImage> found = new ArrayList<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                found.add(images.get(id));
+            }
+            return found;
+        });
+
+        blockchainService = Mockito.mock(BlockchainService.class);
+        when(blockchainService.sendBatchMintNfts(anyList(), anyList(), anyList(), anyList(), anyList(), any(), any()))
+                .thenAnswer(this::send);
+        // 默认回执：按接收地址顺序各产生一个 NftMinted 事件
+        receipts = txHash -> receipt(true, sentBatches.get(txHash).stream()
+                .map(owner -> mintedLog(NFT_CONTRACT, owner, nextTokenId.getAndIncrement()))
+                .toArray(Log[]::new));
+        ReceiptTracker receiptTracker = Mockito.mock(ReceiptTracker.class);
+        when(receiptTracker.track(any())).thenAnswer(invocation -> receipts.apply(invocation.getArgument(0)));
+        nonceManager = Mockito.mock(NonceManager.class);
+
+        queue = new NftMintQueue(repository, blockchainService, receiptTracker,
+                Mockito.mock(DirtyWalletSyncService.class), nonceManager);
+        ReflectionTestUtils.setField(queue, "nftContractAddress", NFT_CONTRACT);
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "maxBatchSize", 3);
+        ReflectionTestUtils.setField(queue, "maxBatchGas", 2_500_000L);
+    }
+
+    @Test
+    void batchesArePackedBySizeAndGas() {
+        NftImage first = enqueue(OWNER_A, "small");
+        NftImage second = enqueue(OWNER_B, "small");
+        // 元数据超过 10000 字符：估算 2,400,000 gas，与任何记录合并都超过上限
+        NftImage large = enqueue(OWNER_A, "x".repeat(20000));
+        NftImage last = enqueue(OWNER_B, "small");
+
+        queue.dispatch();
+
+        assertEquals(Arrays.asList(List.of(OWNER_A, OWNER_B), List.of(OWNER_A), List.of(OWNER_B)),
+                new ArrayList<>(sentBatches.values()));
+        assertEquals(Arrays.asList(BigInteger.valueOf(2_000_000L), BigInteger.valueOf(2_400_000L),
+                BigInteger.valueOf(1_000_000L)), gasLimits);
+        for (NftImage image : List.of(first, second, large, last)) {
+            assertEquals(MintStatus.SUCCESS, image.getMintStatus());
+        }
+        assertEquals(Arrays.asList("1", "2", "3", "4"),
+                Arrays.asList(first.getTokenId(), second.getTokenId(), large.getTokenId(), last.getTokenId()));
+    }
+
+    @Test
+    void mintedEventsAreMatchedToRowsByOwner() {
+        NftImage firstOfA = enqueue(OWNER_A, "small");
+        NftImage ofB = enqueue(OWNER_B, "small");
+        NftImage secondOfA = enqueue(OWNER_A, "small");
+        ReflectionTestUtils.setField(queue, "maxBatchGas", 8_000_000L);
+        // 事件顺序与批次顺序不同；其他合约的同名事件不计入；OWNER_A 的第二个事件缺失
+        receipts = txHash -> receipt(true,
+                mintedLog(NFT_CONTRACT, OWNER_B, 7),
+                mintedLog("0x00000000000000000000000000000000000000ff", OWNER_A, 99),
+                mintedLog(NFT_CONTRACT, OWNER_A, 5));
+
+        queue.dispatch();
+
+        assertEquals(MintStatus.SUCCESS, firstOfA.getMintStatus());
+        assertEquals("5", firstOfA.getTokenId());
+        assertEquals(MintStatus.SUCCESS, ofB.getMintStatus());
+        assertEquals("7", ofB.getTokenId());
+        assertEquals(MintStatus.FAILED, secondOfA.getMintStatus());
+        assertNull(secondOfA.getTokenId());
+        assertTrue(secondOfA.getMintError().startsWith("NftMinted event not found"));
+    }
+
+    @Test
+    void revertedBatchIsRetriedOneByOne() throws Exception {
+        NftImage first = enqueue(OWNER_A, "small");
+        NftImage second = enqueue(OWNER_B, "small");
+        Function<String, CompletableFuture<TransactionReceipt>> confirmed = receipts;
+        receipts = txHash -> receipt(false);
+
+        queue.dispatch();
+        // 批次回滚：拆开后下轮单独发送
+        assertEquals(MintStatus.PENDING, first.getMintStatus());
+        assertNull(first.getMintNonce());
+
+        receipts = confirmed;
+        queue.dispatch();
+
+        assertEquals(MintStatus.SUCCESS, first.getMintStatus());
+        assertEquals(MintStatus.SUCCESS, second.getMintStatus());
+        assertEquals(Arrays.asList(List.of(OWNER_A, OWNER_B), List.of(OWNER_A), List.of(OWNER_B)),
+                new ArrayList<>(sentBatches.values()));
+    }
+
+    @Test
+    void sendWithUnknownOutcomeIsRecoveredByNonceInsteadOfResent() throws Exception {
+        NftImage image = enqueue(OWNER_A, "small");
+        doAnswer(invocation -> {
+            beforeSend(invocation);
+            throw new SocketTimeoutException("Read timed out");
+        }).when(blockchainService).sendBatchMintNfts(anyList(), anyList(), anyList(), anyList(), anyList(), any(), any());
+
+        queue.dispatch();
+
+        // 交易可能已进入交易池：记录按 nonce 保持铸造中
+        assertEquals(MintStatus.PROCESSING, image.getMintStatus());
+        assertEquals(10L, image.getMintNonce());
+        assertNull(image.getTransactionHash());
+
+        sentBatches.put("0xrecovered", List.of(OWNER_A));
+        when(nonceManager.findTransactionHash(eq(BigInteger.TEN), anyLong())).thenReturn(Optional.of("0xrecovered"));
+        queue.dispatch();
+
+        assertEquals(MintStatus.SUCCESS, image.getMintStatus());
+        assertEquals("0xrecovered", image.getTransactionHash());
+        verify(blockchainService, Mockito.times(1))
+                .sendBatchMintNfts(anyList(), anyList(), anyList(), anyList(), anyList(), any(), any());
+    }
+
+    @Test
+    void confirmationTimeoutIsRecheckedByNonce() throws Exception {
+        NftImage slow = enqueue(OWNER_A, "small");
+        Function<String, CompletableFuture<TransactionReceipt>> confirmed = receipts;
+        receipts = txHash -> CompletableFuture.failedFuture(new TimeoutException("Transaction confirmation timeout"));
+
+        queue.dispatch();
+        assertEquals(MintStatus.PROCESSING, slow.getMintStatus());
+
+        // nonce 尚未被占用（交易仍在交易池中）：继续跟踪回执
+        receipts = confirmed;
+        queue.dispatch();
+        assertEquals(MintStatus.SUCCESS, slow.getMintStatus());
+
+        NftImage replaced = enqueue(OWNER_B, "small");
+        receipts = txHash -> CompletableFuture.failedFuture(new TimeoutException("Transaction confirmation timeout"));
+        queue.dispatch();
+        // nonce 已被另一笔交易占用：本交易不可能再上链，标记失败而不是永远停在铸造中
+        when(nonceManager.findTransactionHash(eq(BigInteger.valueOf(11)), anyLong())).thenReturn(Optional.of("0xother"));
+        queue.dispatch();
+
+        assertEquals(MintStatus.FAILED, replaced.getMintStatus());
+        assertTrue(replaced.getMintError().contains("0xother"));
+        verify(blockchainService, Mockito.times(2))
+                .sendBatchMintNfts(anyList(), anyList(), anyList(), anyList(), anyList(), any(), any());
+    }
+
+    @Test
+    void droppedBatchIsRequeued() throws Exception {
+        NftImage image = enqueue(OWNER_A, "small");
+        Function<String, CompletableFuture<TransactionReceipt>> confirmed = receipts;
+        receipts = txHash -> CompletableFuture.failedFuture(new TimeoutException("Transaction confirmation timeout"));
+        queue.dispatch();
+
+        // PENDING 计数停在该 nonce：交易已被丢弃
+        queue.requeueDropped(BigInteger.valueOf(image.getMintNonce()));
+
+        assertEquals(MintStatus.PENDING, image.getMintStatus());
+        assertNull(image.getMintNonce());
+        assertNull(image.getTransactionHash());
+
+        receipts = confirmed;
+        queue.dispatch();
+
+        assertEquals(MintStatus.SUCCESS, image.getMintStatus());
+        verify(blockchainService, Mockito.times(2))
+                .sendBatchMintNfts(anyList(), anyList(), anyList(), anyList(), anyList(), any(), any());
+    }
+
+    private NftImage enqueue(String owner, String metadata) {
+        NftImage image = new NftImage();
+        image.setId((long) images.size() + 1);
+        images.put(image.getId(), image);
+        return queue.enqueue(NftMintRequest.builder()
+                .nftImageId(image.getId())
+                .ownerAddress(owner)
+                .name("nft-" + image.getId())
+                .imageData(metadata)
+                .build());
+    }
+
+    private List<NftImage> withStatus(MintStatus status) {
+        return images.values().stream().filter(image -> image.getMintStatus() == status).collect(Collectors.toList());
+    }
+
+    private String send(InvocationOnMock invocation) {
+        beforeSend(invocation);
+        String txHash = "0xbatch-" + (sentBatches.size() + 1);
+        sentBatches.put(txHash, new ArrayList<>(invocation.<List<String>>getArgument(0)));
+        gasLimits.add(invocation.getArgument(5));
+        return txHash;
+    }
+
+    private void beforeSend(InvocationOnMock invocation) {
+        invocation.<Consumer<BigInteger>>getArgument(6).accept(BigInteger.valueOf(nextNonce.getAndIncrement()));
+    }
+
+    private static Log mintedLog(String contract, String owner, long tokenId) {
+        Log log = new Log();
+        log.setAddress(contract);
+        log.setBlockNumber("0x10");
+        log.setTopics(Arrays.asList(ContractEvents.NFT_MINTED_TOPIC,
+                "0x" + TypeEncoder.encode(new Uint256(tokenId)),
+                "0x" + TypeEncoder.encode(new Address(owner))));
+        log.setData("0x" + FunctionEncoder.encodeConstructor(
+                Arrays.asList(new Utf8String("nft-" + tokenId), new Uint256(1_700_000_000L))));
+        return log;
+    }
+
+    private static CompletableFuture<TransactionReceipt> receipt(boolean success, Log... logs) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setStatus(success ? "0x1" : "0x0");
+        receipt.setLogs(Arrays.asList(logs));
+        return CompletableFuture.completedFuture(receipt);
+    }
+}